@@ -17,9 +17,14 @@
 package com.nxttxn.vramel.components.rabbitMQ;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -28,14 +33,22 @@ import com.nxttxn.vramel.ExchangePattern;
 import com.nxttxn.vramel.Message;
 import com.nxttxn.vramel.Processor;
 import com.nxttxn.vramel.impl.DefaultConsumer;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.Envelope;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
 
 public class RabbitMQConsumer extends DefaultConsumer {
     ExecutorService executor;
     Connection conn;
+    /**
+     * The Vert.x context deliveries are handed to, flows expect to run on an event loop
+     */
+    private Context context;
     private int closeTimeout = 30 * 1000;
     private final RabbitMQEndpoint endpoint;
 
@@ -112,6 +125,7 @@ public class RabbitMQConsumer extends DefaultConsumer {
 
     @Override
     protected void doStart() throws Exception {
+        context = ((VertxInternal) endpoint.getVramelContext().getVertx()).getOrAssignContext();
         executor = endpoint.createExecutor();
         logger.debug("Using executor {}", executor);
         try {
@@ -163,6 +177,12 @@ public class RabbitMQConsumer extends DefaultConsumer {
 
         private final RabbitMQConsumer consumer;
         private final Channel channel;
+        private final Acknowledgements acknowledgements;
+        /**
+         * A channel must not be used by several threads at once, so the replies, acks and rejects of this
+         * consumer's channel are run one at a time, in the order the flows complete
+         */
+        private final SerialExecutor channelExecutor;
         private String tag;
 
         /**
@@ -175,56 +195,91 @@ public class RabbitMQConsumer extends DefaultConsumer {
             super(channel);
             this.consumer = consumer;
             this.channel = channel;
+            this.acknowledgements = new Acknowledgements(channel, consumer.endpoint.getEffectiveAckBatchSize());
+            this.channelExecutor = new SerialExecutor(consumer.executor);
         }
 
         @Override
         public void handleDelivery(String consumerTag, Envelope envelope,
-                                   AMQP.BasicProperties properties, byte[] body) throws IOException {
+                                   final AMQP.BasicProperties properties, byte[] body) throws IOException {
 
-            Exchange exchange = consumer.endpoint.createRabbitExchange(envelope, properties, body);
+            final Exchange exchange = consumer.endpoint.createRabbitExchange(envelope, properties, body);
             mergeAmqpProperties(exchange, properties);
 
-            boolean sendReply = properties.getReplyTo() != null;
+            final boolean sendReply = properties.getReplyTo() != null;
             if (sendReply && !exchange.getPattern().isOutCapable()) {
                 exchange.setPattern(ExchangePattern.InOut);
             }
 
             logger.trace("Created exchange [exchange={}]", exchange);
-            long deliveryTag = envelope.getDeliveryTag();
-            try {
-                consumer.getProcessor().process(exchange);
-            } catch (Exception e) {
-                exchange.setException(e);
+            final long deliveryTag = envelope.getDeliveryTag();
+            if (!consumer.endpoint.isAutoAck()) {
+                acknowledgements.delivered(deliveryTag);
             }
 
-            if (!exchange.isFailed()) {
-                // processing success
-                if (sendReply && exchange.getPattern().isOutCapable()) {
-                    Message msg;
-                    if (exchange.hasOut()) {
-                        msg = exchange.getOut();
-                    } else {
-                        msg = exchange.getIn();
+            // the flow runs on the event loop, it is acked or rejected once it completes
+            context.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        consumer.getAsyncProcessor().process(exchange, new OptionalAsyncResultHandler() {
+                            @Override
+                            public void handle(AsyncExchangeResult result) {
+                                if (result.failed()) {
+                                    exchange.setException(result.getException());
+                                }
+                                completed(exchange, properties, sendReply, deliveryTag);
+                            }
+                        });
+                    } catch (Exception e) {
+                        exchange.setException(e);
+                        completed(exchange, properties, sendReply, deliveryTag);
                     }
-                    AMQP.BasicProperties replyProps = new AMQP.BasicProperties.Builder()
-                            .headers(msg.getHeaders())
-                            .correlationId(properties.getCorrelationId())
-                            .build();
-                    channel.basicPublish("", properties.getReplyTo(), replyProps, msg.getBody(byte[].class));
-                }
-                if (!consumer.endpoint.isAutoAck()) {
-                    logger.trace("Acknowledging receipt [delivery_tag={}]", deliveryTag);
-                    channel.basicAck(deliveryTag, false);
-                }
-            } else {
-                // processing failed, then reject and handle the exception
-                if (deliveryTag != 0 && !consumer.endpoint.isAutoAck()) {
-                    channel.basicReject(deliveryTag, false);
                 }
-                if (exchange.getException() != null) {
-                    getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+            });
+        }
+
+        /**
+         * Replies and acks or rejects a processed delivery. Talking to the broker can block, so it is done
+         * by the consumer's executor rather than on the event loop, one channel operation at a time.
+         */
+        void completed(final Exchange exchange, final AMQP.BasicProperties properties, final boolean sendReply, final long deliveryTag) {
+            channelExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!exchange.isFailed()) {
+                            // processing success
+                            if (sendReply && exchange.getPattern().isOutCapable()) {
+                                Message msg;
+                                if (exchange.hasOut()) {
+                                    msg = exchange.getOut();
+                                } else {
+                                    msg = exchange.getIn();
+                                }
+                                AMQP.BasicProperties replyProps = new AMQP.BasicProperties.Builder()
+                                        .headers(msg.getHeaders())
+                                        .correlationId(properties.getCorrelationId())
+                                        .build();
+                                channel.basicPublish("", properties.getReplyTo(), replyProps, msg.getBody(byte[].class));
+                            }
+                            if (!consumer.endpoint.isAutoAck()) {
+                                acknowledgements.succeeded(deliveryTag);
+                            }
+                        } else {
+                            // processing failed, then reject and handle the exception
+                            if (deliveryTag != 0 && !consumer.endpoint.isAutoAck()) {
+                                acknowledgements.failed(deliveryTag);
+                            }
+                            if (exchange.getException() != null) {
+                                getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+                            }
+                        }
+                    } catch (Exception e) {
+                        getExceptionHandler().handleException("Error acknowledging delivery " + deliveryTag, exchange, e);
+                    }
                 }
-            }
+            });
         }
 
         /**
@@ -270,6 +325,10 @@ public class RabbitMQConsumer extends DefaultConsumer {
             }
         }
 
+        Acknowledgements getAcknowledgements() {
+            return acknowledgements;
+        }
+
         /**
          * Bind consumer to channel
          */
@@ -288,6 +347,117 @@ public class RabbitMQConsumer extends DefaultConsumer {
         }
     }
 
+    /**
+     * Acks the deliveries of one channel as their flows complete, which can be in any order.
+     * <p/>
+     * A successful delivery is not acked right away. Once <tt>batchSize</tt> of them are complete, and no
+     * earlier delivery is still being processed, they are acked with a single <tt>multiple</tt> ack. Completed
+     * deliveries stuck behind a slow earlier one are acked one by one once there are <tt>batchSize</tt> of them,
+     * and everything is acked as soon as nothing is in flight, so acks never hold up the prefetch window.
+     */
+    static class Acknowledgements {
+        private final Channel channel;
+        private final int batchSize;
+        private final NavigableSet<Long> inFlight = new TreeSet<Long>();
+        private final NavigableSet<Long> succeeded = new TreeSet<Long>();
+
+        Acknowledgements(Channel channel, int batchSize) {
+            this.channel = channel;
+            this.batchSize = batchSize;
+        }
+
+        synchronized void delivered(long deliveryTag) {
+            inFlight.add(deliveryTag);
+        }
+
+        synchronized void succeeded(long deliveryTag) throws IOException {
+            inFlight.remove(deliveryTag);
+            succeeded.add(deliveryTag);
+            flush();
+        }
+
+        synchronized void failed(long deliveryTag) throws IOException {
+            inFlight.remove(deliveryTag);
+            channel.basicReject(deliveryTag, false);
+            flush();
+        }
+
+        private void flush() throws IOException {
+            final NavigableSet<Long> contiguous = inFlight.isEmpty() ? succeeded : succeeded.headSet(inFlight.first(), false);
+            if (!contiguous.isEmpty() && (inFlight.isEmpty() || contiguous.size() >= batchSize)) {
+                channel.basicAck(contiguous.last(), contiguous.size() > 1);
+                contiguous.clear();
+            }
+            if (succeeded.size() >= batchSize) {
+                for (Long deliveryTag : succeeded) {
+                    channel.basicAck(deliveryTag, false);
+                }
+                succeeded.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks given to it one at a time and in order on an underlying executor, without holding
+     * one of its threads while there is nothing to run.
+     */
+    static class SerialExecutor implements Executor {
+        private final Executor executor;
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        private boolean running;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runNext();
+                    }
+                });
+            } catch (RuntimeException e) {
+                synchronized (tasks) {
+                    tasks.clear();
+                    running = false;
+                }
+                throw e;
+            }
+        }
+
+        private void runNext() {
+            final Runnable task;
+            synchronized (tasks) {
+                task = tasks.poll();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (tasks) {
+                    if (tasks.isEmpty()) {
+                        running = false;
+                        return;
+                    }
+                }
+                schedule();
+            }
+        }
+    }
+
     /**
      * Task in charge of opening connection and adding listener when consumer is started
      * and broker is not available.
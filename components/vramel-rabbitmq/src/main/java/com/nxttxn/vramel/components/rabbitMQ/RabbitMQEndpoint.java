@@ -111,6 +111,9 @@ public class RabbitMQEndpoint extends DefaultEndpoint {
     //Default value in RabbitMQ is false.
 //    @UriParam(defaultValue = "false")
     private boolean prefetchGlobal;
+    //Number of completed deliveries acked together, 0 means half the prefetchCount when prefetch is enabled, otherwise 1.
+//    @UriParam(defaultValue = "0")
+    private int ackBatchSize;
     /**
      * Number of concurrent consumer threads
      */
@@ -137,6 +140,15 @@ public class RabbitMQEndpoint extends DefaultEndpoint {
     //Maximum time (in milliseconds) waiting for channel
 //    @UriParam(defaultValue = "1000")
     private long channelPoolMaxWait = 1000;
+    //When true the producer waits for the broker to confirm each publish before the exchange continues.
+//    @UriParam(defaultValue = "false")
+    private boolean publisherAcknowledgements;
+    //Maximum time (in milliseconds) waiting for a publisher acknowledgement, 0 waits as long as the channel is open.
+//    @UriParam(defaultValue = "0")
+    private long publisherAcknowledgementsTimeout;
+    //Maximum number of publishes waiting for each publisher lane, once it is full further publishes are rejected.
+//    @UriParam(defaultValue = "1000")
+    private int publisherQueueSize = 1000;
 
     public RabbitMQEndpoint() {
     }
@@ -548,6 +560,28 @@ public class RabbitMQEndpoint extends DefaultEndpoint {
         return prefetchGlobal;
     }
 
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    /**
+     * The number of completed deliveries acked together. Half the prefetch count keeps the broker's
+     * window from running dry while the acks are batched.
+     */
+    public int getEffectiveAckBatchSize() {
+        if (ackBatchSize > 0) {
+            return ackBatchSize;
+        }
+        if (prefetchEnabled && prefetchCount > 1) {
+            return prefetchCount / 2;
+        }
+        return 1;
+    }
+
     public int getConcurrentConsumers() {
         return concurrentConsumers;
     }
@@ -631,4 +665,48 @@ public class RabbitMQEndpoint extends DefaultEndpoint {
     public void setChannelPoolMaxWait(long channelPoolMaxWait) {
         this.channelPoolMaxWait = channelPoolMaxWait;
     }
+
+    public boolean isPublisherAcknowledgements() {
+        return publisherAcknowledgements;
+    }
+
+    /**
+     * Put the producer channels in confirm mode, so an exchange only completes once the broker has
+     * taken responsibility for its message. Confirms of many in-flight publishes arrive batched.
+     *
+     * @param publisherAcknowledgements true to wait for publisher confirms
+     */
+    public void setPublisherAcknowledgements(boolean publisherAcknowledgements) {
+        this.publisherAcknowledgements = publisherAcknowledgements;
+    }
+
+    public long getPublisherAcknowledgementsTimeout() {
+        return publisherAcknowledgementsTimeout;
+    }
+
+    /**
+     * Set the maximum number of milliseconds to wait for a publisher acknowledgement
+     *
+     * @param publisherAcknowledgementsTimeout Maximum number of milliseconds, 0 to wait until the channel closes
+     */
+    public void setPublisherAcknowledgementsTimeout(long publisherAcknowledgementsTimeout) {
+        this.publisherAcknowledgementsTimeout = publisherAcknowledgementsTimeout;
+    }
+
+    public int getPublisherQueueSize() {
+        return publisherQueueSize;
+    }
+
+    /**
+     * Set the maximum number of publishes waiting for each publisher lane. A publish over the limit fails its
+     * exchange with a {@link java.util.concurrent.RejectedExecutionException} rather than blocking the event loop.
+     *
+     * @param publisherQueueSize Maximum number of waiting publishes per lane
+     */
+    public void setPublisherQueueSize(int publisherQueueSize) {
+        if (publisherQueueSize <= 0) {
+            throw new IllegalArgumentException("PublisherQueueSize must be a positive number, was: " + publisherQueueSize);
+        }
+        this.publisherQueueSize = publisherQueueSize;
+    }
 }
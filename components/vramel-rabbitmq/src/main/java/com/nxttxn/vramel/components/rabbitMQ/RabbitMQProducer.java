@@ -21,24 +21,51 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nxttxn.vramel.Exchange;
-import com.nxttxn.vramel.components.rabbitMQ.pool.PoolableChannelFactory;
-import com.nxttxn.vramel.impl.DefaultProducer;
+import com.nxttxn.vramel.Rejectable;
+import com.nxttxn.vramel.ThreadPoolRejectedPolicy;
+import com.nxttxn.vramel.impl.DefaultAsyncProducer;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.spi.ThreadPoolProfile;
 import com.nxttxn.vramel.util.ObjectHelper;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.rabbitmq.client.Connection;
-import org.apache.commons.pool.ObjectPool;
-import org.apache.commons.pool.impl.GenericObjectPool;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
 
-public class RabbitMQProducer extends DefaultProducer {
+/**
+ * Publishes exchanges to RabbitMQ without blocking the event loop.
+ * <p/>
+ * Talking to the broker can block, so each publish is handed to one of <tt>channelPoolMaxSize</tt> publisher
+ * lanes, picked round robin. A lane is a single thread owning its own channel, so channels are never shared
+ * between threads and publishes on a lane keep their order. The exchange continues on its Vert.x context once
+ * the message has been written or, with <tt>publisherAcknowledgements</tt>, once the broker has confirmed it.
+ * At most <tt>publisherQueueSize</tt> publishes wait for each lane, further ones fail with a
+ * {@link RejectedExecutionException}.
+ */
+public class RabbitMQProducer extends DefaultAsyncProducer {
 
     private Connection conn;
-    private ObjectPool<Channel> channelPool;
-    private ExecutorService executorService;
+    private ExecutorService connectionExecutor;
+    private PublisherLane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
     private int closeTimeout = 30 * 1000;
 
     public RabbitMQProducer(RabbitMQEndpoint endpoint) throws IOException {
@@ -52,130 +79,352 @@ public class RabbitMQProducer extends DefaultProducer {
     }
 
     /**
-     * Channel callback (similar to Spring JDBC ConnectionCallback)
-     */
-    private static interface ChannelCallback<T> {
-        T doWithChannel(Channel channel) throws Exception;
-    }
-
-    /**
-     * Do something with a pooled channel (similar to Spring JDBC TransactionTemplate#execute)
+     * Open the connection if needed, declaring the exchange and queue the first time
      */
-    private <T> T execute(ChannelCallback<T> callback) throws Exception {
-        Channel channel = channelPool.borrowObject();
-        try {
-            return callback.doWithChannel(channel);
-        } finally {
-            channelPool.returnObject(channel);
+    private synchronized Connection getOrOpenConnection() throws IOException {
+        if (conn != null && conn.isOpen()) {
+            return conn;
         }
-    }
-
-    /**
-     * Open connection and initialize channel pool
-     */
-    private void openConnectionAndChannelPool() throws Exception {
+        final boolean firstConnection = conn == null;
         logger.trace("Creating connection...");
-        this.conn = getEndpoint().connect(executorService);
+        conn = getEndpoint().connect(connectionExecutor);
         logger.debug("Created connection: {}", conn);
 
-        logger.trace("Creating channel pool...");
-        channelPool = new GenericObjectPool<Channel>(new PoolableChannelFactory(this.conn), getEndpoint().getChannelPoolMaxSize(),
-                GenericObjectPool.WHEN_EXHAUSTED_BLOCK, getEndpoint().getChannelPoolMaxWait());
-        if (getEndpoint().isDeclare()) {
-            execute(new ChannelCallback<Void>() {
-                @Override
-                public Void doWithChannel(Channel channel) throws Exception {
-                    getEndpoint().declareExchangeAndQueue(channel);
-                    return null;
-                }
-            });
+        if (firstConnection && getEndpoint().isDeclare()) {
+            final Channel channel = conn.createChannel();
+            try {
+                getEndpoint().declareExchangeAndQueue(channel);
+            } finally {
+                channel.close();
+            }
         }
+        return conn;
     }
 
     @Override
     protected void doStart() throws Exception {
-        logger.trace("doStart() called. Initializing executerService.");
-
-        this.executorService = getEndpoint().getVramelContext().getExecutorServiceManager().newSingleThreadExecutor(this, "CamelRabbitMQProducer[" + getEndpoint().getQueue() + "]");
+        logger.trace("doStart() called. Initializing executorServices.");
+
+        final String name = "CamelRabbitMQProducer[" + getEndpoint().getQueue() + "]";
+        this.connectionExecutor = getEndpoint().getVramelContext().getExecutorServiceManager().newSingleThreadExecutor(this, name);
+        this.lanes = new PublisherLane[Math.max(1, getEndpoint().getChannelPoolMaxSize())];
+        for (int i = 0; i < lanes.length; i++) {
+            final ThreadPoolProfile profile = new ThreadPoolProfile(name + "#" + i);
+            profile.setPoolSize(1);
+            profile.setMaxPoolSize(1);
+            profile.setKeepAliveTime(0L);
+            profile.setMaxQueueSize(getEndpoint().getPublisherQueueSize());
+            // never publish on the caller, which is an event loop
+            profile.setRejectedPolicy(ThreadPoolRejectedPolicy.Abort);
+            lanes[i] = new PublisherLane(getEndpoint().getVramelContext().getExecutorServiceManager().newThreadPool(this, name + "#" + i, profile));
+        }
 
-        logger.trace("doStart: executerService initialized {}", this.executorService);
+        logger.trace("doStart: {} publisher lanes initialized", lanes.length);
 
         try {
-            openConnectionAndChannelPool();
+            getOrOpenConnection();
         } catch (IOException e) {
             logger.warn("Failed to create connection", e);
         }
     }
 
+    @Override
+    protected void doStop() throws Exception {
+        logger.trace("doStop() called. closing channels, connection");
+        if (lanes != null) {
+            for (PublisherLane lane : lanes) {
+                lane.shutdown();
+            }
+            lanes = null;
+        }
+        synchronized (this) {
+            if (conn != null) {
+                logger.debug("Closing connection: {} with timeout: {} ms.", conn, closeTimeout);
+                conn.close(closeTimeout);
+                conn = null;
+            }
+        }
+        if (connectionExecutor != null) {
+            logger.trace("doStop: Shutting down executorService now.");
+            getEndpoint().getVramelContext().getExecutorServiceManager().shutdownNow(connectionExecutor);
+            connectionExecutor = null;
+        }
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        final Vertx vertx = getEndpoint().getVramelContext().getVertx();
+        final PendingPublish publish = new PendingPublish(exchange, optionalAsyncResultHandler, ((VertxInternal) vertx).getOrAssignContext());
+
+        final String exchangeName;
+        final String key;
+        final byte[] messageBodyBytes;
+        final AMQP.BasicProperties properties;
+        try {
+            String headerExchangeName = exchange.getIn().getHeader(RabbitMQConstants.EXCHANGE_NAME, String.class);
+            // If it is BridgeEndpoint we should ignore the message header of EXCHANGE_NAME
+            if (headerExchangeName == null || getEndpoint().isBridgeEndpoint()) {
+                headerExchangeName = getEndpoint().getExchangeName();
+            }
+            exchangeName = headerExchangeName;
+            String headerKey = exchange.getIn().getHeader(RabbitMQConstants.ROUTING_KEY, null, String.class);
+            // we just need to make sure RoutingKey option take effect if it is not BridgeEndpoint
+            if (headerKey == null || getEndpoint().isBridgeEndpoint()) {
+                headerKey = getEndpoint().getRoutingKey() == null ? "" : getEndpoint().getRoutingKey();
+            }
+            key = headerKey;
+            if (ObjectHelper.isEmpty(key) && ObjectHelper.isEmpty(exchangeName)) {
+                throw new IllegalArgumentException("ExchangeName and RoutingKey is not provided in the endpoint: " + getEndpoint());
+            }
+            messageBodyBytes = exchange.getIn().getMandatoryBody(byte[].class);
+            properties = buildProperties(exchange).build();
+        } catch (Exception e) {
+            publish.complete(e);
+            return false;
+        }
+
+        final PublisherLane[] lanes = this.lanes;
+        if (lanes == null) {
+            publish.complete(new IllegalStateException("RabbitMQProducer is not started: " + getEndpoint()));
+            return false;
+        }
+
+        if (getEndpoint().isPublisherAcknowledgements() && getEndpoint().getPublisherAcknowledgementsTimeout() > 0) {
+            publish.startTimer(vertx, getEndpoint().getPublisherAcknowledgementsTimeout());
+        }
+
+        logger.trace("publishing {} byte message to rabbitMQ exchange: {}, key: {}, properties: {}",
+                messageBodyBytes.length, exchangeName, key, properties);
+
+        final PublisherLane lane = lanes[(nextLane.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+        lane.publish(new PublishTask(lane, publish, exchangeName, key, properties, messageBodyBytes));
+        return false;
+    }
+
     /**
-     * If needed, close Connection and Channel
+     * An exchange waiting for its publish to complete. It is completed exactly once, by whichever of the
+     * lane, the broker's confirm, the channel shutdown or the timeout gets there first.
      */
-    private void closeConnectionAndChannel() throws Exception {
-        if (channelPool != null) {
-            channelPool.close();
+    private static final class PendingPublish {
+        private final Exchange exchange;
+        private final OptionalAsyncResultHandler handler;
+        private final Context context;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private Vertx vertx;
+        private long timerId = -1;
+
+        PendingPublish(Exchange exchange, OptionalAsyncResultHandler handler, Context context) {
+            this.exchange = exchange;
+            this.handler = handler;
+            this.context = context;
         }
-        if (conn != null) {
-            logger.debug("Closing connection: {} with timeout: {} ms.", conn, closeTimeout);
-            conn.close(closeTimeout);
-            conn = null;
+
+        /**
+         * Called on the exchange's context, before the publish is handed to a lane.
+         */
+        void startTimer(Vertx vertx, final long timeout) {
+            this.vertx = vertx;
+            this.timerId = vertx.setTimer(timeout, new Handler<Long>() {
+                @Override
+                public void handle(Long event) {
+                    timerId = -1;
+                    complete(new TimeoutException("No publisher acknowledgement received within " + timeout + " ms"));
+                }
+            });
+        }
+
+        /**
+         * Continues the exchange on its own context.
+         *
+         * @param cause the publish failure, <tt>null</tt> when it succeeded
+         * @return false if the publish was already completed
+         */
+        boolean complete(final Exception cause) {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+            context.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (timerId != -1) {
+                        vertx.cancelTimer(timerId);
+                        timerId = -1;
+                    }
+                    if (cause != null) {
+                        exchange.setException(cause);
+                    }
+                    handler.done(exchange);
+                }
+            });
+            return true;
         }
     }
 
-    @Override
-    protected void doStop() throws Exception {
-        logger.trace("doStop() called. closing channel, connection");
-        closeConnectionAndChannel();
-        if (executorService != null) {
-            logger.trace("doStop: Shutting down executerService now.");
-            getEndpoint().getVramelContext().getExecutorServiceManager().shutdownNow(executorService);
-            executorService = null;
+    /**
+     * A publish waiting for its lane. The lane rejects it once <tt>publisherQueueSize</tt> publishes are waiting.
+     */
+    private final class PublishTask implements Runnable, Rejectable {
+        private final PublisherLane lane;
+        private final PendingPublish publish;
+        private final String exchangeName;
+        private final String routingKey;
+        private final AMQP.BasicProperties properties;
+        private final byte[] body;
+
+        PublishTask(PublisherLane lane, PendingPublish publish, String exchangeName, String routingKey, AMQP.BasicProperties properties, byte[] body) {
+            this.lane = lane;
+            this.publish = publish;
+            this.exchangeName = exchangeName;
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            try {
+                lane.basicPublish(this);
+            } catch (Exception e) {
+                publish.complete(e);
+            }
+        }
+
+        @Override
+        public void reject() {
+            publish.complete(new RejectedExecutionException("Publisher lane is full or stopped: " + getEndpoint()));
         }
     }
 
-    @Override
-    public void process(Exchange exchange) throws Exception {
-        String exchangeName = exchange.getIn().getHeader(RabbitMQConstants.EXCHANGE_NAME, String.class);
-        // If it is BridgeEndpoint we should ignore the message header of EXCHANGE_NAME
-        if (exchangeName == null || getEndpoint().isBridgeEndpoint()) {
-            exchangeName = getEndpoint().getExchangeName();
+    /**
+     * A single publishing thread and the channel only it uses. In confirm mode the publishes waiting for the
+     * broker are tracked by sequence number in a map belonging to the channel, so a reopened channel, whose
+     * sequence numbers start over, never confirms the publishes of the one before it.
+     */
+    private final class PublisherLane {
+        private final ExecutorService executor;
+        // only used by the lane's thread
+        private Channel channel;
+        private ConcurrentNavigableMap<Long, PendingPublish> unconfirmed;
+
+        PublisherLane(ExecutorService executor) {
+            this.executor = executor;
         }
-        String key = exchange.getIn().getHeader(RabbitMQConstants.ROUTING_KEY, null, String.class);
-        // we just need to make sure RoutingKey option take effect if it is not BridgeEndpoint
-        if (key == null || getEndpoint().isBridgeEndpoint()) {
-            key = getEndpoint().getRoutingKey() == null ? "" : getEndpoint().getRoutingKey();
+
+        void publish(PublishTask task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.publish.complete(e);
+            }
         }
-        if (ObjectHelper.isEmpty(key) && ObjectHelper.isEmpty(exchangeName)) {
-            throw new IllegalArgumentException("ExchangeName and RoutingKey is not provided in the endpoint: " + getEndpoint());
+
+        private void basicPublish(PublishTask task) throws IOException {
+            final Channel channel = getOrOpenChannel();
+            if (unconfirmed == null) {
+                channel.basicPublish(task.exchangeName, task.routingKey, task.properties, task.body);
+                task.publish.complete(null);
+                return;
+            }
+
+            // registered before publishing, the confirm can arrive before basicPublish returns
+            final long sequenceNumber = channel.getNextPublishSeqNo();
+            unconfirmed.put(sequenceNumber, task.publish);
+            try {
+                channel.basicPublish(task.exchangeName, task.routingKey, task.properties, task.body);
+            } catch (IOException e) {
+                unconfirmed.remove(sequenceNumber);
+                throw e;
+            }
         }
-        byte[] messageBodyBytes = exchange.getIn().getMandatoryBody(byte[].class);
-        AMQP.BasicProperties properties = buildProperties(exchange).build();
 
-        logger.trace("publising {} byte message to rabbitMQ exchange: {}, key: {}, properties: {}",
-                messageBodyBytes.length, exchangeName, key, properties);
+        private Channel getOrOpenChannel() throws IOException {
+            if (channel != null && channel.isOpen()) {
+                return channel;
+            }
+            final Channel opened = getOrOpenConnection().createChannel();
+            if (getEndpoint().isPublisherAcknowledgements()) {
+                final ConcurrentNavigableMap<Long, PendingPublish> pending = new ConcurrentSkipListMap<>();
+                opened.confirmSelect();
+                opened.addConfirmListener(new PublisherConfirms(pending));
+                opened.addShutdownListener(new ShutdownListener() {
+                    @Override
+                    public void shutdownCompleted(ShutdownSignalException cause) {
+                        failAll(pending, cause);
+                    }
+                });
+                unconfirmed = pending;
+            } else {
+                unconfirmed = null;
+            }
+            logger.debug("Opened publisher channel: {}", opened);
+            channel = opened;
+            return opened;
+        }
 
-        basicPublish(exchangeName, key, properties, messageBodyBytes);
+        void shutdown() {
+            final List<Runnable> dropped = getEndpoint().getVramelContext().getExecutorServiceManager().shutdownNow(executor);
+            for (Runnable runnable : dropped) {
+                if (runnable instanceof PublishTask) {
+                    ((PublishTask) runnable).publish.complete(new RejectedExecutionException("RabbitMQProducer was stopped: " + getEndpoint()));
+                }
+            }
+            final Channel channel = this.channel;
+            if (channel != null && channel.isOpen()) {
+                try {
+                    // fails the publishes still waiting for a confirm through the shutdown listener
+                    channel.close();
+                } catch (Exception e) {
+                    logger.debug("Error closing publisher channel: " + channel, e);
+                }
+            }
+        }
     }
 
     /**
-     * Send a message borrowing a channel from the pool.
-     *
-     * @param exchange   Target exchange
-     * @param routingKey Routing key
-     * @param properties Header properties
-     * @param body       Body content
+     * Completes the publishes the broker confirmed. With many publishes in flight the broker confirms them in
+     * batches, <tt>multiple</tt> covering every sequence number up to and including the delivery tag.
      */
-    private void basicPublish(final String exchange, final String routingKey, final AMQP.BasicProperties properties, final byte[] body) throws Exception {
-        if (channelPool == null) {
-            // Open connection and channel lazily
-            openConnectionAndChannelPool();
-        }
-        execute(new ChannelCallback<Void>() {
-            @Override
-            public Void doWithChannel(Channel channel) throws Exception {
-                channel.basicPublish(exchange, routingKey, properties, body);
-                return null;
+    private final class PublisherConfirms implements ConfirmListener {
+        private final ConcurrentNavigableMap<Long, PendingPublish> unconfirmed;
+
+        PublisherConfirms(ConcurrentNavigableMap<Long, PendingPublish> unconfirmed) {
+            this.unconfirmed = unconfirmed;
+        }
+
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+            confirmed(deliveryTag, multiple, null);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+            confirmed(deliveryTag, multiple, new IOException("Publish was nacked by the broker: " + getEndpoint()));
+        }
+
+        private void confirmed(long deliveryTag, boolean multiple, Exception cause) {
+            if (multiple) {
+                final NavigableMap<Long, PendingPublish> confirmed = unconfirmed.headMap(deliveryTag, true);
+                for (PendingPublish publish : confirmed.values()) {
+                    publish.complete(cause);
+                }
+                confirmed.clear();
+            } else {
+                final PendingPublish publish = unconfirmed.remove(deliveryTag);
+                if (publish != null) {
+                    publish.complete(cause);
+                }
             }
-        });
+        }
+    }
+
+    private void failAll(ConcurrentNavigableMap<Long, PendingPublish> unconfirmed, Exception cause) {
+        if (!unconfirmed.isEmpty()) {
+            logger.warn("Publisher channel closed with {} unconfirmed publishes: {}", unconfirmed.size(), cause.getMessage());
+        }
+        Map.Entry<Long, PendingPublish> entry;
+        while ((entry = unconfirmed.pollFirstEntry()) != null) {
+            entry.getValue().complete(cause);
+        }
     }
 
     AMQP.BasicProperties.Builder buildProperties(Exchange exchange) {
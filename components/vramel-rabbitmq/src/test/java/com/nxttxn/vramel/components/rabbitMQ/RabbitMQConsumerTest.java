@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nxttxn.vramel.components.rabbitMQ;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.ExchangePattern;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+
+public class RabbitMQConsumerTest {
+
+    private VramelContext context = Mockito.mock(VramelContext.class);
+    private Channel channel = Mockito.mock(Channel.class);
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAcksAreBatchedBehindTheOldestDeliveryInFlight() throws Exception {
+        final RabbitMQConsumer.Acknowledgements acknowledgements = new RabbitMQConsumer.Acknowledgements(channel, 2);
+        for (long tag = 1; tag <= 4; tag++) {
+            acknowledgements.delivered(tag);
+        }
+
+        acknowledgements.succeeded(2);
+        acknowledgements.succeeded(3);
+        // 1 is still in flight, the two completed ones are acked one by one
+        Mockito.verify(channel).basicAck(2, false);
+        Mockito.verify(channel).basicAck(3, false);
+
+        acknowledgements.succeeded(1);
+        acknowledgements.succeeded(4);
+        // nothing in flight anymore, the rest is acked at once
+        Mockito.verify(channel).basicAck(4, true);
+        Mockito.verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    public void testContiguousAcksAreSentWithMultiple() throws Exception {
+        final RabbitMQConsumer.Acknowledgements acknowledgements = new RabbitMQConsumer.Acknowledgements(channel, 3);
+        for (long tag = 1; tag <= 4; tag++) {
+            acknowledgements.delivered(tag);
+        }
+
+        acknowledgements.succeeded(1);
+        acknowledgements.succeeded(2);
+        Mockito.verify(channel, Mockito.never()).basicAck(anyLong(), anyBoolean());
+        acknowledgements.succeeded(3);
+        Mockito.verify(channel).basicAck(3, true);
+
+        acknowledgements.succeeded(4);
+        Mockito.verify(channel).basicAck(4, false);
+        Mockito.verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    public void testFailedDeliveriesAreRejected() throws Exception {
+        final RabbitMQConsumer.Acknowledgements acknowledgements = new RabbitMQConsumer.Acknowledgements(channel, 10);
+        acknowledgements.delivered(1);
+        acknowledgements.delivered(2);
+
+        acknowledgements.succeeded(2);
+        acknowledgements.failed(1);
+
+        final InOrder inOrder = Mockito.inOrder(channel);
+        inOrder.verify(channel).basicReject(1, false);
+        inOrder.verify(channel).basicAck(2, false);
+        Mockito.verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    public void testSerialExecutorRunsOneTaskAtATimeInOrder() throws Exception {
+        final RabbitMQConsumer.SerialExecutor serial = new RabbitMQConsumer.SerialExecutor(executor);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final StringBuffer order = new StringBuffer();
+        final CountDownLatch latch = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            final int task = i;
+            serial.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    order.append(task).append(',');
+                    Thread.yield();
+                    running.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue("Not every task ran", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append(',');
+        }
+        assertEquals(expected.toString(), order.toString());
+    }
+
+    @Test
+    public void testReplyIsPublishedBeforeTheAckOnTheSameThread() throws Exception {
+        final RabbitMQConsumer.RabbitConsumer rabbitConsumer = createRabbitConsumer(1);
+        final Exchange exchange = new DefaultExchange(new DefaultVramelContext(new DefaultVertx()), ExchangePattern.InOut);
+        exchange.getIn().setBody("request");
+        exchange.getOut().setBody("reply");
+        exchange.getOut().setHeader("status", "ok");
+        final AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().replyTo("replies").correlationId("42").build();
+
+        final CountDownLatch acked = new CountDownLatch(1);
+        final Thread[] threads = new Thread[2];
+        Mockito.doAnswer(new ThreadRecorder(threads, 0, null)).when(channel)
+                .basicPublish(eq(""), eq("replies"), any(AMQP.BasicProperties.class), any(byte[].class));
+        Mockito.doAnswer(new ThreadRecorder(threads, 1, acked)).when(channel).basicAck(anyLong(), anyBoolean());
+
+        rabbitConsumer.getAcknowledgements().delivered(7);
+        rabbitConsumer.completed(exchange, properties, true, 7);
+        assertTrue("The delivery was not acked", acked.await(5, TimeUnit.SECONDS));
+
+        final ArgumentCaptor<AMQP.BasicProperties> replyProps = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        final ArgumentCaptor<byte[]> replyBody = ArgumentCaptor.forClass(byte[].class);
+        final InOrder inOrder = Mockito.inOrder(channel);
+        inOrder.verify(channel).basicPublish(eq(""), eq("replies"), replyProps.capture(), replyBody.capture());
+        inOrder.verify(channel).basicAck(7, false);
+        assertEquals("42", replyProps.getValue().getCorrelationId());
+        assertEquals("ok", replyProps.getValue().getHeaders().get("status"));
+        assertEquals("reply", new String(replyBody.getValue(), "UTF-8"));
+        assertTrue("The reply and the ack ran on the consumer's executor", threads[0] != Thread.currentThread());
+    }
+
+    @Test
+    public void testFailedExchangeIsRejectedWithoutAReply() throws Exception {
+        final RabbitMQConsumer.RabbitConsumer rabbitConsumer = createRabbitConsumer(1);
+        final Exchange exchange = new DefaultExchange(new DefaultVramelContext(new DefaultVertx()), ExchangePattern.InOut);
+        exchange.setException(new IllegalStateException("boom"));
+        final AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().replyTo("replies").build();
+
+        final CountDownLatch rejected = new CountDownLatch(1);
+        Mockito.doAnswer(new ThreadRecorder(new Thread[1], 0, rejected)).when(channel).basicReject(anyLong(), anyBoolean());
+
+        rabbitConsumer.getAcknowledgements().delivered(3);
+        rabbitConsumer.completed(exchange, properties, true, 3);
+        assertTrue("The delivery was not rejected", rejected.await(5, TimeUnit.SECONDS));
+
+        Mockito.verify(channel).basicReject(3, false);
+        Mockito.verify(channel, Mockito.never()).basicPublish(any(String.class), any(String.class), any(AMQP.BasicProperties.class), any(byte[].class));
+        Mockito.verify(channel, Mockito.never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void testChannelOperationsOfManyDeliveriesNeverOverlap() throws Exception {
+        final RabbitMQConsumer.RabbitConsumer rabbitConsumer = createRabbitConsumer(1);
+        final DefaultVramelContext vramelContext = new DefaultVramelContext(new DefaultVertx());
+        final AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().replyTo("replies").build();
+        final AtomicInteger inChannel = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch acked = new CountDownLatch(50);
+        final Answer<Void> exclusive = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                if (inChannel.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.sleep(1);
+                inChannel.decrementAndGet();
+                if (invocation.getMethod().getName().equals("basicAck")) {
+                    acked.countDown();
+                }
+                return null;
+            }
+        };
+        Mockito.doAnswer(exclusive).when(channel).basicPublish(any(String.class), any(String.class), any(AMQP.BasicProperties.class), any(byte[].class));
+        Mockito.doAnswer(exclusive).when(channel).basicAck(anyLong(), anyBoolean());
+
+        for (long tag = 1; tag <= 50; tag++) {
+            rabbitConsumer.getAcknowledgements().delivered(tag);
+        }
+        for (long tag = 1; tag <= 50; tag++) {
+            final Exchange exchange = new DefaultExchange(vramelContext, ExchangePattern.InOut);
+            exchange.getOut().setBody("reply " + tag);
+            rabbitConsumer.completed(exchange, properties, true, tag);
+        }
+
+        assertTrue("Not every delivery was acked", acked.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+    }
+
+    private RabbitMQConsumer.RabbitConsumer createRabbitConsumer(int ackBatchSize) throws Exception {
+        final RabbitMQEndpoint endpoint = new RabbitMQComponent(context)
+                .createEndpoint("rabbitMQ:special.host:14/queuey", "special.host:14/queuey", new HashMap<String, Object>());
+        endpoint.setAutoAck(false);
+        endpoint.setAckBatchSize(ackBatchSize);
+        final RabbitMQConsumer consumer = new RabbitMQConsumer(endpoint, null);
+        consumer.executor = executor;
+        return consumer.new RabbitConsumer(consumer, channel);
+    }
+
+    /**
+     * Records the thread a channel operation ran on
+     */
+    private static class ThreadRecorder implements Answer<Void> {
+        private final Thread[] threads;
+        private final int index;
+        private final CountDownLatch latch;
+
+        ThreadRecorder(Thread[] threads, int index, CountDownLatch latch) {
+            this.threads = threads;
+            this.index = index;
+            this.latch = latch;
+        }
+
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+            threads[index] = Thread.currentThread();
+            if (latch != null) {
+                latch.countDown();
+            }
+            return null;
+        }
+    }
+}
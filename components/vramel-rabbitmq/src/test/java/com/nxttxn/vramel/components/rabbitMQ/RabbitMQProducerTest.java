@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nxttxn.vramel.components.rabbitMQ;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+
+public class RabbitMQProducerTest {
+
+    private DefaultVramelContext context;
+    private Channel channel = Mockito.mock(Channel.class);
+    private RabbitMQEndpoint endpoint;
+    private RabbitMQProducer producer;
+    private final CountDownLatch publishing = new CountDownLatch(1);
+    private final CountDownLatch releasePublish = new CountDownLatch(1);
+    private final List<Exchange> answers = new CopyOnWriteArrayList<Exchange>();
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        final ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        final Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connectionFactory.newConnection(any(ExecutorService.class))).thenReturn(connection);
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.createChannel()).thenReturn(channel);
+        Mockito.when(channel.isOpen()).thenReturn(true);
+        // the first publish holds the lane's thread until it is released
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                publishing.countDown();
+                releasePublish.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(channel).basicPublish(any(String.class), any(String.class), any(AMQP.BasicProperties.class), any(byte[].class));
+
+        endpoint = new RabbitMQComponent(context).createEndpoint("rabbitMQ:special.host:14/exchange", "special.host:14/exchange", new HashMap<String, Object>());
+        endpoint.setVramelContext(context);
+        endpoint.setConnectionFactory(connectionFactory);
+        endpoint.setDeclare(false);
+        endpoint.setChannelPoolMaxSize(1);
+        endpoint.setPublisherQueueSize(2);
+        producer = new RabbitMQProducer(endpoint);
+        producer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        releasePublish.countDown();
+        producer.stop();
+    }
+
+    @Test
+    public void testPublishIsRejectedWhenTheLaneIsFull() throws Exception {
+        final CountDownLatch rejected = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+
+        producer.process(exchange("1"), answerHandler(done, null));
+        assertTrue("The lane did not start publishing", publishing.await(5, TimeUnit.SECONDS));
+        producer.process(exchange("2"), answerHandler(done, null));
+        producer.process(exchange("3"), answerHandler(done, null));
+        producer.process(exchange("4"), answerHandler(done, rejected));
+
+        assertTrue("The publish over the queue size was not rejected", rejected.await(5, TimeUnit.SECONDS));
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).getException() instanceof RejectedExecutionException);
+        assertEquals("4", answers.get(0).getIn().getBody(String.class));
+
+        releasePublish.countDown();
+        assertTrue("The queued publishes did not complete", done.await(5, TimeUnit.SECONDS));
+        for (Exchange answer : answers.subList(1, answers.size())) {
+            assertNull(answer.getException());
+        }
+        Mockito.verify(channel, Mockito.times(3)).basicPublish(any(String.class), any(String.class), any(AMQP.BasicProperties.class), any(byte[].class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPublisherQueueSizeMustBePositive() throws Exception {
+        endpoint.setPublisherQueueSize(0);
+    }
+
+    private Exchange exchange(String body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        exchange.getIn().setHeader(RabbitMQConstants.ROUTING_KEY, "key");
+        return exchange;
+    }
+
+    private OptionalAsyncResultHandler answerHandler(final CountDownLatch done, final CountDownLatch rejected) {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+                if (rejected != null) {
+                    rejected.countDown();
+                }
+                done.countDown();
+            }
+        };
+    }
+}
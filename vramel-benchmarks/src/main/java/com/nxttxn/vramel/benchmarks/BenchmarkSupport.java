@@ -0,0 +1,82 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Shared setup of the benchmarks: a started vramel context on an embedded Vert.x instance, a typical exchange,
+ * and a way to wait for an asynchronous processor to be done with it.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static DefaultVramelContext createVramelContext() throws Exception {
+        final DefaultVramelContext vramelContext = new DefaultVramelContext(new DefaultVertx());
+        vramelContext.start();
+        return vramelContext;
+    }
+
+    /**
+     * An exchange with a JSON body and a dozen String/long/boolean headers, as received by a rest consumer.
+     */
+    static Exchange createExchange(DefaultVramelContext vramelContext) {
+        final Exchange exchange = new DefaultExchange(vramelContext);
+        exchange.getIn().setBody(new JsonObject()
+                .putString("accountId", "0123456789")
+                .putNumber("amount", 1250)
+                .putString("currency", "USD")
+                .putString("description", "benchmark payment").encode());
+        for (int i = 0; i < 8; i++) {
+            exchange.getIn().setHeader("header" + i, "value-" + i);
+        }
+        exchange.getIn().setHeader("timestamp", System.currentTimeMillis());
+        exchange.getIn().setHeader("retries", 3);
+        exchange.getIn().setHeader("priority", Boolean.TRUE);
+        exchange.setProperty("flowId", "benchmark-flow");
+        return exchange;
+    }
+
+    /**
+     * Processes the exchange and waits until the processor is done with it.
+     *
+     * @return the exchange the processor answered with
+     */
+    static Exchange process(AsyncProcessor processor, Exchange exchange) throws Exception {
+        final Completion completion = new Completion();
+        processor.process(exchange, completion);
+        return completion.await();
+    }
+
+    private static final class Completion extends OptionalAsyncResultHandler {
+        private Exchange result;
+
+        @Override
+        public synchronized void handle(AsyncExchangeResult optionalAsyncResult) {
+            result = optionalAsyncResult.result.get();
+            notifyAll();
+        }
+
+        synchronized Exchange await() throws Exception {
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (result == null) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Processor was not done within 10 seconds");
+                }
+                wait(remaining);
+            }
+            if (result.getException() != null) {
+                throw result.getException();
+            }
+            return result;
+        }
+    }
+}
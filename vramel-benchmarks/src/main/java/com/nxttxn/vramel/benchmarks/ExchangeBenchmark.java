@@ -0,0 +1,66 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultExchangeHolder;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.apache.commons.lang3.SerializationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copying a typical exchange, which every pipeline step and multicast recipient does, and marshalling it
+ * with the {@link DefaultExchangeHolder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeBenchmark {
+
+    private DefaultVramelContext vramelContext;
+    private Exchange exchange;
+    private byte[] marshalled;
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = BenchmarkSupport.createVramelContext();
+        exchange = BenchmarkSupport.createExchange(vramelContext);
+        marshalled = SerializationUtils.serialize(DefaultExchangeHolder.marshal(exchange));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        vramelContext.stop();
+    }
+
+    @Benchmark
+    public Exchange copy() {
+        return exchange.copy();
+    }
+
+    @Benchmark
+    public byte[] holderMarshal() {
+        return SerializationUtils.serialize(DefaultExchangeHolder.marshal(exchange));
+    }
+
+    @Benchmark
+    public Exchange holderUnmarshal() throws Exception {
+        final Exchange answer = new DefaultExchange(vramelContext);
+        DefaultExchangeHolder.unmarshal(answer, marshalled);
+        return answer;
+    }
+}
@@ -0,0 +1,86 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.BinaryExchangeCodec;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.impl.SerializationExchangeCodec;
+import com.nxttxn.vramel.spi.ExchangeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one event bus hop worth of encoding and decoding of a typical exchange: a JSON body and
+ * a dozen String/long/boolean headers, as sent by the vertx producer and consumer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeCodecBenchmark {
+
+    @Param({"serialization", "binary"})
+    public String codecName;
+
+    private DefaultVramelContext vramelContext;
+    private ExchangeCodec codec;
+    private Exchange exchange;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = new DefaultVramelContext(new DefaultVertx());
+        codec = "binary".equals(codecName) ? new BinaryExchangeCodec() : new SerializationExchangeCodec();
+
+        exchange = new DefaultExchange(vramelContext);
+        exchange.getIn().setBody(new JsonObject()
+                .putString("accountId", "0123456789")
+                .putNumber("amount", 1250)
+                .putString("currency", "USD")
+                .putString("description", "benchmark payment").encode());
+        for (int i = 0; i < 8; i++) {
+            exchange.getIn().setHeader("header" + i, "value-" + i);
+        }
+        exchange.getIn().setHeader("timestamp", System.currentTimeMillis());
+        exchange.getIn().setHeader("retries", 3);
+        exchange.getIn().setHeader("priority", Boolean.TRUE);
+        exchange.getIn().setHeader("payload", new byte[64]);
+        exchange.setProperty("flowId", "benchmark-flow");
+
+        encoded = codec.encode(exchange);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return codec.encode(exchange);
+    }
+
+    @Benchmark
+    public Exchange decode() throws Exception {
+        final Exchange answer = new DefaultExchange(vramelContext);
+        codec.decode(answer, encoded);
+        return answer;
+    }
+
+    @Benchmark
+    public Exchange roundTrip() throws Exception {
+        final Exchange answer = new DefaultExchange(vramelContext);
+        codec.decode(answer, codec.encode(exchange));
+        return answer;
+    }
+}
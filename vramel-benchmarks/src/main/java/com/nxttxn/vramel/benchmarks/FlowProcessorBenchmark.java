@@ -0,0 +1,121 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.builder.ExpressionBuilder;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.ChoiceProcessor;
+import com.nxttxn.vramel.processor.FilterProcessor;
+import com.nxttxn.vramel.processor.MulticastProcessor;
+import com.nxttxn.vramel.processor.PipelineProcessor;
+import com.nxttxn.vramel.processor.Splitter;
+import com.nxttxn.vramel.processor.aggregate.UseLatestAggregationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the routing core: one exchange through a pipeline of <tt>steps</tt> processors, a multicast to
+ * <tt>steps</tt> recipients, a split into <tt>steps</tt> parts and a choice over <tt>steps</tt> when clauses where
+ * the last one matches.
+ * <p/>
+ * The processors along the way only set a header, so what is measured is the engine itself: the exchange copies,
+ * the result handlers and the aggregation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowProcessorBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int steps;
+
+    private DefaultVramelContext vramelContext;
+    private Exchange template;
+    private PipelineProcessor pipeline;
+    private MulticastProcessor sequentialMulticast;
+    private MulticastProcessor parallelMulticast;
+    private Splitter splitter;
+    private ChoiceProcessor choice;
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = BenchmarkSupport.createVramelContext();
+        template = BenchmarkSupport.createExchange(vramelContext);
+
+        final List<String> parts = new ArrayList<>();
+        final List<Processor> processors = new ArrayList<>();
+        final List<FilterProcessor> filters = new ArrayList<>();
+        for (int i = 0; i < steps; i++) {
+            parts.add("part-" + i);
+            processors.add(step(i));
+            final Predicate predicate = vramelContext.resolveLanguage("simple").createPredicate("${header.type} == 'type" + i + "'");
+            filters.add(new FilterProcessor(predicate, step(i)));
+        }
+        template.getIn().setHeader("type", "type" + (steps - 1));
+        template.getIn().setHeader("parts", parts);
+
+        pipeline = new PipelineProcessor(processors);
+        sequentialMulticast = new MulticastProcessor(processors, new UseLatestAggregationStrategy(), false, false, false, 0, null, false);
+        parallelMulticast = new MulticastProcessor(processors, new UseLatestAggregationStrategy(), true, false, false, 0, null, false);
+        splitter = new Splitter(ExpressionBuilder.headerExpression("parts"), step(0), new UseLatestAggregationStrategy());
+        choice = new ChoiceProcessor(filters, step(steps));
+    }
+
+    private static Processor step(final int i) {
+        final String value = "step-" + i;
+        return new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.getIn().setHeader("lastStep", value);
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        vramelContext.stop();
+    }
+
+    @Benchmark
+    public Exchange pipeline() throws Exception {
+        return BenchmarkSupport.process(pipeline, template.copy());
+    }
+
+    @Benchmark
+    public Exchange multicastSequential() throws Exception {
+        return BenchmarkSupport.process(sequentialMulticast, template.copy());
+    }
+
+    @Benchmark
+    public Exchange multicastParallel() throws Exception {
+        return BenchmarkSupport.process(parallelMulticast, template.copy());
+    }
+
+    @Benchmark
+    public Exchange split() throws Exception {
+        return BenchmarkSupport.process(splitter, template.copy());
+    }
+
+    @Benchmark
+    public Exchange choice() throws Exception {
+        return BenchmarkSupport.process(choice, template.copy());
+    }
+}
@@ -0,0 +1,163 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.impl.http.TrieRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.RouteMatcher;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches requests over 500 REST routes, as registered by the rest consumers of one http listener, with
+ * the Vert.x {@link RouteMatcher} and with the {@link TrieRouter}.
+ * <p/>
+ * Half of the routes are static and half capture an id; requests hit a route near the start, the middle and the
+ * end of the registration order, since that is what the cost of the {@link RouteMatcher} depends on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRouterBenchmark {
+    private static final int ROUTES = 500;
+
+    @Param({"static", "param"})
+    public String routeType;
+
+    private RouteMatcher routeMatcher;
+    private TrieRouter trieRouter;
+    private TrieRouter.Match match;
+    private BenchmarkRequest[] requests;
+    private int next;
+    private int handled;
+
+    /**
+     * A request with just a method and path, answering with a fresh params map like the real one does.
+     */
+    private static class BenchmarkRequest extends HttpServerRequest {
+        private Map<String, String> params;
+
+        BenchmarkRequest(String method, String path) {
+            super(method, path, path, null, null);
+        }
+
+        BenchmarkRequest reset() {
+            params = null;
+            return this;
+        }
+
+        @Override
+        public Map<String, String> headers() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Map<String, String> params() {
+            if (params == null) {
+                params = new HashMap<>();
+            }
+            return params;
+        }
+
+        @Override
+        public void dataHandler(Handler<Buffer> handler) {
+        }
+
+        @Override
+        public void pause() {
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void exceptionHandler(Handler<Exception> handler) {
+        }
+
+        @Override
+        public void endHandler(Handler<Void> handler) {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final Handler<HttpServerRequest> handler = new Handler<HttpServerRequest>() {
+            @Override
+            public void handle(HttpServerRequest request) {
+                handled++;
+            }
+        };
+        routeMatcher = new RouteMatcher();
+        trieRouter = new TrieRouter();
+        for (int i = 0; i < ROUTES / 2; i++) {
+            final String method = i % 2 == 0 ? "GET" : "POST";
+            addRoute(method, "/api/v1/service" + i + "/status", handler);
+            addRoute(method, "/api/v1/service" + i + "/accounts/:accountId", handler);
+        }
+        match = new TrieRouter.Match(1);
+
+        final int[] targets = {3, ROUTES / 4 + 1, ROUTES / 2 - 1};
+        requests = new BenchmarkRequest[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            final int service = targets[i];
+            final String method = service % 2 == 0 ? "GET" : "POST";
+            final String path = "static".equals(routeType)
+                    ? "/api/v1/service" + service + "/status"
+                    : "/api/v1/service" + service + "/accounts/" + (1000000 + service);
+            requests[i] = new BenchmarkRequest(method, path);
+        }
+    }
+
+    private void addRoute(String method, String pattern, Handler<HttpServerRequest> handler) {
+        if ("GET".equals(method)) {
+            routeMatcher.get(pattern, handler);
+        } else {
+            routeMatcher.post(pattern, handler);
+        }
+        trieRouter.add(method, pattern, handler);
+    }
+
+    private BenchmarkRequest nextRequest() {
+        final BenchmarkRequest request = requests[next];
+        next = (next + 1) % requests.length;
+        return request.reset();
+    }
+
+    @Benchmark
+    public int routeMatcher() {
+        routeMatcher.handle(nextRequest());
+        return handled;
+    }
+
+    @Benchmark
+    public int trieRouter() {
+        trieRouter.handle(nextRequest());
+        return handled;
+    }
+
+    /**
+     * The lookup alone, without copying out the captured parameters.
+     */
+    @Benchmark
+    public boolean trieRouterMatchOnly() {
+        final BenchmarkRequest request = nextRequest();
+        return trieRouter.match(request.method, request.path, match);
+    }
+}
@@ -0,0 +1,75 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.spi.Language;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluating simple language expressions and predicates, both already parsed as in a flow built at
+ * startup, and parsed for every exchange as when the expression text is only known at runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleLanguageBenchmark {
+    private static final String EXPRESSION = "Payment ${header.header1} of ${header.retries} for ${property.flowId}";
+    private static final String PREDICATE = "${header.retries} > 2 && ${header.header0} == 'value-0'";
+
+    private DefaultVramelContext vramelContext;
+    private Language simple;
+    private Exchange exchange;
+    private Expression expression;
+    private Predicate predicate;
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = BenchmarkSupport.createVramelContext();
+        exchange = BenchmarkSupport.createExchange(vramelContext);
+        simple = vramelContext.resolveLanguage("simple");
+        expression = simple.createExpression(EXPRESSION);
+        predicate = simple.createPredicate(PREDICATE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        vramelContext.stop();
+    }
+
+    @Benchmark
+    public String evaluateExpression() {
+        return expression.evaluate(exchange, String.class);
+    }
+
+    @Benchmark
+    public boolean evaluatePredicate() {
+        return predicate.matches(exchange);
+    }
+
+    @Benchmark
+    public String parseAndEvaluateExpression() {
+        return simple.createExpression(EXPRESSION).evaluate(exchange, String.class);
+    }
+
+    @Benchmark
+    public boolean parseAndEvaluatePredicate() {
+        return simple.createPredicate(PREDICATE).matches(exchange);
+    }
+}
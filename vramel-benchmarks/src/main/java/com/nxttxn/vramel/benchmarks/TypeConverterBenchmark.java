@@ -0,0 +1,78 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.TypeConverter;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link com.nxttxn.vramel.impl.converter.BaseTypeConverterRegistry#convertTo(Class, Object)} for the
+ * conversions flows do the most: to and from String, to byte[] and to a stream, plus a value which is already of
+ * the requested type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConverterBenchmark {
+
+    private DefaultVramelContext vramelContext;
+    private TypeConverter typeConverter;
+    private final String text = "{\"accountId\":\"0123456789\",\"amount\":1250}";
+    private final byte[] bytes = text.getBytes();
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = BenchmarkSupport.createVramelContext();
+        typeConverter = vramelContext.getTypeConverter();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        vramelContext.stop();
+    }
+
+    @Benchmark
+    public String sameType() {
+        return typeConverter.convertTo(String.class, text);
+    }
+
+    @Benchmark
+    public Integer stringToInteger() {
+        return typeConverter.convertTo(Integer.class, "1250");
+    }
+
+    @Benchmark
+    public String integerToString() {
+        return typeConverter.convertTo(String.class, 1250);
+    }
+
+    @Benchmark
+    public byte[] stringToBytes() {
+        return typeConverter.convertTo(byte[].class, text);
+    }
+
+    @Benchmark
+    public String bytesToString() {
+        return typeConverter.convertTo(String.class, bytes);
+    }
+
+    @Benchmark
+    public InputStream bytesToInputStream() {
+        return typeConverter.convertTo(InputStream.class, bytes);
+    }
+}
@@ -0,0 +1,68 @@
+package com.nxttxn.vramel.benchmarks;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.builder.xml.StreamingXPathBuilder;
+import com.nxttxn.vramel.builder.xml.XPathBuilder;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading one field of an ISO/XML message held as a String body, streamed by the vtdxml language and
+ * parsed to a DOM by the xpath language.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XPathBenchmark {
+    private static final String XPATH = "/isomsg/field[@id='3']/@value";
+
+    private DefaultVramelContext vramelContext;
+    private Exchange exchange;
+    private StreamingXPathBuilder streaming;
+    private XPathBuilder dom;
+
+    @Setup
+    public void setUp() throws Exception {
+        vramelContext = BenchmarkSupport.createVramelContext();
+        exchange = new DefaultExchange(vramelContext);
+        final StringBuilder isomsg = new StringBuilder("<isomsg direction=\"incoming\">");
+        for (int i = 0; i < 64; i++) {
+            isomsg.append("<field id=\"").append(i).append("\" value=\"").append(String.format("%012d", i)).append("\"/>");
+        }
+        exchange.getIn().setBody(isomsg.append("</isomsg>").toString());
+
+        streaming = new StreamingXPathBuilder(XPATH);
+        dom = XPathBuilder.xpath(XPATH).stringResult();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        vramelContext.stop();
+    }
+
+    @Benchmark
+    public String streaming() {
+        return streaming.evaluate(exchange, String.class);
+    }
+
+    @Benchmark
+    public String dom() {
+        return dom.evaluate(exchange, String.class);
+    }
+}
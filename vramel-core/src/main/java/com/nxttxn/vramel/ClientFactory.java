@@ -1,6 +1,9 @@
 package com.nxttxn.vramel;
 
 import com.google.common.base.Optional;
+import com.nxttxn.vramel.impl.http.HttpClientPool;
+import com.nxttxn.vramel.impl.http.HttpClientPoolOptions;
+import com.nxttxn.vramel.impl.jpos.JPOSChannelFormat;
 import com.nxttxn.vramel.impl.jpos.JPOSClient;
 import org.vertx.java.core.*;
 import org.vertx.java.core.http.HttpClient;
@@ -20,5 +23,17 @@ import java.net.URI;
 public interface ClientFactory {
     HttpClient createOrFindHttpClient(URI uri, Optional<String> keystorePath, Optional<String> keystorePassword);
 
+    /**
+     * Finds the connection pool for the host of the uri, or creates one with the given options. The keystore and
+     * options are only used when the pool is created, all producers calling the host share its connection limits.
+     */
+    HttpClientPool createOrFindHttpClientPool(URI uri, Optional<String> keystorePath, Optional<String> keystorePassword, HttpClientPoolOptions options);
+
     JPOSClient createOrFindJPOSClient(URI uri, String keyFields);
+
+    /**
+     * Finds the JPOSClient for the uri, or creates one with a pool of <tt>poolSize</tt> connections
+     * which use the given format. The pool size and format are only used when the client is created.
+     */
+    JPOSClient createOrFindJPOSClient(URI uri, String keyFields, int poolSize, JPOSChannelFormat format);
 }
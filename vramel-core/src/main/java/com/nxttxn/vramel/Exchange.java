@@ -15,11 +15,15 @@ import java.util.Map;
  * To change this template use File | Settings | File Templates.
  */
 public interface Exchange {
+    String AGGREGATED_SIZE                  = "VramelAggregatedSize";
+    String AGGREGATED_COMPLETED_BY          = "VramelAggregatedCompletedBy";
+    String AGGREGATED_CORRELATION_KEY       = "VramelAggregatedCorrelationKey";
     String AGGREGATION_STRATEGY             = "VramelAggregationStrategy";
 
     String BEAN_METHOD_NAME           = "VramelBeanMethodName";
     String BEAN_MULTI_PARAMETER_ARRAY = "VramelBeanMultiParameterArray";
     String CHARSET_NAME      = "VramelCharsetName";
+    String CIRCUIT_BREAKER_STATE = "VramelCircuitBreakerState";
     String CONTENT_TYPE      = "content-type";
     String CONTENT_ENCODING  = "Content-Encoding";
     String CREATED_TIMESTAMP = "VramelCreatedTimestamp";
@@ -52,6 +56,12 @@ public interface Exchange {
 
     String PARENT_UNIT_OF_WORK = "VramelParentUnitOfWork";
 
+    String REDELIVERED            = "VramelRedelivered";
+    String REDELIVERY_COUNTER     = "VramelRedeliveryCounter";
+    String REDELIVERY_MAX_COUNTER = "VramelRedeliveryMaxCounter";
+    String REDELIVERY_EXHAUSTED   = "VramelRedeliveryExhausted";
+    String REDELIVERY_DELAY       = "VramelRedeliveryDelay";
+
     String ROLLBACK_ONLY           = "VramelRollbackOnly";
     String ROUTE_STOP              = "VramelRouteStop";
     String SLIP_ENDPOINT      = "VramelSlipEndpoint";
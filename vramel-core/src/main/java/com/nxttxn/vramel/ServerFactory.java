@@ -1,6 +1,7 @@
 package com.nxttxn.vramel;
 
 import com.nxttxn.vramel.impl.HTTPListener;
+import com.nxttxn.vramel.impl.jpos.JPOSChannelFormat;
 import com.nxttxn.vramel.impl.jpos.JPOSServer;
 import org.vertx.java.core.json.JsonObject;
 
@@ -19,4 +20,10 @@ public interface ServerFactory {
     void startAllServers();
 
     JPOSServer createOrFindJPOSServer(URI uri);
+
+    /**
+     * Finds the JPOSServer for the uri, or creates one using the given format. The format is only used
+     * when the server is created.
+     */
+    JPOSServer createOrFindJPOSServer(URI uri, JPOSChannelFormat format);
 }
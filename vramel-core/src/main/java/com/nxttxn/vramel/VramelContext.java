@@ -2,6 +2,7 @@ package com.nxttxn.vramel;
 
 import com.nxttxn.vramel.builder.ErrorHandlerBuilder;
 import com.nxttxn.vramel.components.properties.PropertiesComponent;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import com.nxttxn.vramel.model.DataFormatDefinition;
 import com.nxttxn.vramel.model.FlowDefinition;
 import com.nxttxn.vramel.spi.*;
@@ -78,6 +79,21 @@ public interface VramelContext {
 
     UuidGenerator getUuidGenerator();
 
+    /**
+     * Gets the codec used to transfer exchanges over the Vert.x event bus
+     *
+     * @return the exchange codec, by default a {@link com.nxttxn.vramel.impl.SerializationExchangeCodec}
+     */
+    ExchangeCodec getExchangeCodec();
+
+    /**
+     * Sets the codec used to transfer exchanges over the Vert.x event bus, e.g. a
+     * {@link com.nxttxn.vramel.impl.BinaryExchangeCodec} to opt in to the compact binary format
+     *
+     * @param exchangeCodec the exchange codec
+     */
+    void setExchangeCodec(ExchangeCodec exchangeCodec);
+
     JsonObject getDefaultEndpointConfig();
 
     Vertx getVertx();
@@ -196,4 +212,18 @@ public interface VramelContext {
     Container getContainer();
 
     ExecutorServiceManager getExecutorServiceManager();
+
+    /**
+     * Gets the executor which runs the blocking or CPU heavy steps of the flows off the event loops
+     *
+     * @return the blocking task executor
+     */
+    BlockingTaskExecutor getBlockingTaskExecutor();
+
+    /**
+     * Gets the statistics of the flows and their processors
+     *
+     * @return the metrics registry
+     */
+    MetricsRegistry getMetricsRegistry();
 }
@@ -18,8 +18,10 @@ package com.nxttxn.vramel.builder;
 
 import com.nxttxn.vramel.AsyncProcessor;
 import com.nxttxn.vramel.LoggingLevel;
+import com.nxttxn.vramel.Predicate;
 import com.nxttxn.vramel.Processor;
 import com.nxttxn.vramel.processor.DefaultErrorHandler;
+import com.nxttxn.vramel.processor.RedeliveryPolicy;
 import com.nxttxn.vramel.spi.FlowContext;
 import com.nxttxn.vramel.util.VramelLogger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +38,16 @@ public class DefaultErrorHandlerBuilder extends ErrorHandlerBuilderSupport {
 
     protected Processor failureProcessor;
     protected boolean useOriginalMessage;
+    protected RedeliveryPolicy redeliveryPolicy;
+    protected Predicate retryWhile;
+    protected Processor onRedelivery;
 
     public DefaultErrorHandlerBuilder() {
     }
 
     public Processor createErrorHandler(FlowContext flowContext, Processor processor) throws Exception {
         DefaultErrorHandler answer = new DefaultErrorHandler(flowContext.getVramelContext(), processor, getLogger(),
-                 getExceptionPolicyStrategy() );
+                 getExceptionPolicyStrategy(), getRedeliveryPolicy(), getRetryWhile(), getOnRedelivery());
         // configure error handler before we can use it
         configure(flowContext, answer);
         return answer;
@@ -68,10 +73,92 @@ public class DefaultErrorHandlerBuilder extends ErrorHandlerBuilderSupport {
 
 
         other.setUseOriginalMessage(useOriginalMessage);
+        if (redeliveryPolicy != null) {
+            other.setRedeliveryPolicy(redeliveryPolicy.copy());
+        }
+        other.setRetryWhile(retryWhile);
+        other.setOnRedelivery(onRedelivery);
+
+    }
+
+
+
+    /**
+     * Sets the maximum number of redeliveries, use -1 to redeliver forever
+     *
+     * @param maximumRedeliveries the maximum redeliveries
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder maximumRedeliveries(int maximumRedeliveries) {
+        getRedeliveryPolicy().maximumRedeliveries(maximumRedeliveries);
+        return this;
+    }
 
+    /**
+     * Sets the initial redelivery delay
+     *
+     * @param delay delay in millis
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder redeliveryDelay(long delay) {
+        getRedeliveryPolicy().redeliveryDelay(delay);
+        return this;
     }
 
+    /**
+     * Sets the back off multiplier, turning on exponential back off when greater than 1
+     *
+     * @param backOffMultiplier the multiplier
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder backOffMultiplier(double backOffMultiplier) {
+        getRedeliveryPolicy().backOffMultiplier(backOffMultiplier);
+        return this;
+    }
 
+    /**
+     * Sets the maximum delay between redeliveries
+     *
+     * @param maximumRedeliveryDelay the delay in millis
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder maximumRedeliveryDelay(long maximumRedeliveryDelay) {
+        getRedeliveryPolicy().maximumRedeliveryDelay(maximumRedeliveryDelay);
+        return this;
+    }
+
+    /**
+     * Sets the jitter factor used to randomly spread the redelivery delays
+     *
+     * @param jitterFactor the factor, between 0 and 1
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder jitterFactor(double jitterFactor) {
+        getRedeliveryPolicy().jitterFactor(jitterFactor);
+        return this;
+    }
+
+    /**
+     * Sets the retry while predicate, which is used instead of the maximum redeliveries
+     *
+     * @param retryWhile predicate that determines when to stop retrying
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder retryWhile(Predicate retryWhile) {
+        setRetryWhile(retryWhile);
+        return this;
+    }
+
+    /**
+     * Sets a processor that should be processed <b>before</b> a redelivery attempt.
+     *
+     * @param processor the processor
+     * @return the builder
+     */
+    public DefaultErrorHandlerBuilder onRedelivery(Processor processor) {
+        setOnRedelivery(processor);
+        return this;
+    }
 
     /**
      * Sets the logger used for caught exceptions
@@ -167,6 +254,33 @@ public class DefaultErrorHandlerBuilder extends ErrorHandlerBuilderSupport {
 
 
 
+    public RedeliveryPolicy getRedeliveryPolicy() {
+        if (redeliveryPolicy == null) {
+            redeliveryPolicy = new RedeliveryPolicy();
+        }
+        return redeliveryPolicy;
+    }
+
+    public void setRedeliveryPolicy(RedeliveryPolicy redeliveryPolicy) {
+        this.redeliveryPolicy = redeliveryPolicy;
+    }
+
+    public Predicate getRetryWhile() {
+        return retryWhile;
+    }
+
+    public void setRetryWhile(Predicate retryWhile) {
+        this.retryWhile = retryWhile;
+    }
+
+    public Processor getOnRedelivery() {
+        return onRedelivery;
+    }
+
+    public void setOnRedelivery(Processor onRedelivery) {
+        this.onRedelivery = onRedelivery;
+    }
+
     public VramelLogger getLogger() {
         if (logger == null) {
             logger = createLogger();
@@ -18,7 +18,9 @@ package com.nxttxn.vramel.builder;
 
 import com.nxttxn.vramel.*;
 import com.nxttxn.vramel.components.bean.BeanInvocation;
+import com.nxttxn.vramel.impl.StreamBody;
 import com.nxttxn.vramel.language.bean.BeanLanguage;
+import com.nxttxn.vramel.language.bean.CompiledOgnl;
 import com.nxttxn.vramel.model.language.MethodCallExpression;
 import com.nxttxn.vramel.spi.Language;
 import com.nxttxn.vramel.support.ExpressionAdapter;
@@ -30,6 +32,7 @@ import com.nxttxn.vramel.util.ObjectHelper;
 import org.apache.camel.NoSuchEndpointException;
 import org.apache.camel.util.FileUtil;
 import org.apache.camel.util.OgnlHelper;
+import org.vertx.java.core.streams.ReadStream;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -304,6 +307,7 @@ public final class ExpressionBuilder {
      * @param ognl  methods to invoke on the body in a simple OGNL syntax
      */
     public static Expression exchangeExceptionOgnlExpression(final String ognl) {
+        final CompiledOgnl compiled = CompiledOgnl.compile(ognl);
         return new ExpressionAdapter() {
             public Object evaluate(Exchange exchange) {
                 Object exception = exchange.getException();
@@ -314,7 +318,7 @@ public final class ExpressionBuilder {
                 if (exception == null) {
                     return null;
                 }
-                return new MethodCallExpression(exception, ognl).evaluate(exchange);
+                return evaluateOgnl(exchange, exception, ognl, compiled);
             }
 
             @Override
@@ -674,13 +678,14 @@ public final class ExpressionBuilder {
      * @param ognl  methods to invoke on the body in a simple OGNL syntax
      */
     public static Expression bodyOgnlExpression(final String ognl) {
+        final CompiledOgnl compiled = CompiledOgnl.compile(ognl);
         return new ExpressionAdapter() {
             public Object evaluate(Exchange exchange) {
                 Object body = exchange.getIn().getBody();
                 if (body == null) {
                     return null;
                 }
-                return new MethodCallExpression(body, ognl).evaluate(exchange);
+                return evaluateOgnl(exchange, body, ognl, compiled);
             }
 
             @Override
@@ -1011,6 +1016,10 @@ public final class ExpressionBuilder {
         return new ExpressionAdapter() {
             public Object evaluate(Exchange exchange) {
                 Object value = expression.evaluate(exchange, Object.class);
+                if (value instanceof ReadStream) {
+                    // a stream body is split as it arrives, the token is a plain delimiter rather than a pattern
+                    return StreamBody.delimited((ReadStream) value, token);
+                }
                 Scanner scanner = ObjectHelper.getScanner(exchange, value);
                 scanner.useDelimiter(token);
                 return scanner;
@@ -1594,6 +1603,16 @@ public final class ExpressionBuilder {
 //        };
 //    }
 
+    /**
+     * Evaluates the OGNL chain on the bean, through its compiled method handles when it could be compiled
+     */
+    private static Object evaluateOgnl(Exchange exchange, Object bean, String ognl, CompiledOgnl compiled) {
+        if (compiled != null) {
+            return compiled.evaluate(exchange, bean);
+        }
+        return new MethodCallExpression(bean, ognl).evaluate(exchange);
+    }
+
     /**
      * Expression adapter for OGNL expression from Message Header or Exchange property
      */
@@ -1601,12 +1620,25 @@ public final class ExpressionBuilder {
         private final String ognl;
         private final String toStringValue;
         private final KeyedEntityRetrievalStrategy keyedEntityRetrievalStrategy;
+        private final String key;
+        private final String remainder;
+        private final CompiledOgnl compiled;
 
         public KeyedOgnlExpressionAdapter(String ognl, String toStringValue,
                                           KeyedEntityRetrievalStrategy keyedEntityRetrievalStrategy) {
             this.ognl = ognl;
             this.toStringValue = toStringValue;
             this.keyedEntityRetrievalStrategy = keyedEntityRetrievalStrategy;
+
+            // Split ognl except when this is not a Map, Array
+            // and we would like to keep the dots within the key name
+            List<String> methods = OgnlHelper.splitOgnl(ognl);
+
+            // remove any OGNL operators so we got the pure key name
+            this.key = OgnlHelper.removeOperators(methods.get(0));
+            // the remainder is the rest of the ognl without the key
+            this.remainder = ObjectHelper.after(ognl, key);
+            this.compiled = CompiledOgnl.compile(remainder);
         }
 
         public Object evaluate(Exchange exchange) {
@@ -1616,20 +1648,11 @@ public final class ExpressionBuilder {
                 return property;
             }
 
-            // Split ognl except when this is not a Map, Array
-            // and we would like to keep the dots within the key name
-            List<String> methods = OgnlHelper.splitOgnl(ognl);
-
-            // remove any OGNL operators so we got the pure key name
-            String key = OgnlHelper.removeOperators(methods.get(0));
-
             property = keyedEntityRetrievalStrategy.getKeyedEntity(exchange, key);
             if (property == null) {
                 return null;
             }
-            // the remainder is the rest of the ognl without the key
-            String remainder = ObjectHelper.after(ognl, key);
-            return new MethodCallExpression(property, remainder).evaluate(exchange);
+            return evaluateOgnl(exchange, property, remainder, compiled);
         }
 
         @Override
@@ -85,11 +85,9 @@ public class SimpleBuilder implements Predicate, Expression {
     }
 
     private Expression createExpression(Exchange exchange) {
+        // the language and its cache are shared by the context, so the result type is not set on it
         SimpleLanguage simple = (SimpleLanguage) exchange.getContext().resolveLanguage("simple");
-        if (resultType != null) {
-            simple.setResultType(resultType);
-        }
-        return simple.createExpression(text);
+        return simple.createExpression(text, resultType);
     }
 
     public String toString() {
@@ -0,0 +1,547 @@
+package com.nxttxn.vramel.builder.xml;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.RuntimeExpressionException;
+import com.nxttxn.vramel.util.ObjectHelper;
+import org.apache.camel.spi.NamespaceAware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates XPath location paths, such as <tt>/isomsg/field[@id='3']/@value</tt>, by streaming over the raw
+ * message body with StAX, without building a DOM, and stops reading as soon as the first node is found.
+ * <p/>
+ * The supported paths are absolute paths of child (<tt>/</tt>) and descendant (<tt>//</tt>) steps on element names,
+ * optionally prefixed and <tt>*</tt> wildcards, with <tt>[n]</tt> and <tt>[@name='value']</tt> predicates, and
+ * ending with an element, <tt>@name</tt> or <tt>text()</tt>. As an expression the result is the string value of
+ * the first node found, or <tt>null</tt>, and as a predicate it matches when any node is found. Any other XPath,
+ * or a body which is not a <tt>String</tt> or <tt>byte[]</tt>, such as a DOM or a stream, is evaluated by an
+ * {@link XPathBuilder} returning the same string result.
+ */
+public class StreamingXPathBuilder implements Expression, Predicate, NamespaceAware {
+    private static final transient Logger LOG = LoggerFactory.getLogger(StreamingXPathBuilder.class);
+    // the JDK does not promise its factories are thread safe
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            return createInputFactory();
+        }
+    };
+
+    private static final int ELEMENT = 0;
+    private static final int ATTRIBUTE = 1;
+    private static final int TEXT = 2;
+    // the steps are kept as bits in a long, along with the document
+    private static final int MAX_STEPS = 62;
+
+    private final String text;
+    private final Map<String, String> namespaces = new ConcurrentHashMap<String, String>();
+    private volatile Class<?> resultType;
+    private volatile LocationPath path;
+    private volatile boolean compiled;
+    private volatile XPathBuilder fallback;
+
+    public StreamingXPathBuilder(String text) {
+        this.text = text;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    public boolean matches(Exchange exchange) {
+        final LocationPath path = getPath();
+        final XMLStreamReader reader = path != null ? createReader(exchange) : null;
+        if (reader == null) {
+            return getFallback().matches(exchange);
+        }
+        return evaluate(path, reader, true) != null;
+    }
+
+    public <T> T evaluate(Exchange exchange, Class<T> type) {
+        final LocationPath path = getPath();
+        final XMLStreamReader reader = path != null ? createReader(exchange) : null;
+        if (reader == null) {
+            return getFallback().evaluate(exchange, type);
+        }
+
+        Object answer = evaluate(path, reader, false);
+        if (answer != null && resultType != null) {
+            answer = exchange.getContext().getTypeConverter().convertTo(resultType, exchange, answer);
+        }
+        return exchange.getContext().getTypeConverter().convertTo(type, exchange, answer);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Class<?> getResultType() {
+        return resultType;
+    }
+
+    public void setResultType(Class<?> resultType) {
+        this.resultType = resultType;
+    }
+
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    public void setNamespaces(Map<String, String> namespaces) {
+        this.namespaces.clear();
+        this.namespaces.putAll(namespaces);
+        // the prefixes of the path must be resolved again
+        this.compiled = false;
+        this.fallback = null;
+    }
+
+    /**
+     * Whether the expression is evaluated by streaming, or by the {@link XPathBuilder} it falls back to
+     */
+    public boolean isStreaming() {
+        return getPath() != null;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingXPath: " + text;
+    }
+
+    private LocationPath getPath() {
+        if (!compiled) {
+            path = LocationPath.compile(text, namespaces);
+            compiled = true;
+            if (path == null) {
+                LOG.debug("Cannot stream XPath: {}, evaluating it with a DOM", text);
+            }
+        }
+        return path;
+    }
+
+    private XPathBuilder getFallback() {
+        XPathBuilder answer = fallback;
+        if (answer == null) {
+            answer = XPathBuilder.xpath(text).stringResult();
+            answer.setNamespaces(namespaces);
+            if (resultType != null) {
+                answer.setResultType(resultType);
+            }
+            fallback = answer;
+        }
+        return answer;
+    }
+
+    /**
+     * Creates a reader over the body, or returns <tt>null</tt> if the body is not a <tt>String</tt> or
+     * <tt>byte[]</tt>. Any other body is left to the {@link XPathBuilder}, as converting it here could consume a
+     * stream the fallback would then find empty.
+     */
+    private XMLStreamReader createReader(Exchange exchange) {
+        final Object body = exchange.getIn().getBody();
+        try {
+            if (body instanceof String) {
+                return INPUT_FACTORY.get().createXMLStreamReader(new StringReader((String) body));
+            }
+            if (body instanceof byte[]) {
+                return INPUT_FACTORY.get().createXMLStreamReader(new ByteArrayInputStream((byte[]) body));
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new RuntimeExpressionException("Cannot read the body to evaluate XPath: " + text, e);
+        }
+    }
+
+    /**
+     * Streams over the document until the first node of the path is found.
+     *
+     * @param matchOnly whether only to find out if there is such a node, rather than its string value
+     * @return the string value of the node, or <tt>null</tt> if there is none
+     */
+    private String evaluate(LocationPath path, XMLStreamReader reader, boolean matchOnly) {
+        final Step[] steps = path.steps;
+        final long last = 1L << steps.length;
+        // for each depth, the steps matched by the element and the descendant steps its children may match
+        long[] matched = new long[16];
+        long[] active = new long[16];
+        // for each depth, how many children of the element matched each step, for the position predicates
+        int[][] counts = path.positional ? new int[16][] : null;
+        matched[0] = 1L;
+        active[0] = (matched[0] << 1) & path.descendantSteps;
+        if (counts != null) {
+            counts[0] = new int[steps.length];
+        }
+
+        int depth = 0;
+        int captureDepth = -1;
+        StringBuilder capture = null;
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (depth == matched.length) {
+                        matched = grow(matched);
+                        active = grow(active);
+                        if (counts != null) {
+                            int[][] copy = new int[depth * 2][];
+                            System.arraycopy(counts, 0, copy, 0, depth);
+                            counts = copy;
+                        }
+                    }
+                    if (capture != null) {
+                        // within the element which is the result
+                        break;
+                    }
+
+                    final long candidates = ((matched[depth - 1] << 1) & path.childSteps) | active[depth - 1];
+                    long found = 0;
+                    for (int k = 0; k < steps.length; k++) {
+                        final long bit = 1L << (k + 1);
+                        if ((candidates & bit) != 0 && steps[k].matches(reader)) {
+                            if (steps[k].position > 0 && ++counts[depth - 1][k] != steps[k].position) {
+                                continue;
+                            }
+                            found |= bit;
+                        }
+                    }
+                    matched[depth] = found;
+                    active[depth] = active[depth - 1] | ((found << 1) & path.descendantSteps);
+                    if (counts != null) {
+                        if (counts[depth] == null) {
+                            counts[depth] = new int[steps.length];
+                        } else {
+                            Arrays.fill(counts[depth], 0);
+                        }
+                    }
+
+                    if ((found & last) != 0) {
+                        if (path.result == ATTRIBUTE) {
+                            final String value = attributeValue(reader, path.attributeUri, path.attributeName);
+                            if (value != null) {
+                                return value;
+                            }
+                        } else if (path.result == ELEMENT) {
+                            if (matchOnly) {
+                                return "";
+                            }
+                            captureDepth = depth;
+                            capture = new StringBuilder();
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (capture != null) {
+                        capture.append(reader.getText());
+                    } else if (path.result == TEXT && (matched[depth] & last) != 0) {
+                        return reader.getText();
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == captureDepth) {
+                        return capture.toString();
+                    }
+                    depth--;
+                    break;
+                default:
+                    break;
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new RuntimeExpressionException("Cannot evaluate XPath: " + text, e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static long[] grow(long[] array) {
+        long[] answer = new long[array.length * 2];
+        System.arraycopy(array, 0, answer, 0, array.length);
+        return answer;
+    }
+
+    private static String attributeValue(XMLStreamReader reader, String uri, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (name.equals(reader.getAttributeLocalName(i)) && uri.equals(nullToEmpty(reader.getAttributeNamespace(i)))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+
+    /**
+     * The compiled path, whose steps are numbered from 0 with the document as the step before the first
+     */
+    private static final class LocationPath {
+        final Step[] steps;
+        final int result;
+        final String attributeUri;
+        final String attributeName;
+        final long childSteps;
+        final long descendantSteps;
+        final boolean positional;
+
+        private LocationPath(Step[] steps, int result, String attributeUri, String attributeName) {
+            this.steps = steps;
+            this.result = result;
+            this.attributeUri = attributeUri;
+            this.attributeName = attributeName;
+            long child = 0;
+            long descendant = 0;
+            boolean position = false;
+            for (int k = 0; k < steps.length; k++) {
+                if (steps[k].descendant) {
+                    descendant |= 1L << (k + 1);
+                } else {
+                    child |= 1L << (k + 1);
+                }
+                position |= steps[k].position > 0;
+            }
+            this.childSteps = child;
+            this.descendantSteps = descendant;
+            this.positional = position;
+        }
+
+        /**
+         * @return the path, or <tt>null</tt> if it cannot be streamed
+         */
+        static LocationPath compile(String text, Map<String, String> namespaces) {
+            if (ObjectHelper.isEmpty(text) || text.charAt(0) != '/') {
+                return null;
+            }
+            final List<Step> steps = new ArrayList<Step>();
+            int pos = 0;
+            while (pos < text.length()) {
+                final boolean descendant = text.startsWith("//", pos);
+                pos += descendant ? 2 : 1;
+                final int end = endOfStep(text, pos);
+                if (end < 0) {
+                    return null;
+                }
+                final String step = text.substring(pos, end).trim();
+                pos = end;
+
+                final boolean lastStep = pos == text.length();
+                if (step.equals("text()") || step.startsWith("@")) {
+                    if (!lastStep || descendant || steps.isEmpty()) {
+                        return null;
+                    }
+                    if (step.equals("text()")) {
+                        return new LocationPath(steps.toArray(new Step[steps.size()]), TEXT, null, null);
+                    }
+                    final String[] name = resolveName(step.substring(1), namespaces);
+                    if (name == null || name[1] == null) {
+                        return null;
+                    }
+                    return new LocationPath(steps.toArray(new Step[steps.size()]), ATTRIBUTE, name[0], name[1]);
+                }
+
+                final Step compiled = Step.compile(step, descendant, namespaces);
+                if (compiled == null || steps.size() == MAX_STEPS) {
+                    return null;
+                }
+                steps.add(compiled);
+            }
+            if (steps.isEmpty()) {
+                return null;
+            }
+            return new LocationPath(steps.toArray(new Step[steps.size()]), ELEMENT, null, null);
+        }
+
+        /**
+         * Finds the slash ending the step which starts at the given position, skipping the predicates
+         */
+        private static int endOfStep(String text, int pos) {
+            char quote = 0;
+            int brackets = 0;
+            for (int i = pos; i < text.length(); i++) {
+                final char ch = text.charAt(i);
+                if (quote != 0) {
+                    if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '\'' || ch == '"') {
+                    quote = ch;
+                } else if (ch == '[') {
+                    brackets++;
+                } else if (ch == ']') {
+                    brackets--;
+                } else if (ch == '/' && brackets == 0) {
+                    return i == pos ? -1 : i;
+                }
+            }
+            return quote == 0 && brackets == 0 && pos < text.length() ? text.length() : -1;
+        }
+    }
+
+    /**
+     * Resolves a name test, such as <tt>foo</tt>, <tt>p:foo</tt> or <tt>*</tt>, to its namespace and local name.
+     *
+     * @return the namespace and the local name, which is <tt>null</tt> for a wildcard, or <tt>null</tt> if the name
+     *         cannot be resolved
+     */
+    private static String[] resolveName(String name, Map<String, String> namespaces) {
+        String uri = "";
+        String local = name;
+        final int colon = name.indexOf(':');
+        if (colon >= 0) {
+            uri = namespaces.get(name.substring(0, colon));
+            local = name.substring(colon + 1);
+            if (uri == null) {
+                return null;
+            }
+        }
+        if (local.equals("*")) {
+            return colon >= 0 ? null : new String[]{null, null};
+        }
+        if (!isName(local)) {
+            return null;
+        }
+        return new String[]{uri, local};
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_')) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            final char ch = name.charAt(i);
+            if (!(Character.isLetterOrDigit(ch) || ch == '_' || ch == '-' || ch == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An element step of the path, with its predicates.
+     */
+    private static final class Step {
+        final boolean descendant;
+        // null for any namespace and any name
+        final String uri;
+        final String name;
+        final String[] attributeUris;
+        final String[] attributeNames;
+        final String[] attributeValues;
+        final int position;
+
+        private Step(boolean descendant, String uri, String name, List<String[]> attributes, int position) {
+            this.descendant = descendant;
+            this.uri = uri;
+            this.name = name;
+            this.attributeUris = new String[attributes.size()];
+            this.attributeNames = new String[attributes.size()];
+            this.attributeValues = new String[attributes.size()];
+            for (int i = 0; i < attributes.size(); i++) {
+                attributeUris[i] = attributes.get(i)[0];
+                attributeNames[i] = attributes.get(i)[1];
+                attributeValues[i] = attributes.get(i)[2];
+            }
+            this.position = position;
+        }
+
+        static Step compile(String step, boolean descendant, Map<String, String> namespaces) {
+            final int bracket = step.indexOf('[');
+            final String[] name = resolveName(bracket < 0 ? step : step.substring(0, bracket).trim(), namespaces);
+            if (name == null) {
+                return null;
+            }
+
+            final List<String[]> attributes = new ArrayList<String[]>();
+            int position = 0;
+            int pos = bracket;
+            while (pos >= 0 && pos < step.length()) {
+                if (step.charAt(pos) != '[' || position > 0) {
+                    // only a position predicate last, as it counts the nodes the predicates before it match
+                    return null;
+                }
+                final int end = step.indexOf(']', pos);
+                if (end < 0) {
+                    return null;
+                }
+                final String predicate = step.substring(pos + 1, end).trim();
+                if (predicate.startsWith("@")) {
+                    final String[] attribute = compileAttributeTest(predicate.substring(1), namespaces);
+                    if (attribute == null) {
+                        return null;
+                    }
+                    attributes.add(attribute);
+                } else {
+                    try {
+                        position = Integer.parseInt(predicate);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    if (position <= 0) {
+                        return null;
+                    }
+                }
+                pos = end + 1;
+            }
+            return new Step(descendant, name[0], name[1], attributes, position);
+        }
+
+        /**
+         * Compiles <tt>name='value'</tt> to its namespace, local name and value
+         */
+        private static String[] compileAttributeTest(String test, Map<String, String> namespaces) {
+            final int equals = test.indexOf('=');
+            if (equals < 0) {
+                return null;
+            }
+            final String[] name = resolveName(test.substring(0, equals).trim(), namespaces);
+            final String value = test.substring(equals + 1).trim();
+            if (name == null || name[1] == null || value.length() < 2) {
+                return null;
+            }
+            final char quote = value.charAt(0);
+            if ((quote != '\'' && quote != '"') || value.charAt(value.length() - 1) != quote
+                    || value.indexOf(quote, 1) != value.length() - 1) {
+                return null;
+            }
+            return new String[]{name[0], name[1], value.substring(1, value.length() - 1)};
+        }
+
+        boolean matches(XMLStreamReader reader) {
+            if (name != null && (!name.equals(reader.getLocalName()) || !uri.equals(nullToEmpty(reader.getNamespaceURI())))) {
+                return false;
+            }
+            for (int i = 0; i < attributeNames.length; i++) {
+                if (!attributeValues[i].equals(attributeValue(reader, attributeUris[i], attributeNames[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
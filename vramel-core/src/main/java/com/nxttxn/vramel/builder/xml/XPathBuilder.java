@@ -77,7 +77,7 @@ import static com.nxttxn.vramel.builder.xml.Namespaces.isMatchingNamespaceOrEmpt
  *
  * @see XPathConstants#NODESET
  */
-public class XPathBuilder implements Expression, Predicate, NamespaceAware {
+public class XPathBuilder implements Service, Expression, Predicate, NamespaceAware {
     private static final transient Logger LOG = LoggerFactory.getLogger(XPathBuilder.class);
     private static final String SAXON_OBJECT_MODEL_URI = "http://saxon.sf.net/jaxp/xpath/om";
     private static final String OBTAIN_ALL_NS_XPATH = "//*/namespace::*";
@@ -101,6 +101,8 @@ public class XPathBuilder implements Expression, Predicate, NamespaceAware {
     private volatile String objectModelUri;
     private volatile DefaultNamespaceContext namespaceContext;
     private volatile boolean logNamespaces;
+    // whether start() has set up the factory, namespaces and functions, as every compile of a pooled expression calls it
+    private volatile boolean started;
     private volatile XPathFunctionResolver functionResolver;
     private volatile XPathFunction bodyFunction;
     private volatile XPathFunction headerFunction;
@@ -736,6 +738,48 @@ public class XPathBuilder implements Expression, Predicate, NamespaceAware {
     // Implementation methods
     // -------------------------------------------------------------------------
 
+    public synchronized void start() throws Exception {
+        if (started) {
+            return;
+        }
+        if (xpathFactory == null) {
+            xpathFactory = createXPathFactory();
+        }
+        if (namespaceContext == null) {
+            namespaceContext = createNamespaceContext(xpathFactory);
+        }
+        for (Map.Entry<String, String> entry : namespaces.entrySet()) {
+            namespaceContext.add(entry.getKey(), entry.getValue());
+        }
+
+        // create default functions if no custom assigned
+        if (bodyFunction == null) {
+            bodyFunction = createBodyFunction();
+        }
+        if (headerFunction == null) {
+            headerFunction = createHeaderFunction();
+        }
+        if (outBodyFunction == null) {
+            outBodyFunction = createOutBodyFunction();
+        }
+        if (outHeaderFunction == null) {
+            outHeaderFunction = createOutHeaderFunction();
+        }
+        if (propertiesFunction == null) {
+            propertiesFunction = createPropertiesFunction();
+        }
+        if (simpleFunction == null) {
+            simpleFunction = createSimpleFunction();
+        }
+        started = true;
+    }
+
+    public synchronized void stop() throws Exception {
+        pool.clear();
+        poolLogNamespaces.clear();
+        started = false;
+    }
+
     protected Object evaluate(Exchange exchange) {
         Object answer = evaluateAs(exchange, resultQName);
         if (resultType != null) {
@@ -922,6 +966,13 @@ public class XPathBuilder implements Expression, Predicate, NamespaceAware {
      * started prior to being used.
      */
     protected synchronized XPathExpression createXPathExpression() throws XPathExpressionException, XPathFactoryConfigurationException {
+        // ensure we are started
+        try {
+            start();
+        } catch (Exception e) {
+            throw new RuntimeExpressionException("Error starting XPathBuilder", e);
+        }
+
         // XPathFactory is not thread safe
         XPath xPath = getXPathFactory().newXPath();
 
@@ -942,6 +993,13 @@ public class XPathBuilder implements Expression, Predicate, NamespaceAware {
     }
 
     protected synchronized XPathExpression createTraceNamespaceExpression() throws XPathFactoryConfigurationException, XPathExpressionException {
+        // ensure we are started
+        try {
+            start();
+        } catch (Exception e) {
+            throw new RuntimeExpressionException("Error starting XPathBuilder", e);
+        }
+
         // XPathFactory is not thread safe
         XPath xPath = getXPathFactory().newXPath();
         return xPath.compile(OBTAIN_ALL_NS_XPATH);
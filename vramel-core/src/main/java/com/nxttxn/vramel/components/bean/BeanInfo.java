@@ -934,6 +934,15 @@ public class BeanInfo {
         return clazz;
     }
 
+    /**
+     * Do we have any method annotated with {@link com.nxttxn.vramel.Handler}.
+     *
+     * @return <tt>true</tt> if at least one method has the annotation
+     */
+    public boolean hasAnyMethodHandlerAnnotation() {
+        return !operationsWithHandlerAnnotation.isEmpty();
+    }
+
     /**
      * Do we have a method with the given name.
      * <p/>
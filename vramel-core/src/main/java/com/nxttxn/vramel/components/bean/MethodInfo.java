@@ -28,6 +28,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.*;
 
@@ -41,6 +44,7 @@ import static org.apache.camel.util.ObjectHelper.asString;
  */
 public class MethodInfo {
     private static final transient Logger LOG = LoggerFactory.getLogger(MethodInfo.class);
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
 
     private VramelContext vramelContext;
     private Class<?> type;
@@ -50,6 +54,10 @@ public class MethodInfo {
     private final boolean hasCustomAnnotation;
     private final boolean hasHandlerAnnotation;
     private Expression parametersExpression;
+    // invokes the method with the pojo and its arguments, null when it must be invoked by reflection
+    private final MethodHandle invoker;
+    // the parameter types, with primitives as their wrappers
+    private final Class<?>[] boxedParameterTypes;
     private ExchangePattern pattern = ExchangePattern.InOut;
 //    private RecipientList recipientList;
     private RoutingSlip routingSlip;
@@ -93,6 +101,11 @@ public class MethodInfo {
         this.hasCustomAnnotation = hasCustomAnnotation;
         this.hasHandlerAnnotation = hasHandlerAnnotation;
         this.parametersExpression = createParametersExpression();
+        this.invoker = createInvoker(method);
+        this.boxedParameterTypes = new Class<?>[method.getParameterTypes().length];
+        for (int i = 0; i < boxedParameterTypes.length; i++) {
+            boxedParameterTypes[i] = ObjectHelper.convertPrimitiveTypeToWrapperType(method.getParameterTypes()[i]);
+        }
 
         Map<Class<?>, Annotation> collectedMethodAnnotation = collectMethodAnnotations(type, method);
 
@@ -281,7 +294,37 @@ public class MethodInfo {
         return Modifier.isStatic(method.getModifiers());
     }
 
+    /**
+     * Creates a method handle which invokes the method the way {@link Method#invoke(Object, Object...)} does, but
+     * without checking the access and the arguments on every call.
+     */
+    private static MethodHandle createInvoker(Method method) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                // the pojo is ignored for static methods
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asSpreader(Object[].class, method.getParameterTypes().length).asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            LOG.debug("Cannot create an invoker for method: {}, invoking it by reflection", method);
+            return null;
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Cannot create an invoker for method: {}, invoking it by reflection", method);
+            return null;
+        }
+    }
+
     protected Object invoke(Method mth, Object pojo, Object[] arguments, Exchange exchange) throws InvocationTargetException {
+        if (invoker != null && mth == method && argumentsMatch(pojo, arguments)) {
+            try {
+                return (Object) invoker.invokeExact(pojo, arguments);
+            } catch (Throwable e) {
+                // as thrown by reflection, so the cause is set on the exchange
+                throw new InvocationTargetException(e);
+            }
+        }
+
         try {
             return mth.invoke(pojo, arguments);
         } catch (IllegalAccessException e) {
@@ -291,14 +334,37 @@ public class MethodInfo {
         }
     }
 
+    /**
+     * Whether the pojo and arguments can be passed to the invoker, otherwise the method is invoked by reflection so a
+     * mismatch fails with the same exception it always did
+     */
+    private boolean argumentsMatch(Object pojo, Object[] arguments) {
+        if (!isStaticMethod() && !method.getDeclaringClass().isInstance(pojo)) {
+            return false;
+        }
+        if (arguments == null || arguments.length != boxedParameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            final Object argument = arguments[i];
+            if (argument == null ? method.getParameterTypes()[i].isPrimitive() : !boxedParameterTypes[i].isInstance(argument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected Expression createParametersExpression() {
         final int size = parameters.size();
         LOG.trace("Creating parameters expression for {} parameters", size);
 
         final Expression[] expressions = new Expression[size];
+        // the parameter types, with primitives as their wrappers, to bind values which need no conversion directly
+        final Class<?>[] boxedTypes = new Class<?>[size];
         for (int i = 0; i < size; i++) {
             Expression parameterExpression = parameters.get(i).getExpression();
             expressions[i] = parameterExpression;
+            boxedTypes[i] = ObjectHelper.convertPrimitiveTypeToWrapperType(parameters.get(i).getType());
             LOG.trace("Parameter #{} has expression: {}", i, parameterExpression);
         }
         return new Expression() {
@@ -354,7 +420,7 @@ public class MethodInfo {
                         // use bean parameter binding, if still no value
                         Expression expression = expressions[i];
                         if (value == null && expression != null) {
-                            value = evaluateParameterBinding(exchange, expression, i, parameterType);
+                            value = evaluateParameterBinding(exchange, expression, i, parameterType, boxedTypes[i]);
                         }
                     }
 
@@ -449,12 +515,15 @@ public class MethodInfo {
             /**
              * Evaluate using classic parameter binding using the pre compute expression
              */
-            private Object evaluateParameterBinding(Exchange exchange, Expression expression, int index, Class<?> parameterType) {
+            private Object evaluateParameterBinding(Exchange exchange, Expression expression, int index, Class<?> parameterType, Class<?> boxedType) {
                 Object answer = null;
 
                 // use object first to avoid type conversion so we know if there is a value or not
                 Object result = expression.evaluate(exchange, Object.class);
-                if (result != null) {
+                if (boxedType.isInstance(result)) {
+                    // already of the expected type, such as the Exchange or a String body for a String parameter
+                    answer = result;
+                } else if (result != null) {
                     // we got a value now try to convert it to the expected type
                     try {
                         answer = exchange.getContext().getTypeConverter().mandatoryConvertTo(parameterType, result);
@@ -48,13 +48,20 @@ public class MethodInfoCache {
         this.methodCache = methodCache;
     }
 
-    public synchronized MethodInfo getMethodInfo(Method method) {
+    public MethodInfo getMethodInfo(Method method) {
+        // the caches are concurrent, so only lock to create what is missing
         MethodInfo answer = methodCache.get(method);
-        if (answer == null) {
-            answer = createMethodInfo(method);
-            methodCache.put(method, answer);
+        if (answer != null) {
+            return answer;
+        }
+        synchronized (this) {
+            answer = methodCache.get(method);
+            if (answer == null) {
+                answer = createMethodInfo(method);
+                methodCache.put(method, answer);
+            }
+            return answer;
         }
-        return answer;
     }
 
     protected MethodInfo createMethodInfo(Method method) {
@@ -63,13 +70,19 @@ public class MethodInfoCache {
         return info.getMethodInfo(method);
     }
 
-    protected synchronized BeanInfo getBeanInfo(Class<?> declaringClass) {
+    protected BeanInfo getBeanInfo(Class<?> declaringClass) {
         BeanInfo beanInfo = classCache.get(declaringClass);
-        if (beanInfo == null) {
-            beanInfo = createBeanInfo(declaringClass);
-            classCache.put(declaringClass, beanInfo);
+        if (beanInfo != null) {
+            return beanInfo;
+        }
+        synchronized (this) {
+            beanInfo = classCache.get(declaringClass);
+            if (beanInfo == null) {
+                beanInfo = createBeanInfo(declaringClass);
+                classCache.put(declaringClass, beanInfo);
+            }
+            return beanInfo;
         }
-        return beanInfo;
     }
 
     protected BeanInfo createBeanInfo(Class<?> declaringClass) {
@@ -2,6 +2,7 @@ package com.nxttxn.vramel.components.jpos;
 
 import com.nxttxn.vramel.*;
 import com.nxttxn.vramel.impl.DefaultEndpoint;
+import com.nxttxn.vramel.impl.jpos.JPOSChannelFormat;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.slf4j.Logger;
@@ -22,12 +23,14 @@ public class JposChannelAdapter extends DefaultEndpoint {
 
     private final JsonObject config;
     private final String remaining;
+    private final JPOSChannelFormat channelFormat;
 
     public JposChannelAdapter(VramelContext vramelContext, JsonObject config, String remaining) {
         super(String.format("jpos"), vramelContext);
 
         this.config = config;
         this.remaining = remaining;
+        this.channelFormat = JPOSChannelFormat.fromConfig(config);
     }
 
     @Override
@@ -49,6 +52,13 @@ public class JposChannelAdapter extends DefaultEndpoint {
         message.setHeader(ISO_MTI_HEADER, isoMsg.getMTI());
     }
 
+    /**
+     * @return the packager and framing configured for this endpoint, see {@link JPOSChannelFormat#fromConfig(JsonObject)}
+     */
+    public JPOSChannelFormat getChannelFormat() {
+        return channelFormat;
+    }
+
     public String getRemaining() {
         return remaining;
     }
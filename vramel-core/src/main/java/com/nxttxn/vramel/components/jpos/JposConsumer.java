@@ -42,7 +42,7 @@ public class JposConsumer extends DefaultConsumer {
         final URI uri = URI.create(String.format("jpos://%s:%s", host, port));
 
         final ServerFactory serverFactory = endpoint.getVramelContext().getServerFactory();
-        jposServer = serverFactory.createOrFindJPOSServer(uri);
+        jposServer = serverFactory.createOrFindJPOSServer(uri, this.endpoint.getChannelFormat());
 
         MTIMatcher mtiMatcher = findOrCreateMTIMatcher();
 
@@ -7,6 +7,7 @@ import com.nxttxn.vramel.Message;
 import com.nxttxn.vramel.impl.DefaultAsyncProducer;
 import com.nxttxn.vramel.impl.DefaultProducer;
 import com.nxttxn.vramel.impl.jpos.JPOSClient;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
 
 import com.nxttxn.vramel.util.AsyncProcessorHelper;
@@ -46,11 +47,16 @@ public class JposProducer extends DefaultAsyncProducer {
         final String host = config.getString("host", defaultUri.getHost());
         final Number port = config.getNumber("port", defaultUri.getPort());
         responseTimeout = config.getNumber("response_timeout", 30000 ).intValue();
+        final int poolSize = config.getNumber("pool_size", JPOSClient.DEFAULT_POOL_SIZE).intValue();
         URI uri = URI.create(String.format("jpos://%s:%s", host, port));
 
-        logger.info("Creating JPOSClient for {} with response_timeout={}",uri, responseTimeout);
+        logger.info("Creating JPOSClient for {} with response_timeout={} and pool_size={}", new Object[]{uri, responseTimeout, poolSize});
 
-        jposClient = clientFactory.createOrFindJPOSClient(uri, config.getString("keyFields", JPOSClient.DEFAULT_KEY));
+        jposClient = clientFactory.createOrFindJPOSClient(uri, config.getString("keyFields", JPOSClient.DEFAULT_KEY), poolSize, this.endpoint.getChannelFormat());
+        final MetricsRegistry metricsRegistry = endpoint.getVramelContext().getMetricsRegistry();
+        if (metricsRegistry.isEnabled()) {
+            metricsRegistry.addMetrics(JPOSClient.METRICS_TYPE, jposClient.getName(), jposClient);
+        }
     }
 
 
@@ -4,15 +4,21 @@ import com.nxttxn.vramel.*;
 import com.nxttxn.vramel.impl.CORSSettings;
 import com.nxttxn.vramel.impl.DefaultConsumer;
 import com.nxttxn.vramel.impl.HTTPListener;
+import com.nxttxn.vramel.impl.StreamBody;
 import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.support.SynchronizationAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.http.HttpServerRequest;
 import org.vertx.java.core.http.HttpServerResponse;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
 import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.streams.Pump;
+import org.vertx.java.core.streams.ReadStream;
 
 import java.util.Map;
 
@@ -39,11 +45,16 @@ public class RestConsumer extends DefaultConsumer {
         final JsonObject config = this.endpoint.getConfig();
         final HTTPListener listener = serverFactory.createOrFindHttpListener(config);
         final CORSSettings corsSettings = CORSSettings.create(config);
+        final boolean streaming = config.getBoolean("streaming", false);
 
         if (corsSettings.enabled()) {
             listener.setupCORSOptionsHandler(this.endpoint.getRoute(), corsSettings);
         }
 
+        if (config.getBoolean("metrics", false)) {
+            listener.exposeMetrics(endpoint.getVramelContext().getMetricsRegistry());
+        }
+
         listener.registerRoute(this.endpoint.getRoute(), this.endpoint.getMethod(), new Handler<HttpServerRequest>() {
             @Override
             public void handle(final HttpServerRequest request) {
@@ -54,28 +65,71 @@ public class RestConsumer extends DefaultConsumer {
                     listener.setCORS(request, corsSettings);
                 }
 
+                if (streaming) {
+                    // the flow gets the body as it arrives
+                    processRequest(request, new StreamBody(request), processor);
+                    return;
+                }
                 request.bodyHandler(new Handler<Buffer>() {
                     @Override
                     public void handle(Buffer buffer) {
-                        Exchange exchange = getEndpoint().createExchange();
-                        final Message in = exchange.getIn();
-                        in.setBody(buffer.getBytes());
-                        for (Map.Entry<String, String> header : request.headers().entrySet()) {
-                            in.setHeader(header.getKey(), header.getValue());
-                        }
+                        processRequest(request, buffer.getBytes(), processor);
+                    }
+                });
+            }
+        });
+    }
 
-                        for (Map.Entry<String, String> param : request.params().entrySet()) {
-                            in.setHeader(param.getKey(), param.getValue());
-                        }
+    private void processRequest(HttpServerRequest request, Object body, Processor processor) {
+        Exchange exchange = getEndpoint().createExchange();
+        final Message in = exchange.getIn();
+        in.setBody(body);
+        if (body instanceof StreamBody) {
+            discardOnCompletion(exchange, (StreamBody) body);
+        }
+        for (Map.Entry<String, String> header : request.headers().entrySet()) {
+            in.setHeader(header.getKey(), header.getValue());
+        }
+
+        for (Map.Entry<String, String> param : request.params().entrySet()) {
+            in.setHeader(param.getKey(), param.getValue());
+        }
 
-                        final String defaultContentType = in.getHeader(Exchange.CONTENT_TYPE, FALLBACK_CONTENT_TYPE, String.class);
-                        in.setHeader(Exchange.HTTP_METHOD, request.method);
+        final String defaultContentType = in.getHeader(Exchange.CONTENT_TYPE, FALLBACK_CONTENT_TYPE, String.class);
+        in.setHeader(Exchange.HTTP_METHOD, request.method);
 
-                        try {
-                            logger.debug("[Rest Consumer] Ready to process exchange: {}.", processor.toString(), exchange);
-                            getAsyncProcessor().process(exchange, createResponseHandler(request.response, defaultContentType));
-                        } catch (Exception e) {
-                            handleInternalError(exchange, e, request.response, defaultContentType);
+        try {
+            logger.debug("[Rest Consumer] Ready to process exchange: {}.", processor.toString(), exchange);
+            getAsyncProcessor().process(exchange, createResponseHandler(request.response, defaultContentType));
+        } catch (Exception e) {
+            handleInternalError(exchange, e, request.response, defaultContentType);
+        }
+    }
+
+    /**
+     * Reads what is left of a request body the flow did not read, or gave up reading as it failed, so the request
+     * ends and the connection is not left stalled.
+     */
+    private void discardOnCompletion(Exchange exchange, final StreamBody requestStream) {
+        // the request has to be read on the event loop it arrives on
+        final Context context = ((VertxInternal) getEndpoint().getVramelContext().getVertx()).getContext();
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onComplete(Exchange exchange) {
+                discard(false);
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                discard(true);
+            }
+
+            private void discard(final boolean failed) {
+                context.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failed || !requestStream.isReading()) {
+                            requestStream.discard();
                         }
                     }
                 });
@@ -101,14 +155,15 @@ public class RestConsumer extends DefaultConsumer {
 
     private void doWriteResponse(Message message, HttpServerResponse response, String defaultContentType) {
         int statusCode = httpOk;
+        final boolean streamBody = message.getBody() instanceof ReadStream;
         final boolean noResponseBody = message.getBody() == null || message.getBody() == Void.TYPE;
-        final byte[] body = message.getBody(byte[].class);
+        final byte[] body = streamBody ? null : message.getBody(byte[].class);
 
 
-        final boolean validResponseBody = body != null || noResponseBody;
+        final boolean validResponseBody = body != null || noResponseBody || streamBody;
 
         if (!validResponseBody) {
-            throw new RuntimeVramelException("[Rest Consumer] The message contains a body but it is not a String or byte[]. Currently Rest Consumer is only smart enough to handle these types. If your intention is to provide a response, please set the message body using one of these types.");
+            throw new RuntimeVramelException("[Rest Consumer] The message contains a body but it is not a String or byte[]. Currently Rest Consumer is only smart enough to handle these types, or a ReadStream. If your intention is to provide a response, please set the message body using one of these types.");
         }
 
         if (message.getHeader(Exchange.HTTP_RESPONSE_CODE) != null) {
@@ -134,6 +189,12 @@ public class RestConsumer extends DefaultConsumer {
         response.statusMessage = statusMessage;    //should be tied to statuscode probably
 
 
+        response.statusCode = statusCode;
+        if (streamBody) {
+            writeStreamingResponse((ReadStream) message.getBody(), response);
+            return;
+        }
+
         Buffer buffer;
         if (body != null) {
             buffer = new Buffer(body);
@@ -142,11 +203,32 @@ public class RestConsumer extends DefaultConsumer {
         }
 
 
-        response.statusCode = statusCode;
         logger.info(String.format("Http result handler ready to respond with status: %s", response.statusCode));
         response.end(buffer);
     }
 
+    /**
+     * Pumps the body to the client as it is read, pausing it while the response cannot keep up.
+     */
+    private void writeStreamingResponse(ReadStream body, final HttpServerResponse response) {
+        logger.info(String.format("Http result handler ready to stream response with status: %s", response.statusCode));
+        body.endHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                response.end();
+            }
+        });
+        body.exceptionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                // the status has gone out already, all we can do is cut the response short
+                logError(e);
+                response.close();
+            }
+        });
+        Pump.createPump(body, response).start();
+    }
+
     private void handleInternalError(Exchange exchange, Throwable ex, HttpServerResponse response, String defaultContentType) {
         response.setChunked(true); // or set Content-length
         response.putHeader("Content-Type", defaultContentType);
@@ -6,16 +6,23 @@ import com.nxttxn.vramel.Endpoint;
 import com.nxttxn.vramel.Exchange;
 import com.nxttxn.vramel.Message;
 import com.nxttxn.vramel.impl.DefaultAsyncProducer;
-import com.nxttxn.vramel.impl.DefaultProducer;
+import com.nxttxn.vramel.impl.StreamBody;
+import com.nxttxn.vramel.impl.http.HttpClientPool;
+import com.nxttxn.vramel.impl.http.HttpClientPoolOptions;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.support.SynchronizationAdapter;
 import com.nxttxn.vramel.util.AsyncProcessorHelper;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.buffer.Buffer;
-import org.vertx.java.core.http.HttpClient;
 import org.vertx.java.core.http.HttpClientRequest;
 import org.vertx.java.core.http.HttpClientResponse;
 import org.vertx.java.core.http.impl.ws.Base64;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
 import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.streams.Pump;
+import org.vertx.java.core.streams.ReadStream;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
@@ -32,10 +39,11 @@ public class RestProducer extends DefaultAsyncProducer {
 
 
     private final RestChannelAdapter endpoint;
-    private final HttpClient httpClient;
+    private final HttpClientPool httpClientPool;
     private Optional<String> credentials = Optional.absent();
     //for now json is hard coded... might need to make configurable
     private final String defaultContentType = "application/json";
+    private final boolean streaming;
 
     public RestProducer(Endpoint endpoint) {
         super(endpoint);
@@ -53,7 +61,12 @@ public class RestProducer extends DefaultAsyncProducer {
         final String httpsFormat = "https://%s:%s";
         final URI uri = URI.create(String.format(ssl ? httpsFormat : httpFormat, host, port));
 
-        httpClient = clientFactory.createOrFindHttpClient(uri, keystorePath, keystorePassword);
+        streaming = config.getBoolean("streaming", false);
+        httpClientPool = clientFactory.createOrFindHttpClientPool(uri, keystorePath, keystorePassword, HttpClientPoolOptions.fromConfig(config));
+        final MetricsRegistry metricsRegistry = endpoint.getVramelContext().getMetricsRegistry();
+        if (metricsRegistry.isEnabled()) {
+            metricsRegistry.addMetrics(HttpClientPool.METRICS_TYPE, httpClientPool.getName(), httpClientPool);
+        }
         final Optional<String> username = Optional.fromNullable(config.getString("username", null));
         final String password = config.getString("password", null);
         if (username.isPresent()) {
@@ -63,67 +76,167 @@ public class RestProducer extends DefaultAsyncProducer {
 
     @Override
     public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
-        final Handler<Exception> exceptionHandler = new Handler<Exception>() {
+        final String method = this.endpoint.getMethod();
+        final String uri = getUri(exchange);
+        final Message message = exchange.getIn();
+        final ReadStream bodyStream = message.getBody() instanceof ReadStream ? (ReadStream) message.getBody() : null;
+        final byte[] body = bodyStream != null ? null : message.getMandatoryBody(byte[].class);
+        final Buffer buffer = new Buffer(body == null ? new byte[0] : body);
+
+        httpClientPool.request(new HttpClientPool.Request(method, uri) {
+            private boolean answered;
+            private StreamBody responseStream;
+
             @Override
-            public void handle(Exception e) {
-                exchange.setException(e);
-                optionalAsyncResultHandler.done(exchange);
+            protected void writeRequest(HttpClientRequest request) {
+                logger.info(String.format("[Rest Producer] [Request] [%s - %s]", method, uri));
+                logger.debug(String.format("[Rest Producer] [Request] [%s - %s] - Request body: %s", method, uri, bodyStream != null ? "(stream)" : buffer.toString()));
+
+                if (credentials.isPresent()) {
+                    request = request.putHeader("Authorization", "Basic " + credentials.get())
+                            .putHeader("Accept", "*/*");
+                }
+
+                if (bodyStream == null && buffer.length() == 0) {
+                    request.end();
+                } else {
+                    // set the content type in the response.
+                    String contentType = message.getHeader(Exchange.CONTENT_TYPE, defaultContentType, String.class);
+                    message.removeHeader(Exchange.CONTENT_TYPE);
+
+                    for (Map.Entry<String, Object> header : message.getHeaders().entrySet()) {
+                        request = request.putHeader(header.getKey(), header.getValue());
+                    }
+
+                    request.putHeader("Content-Type", contentType);
+                    if (bodyStream != null) {
+                        writeStreamingRequest(request, bodyStream, this);
+                    } else {
+                        request.putHeader("Content-Length", buffer.length())
+                                .end(buffer);
+                    }
+                }
             }
-        };
 
-        final String method = this.endpoint.getMethod();
-        final String uri = getUri(exchange);
-        HttpClientRequest request = httpClient.request(method, uri, new Handler<HttpClientResponse>() {
             @Override
-            public void handle(final HttpClientResponse httpClientResponse) {
+            protected void handleResponse(final HttpClientResponse httpClientResponse) {
                 logger.info(String.format("[Rest Producer] [Reply] [%s - %s]: %s - %s", method, uri, httpClientResponse.statusCode, httpClientResponse.statusMessage));
                 for (Map.Entry<String, String> header : httpClientResponse.headers().entrySet()) {
                     exchange.getOut().setHeader(header.getKey(), header.getValue());
                 }
 
-                httpClientResponse.exceptionHandler(exceptionHandler);
+                if (streaming) {
+                    // the flow continues straight away and reads the body as it arrives, the connection is
+                    // given back once it has all been read
+                    responseStream = new StreamBody(httpClientResponse).completionHandler(new Handler<Exception>() {
+                        @Override
+                        public void handle(Exception e) {
+                            if (e == null) {
+                                end();
+                            } else {
+                                fail(e);
+                            }
+                        }
+                    });
+                    exchange.getOut().setBody(responseStream);
+                    releaseOnCompletion(exchange, responseStream);
+                    answered = true;
+                    optionalAsyncResultHandler.done(exchange);
+                    return;
+                }
+
+                httpClientResponse.exceptionHandler(new Handler<Exception>() {
+                    @Override
+                    public void handle(Exception e) {
+                        fail(e);
+                    }
+                });
                 httpClientResponse.bodyHandler(new Handler<Buffer>() {
                     @Override
                     public void handle(Buffer buffer) {
-
+                        if (!end()) {
+                            // already completed with a timeout
+                            return;
+                        }
                         logger.debug(String.format("[Rest Producer] [Reply] [%s - %s]: Response: %s", method, uri, buffer.toString()));
                         exchange.getOut().setBody(buffer.getBytes());
                         optionalAsyncResultHandler.done(exchange);
                     }
                 });
             }
+
+            @Override
+            protected void handleException(Exception e) {
+                if (answered) {
+                    // e.g. the request timed out while the flow was still reading the response body
+                    responseStream.fail(e);
+                    return;
+                }
+                answered = true;
+                exchange.setException(e);
+                optionalAsyncResultHandler.done(exchange);
+            }
         });
-        request.exceptionHandler(exceptionHandler);
 
-        final Message message = exchange.getIn();
-        final byte[] body = message.getMandatoryBody(byte[].class);
-        final Buffer buffer = new Buffer(body == null ? new byte[0] : body);
-        logger.info(String.format("[Rest Producer] [Request] [%s - %s]", method, uri));
-        logger.debug(String.format("[Rest Producer] [Request] [%s - %s] - Request body: %s", method, uri, buffer.toString()));
+        return false;
 
-        if (credentials.isPresent()) {
-            request = request.putHeader("Authorization", "Basic " + credentials.get())
-                    .putHeader("Accept", "*/*");
-        }
+    }
 
-        if (buffer.length() == 0) {
-            request.end();
-        } else {
-            // set the content type in the response.
-            String contentType = message.getHeader(Exchange.CONTENT_TYPE, defaultContentType, String.class);
-            message.removeHeader(Exchange.CONTENT_TYPE);
+    /**
+     * Gives the connection of a streamed response back when the exchange completes without anyone reading the
+     * body, or fails, rather than waiting for a read that may never come.
+     */
+    private void releaseOnCompletion(Exchange exchange, final StreamBody responseStream) {
+        // the response has to be read on the event loop it arrives on
+        final Context context = ((VertxInternal) getEndpoint().getVramelContext().getVertx()).getContext();
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onComplete(Exchange exchange) {
+                release(false);
+            }
 
-            for (Map.Entry<String, Object> header : message.getHeaders().entrySet()) {
-                request = request.putHeader(header.getKey(), header.getValue());
+            @Override
+            public void onFailure(Exchange exchange) {
+                release(true);
             }
 
-            request.putHeader("Content-Type", contentType)
-                    .putHeader("Content-Length", buffer.length())
-                    .end(buffer);
-        }
+            private void release(final boolean failed) {
+                context.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failed || !responseStream.isReading()) {
+                            responseStream.discard();
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        return false;
+    /**
+     * Sends the body chunked as it is read, pausing it while the connection cannot keep up.
+     */
+    private void writeStreamingRequest(final HttpClientRequest request, ReadStream bodyStream, final HttpClientPool.Request pooledRequest) {
+        // a length copied from an incoming request does not go with a chunked body
+        request.headers().remove("Content-Length");
+        request.setChunked(true);
+        bodyStream.endHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                request.end();
+            }
+        });
+        bodyStream.exceptionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                pooledRequest.fail(e);
+            }
+        });
+        Pump.createPump(bodyStream, request).start();
+    }
 
+    public HttpClientPool getHttpClientPool() {
+        return httpClientPool;
     }
 
     public void process(Exchange exchange) throws Exception {
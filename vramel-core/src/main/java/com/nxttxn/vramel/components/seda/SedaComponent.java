@@ -0,0 +1,61 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Endpoint;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.impl.DefaultComponent;
+import com.nxttxn.vramel.management.MetricsRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <tt>seda:name</tt> component, asynchronous hand over of exchanges through bounded in memory queues, for
+ * when producer and consumer are in the same JVM and going through the cluster is not needed.
+ */
+public class SedaComponent extends DefaultComponent {
+    public static final int DEFAULT_SIZE = 1000;
+
+    // must keep the queues on the component so endpoints of the same name share them
+    private final Map<String, SedaQueue> queues = new HashMap<String, SedaQueue>();
+
+    public SedaComponent(VramelContext vramelContext) {
+        super(vramelContext);
+    }
+
+    @Override
+    protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
+        final Integer size = getAndRemoveParameter(parameters, "size", Integer.class);
+        final SedaQueue queue = getOrCreateQueue(remaining, size);
+        Endpoint endpoint = new SedaEndpoint(uri, this, queue);
+        setProperties(endpoint, parameters);
+        return endpoint;
+    }
+
+    public synchronized SedaQueue getOrCreateQueue(String name, Integer size) {
+        SedaQueue queue = queues.get(name);
+        if (queue != null) {
+            if (size != null && size != queue.getCapacity()) {
+                throw new IllegalArgumentException("Cannot use existing queue " + name + " as its size "
+                        + queue.getCapacity() + " does not match the given size " + size);
+            }
+            return queue;
+        }
+
+        queue = new SedaQueue(name, size != null ? size : DEFAULT_SIZE, getVramelContext().getVertx());
+        queues.put(name, queue);
+        MetricsRegistry metricsRegistry = getVramelContext().getMetricsRegistry();
+        if (metricsRegistry.isEnabled()) {
+            metricsRegistry.addMetrics(SedaQueue.METRICS_TYPE, name, queue);
+        }
+        return queue;
+    }
+
+    @Override
+    protected synchronized void doStop() throws Exception {
+        for (SedaQueue queue : queues.values()) {
+            queue.clear();
+        }
+        queues.clear();
+        super.doStop();
+    }
+}
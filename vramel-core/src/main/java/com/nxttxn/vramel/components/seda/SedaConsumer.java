@@ -0,0 +1,130 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultConsumer;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Processes the exchanges of a seda queue, up to <tt>concurrentConsumers</tt> at a time.
+ * <p/>
+ * Each of the concurrent consumers is a slot bound to a Vert.x event loop, picked round robin as the consumer
+ * starts, so the exchanges of one queue are spread over the event loops; with <tt>worker=true</tt> the slots run
+ * on a thread pool instead, for flows which block.
+ */
+public class SedaConsumer extends DefaultConsumer {
+    private final SedaEndpoint endpoint;
+    private Context[] contexts;
+    private ExecutorService executorService;
+    // guarded by this
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    public SedaConsumer(SedaEndpoint endpoint, Processor processor) {
+        super(endpoint, processor);
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        final int concurrentConsumers = endpoint.getConcurrentConsumers();
+        if (concurrentConsumers <= 0) {
+            throw new IllegalArgumentException("ConcurrentConsumers must be a positive number, was: " + concurrentConsumers);
+        }
+        if (endpoint.isWorker()) {
+            executorService = endpoint.getVramelContext().getExecutorServiceManager()
+                    .newFixedThreadPool(this, endpoint.getEndpointUri(), concurrentConsumers);
+        } else {
+            final VertxInternal vertx = (VertxInternal) endpoint.getVramelContext().getVertx();
+            contexts = new Context[concurrentConsumers];
+            for (int i = 0; i < concurrentConsumers; i++) {
+                contexts[i] = vertx.startOnEventLoop(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+        }
+        synchronized (this) {
+            freeSlots.clear();
+            for (int i = 0; i < concurrentConsumers; i++) {
+                freeSlots.add(i);
+            }
+        }
+        endpoint.getQueue().addConsumer(this, endpoint.isMultipleConsumers());
+        logger.info("[Seda-{}] Started {} consumers on {}", new Object[]{endpoint.getQueue().getName(), concurrentConsumers,
+                endpoint.isWorker() ? "a worker pool" : "the event loops"});
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        endpoint.getQueue().removeConsumer(this);
+        if (executorService != null) {
+            endpoint.getVramelContext().getExecutorServiceManager().shutdown(executorService);
+            executorService = null;
+        }
+        contexts = null;
+        super.doStop();
+    }
+
+    synchronized boolean hasFreeSlot() {
+        return !freeSlots.isEmpty();
+    }
+
+    synchronized int acquireSlot() {
+        return freeSlots.poll();
+    }
+
+    synchronized void releaseSlot(int slot) {
+        freeSlots.add(slot);
+    }
+
+    void deliver(final SedaQueue.Delivery delivery) {
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                process(delivery);
+            }
+        };
+        final ExecutorService executor = executorService;
+        final Context[] loops = contexts;
+        if (executor != null) {
+            executor.execute(task);
+        } else if (loops != null) {
+            loops[delivery.slot].execute(task);
+        } else {
+            // stopped meanwhile, still finish what the queue handed over
+            task.run();
+        }
+    }
+
+    private void process(final SedaQueue.Delivery delivery) {
+        final Exchange exchange = delivery.exchange;
+        try {
+            getAsyncProcessor().process(exchange, new OptionalAsyncResultHandler() {
+                @Override
+                public void handle(AsyncExchangeResult result) {
+                    completed(delivery);
+                }
+            });
+        } catch (Exception e) {
+            exchange.setException(e);
+            completed(delivery);
+        }
+    }
+
+    private void completed(SedaQueue.Delivery delivery) {
+        final Exchange exchange = delivery.exchange;
+        // nobody waits on the exchange, so report its failure here
+        if (exchange.getException() != null && (delivery.entry.handler == null || exchange != delivery.entry.exchange)) {
+            getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+        }
+        endpoint.getQueue().delivered(delivery);
+    }
+}
@@ -0,0 +1,130 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Component;
+import com.nxttxn.vramel.Consumer;
+import com.nxttxn.vramel.MultipleConsumersSupport;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.Producer;
+import com.nxttxn.vramel.impl.DefaultEndpoint;
+import com.nxttxn.vramel.spi.UriEndpoint;
+import com.nxttxn.vramel.spi.UriParam;
+
+/**
+ * An endpoint on an in memory {@link SedaQueue}, handing exchanges over asynchronously within the JVM.
+ * <p/>
+ * Options:
+ * <ul>
+ *   <li><tt>size</tt> - capacity of the queue, default 1000, given by the first endpoint of the queue</li>
+ *   <li><tt>concurrentConsumers</tt> - how many exchanges a consumer processes at once, default 1</li>
+ *   <li><tt>worker</tt> - run the consumers on a thread pool instead of the event loops, default false</li>
+ *   <li><tt>multipleConsumers</tt> - every consumer gets each exchange, default false</li>
+ *   <li><tt>whenFull</tt> - <tt>Block</tt>, <tt>Drop</tt> or <tt>Fail</tt> producers when the queue is full, default Fail</li>
+ *   <li><tt>offerTimeout</tt> - how long a blocked producer waits in millis before it fails, default 0 for ever</li>
+ *   <li><tt>waitForTaskToComplete</tt> - producers wait until their exchange is processed, default false</li>
+ *   <li><tt>failIfNoConsumers</tt> - fail producers while the queue has no consumer, default false</li>
+ * </ul>
+ */
+@UriEndpoint(scheme = "seda", consumerClass = SedaConsumer.class)
+public class SedaEndpoint extends DefaultEndpoint implements MultipleConsumersSupport {
+
+    public enum WhenFull {
+        Block, Drop, Fail
+    }
+
+    private final SedaQueue queue;
+    @UriParam
+    private int concurrentConsumers = 1;
+    @UriParam
+    private boolean worker;
+    @UriParam
+    private boolean multipleConsumers;
+    @UriParam
+    private WhenFull whenFull = WhenFull.Fail;
+    @UriParam
+    private long offerTimeout;
+    @UriParam
+    private boolean waitForTaskToComplete;
+    @UriParam
+    private boolean failIfNoConsumers;
+
+    public SedaEndpoint(String endpointUri, Component component, SedaQueue queue) {
+        super(endpointUri, component);
+        this.queue = queue;
+    }
+
+    public Producer createProducer() throws Exception {
+        return new SedaProducer(this);
+    }
+
+    public Consumer createConsumer(Processor processor) throws Exception {
+        return new SedaConsumer(this, processor);
+    }
+
+    public boolean isSingleton() {
+        return true;
+    }
+
+    public boolean isMultipleConsumersSupported() {
+        return multipleConsumers;
+    }
+
+    public SedaQueue getQueue() {
+        return queue;
+    }
+
+    public int getConcurrentConsumers() {
+        return concurrentConsumers;
+    }
+
+    public void setConcurrentConsumers(int concurrentConsumers) {
+        this.concurrentConsumers = concurrentConsumers;
+    }
+
+    public boolean isWorker() {
+        return worker;
+    }
+
+    public void setWorker(boolean worker) {
+        this.worker = worker;
+    }
+
+    public boolean isMultipleConsumers() {
+        return multipleConsumers;
+    }
+
+    public void setMultipleConsumers(boolean multipleConsumers) {
+        this.multipleConsumers = multipleConsumers;
+    }
+
+    public WhenFull getWhenFull() {
+        return whenFull;
+    }
+
+    public void setWhenFull(WhenFull whenFull) {
+        this.whenFull = whenFull;
+    }
+
+    public long getOfferTimeout() {
+        return offerTimeout;
+    }
+
+    public void setOfferTimeout(long offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+    public boolean isWaitForTaskToComplete() {
+        return waitForTaskToComplete;
+    }
+
+    public void setWaitForTaskToComplete(boolean waitForTaskToComplete) {
+        this.waitForTaskToComplete = waitForTaskToComplete;
+    }
+
+    public boolean isFailIfNoConsumers() {
+        return failIfNoConsumers;
+    }
+
+    public void setFailIfNoConsumers(boolean failIfNoConsumers) {
+        this.failIfNoConsumers = failIfNoConsumers;
+    }
+}
@@ -0,0 +1,27 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultAsyncProducer;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.ExchangeHelper;
+
+/**
+ * Puts exchanges on the queue of a seda endpoint.
+ * <p/>
+ * Unless the endpoint waits for the task to complete, a copy of the exchange is queued and the exchange is done
+ * as soon as the copy is in the queue.
+ */
+public class SedaProducer extends DefaultAsyncProducer {
+    private final SedaEndpoint endpoint;
+
+    public SedaProducer(SedaEndpoint endpoint) {
+        super(endpoint);
+        this.endpoint = endpoint;
+    }
+
+    public boolean process(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        // the copy gets a unit of work of its own, as the exchange may be done before the copy is processed
+        final Exchange queued = endpoint.isWaitForTaskToComplete() ? exchange : ExchangeHelper.createCorrelatedCopy(exchange, false);
+        return endpoint.getQueue().offer(endpoint, queued, exchange, optionalAsyncResultHandler);
+    }
+}
@@ -0,0 +1,424 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.management.MetricsSource;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.ExchangeHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bounded in memory queue behind the seda endpoints of one name.
+ * <p/>
+ * The queue pushes each exchange to a consumer as soon as one has a free slot, instead of having threads poll it,
+ * so a consumer only uses a thread while it processes an exchange. With competing consumers each exchange goes to
+ * one of them; with multiple consumers every consumer gets a copy of each exchange, which waits at the head of the
+ * queue until all of them have a free slot.
+ * <p/>
+ * Producers which find the queue full are parked, dropped or failed depending on the {@link SedaEndpoint#getWhenFull()}
+ * policy of their endpoint; a parked producer holds no thread, it is called back once its exchange is queued.
+ * Producers are always called back on the Vert.x context they offered their exchange from, not on the thread
+ * of the consumer which made room or processed it.
+ */
+public class SedaQueue implements SedaQueueMBean, MetricsSource {
+    public static final String METRICS_TYPE = "queues";
+
+    private static final Logger logger = LoggerFactory.getLogger(SedaQueue.class);
+
+    private final String name;
+    private final int capacity;
+    private final Vertx vertx;
+
+    // guarded by this
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ArrayDeque<Entry> blocked = new ArrayDeque<>();
+    private final List<SedaConsumer> consumers = new ArrayList<>();
+    private boolean multipleConsumers;
+    private int nextConsumer;
+    private int maxSize;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * An exchange waiting in the queue.
+     */
+    static final class Entry {
+        final Exchange exchange;
+        // called once the exchange is processed, when the producer waits for it
+        final OptionalAsyncResultHandler handler;
+        // the context of the producer, its handlers are called on
+        final Context context;
+        final AtomicInteger remaining = new AtomicInteger();
+        // called with the exchange of the producer once a parked exchange makes it into the queue, when the
+        // producer does not wait for it to be processed
+        OptionalAsyncResultHandler acceptedHandler;
+        Exchange original;
+        long timerId = -1;
+
+        Entry(Exchange exchange, OptionalAsyncResultHandler handler, Context context) {
+            this.exchange = exchange;
+            this.handler = handler;
+            this.context = context;
+        }
+
+        /**
+         * Calls a handler of the producer back on its own context.
+         */
+        void done(final OptionalAsyncResultHandler handler, final Exchange exchange) {
+            if (context == null) {
+                handler.done(exchange);
+                return;
+            }
+            context.execute(new Runnable() {
+                @Override
+                public void run() {
+                    handler.done(exchange);
+                }
+            });
+        }
+    }
+
+    /**
+     * An exchange handed to a consumer, along with the slot of the consumer it runs in.
+     */
+    static final class Delivery {
+        final SedaConsumer consumer;
+        final int slot;
+        final Exchange exchange;
+        final Entry entry;
+
+        Delivery(SedaConsumer consumer, int slot, Exchange exchange, Entry entry) {
+            this.consumer = consumer;
+            this.slot = slot;
+            this.exchange = exchange;
+            this.entry = entry;
+        }
+    }
+
+    public SedaQueue(String name, int capacity, Vertx vertx) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Size of the queue must be a positive number, was: " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.vertx = vertx;
+    }
+
+    synchronized void addConsumer(SedaConsumer consumer, boolean multipleConsumers) {
+        if (!consumers.isEmpty() && (!multipleConsumers || !this.multipleConsumers)) {
+            throw new IllegalStateException("Queue " + name + " already has a consumer, set multipleConsumers=true on all its consumers to have several");
+        }
+        this.multipleConsumers = multipleConsumers;
+        consumers.add(consumer);
+        pumpLater();
+    }
+
+    synchronized void removeConsumer(SedaConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * Offers an exchange from a producer.
+     *
+     * @param exchange the exchange to queue, the producer's own exchange when it waits for it to be processed
+     * @param original the exchange of the producer, which is done when it does not wait
+     * @param handler  the handler of the producer
+     * @return true if the producer is done synchronously
+     */
+    boolean offer(SedaEndpoint endpoint, Exchange exchange, Exchange original, OptionalAsyncResultHandler handler) {
+        final boolean wait = endpoint.isWaitForTaskToComplete();
+        final Entry entry = new Entry(exchange, wait ? handler : null, ((VertxInternal) vertx).getContext());
+        String failure = null;
+        boolean parked = false;
+        boolean drop = false;
+        synchronized (this) {
+            if (consumers.isEmpty() && endpoint.isFailIfNoConsumers()) {
+                failure = "[Seda-" + name + "] has no consumers";
+            } else if (entries.size() < capacity && blocked.isEmpty()) {
+                add(entry);
+            } else if (endpoint.getWhenFull() == SedaEndpoint.WhenFull.Block) {
+                parked = true;
+                if (!wait) {
+                    entry.acceptedHandler = handler;
+                    entry.original = original;
+                }
+                blocked.add(entry);
+                if (endpoint.getOfferTimeout() > 0) {
+                    entry.timerId = vertx.setTimer(endpoint.getOfferTimeout(), new Handler<Long>() {
+                        @Override
+                        public void handle(Long timerId) {
+                            offerTimedOut(entry);
+                        }
+                    });
+                }
+            } else if (endpoint.getWhenFull() == SedaEndpoint.WhenFull.Drop) {
+                drop = true;
+            } else {
+                failure = "[Seda-" + name + "] Queue is full, capacity " + capacity;
+            }
+        }
+
+        if (drop) {
+            dropped.incrementAndGet();
+            logger.debug("[Seda-{}] Queue is full, dropping exchange {}", name, original.getExchangeId());
+            handler.done(original);
+            return true;
+        }
+        if (failure != null) {
+            rejected.incrementAndGet();
+            original.setException(new RejectedExecutionException(failure));
+            handler.done(original);
+            return true;
+        }
+        pump();
+        if (!wait && !parked) {
+            handler.done(original);
+            return true;
+        }
+        return false;
+    }
+
+    private void add(Entry entry) {
+        entries.add(entry);
+        enqueued.incrementAndGet();
+        if (entries.size() > maxSize) {
+            maxSize = entries.size();
+        }
+    }
+
+    private void offerTimedOut(Entry entry) {
+        synchronized (this) {
+            if (!blocked.remove(entry)) {
+                return;
+            }
+        }
+        rejected.incrementAndGet();
+        fail(entry, "[Seda-" + name + "] Timed out waiting for room in the queue");
+    }
+
+    private void pumpLater() {
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                pump();
+            }
+        });
+    }
+
+    /**
+     * Hands queued exchanges to consumers with free slots, and lets parked producers in as room frees up.
+     */
+    void pump() {
+        final List<Delivery> deliveries = new ArrayList<>();
+        final List<OptionalAsyncResultHandler> acceptedHandlers = new ArrayList<>();
+        final List<Entry> accepted = new ArrayList<>();
+        synchronized (this) {
+            boolean admitted = true;
+            while (admitted) {
+                while (!entries.isEmpty() && !consumers.isEmpty()) {
+                    if (multipleConsumers) {
+                        if (!allHaveFreeSlots()) {
+                            break;
+                        }
+                        final Entry entry = entries.poll();
+                        entry.remaining.set(consumers.size());
+                        for (int i = 0; i < consumers.size(); i++) {
+                            final SedaConsumer consumer = consumers.get(i);
+                            // the last consumer gets the exchange itself, the others a copy with a unit of work of its own
+                            final Exchange exchange = i == consumers.size() - 1
+                                    ? entry.exchange : ExchangeHelper.createCorrelatedCopy(entry.exchange, false);
+                            deliveries.add(new Delivery(consumer, consumer.acquireSlot(), exchange, entry));
+                        }
+                    } else {
+                        final SedaConsumer consumer = nextConsumerWithFreeSlot();
+                        if (consumer == null) {
+                            break;
+                        }
+                        final Entry entry = entries.poll();
+                        entry.remaining.set(1);
+                        deliveries.add(new Delivery(consumer, consumer.acquireSlot(), entry.exchange, entry));
+                    }
+                }
+
+                // let parked producers in, which may give the consumers more to do
+                admitted = false;
+                while (!blocked.isEmpty() && entries.size() < capacity) {
+                    final Entry entry = blocked.poll();
+                    if (entry.timerId != -1) {
+                        vertx.cancelTimer(entry.timerId);
+                    }
+                    add(entry);
+                    if (entry.acceptedHandler != null) {
+                        acceptedHandlers.add(entry.acceptedHandler);
+                        accepted.add(entry);
+                        entry.acceptedHandler = null;
+                    }
+                    admitted = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).done(acceptedHandlers.get(i), accepted.get(i).original);
+        }
+        for (Delivery delivery : deliveries) {
+            inflight.incrementAndGet();
+            delivery.consumer.deliver(delivery);
+        }
+    }
+
+    private boolean allHaveFreeSlots() {
+        for (SedaConsumer consumer : consumers) {
+            if (!consumer.hasFreeSlot()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SedaConsumer nextConsumerWithFreeSlot() {
+        for (int i = 0; i < consumers.size(); i++) {
+            final SedaConsumer consumer = consumers.get((nextConsumer + i) % consumers.size());
+            if (consumer.hasFreeSlot()) {
+                nextConsumer = (nextConsumer + i + 1) % consumers.size();
+                return consumer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called by a consumer once it has processed a delivery.
+     */
+    void delivered(Delivery delivery) {
+        inflight.decrementAndGet();
+        delivery.consumer.releaseSlot(delivery.slot);
+        if (delivery.entry.remaining.decrementAndGet() == 0) {
+            completed.incrementAndGet();
+            if (delivery.entry.handler != null) {
+                delivery.entry.done(delivery.entry.handler, delivery.entry.exchange);
+            }
+        }
+        pump();
+    }
+
+    /**
+     * Fails the exchanges which are still waiting, as the queue is no longer used.
+     */
+    void clear() {
+        final List<Entry> dropped = new ArrayList<>();
+        synchronized (this) {
+            dropped.addAll(entries);
+            dropped.addAll(blocked);
+            entries.clear();
+            blocked.clear();
+        }
+        for (Entry entry : dropped) {
+            if (entry.timerId != -1) {
+                vertx.cancelTimer(entry.timerId);
+            }
+            fail(entry, "[Seda-" + name + "] is stopped");
+        }
+        if (!dropped.isEmpty()) {
+            logger.warn("[Seda-{}] Discarded {} exchanges left in the queue", name, dropped.size());
+        }
+    }
+
+    /**
+     * Fails the producer of an entry, if it is still waiting on it.
+     */
+    private void fail(Entry entry, String message) {
+        if (entry.handler != null) {
+            entry.exchange.setException(new RejectedExecutionException(message));
+            entry.done(entry.handler, entry.exchange);
+        } else if (entry.acceptedHandler != null) {
+            entry.original.setException(new RejectedExecutionException(message));
+            entry.done(entry.acceptedHandler, entry.original);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getBlockedProducers() {
+        return blocked.size();
+    }
+
+    public synchronized int getConsumerCount() {
+        return consumers.size();
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public JsonObject toJson() {
+        return new JsonObject()
+                .putString("name", name)
+                .putNumber("capacity", capacity)
+                .putNumber("size", getSize())
+                .putNumber("maxSize", getMaxSize())
+                .putNumber("blockedProducers", getBlockedProducers())
+                .putNumber("consumers", getConsumerCount())
+                .putNumber("inflight", getInflight())
+                .putNumber("enqueued", getEnqueued())
+                .putNumber("completed", getCompleted())
+                .putNumber("dropped", getDropped())
+                .putNumber("rejected", getRejected());
+    }
+
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
+
+    @Override
+    public String toString() {
+        return "SedaQueue[" + name + "]";
+    }
+}
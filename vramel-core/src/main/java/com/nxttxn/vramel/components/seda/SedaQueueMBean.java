@@ -0,0 +1,31 @@
+package com.nxttxn.vramel.components.seda;
+
+/**
+ * JMX view of a {@link SedaQueue}.
+ */
+public interface SedaQueueMBean {
+
+    String getName();
+
+    int getCapacity();
+
+    int getSize();
+
+    int getMaxSize();
+
+    int getBlockedProducers();
+
+    int getConsumerCount();
+
+    int getInflight();
+
+    long getEnqueued();
+
+    long getCompleted();
+
+    long getDropped();
+
+    long getRejected();
+
+    String dumpStatsAsJson();
+}
@@ -3,7 +3,6 @@ package com.nxttxn.vramel.components.vertx;
 import com.google.common.base.Optional;
 import com.nxttxn.vramel.*;
 import com.nxttxn.vramel.impl.DefaultConsumer;
-import com.nxttxn.vramel.impl.DefaultExchangeHolder;
 import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
 import org.apache.commons.lang3.SerializationUtils;
@@ -50,7 +49,7 @@ public class VertxConsumer extends DefaultConsumer {
                 logger.info("[Vertx Consumer] [{}] Received Message", finalAddress);
                 Exchange exchange = getEndpoint().createExchange();
                 try {
-                    DefaultExchangeHolder.unmarshal(exchange, message.body);
+                    endpoint.getVramelContext().getExchangeCodec().decode(exchange, message.body);
                     logger.debug("[Vertx Consumer] Unmarshalled exchange. Exchange transferred.");
                 } catch (Exception e) {
                     logger.trace("[Vertx Consumer] Not valid for exchange transfer. Trying VertxMessage.", e);
@@ -110,9 +109,7 @@ public class VertxConsumer extends DefaultConsumer {
     private void replyWithExchange(Message<byte[]> message, Exchange exchange) {
 
         try {
-            DefaultExchangeHolder holder = DefaultExchangeHolder.marshal(exchange);
-
-            message.reply(holder.getBytes());
+            message.reply(endpoint.getVramelContext().getExchangeCodec().encode(exchange));
         } catch (Exception e) {
             logger.error("Unable to marshal the exchange for return", e);
         }
@@ -2,7 +2,6 @@ package com.nxttxn.vramel.components.vertx;
 
 import com.nxttxn.vramel.*;
 import com.nxttxn.vramel.impl.DefaultAsyncProducer;
-import com.nxttxn.vramel.impl.DefaultExchangeHolder;
 import com.nxttxn.vramel.impl.DefaultProducer;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
 import com.nxttxn.vramel.util.AsyncProcessorHelper;
@@ -35,8 +34,7 @@ public class VertxProducer extends DefaultAsyncProducer {
 
         final boolean isTransferExchange = this.endpoint.getConfig().getBoolean("isTransferExchange", true);
         if (isTransferExchange) {
-            final DefaultExchangeHolder holder = DefaultExchangeHolder.marshal(exchange);
-            obj = holder.getBytes();
+            obj = vramelContext.getExchangeCodec().encode(exchange);
         } else {
             obj = exchange.getIn().getBody(byte[].class);
         }
@@ -57,7 +55,7 @@ public class VertxProducer extends DefaultAsyncProducer {
                 } else {
                     Exchange responseExchange = exchange;
                     try {
-                        DefaultExchangeHolder.unmarshal(responseExchange, message.body);
+                        vramelContext.getExchangeCodec().decode(responseExchange, message.body);
                     } catch (Exception e) {
                         logger.error("Error unmarshaling vertx response", e);
                         exchange.setException(new RuntimeVramelException("Cannot read the vertx response.", e));
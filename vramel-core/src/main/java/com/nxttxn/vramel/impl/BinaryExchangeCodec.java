@@ -0,0 +1,568 @@
+package com.nxttxn.vramel.impl;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Message;
+import com.nxttxn.vramel.spi.ExchangeCodec;
+import com.nxttxn.vramel.util.ObjectHelper;
+import org.apache.commons.lang3.SerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary {@link ExchangeCodec}.
+ * <p/>
+ * Strings, primitives and their wrappers, <tt>byte[]</tt>, {@link Date}, {@link JsonObject}, {@link JsonArray}
+ * and plain maps and lists of those are written natively with a one byte type tag. Any other value is written with
+ * Java serialization, unless that fallback has been turned off in which case it is dropped like
+ * {@link DefaultExchangeHolder} drops values it cannot serialize. Exceptions always use Java serialization.
+ * When {@link #setStrict(boolean) strict}, a value which cannot be written fails the encoding instead.
+ * <p/>
+ * Bytes which do not start with this codec's magic are handed to {@link DefaultExchangeHolder}, so
+ * exchanges sent by peers still using Java serialization can be read.
+ */
+public class BinaryExchangeCodec implements ExchangeCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryExchangeCodec.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte MAGIC_0 = 'V';
+    static final byte MAGIC_1 = 'X';
+    static final byte VERSION = 1;
+
+    private static final byte FLAG_OUT = 1;
+    private static final byte FLAG_EXCEPTION = 1 << 1;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_STRING = 1;
+    private static final byte T_INT = 2;
+    private static final byte T_LONG = 3;
+    private static final byte T_TRUE = 4;
+    private static final byte T_FALSE = 5;
+    private static final byte T_DOUBLE = 6;
+    private static final byte T_FLOAT = 7;
+    private static final byte T_SHORT = 8;
+    private static final byte T_BYTE = 9;
+    private static final byte T_CHAR = 10;
+    private static final byte T_BYTES = 11;
+    private static final byte T_DATE = 12;
+    private static final byte T_JSON_OBJECT = 13;
+    private static final byte T_JSON_ARRAY = 14;
+    private static final byte T_MAP = 15;
+    private static final byte T_LIST = 16;
+    private static final byte T_SERIALIZED = 17;
+
+    private boolean javaSerializationFallback = true;
+    private boolean includeProperties = true;
+    private boolean strict;
+
+    @Override
+    public byte[] encode(Exchange exchange) throws Exception {
+        final Output out = new Output(256);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+
+        byte flags = 0;
+        if (exchange.hasOut()) {
+            flags |= FLAG_OUT;
+        }
+        if (exchange.getException() != null) {
+            flags |= FLAG_EXCEPTION;
+        }
+        out.writeByte(flags);
+
+        out.writeString(exchange.getExchangeId());
+        writeMessage(out, exchange, "in", exchange.getIn());
+        if (exchange.hasOut()) {
+            writeMessage(out, exchange, "out", exchange.getOut());
+        }
+        if (includeProperties && exchange.hasProperties()) {
+            writeMap(out, exchange, "properties", exchange.getProperties());
+        } else {
+            out.writeInt(0);
+        }
+        if (exchange.getException() != null) {
+            out.writeBytes(SerializationUtils.serialize(exchange.getException()));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return true if the bytes start with the magic of this codec
+     */
+    static boolean isEncoded(byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    @Override
+    public void decode(Exchange exchange, byte[] bytes) throws Exception {
+        if (!isEncoded(bytes)) {
+            // not ours, so it must be from a peer still using java serialization
+            DefaultExchangeHolder.unmarshal(exchange, bytes);
+            return;
+        }
+        if (bytes[2] != VERSION) {
+            throw new IllegalArgumentException("Unsupported exchange codec version: " + bytes[2]);
+        }
+
+        final Input in = new Input(bytes, 3);
+        final byte flags = in.readByte();
+
+        exchange.setExchangeId(in.readString());
+        readMessage(in, exchange.getIn());
+        if ((flags & FLAG_OUT) != 0) {
+            readMessage(in, exchange.getOut());
+        }
+        final int properties = in.readInt();
+        for (int i = 0; i < properties; i++) {
+            final String key = in.readString();
+            exchange.setProperty(key, readValue(in));
+        }
+        if ((flags & FLAG_EXCEPTION) != 0) {
+            exchange.setException((Exception) SerializationUtils.deserialize(in.readBytes()));
+        } else {
+            exchange.setException(null);
+        }
+    }
+
+    private void writeMessage(Output out, Exchange exchange, String type, Message message) {
+        if (message.hasHeaders()) {
+            writeMap(out, exchange, type + " headers", message.getHeaders());
+        } else {
+            out.writeInt(0);
+        }
+        final Object body = message.getBody();
+        if (!writeValue(out, exchange, body)) {
+            if (strict) {
+                throw new IllegalArgumentException("Exchange " + type + " body of type: " + ObjectHelper.classCanonicalName(body) + " cannot be encoded");
+            }
+            LOG.warn("Exchange {} body containing object: {} of type: {} cannot be serialized, it will be excluded by the codec.",
+                    new Object[]{type, body, ObjectHelper.classCanonicalName(body)});
+            out.writeByte(T_NULL);
+        }
+    }
+
+    private void readMessage(Input in, Message message) throws Exception {
+        final int headers = in.readInt();
+        if (headers > 0) {
+            final Map<String, Object> map = new HashMap<String, Object>(headers * 2);
+            for (int i = 0; i < headers; i++) {
+                final String key = in.readString();
+                map.put(key, readValue(in));
+            }
+            message.setHeaders(map);
+        }
+        message.setBody(readValue(in));
+    }
+
+    /**
+     * Writes the entry count followed by the entries. Entries which cannot be written are left out,
+     * so the count is a fixed size int patched in once we know it.
+     */
+    private void writeMap(Output out, Exchange exchange, String type, Map<String, Object> map) {
+        final int countPosition = out.reserveInt();
+        int count = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            // silently skip any values which is null
+            if (entry.getValue() == null) {
+                continue;
+            }
+            final int mark = out.position();
+            out.writeString(entry.getKey());
+            if (writeValue(out, exchange, entry.getValue())) {
+                count++;
+            } else {
+                out.reset(mark);
+                if (strict && !isInternalKey(entry.getKey())) {
+                    throw new IllegalArgumentException("Exchange " + type + " containing key: " + entry.getKey()
+                            + " with object of type: " + ObjectHelper.classCanonicalName(entry.getValue()) + " cannot be encoded");
+                }
+                logCannotSerializeObject(type, entry.getKey(), entry.getValue());
+            }
+        }
+        out.writeIntAt(countPosition, count);
+    }
+
+    /**
+     * @return <tt>false</tt> if the value could not be written, in which case the output is left as it was
+     */
+    private boolean writeValue(Output out, Exchange exchange, Object value) {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(T_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(T_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? T_TRUE : T_FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(T_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(T_FLOAT);
+            out.writeInt(Float.floatToRawIntBits((Float) value));
+        } else if (value instanceof Short) {
+            out.writeByte(T_SHORT);
+            out.writeInt((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(T_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(T_CHAR);
+            out.writeInt((Character) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(T_BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(T_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof JsonObject) {
+            out.writeByte(T_JSON_OBJECT);
+            out.writeString(((JsonObject) value).encode());
+        } else if (value instanceof JsonArray) {
+            out.writeByte(T_JSON_ARRAY);
+            out.writeString(((JsonArray) value).encode());
+        } else if (isPlainMap(value)) {
+            final int mark = out.position();
+            out.writeByte(T_MAP);
+            final Map<?, ?> map = (Map<?, ?>) value;
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    out.reset(mark);
+                    return writeSerialized(out, exchange, value);
+                }
+                out.writeString((String) entry.getKey());
+                if (!writeValue(out, exchange, entry.getValue())) {
+                    out.reset(mark);
+                    return false;
+                }
+            }
+        } else if (isPlainList(value)) {
+            final int mark = out.position();
+            out.writeByte(T_LIST);
+            final List<?> list = (List<?>) value;
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                if (!writeValue(out, exchange, element)) {
+                    out.reset(mark);
+                    return false;
+                }
+            }
+        } else {
+            return writeSerialized(out, exchange, value);
+        }
+        return true;
+    }
+
+    private boolean writeSerialized(Output out, Exchange exchange, Object value) {
+        if (!javaSerializationFallback) {
+            return false;
+        }
+        Serializable serializable;
+        if (value instanceof Serializable) {
+            serializable = (Serializable) value;
+        } else {
+            serializable = exchange.getContext().getTypeConverter().convertTo(Serializable.class, exchange, value);
+        }
+        if (serializable == null) {
+            return false;
+        }
+        final byte[] bytes;
+        try {
+            bytes = SerializationUtils.serialize(serializable);
+        } catch (RuntimeException e) {
+            LOG.debug("Cannot serialize object of type: {}", ObjectHelper.classCanonicalName(value), e);
+            return false;
+        }
+        out.writeByte(T_SERIALIZED);
+        out.writeBytes(bytes);
+        return true;
+    }
+
+    private Object readValue(Input in) throws Exception {
+        final byte type = in.readByte();
+        switch (type) {
+            case T_NULL:
+                return null;
+            case T_STRING:
+                return in.readString();
+            case T_INT:
+                return in.readInt();
+            case T_LONG:
+                return in.readLong();
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case T_FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case T_SHORT:
+                return (short) in.readInt();
+            case T_BYTE:
+                return in.readByte();
+            case T_CHAR:
+                return (char) in.readInt();
+            case T_BYTES:
+                return in.readBytes();
+            case T_DATE:
+                return new Date(in.readLong());
+            case T_JSON_OBJECT:
+                return new JsonObject(in.readString());
+            case T_JSON_ARRAY:
+                return new JsonArray(in.readString());
+            case T_MAP: {
+                final int size = in.readVarInt();
+                final Map<String, Object> map = new LinkedHashMap<String, Object>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    final String key = in.readString();
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case T_LIST: {
+                final int size = in.readVarInt();
+                final List<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case T_SERIALIZED:
+                return SerializationUtils.deserialize(in.readBytes());
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type + " at position " + (in.position() - 1));
+        }
+    }
+
+    private static boolean isPlainMap(Object value) {
+        final Class<?> type = value.getClass();
+        return type == HashMap.class || type == LinkedHashMap.class;
+    }
+
+    private static boolean isPlainList(Object value) {
+        return value.getClass() == ArrayList.class;
+    }
+
+    private static boolean isInternalKey(String key) {
+        return key.startsWith("Vramel") || key.startsWith("Camel");
+    }
+
+    private static void logCannotSerializeObject(String type, String key, Object value) {
+        if (isInternalKey(key)) {
+            // internal keys such as the aggregation strategy are expected to be left out
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Exchange {} containing key: {} with object: {} of type: {} cannot be serialized, it will be excluded by the codec.",
+                        new Object[]{type, key, value, ObjectHelper.classCanonicalName(value)});
+            }
+        } else {
+            LOG.warn("Exchange {} containing key: {} with object: {} of type: {} cannot be serialized, it will be excluded by the codec.",
+                    new Object[]{type, key, value, ObjectHelper.classCanonicalName(value)});
+        }
+    }
+
+    public boolean isJavaSerializationFallback() {
+        return javaSerializationFallback;
+    }
+
+    /**
+     * Whether values without a native encoding are written with Java serialization (the default),
+     * or left out.
+     */
+    public void setJavaSerializationFallback(boolean javaSerializationFallback) {
+        this.javaSerializationFallback = javaSerializationFallback;
+    }
+
+    public boolean isIncludeProperties() {
+        return includeProperties;
+    }
+
+    public void setIncludeProperties(boolean includeProperties) {
+        this.includeProperties = includeProperties;
+    }
+
+    public boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * Whether a body, header or property which cannot be written fails the encoding with an
+     * {@link IllegalArgumentException} rather than being left out. Internal Vramel properties, such as the
+     * aggregation strategy, are left out either way.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryExchangeCodec[v" + VERSION + "]";
+    }
+
+    /**
+     * Unsynchronized growable byte buffer.
+     */
+    private static final class Output {
+        private byte[] buf;
+        private int pos;
+
+        Output(int size) {
+            buf = new byte[size];
+        }
+
+        int position() {
+            return pos;
+        }
+
+        void reset(int position) {
+            pos = position;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length << 1, pos + extra)];
+                System.arraycopy(buf, 0, bigger, 0, pos);
+                buf = bigger;
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        int reserveInt() {
+            final int position = pos;
+            writeInt(0);
+            return position;
+        }
+
+        void writeIntAt(int position, int v) {
+            buf[position] = (byte) (v >>> 24);
+            buf[position + 1] = (byte) (v >>> 16);
+            buf[position + 2] = (byte) (v >>> 8);
+            buf[position + 3] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            // length + 1 so that 0 can mean null
+            final byte[] bytes = s.getBytes(UTF8);
+            writeVarInt(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            final byte[] answer = new byte[pos];
+            System.arraycopy(buf, 0, answer, 0, pos);
+            return answer;
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int position() {
+            return pos;
+        }
+
+        byte readByte() {
+            return buf[pos++];
+        }
+
+        int readInt() {
+            return ((buf[pos++] & 0xFF) << 24) | ((buf[pos++] & 0xFF) << 16) | ((buf[pos++] & 0xFF) << 8) | (buf[pos++] & 0xFF);
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        int readVarInt() {
+            int shift = 0;
+            int result = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        byte[] readBytes() {
+            final int length = readVarInt();
+            final byte[] answer = new byte[length];
+            System.arraycopy(buf, pos, answer, 0, length);
+            pos += length;
+            return answer;
+        }
+
+        String readString() {
+            final int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            final String answer = new String(buf, pos, length, UTF8);
+            pos += length;
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.nxttxn.vramel.impl;
+
+import com.nxttxn.vramel.Rejectable;
+import com.nxttxn.vramel.ThreadPoolRejectedPolicy;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.spi.BlockingTaskExecutor;
+import com.nxttxn.vramel.spi.ThreadPoolProfile;
+import com.nxttxn.vramel.support.ServiceSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.AsyncResultHandler;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.VertxInternal;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link BlockingTaskExecutor}, a bounded thread pool created with the
+ * {@link com.nxttxn.vramel.spi.ExecutorServiceManager} of the context.
+ * <p/>
+ * Configured from the <tt>blocking_tasks</tt> object of the context config:
+ * <ul>
+ *   <li><tt>pool_size</tt> - the number of worker threads, default the number of processors</li>
+ *   <li><tt>max_queue_size</tt> - how many tasks may wait for a worker before new ones are rejected, default 1000</li>
+ * </ul>
+ */
+public class DefaultBlockingTaskExecutor extends ServiceSupport implements BlockingTaskExecutor, DefaultBlockingTaskExecutorMBean {
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultBlockingTaskExecutor.class);
+
+    private final VramelContext vramelContext;
+    private int poolSize = Runtime.getRuntime().availableProcessors();
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private volatile ExecutorService executorService;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DefaultBlockingTaskExecutor(VramelContext vramelContext) {
+        this.vramelContext = vramelContext;
+    }
+
+    public static DefaultBlockingTaskExecutor fromConfig(VramelContext vramelContext, JsonObject config) {
+        final DefaultBlockingTaskExecutor executor = new DefaultBlockingTaskExecutor(vramelContext);
+        executor.setPoolSize(config.getNumber("pool_size", executor.getPoolSize()).intValue());
+        executor.setMaxQueueSize(config.getNumber("max_queue_size", DEFAULT_MAX_QUEUE_SIZE).intValue());
+        return executor;
+    }
+
+    @Override
+    public <T> void execute(final Callable<T> task, final AsyncResultHandler<T> handler) {
+        final Context context = ((VertxInternal) vramelContext.getVertx()).getContext();
+        final long submitted = System.nanoTime();
+        final ExecutorService executor = executorService;
+        if (executor == null) {
+            rejected.incrementAndGet();
+            handler.handle(new AsyncResult<T>(new RejectedExecutionException("[BlockingTaskExecutor] is not started")));
+            return;
+        }
+
+        queued.incrementAndGet();
+        final BlockingTask<T> blockingTask = new BlockingTask<>(task, handler, context, submitted);
+        try {
+            executor.execute(blockingTask);
+        } catch (RejectedExecutionException e) {
+            blockingTask.reject(e);
+        }
+    }
+
+    /**
+     * A task handed to the pool. The pool rejects it through {@link Rejectable} rather than by throwing, as its
+     * {@link ThreadPoolRejectedPolicy#Abort} policy only tells rejectable tasks they were dropped.
+     */
+    private final class BlockingTask<T> implements Runnable, Rejectable {
+        private final Callable<T> task;
+        private final AsyncResultHandler<T> handler;
+        private final Context context;
+        private final long submitted;
+
+        private BlockingTask(Callable<T> task, AsyncResultHandler<T> handler, Context context, long submitted) {
+            this.task = task;
+            this.handler = handler;
+            this.context = context;
+            this.submitted = submitted;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            recordWait(System.nanoTime() - submitted);
+            AsyncResult<T> result;
+            try {
+                result = new AsyncResult<>(task.call());
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                result = new AsyncResult<>(e);
+                failed.incrementAndGet();
+            } finally {
+                active.decrementAndGet();
+            }
+            resume(context, handler, result);
+        }
+
+        @Override
+        public void reject() {
+            reject(new RejectedExecutionException("[BlockingTaskExecutor] has no room for the task"));
+        }
+
+        private void reject(RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            logger.debug("[BlockingTaskExecutor] Rejected task, {} tasks queued", queued.get());
+            resume(context, handler, new AsyncResult<T>(e));
+        }
+    }
+
+    private <T> void resume(Context context, final AsyncResultHandler<T> handler, final AsyncResult<T> result) {
+        if (context == null) {
+            handler.handle(result);
+            return;
+        }
+        context.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.handle(result);
+            }
+        });
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        final ThreadPoolProfile profile = new ThreadPoolProfile("BlockingTasks");
+        profile.setPoolSize(poolSize);
+        profile.setMaxPoolSize(poolSize);
+        profile.setMaxQueueSize(maxQueueSize);
+        // never run the task on the caller, which is an event loop
+        profile.setRejectedPolicy(ThreadPoolRejectedPolicy.Abort);
+        executorService = vramelContext.getExecutorServiceManager().newThreadPool(this, "BlockingTasks", profile);
+        logger.info("[BlockingTaskExecutor] Started {} workers", poolSize);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        final ExecutorService executor = executorService;
+        executorService = null;
+        if (executor != null) {
+            vramelContext.getExecutorServiceManager().shutdown(executor);
+        }
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("PoolSize must be a positive number, was: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getCompletedTasks() {
+        return completed.get();
+    }
+
+    public long getFailedTasks() {
+        return failed.get();
+    }
+
+    public long getRejectedTasks() {
+        return rejected.get();
+    }
+
+    public long getMeanWaitTime() {
+        final long started = completed.get() + failed.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / started);
+    }
+
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+    }
+
+    public void reset() {
+        completed.set(0);
+        failed.set(0);
+        rejected.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+    }
+
+    @Override
+    public JsonObject toJson() {
+        return new JsonObject()
+                .putNumber("poolSize", poolSize)
+                .putNumber("maxQueueSize", maxQueueSize)
+                .putNumber("queueSize", getQueueSize())
+                .putNumber("active", getActiveCount())
+                .putNumber("completed", getCompletedTasks())
+                .putNumber("failed", getFailedTasks())
+                .putNumber("rejected", getRejectedTasks())
+                .putNumber("meanWaitTime", getMeanWaitTime())
+                .putNumber("maxWaitTime", getMaxWaitTime());
+    }
+
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingTaskExecutor[" + poolSize + " workers]";
+    }
+}
@@ -0,0 +1,29 @@
+package com.nxttxn.vramel.impl;
+
+/**
+ * JMX view of a {@link DefaultBlockingTaskExecutor}, wait times are in microseconds.
+ */
+public interface DefaultBlockingTaskExecutorMBean {
+
+    int getPoolSize();
+
+    int getMaxQueueSize();
+
+    int getQueueSize();
+
+    int getActiveCount();
+
+    long getCompletedTasks();
+
+    long getFailedTasks();
+
+    long getRejectedTasks();
+
+    long getMeanWaitTime();
+
+    long getMaxWaitTime();
+
+    String dumpStatsAsJson();
+
+    void reset();
+}
@@ -3,6 +3,9 @@ package com.nxttxn.vramel.impl;
 import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
 import com.nxttxn.vramel.ClientFactory;
+import com.nxttxn.vramel.impl.http.HttpClientPool;
+import com.nxttxn.vramel.impl.http.HttpClientPoolOptions;
+import com.nxttxn.vramel.impl.jpos.JPOSChannelFormat;
 import com.nxttxn.vramel.impl.jpos.JPOSClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +29,7 @@ public class DefaultClientFactory implements ClientFactory {
     protected final Logger logger = LoggerFactory.getLogger(DefaultClientFactory.class);
     private final Vertx vertx;
     private final Map<URI, HttpClient> httpClients = Maps.newHashMap();
+    private final Map<URI, HttpClientPool> httpClientPools = Maps.newHashMap();
     private final Map<URI, JPOSClient> jposClients = Maps.newHashMap();
 
     public DefaultClientFactory(Vertx vertx) {
@@ -44,20 +48,39 @@ public class DefaultClientFactory implements ClientFactory {
         return createNewHttpClient(uri, keystorePath, keystorePassword);
     }
 
+    @Override
+    public HttpClientPool createOrFindHttpClientPool(URI uri, Optional<String> keystorePath, Optional<String> keystorePassword, HttpClientPoolOptions options) {
+        checkNotNull(uri);
+        if (httpClientPools.containsKey(uri)) {
+            return httpClientPools.get(uri);
+        }
+
+        logger.info("[DefaultClientFactory] - Creating http client pool : {} with {}", uri.toString(), options);
+        final HttpClientPool httpClientPool = new HttpClientPool(vertx, uri, keystorePath, keystorePassword, options);
+        httpClientPools.put(uri, httpClientPool);
+        return httpClientPool;
+    }
+
     @Override
     public JPOSClient createOrFindJPOSClient(URI uri, String keyFields) {
+        return createOrFindJPOSClient(uri, keyFields, JPOSClient.DEFAULT_POOL_SIZE, JPOSChannelFormat.XML);
+    }
+
+    @Override
+    public JPOSClient createOrFindJPOSClient(URI uri, String keyFields, int poolSize, JPOSChannelFormat format) {
         checkNotNull(uri);
         if (jposClients.containsKey(uri)) {
             return jposClients.get(uri);
         }
 
-        final JPOSClient newJPOSClient = createNewJPOSClient(uri, keyFields);
+        final JPOSClient newJPOSClient = createNewJPOSClient(uri, keyFields, poolSize, format);
         jposClients.put(uri, newJPOSClient);
         return newJPOSClient;
     }
 
-    private JPOSClient createNewJPOSClient(URI uri, String keyFields) {
-        return new JPOSClient(vertx, uri, keyFields);
+    private JPOSClient createNewJPOSClient(URI uri, String keyFields, int poolSize, JPOSChannelFormat format) {
+        logger.info("[DefaultClientFactory] - Creating jpos client : {} with {} connection(s) using {}", new Object[]{uri.toString(), poolSize, format});
+        return new JPOSClient(vertx, uri, keyFields, -1, poolSize, format);
     }
 
     private HttpClient createNewHttpClient(URI uri, Optional<String> keystorePath, Optional<String> keystorePassword) {
@@ -17,6 +17,8 @@
 package com.nxttxn.vramel.impl;
 
 import com.nxttxn.vramel.*;
+import com.nxttxn.vramel.management.InstrumentationProcessor;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import com.nxttxn.vramel.model.FlowDefinition;
 import com.nxttxn.vramel.model.FromDefinition;
 import com.nxttxn.vramel.model.ProcessorDefinition;
@@ -163,10 +165,18 @@ public class DefaultFlowContext implements FlowContext {
 //            instrument.setType("route");
 //            instrument.setProcessor(inflight);
 
+            // create the route id
+            String routeId = flow.idOrCreate(getVramelContext().getNodeIdFactory());
+
+            // and wrap it by a instrumentation processor that is to be used for performance stats
+            // for this particular flow
+            MetricsRegistry metricsRegistry = getVramelContext().getMetricsRegistry();
+            if (metricsRegistry.isEnabled()) {
+                target = new InstrumentationProcessor(target, metricsRegistry.getOrCreateFlowCounter(routeId));
+            }
+
             // and create the route that wraps the UoW
             Flow edcf = new EventDrivenConsumerFlow(this, getEndpoint(), target);
-//            // create the route id
-            String routeId = flow.idOrCreate(getVramelContext().getNodeIdFactory());
             edcf.getProperties().put(Flow.ID_PROPERTY, routeId);
 //            edcf.getProperties().put(Route.PARENT_PROPERTY, Integer.toHexString(route.hashCode()));
 //            if (route.getGroup() != null) {
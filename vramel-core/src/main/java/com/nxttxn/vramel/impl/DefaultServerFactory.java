@@ -3,6 +3,7 @@ package com.nxttxn.vramel.impl;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.nxttxn.vramel.ServerFactory;
+import com.nxttxn.vramel.impl.jpos.JPOSChannelFormat;
 import com.nxttxn.vramel.impl.jpos.JPOSServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,18 +46,23 @@ public class DefaultServerFactory implements ServerFactory {
 
     @Override
     public JPOSServer createOrFindJPOSServer(URI uri) {
+        return createOrFindJPOSServer(uri, JPOSChannelFormat.XML);
+    }
+
+    @Override
+    public JPOSServer createOrFindJPOSServer(URI uri, JPOSChannelFormat format) {
 
         if (jposServers.containsKey(uri)) {
             return jposServers.get(uri);
         }
 
-        final JPOSServer jposServer = createNewJPOSServer();
+        final JPOSServer jposServer = createNewJPOSServer(format);
         jposServers.put(uri, jposServer);
         return jposServer;
     }
 
-    private JPOSServer createNewJPOSServer() {
-        return new JPOSServer(vertx);
+    private JPOSServer createNewJPOSServer(JPOSChannelFormat format) {
+        return new JPOSServer(vertx, format);
     }
 
     @Override
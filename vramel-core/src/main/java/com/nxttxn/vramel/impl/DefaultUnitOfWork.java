@@ -17,6 +17,8 @@
 package com.nxttxn.vramel.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -182,6 +184,41 @@ public class DefaultUnitOfWork implements UnitOfWork, Service {
         return synchronizations != null && synchronizations.contains(synchronization);
     }
 
+    public void done(Exchange exchange) {
+        final List<Synchronization> list;
+        synchronized (this) {
+            if (synchronizations == null || synchronizations.isEmpty()) {
+                return;
+            }
+            list = new ArrayList<Synchronization>(synchronizations);
+        }
+        // the ones wanting to be last, such as onCompletion, are called after the others
+        Collections.sort(list, new Comparator<Synchronization>() {
+            @Override
+            public int compare(Synchronization o1, Synchronization o2) {
+                final int order1 = o1 instanceof Ordered ? ((Ordered) o1).getOrder() : 0;
+                final int order2 = o2 instanceof Ordered ? ((Ordered) o2).getOrder() : 0;
+                return order1 < order2 ? -1 : (order1 == order2 ? 0 : 1);
+            }
+        });
+
+        final boolean failed = exchange.isFailed();
+        for (Synchronization synchronization : list) {
+            try {
+                if (failed) {
+                    log.trace("Invoking synchronization.onFailure: {} with {}", synchronization, exchange);
+                    synchronization.onFailure(exchange);
+                } else {
+                    log.trace("Invoking synchronization.onComplete: {} with {}", synchronization, exchange);
+                    synchronization.onComplete(exchange);
+                }
+            } catch (Throwable e) {
+                // must catch exceptions to ensure all synchronizations have a chance to run
+                log.warn("Exception occurred during onCompletion. This exception will be ignored.", e);
+            }
+        }
+    }
+
     public void handoverSynchronization(Exchange target) {
         if (synchronizations == null || synchronizations.isEmpty()) {
             return;
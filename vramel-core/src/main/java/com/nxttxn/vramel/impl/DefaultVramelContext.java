@@ -9,8 +9,11 @@ import com.nxttxn.vramel.impl.converter.BaseTypeConverterRegistry;
 import com.nxttxn.vramel.impl.converter.DefaultTypeConverter;
 import com.nxttxn.vramel.impl.converter.LazyLoadingTypeConverter;
 import com.nxttxn.vramel.language.bean.BeanLanguage;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import com.nxttxn.vramel.language.property.PropertyLanguage;
 import com.nxttxn.vramel.language.simple.SimpleLanguage;
+import com.nxttxn.vramel.language.vtdxml.VtdXmlLanguage;
+import com.nxttxn.vramel.language.xpath.XPathLanguage;
 import com.nxttxn.vramel.model.DataFormatDefinition;
 import com.nxttxn.vramel.model.FlowDefinition;
 import com.nxttxn.vramel.model.ModelVramelContext;
@@ -25,6 +28,7 @@ import com.nxttxn.vramel.spi.PackageScanClassResolver;
 import com.nxttxn.vramel.spi.Registry;
 import com.nxttxn.vramel.spi.TypeConverterRegistry;
 import com.nxttxn.vramel.spi.UuidGenerator;
+import com.nxttxn.vramel.spi.ExchangeCodec;
 import com.nxttxn.vramel.support.ServiceSupport;
 import com.nxttxn.vramel.util.*;
 import org.apache.commons.lang3.text.WordUtils;
@@ -86,11 +90,14 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
         put("bean", new BeanLanguage());
         put("simple", new SimpleLanguage());
         put("property", new PropertyLanguage());
+        put("xpath", new XPathLanguage());
+        put("vtdxml", new VtdXmlLanguage());
     }};
     private ErrorHandlerFactory errorHandlerBuilder;
     private List<FlowContext> flowContexts = Lists.newArrayList();
     private NodeIdFactory nodeIdFactory = new DefaultNodeIdFactory();
     private UuidGenerator uuidGenerator = createDefaultUuidGenerator();
+    private ExchangeCodec exchangeCodec = new SerializationExchangeCodec();
     private Map<String, String> properties = new HashMap<String, String>();
     private PropertiesComponent propertiesComponent;
     private ShutdownStrategy shutdownStrategy = null;
@@ -104,6 +111,8 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
     private Date startDate;
     private Container container;
     private ExecutorServiceManager executorServiceManager;
+    private MetricsRegistry metricsRegistry;
+    private BlockingTaskExecutor blockingTaskExecutor;
     private UuidGenerator createDefaultUuidGenerator() {
         return new JavaUuidGenerator();
     }
@@ -966,6 +975,16 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
         return uuidGenerator;
     }
 
+    @Override
+    public ExchangeCodec getExchangeCodec() {
+        return exchangeCodec;
+    }
+
+    @Override
+    public void setExchangeCodec(ExchangeCodec exchangeCodec) {
+        this.exchangeCodec = exchangeCodec;
+    }
+
     public void setErrorHandlerBuilder(ErrorHandlerFactory errorHandlerBuilder) {
         this.errorHandlerBuilder = errorHandlerBuilder;
     }
@@ -1097,6 +1116,25 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
        return new SimpleRegistry();
     }
 
+    public synchronized BlockingTaskExecutor getBlockingTaskExecutor() {
+        if (blockingTaskExecutor == null) {
+            blockingTaskExecutor = DefaultBlockingTaskExecutor.fromConfig(this, config.getObject("blocking_tasks", new JsonObject()));
+            try {
+                addService(blockingTaskExecutor);
+            } catch (Exception e) {
+                throw ObjectHelper.wrapRuntimeCamelException(e);
+            }
+            if (getMetricsRegistry().isEnabled()) {
+                getMetricsRegistry().addMetrics(MetricsRegistry.CONTEXT, "blockingTasks", blockingTaskExecutor);
+            }
+        }
+        return blockingTaskExecutor;
+    }
+
+    public void setBlockingTaskExecutor(BlockingTaskExecutor blockingTaskExecutor) {
+        this.blockingTaskExecutor = blockingTaskExecutor;
+    }
+
     @Override
     public void addService(Object object) throws Exception {
         doAddService(object, true);
@@ -1106,6 +1144,13 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
         return this.executorServiceManager;
     }
 
+    public synchronized MetricsRegistry getMetricsRegistry() {
+        if (metricsRegistry == null) {
+            metricsRegistry = MetricsRegistry.fromConfig(getName(), config.getObject("metrics", new JsonObject()));
+        }
+        return metricsRegistry;
+    }
+
     @Override
     public ExecutorServiceStrategy getExecutorServiceStrategy() {
         throw new UnsupportedOperationException("Not implemented in vramel");
@@ -1508,6 +1553,12 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
             }
         }
 
+        // register the flow metrics over jmx, along with the statistics of the parsed simple expressions
+        if (getMetricsRegistry().isEnabled()) {
+            getMetricsRegistry().addMetrics(MetricsRegistry.CONTEXT, "simpleCache", (SimpleLanguage) languages.get("simple"));
+        }
+        startService(getMetricsRegistry());
+
         // start components
         startServices(components.values());
 
@@ -1689,6 +1740,7 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
 
         // shutdown executor service and management as the last one
         shutdownServices(executorServiceManager);
+        shutdownServices(metricsRegistry);
 //        shutdownServices(managementStrategy);
 //        shutdownServices(managementMBeanAssembler);
 //        shutdownServices(lifecycleStrategies);
@@ -1726,6 +1778,7 @@ public class DefaultVramelContext extends ServiceSupport implements ModelVramelC
         languageResolver = null;
         typeConverterRegistry = null;
         typeConverter = null;
+        blockingTaskExecutor = null;
     }
 
     @Override
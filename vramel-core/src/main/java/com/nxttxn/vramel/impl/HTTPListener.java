@@ -1,12 +1,13 @@
 package com.nxttxn.vramel.impl;
 
 import com.google.common.base.Optional;
+import com.nxttxn.vramel.impl.http.TrieRouter;
+import com.nxttxn.vramel.management.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.*;
 import org.vertx.java.core.http.HttpServer;
 import org.vertx.java.core.http.HttpServerRequest;
-import org.vertx.java.core.http.RouteMatcher;
 import org.vertx.java.core.json.JsonObject;
 
 import java.text.SimpleDateFormat;
@@ -25,13 +26,14 @@ public class HTTPListener {
 
     private static final Logger logger = LoggerFactory.getLogger(HTTPListener.class);
 
-    private final RouteMatcher routeMatcher = new RouteMatcher();
+    private final TrieRouter router = new TrieRouter();
     private final Vertx vertx;
     private final Number port;
     private final String host;
     private final Optional<String> keystorePath;
     private final Optional<String> keystorePassword;
     private HttpServer httpServer;
+    private boolean metricsExposed;
 
 
 
@@ -44,7 +46,7 @@ public class HTTPListener {
         keystorePassword = Optional.fromNullable(config.getString("keystorePassword", null));
 
 
-        routeMatcher.noMatch(new Handler<HttpServerRequest>() {
+        router.noMatch(new Handler<HttpServerRequest>() {
             @Override
             public void handle(HttpServerRequest request) {
                 logger.info("Incoming request: {} {} {}", request.method, request.path, request.query);
@@ -53,7 +55,7 @@ public class HTTPListener {
                 request.response.end();
             }
         });
-        routeMatcher.get("/status", new Handler<HttpServerRequest>() {
+        router.get("/status", new Handler<HttpServerRequest>() {
             @Override
             public void handle(HttpServerRequest request) {
                 setCORS(request, CORSSettings.create(config));
@@ -66,28 +68,37 @@ public class HTTPListener {
 
     public void registerRoute(String route, String method, Handler<HttpServerRequest> handler) {
         logger.info("Registering route {} {}", route, method);
-        switch (method) {
-            case "GET":
-                routeMatcher.get(route, handler);
-                break;
-            case "POST":
-                routeMatcher.post(route, handler);
-                break;
-            case "PUT":
-                routeMatcher.put(route, handler);
-                break;
-            case "DELETE":
-                routeMatcher.delete(route, handler);
-                break;
-            default:
-                logger.warn("No routing setup yet for this method, %s", method);
-                break;
+        router.add(method, route, handler);
+    }
+
+    /**
+     * Serves the flow statistics as json on GET /metrics, or those of one flow on GET /metrics?flow=id
+     */
+    public synchronized void exposeMetrics(final MetricsRegistry metricsRegistry) {
+        if (metricsExposed) {
+            return;
         }
+        metricsExposed = true;
+        logger.info("Registering route {} {}", "/metrics", "GET");
+        router.get("/metrics", new Handler<HttpServerRequest>() {
+            @Override
+            public void handle(HttpServerRequest request) {
+                final String flowId = request.params().get("flow");
+                final JsonObject metrics = flowId == null ? metricsRegistry.getMetrics() : metricsRegistry.getFlowMetrics(flowId);
+                if (metrics == null) {
+                    request.response.statusCode = 404;
+                    request.response.end("No such flow: " + flowId);
+                    return;
+                }
+                request.response.headers().put("Content-Type", "application/json");
+                request.response.end(metrics.encode());
+            }
+        });
     }
 
     public void start() {
         httpServer = vertx.createHttpServer()
-                .requestHandler(routeMatcher);
+                .requestHandler(router);
         if (keystorePath.isPresent()) {
             httpServer = httpServer.setSSL(true)
                     .setKeyStorePath(keystorePath.get())
@@ -163,6 +174,6 @@ public class HTTPListener {
         Handler<HttpServerRequest> corsOptionsHandler = createCORSOptionsHandler(corsSettings);
         logger.info("Registering route {} {}", route, "OPTIONS");
 
-        routeMatcher.options(route, corsOptionsHandler);
+        router.options(route, corsOptionsHandler);
     }
 }
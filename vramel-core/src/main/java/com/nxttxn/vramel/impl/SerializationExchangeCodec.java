@@ -0,0 +1,33 @@
+package com.nxttxn.vramel.impl;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.spi.ExchangeCodec;
+
+/**
+ * {@link ExchangeCodec} which uses Java serialization of a {@link DefaultExchangeHolder}.
+ * <p/>
+ * This is the original wire format and the default codec of a context. It still reads exchanges encoded by
+ * the {@link BinaryExchangeCodec}, so peers can opt in to the binary format one at a time.
+ */
+public class SerializationExchangeCodec implements ExchangeCodec {
+    private final BinaryExchangeCodec binaryCodec = new BinaryExchangeCodec();
+
+    @Override
+    public byte[] encode(Exchange exchange) throws Exception {
+        return DefaultExchangeHolder.marshal(exchange).getBytes();
+    }
+
+    @Override
+    public void decode(Exchange exchange, byte[] bytes) throws Exception {
+        if (BinaryExchangeCodec.isEncoded(bytes)) {
+            binaryCodec.decode(exchange, bytes);
+            return;
+        }
+        DefaultExchangeHolder.unmarshal(exchange, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SerializationExchangeCodec";
+    }
+}
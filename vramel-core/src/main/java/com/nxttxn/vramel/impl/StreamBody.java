@@ -0,0 +1,260 @@
+package com.nxttxn.vramel.impl;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.parsetools.RecordParser;
+import org.vertx.java.core.streams.ReadStream;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A message body which is read as it arrives, such as the body of a streaming http request or response.
+ * <p/>
+ * The source is paused until a data handler is set, so the body can be handed along a flow before anyone reads
+ * it without losing chunks; once read, the source is only resumed while the reader is not paused. That keeps the
+ * backpressure of a {@link org.vertx.java.core.streams.Pump} or of a streaming {@link com.nxttxn.vramel.processor.Splitter}
+ * all the way back to the socket. Like any Vert.x stream it must be used from the event loop it came from, and
+ * it can only be read once.
+ */
+public class StreamBody implements ReadStream {
+    private final ReadStream source;
+    private final Queue<Buffer> pending = new ArrayDeque<>();
+    private Handler<Buffer> dataHandler;
+    private Handler<Void> endHandler;
+    private Handler<Exception> exceptionHandler;
+    private Handler<Exception> completionHandler;
+    private Handler<Buffer> input;
+    private Runnable flushOnEnd;
+    private String delimiter;
+    private boolean paused;
+    private boolean sourcePaused;
+    private boolean sourceEnded;
+    private Exception failure;
+    private boolean completed;
+    private boolean delivering;
+    private long bytesRead;
+
+    public StreamBody(ReadStream source) {
+        this.source = source;
+        this.input = new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                received(buffer);
+            }
+        };
+        source.pause();
+        sourcePaused = true;
+        source.dataHandler(new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                bytesRead += buffer.length();
+                input.handle(buffer);
+            }
+        });
+        source.endHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                sourceEnded();
+            }
+        });
+        source.exceptionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                fail(e);
+            }
+        });
+    }
+
+    /**
+     * Reframes the source into the records between each <tt>delimiter</tt>, the last record does not need one.
+     * A body which is already delimited by the same <tt>delimiter</tt>, such as when the expression is evaluated
+     * again, is returned as it is.
+     *
+     * @throws IllegalStateException if the body is already delimited by another delimiter
+     */
+    public static StreamBody delimited(ReadStream source, String delimiter) {
+        final StreamBody body = source instanceof StreamBody ? (StreamBody) source : new StreamBody(source);
+        if (body.delimiter == null) {
+            body.frameBy(delimiter);
+        } else if (!body.delimiter.equals(delimiter)) {
+            throw new IllegalStateException("The stream body is already delimited by " + body.delimiter
+                    + ", it cannot be delimited by " + delimiter);
+        }
+        return body;
+    }
+
+    private void frameBy(String delimiter) {
+        this.delimiter = delimiter;
+        final Buffer delimiterBuffer = new Buffer(delimiter);
+        final Handler<Buffer> framed = input;
+        final long[] bytesFramed = new long[1];
+        final RecordParser parser = RecordParser.newDelimited(delimiter, new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer record) {
+                bytesFramed[0] += record.length() + delimiterBuffer.length();
+                framed.handle(record);
+            }
+        });
+        final long alreadyRead = bytesRead;
+        input = parser;
+        // the record parser keeps a partial last record to itself, so finish it off at the end
+        flushOnEnd = new Runnable() {
+            @Override
+            public void run() {
+                if (bytesRead - alreadyRead > bytesFramed[0]) {
+                    parser.handle(delimiterBuffer);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called once the source has ended or failed, whether or not the body has been read; <tt>null</tt> when it ended.
+     */
+    public StreamBody completionHandler(Handler<Exception> completionHandler) {
+        this.completionHandler = completionHandler;
+        return this;
+    }
+
+    public boolean isSourceEnded() {
+        return sourceEnded;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void dataHandler(Handler<Buffer> handler) {
+        this.dataHandler = handler;
+        deliver();
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+        deliver();
+    }
+
+    @Override
+    public void resume() {
+        paused = false;
+        deliver();
+    }
+
+    @Override
+    public void exceptionHandler(Handler<Exception> handler) {
+        this.exceptionHandler = handler;
+        deliver();
+    }
+
+    @Override
+    public void endHandler(Handler<Void> handler) {
+        this.endHandler = handler;
+        deliver();
+    }
+
+    /**
+     * @return true once a data handler has been set
+     */
+    public boolean isReading() {
+        return dataHandler != null;
+    }
+
+    /**
+     * Reads the rest of the body and drops it, so a source nobody is going to read, such as the response of a
+     * pooled connection, ends and can be reused. The reader, if any, gets nothing more.
+     */
+    public void discard() {
+        if (completed || failure != null) {
+            return;
+        }
+        pending.clear();
+        endHandler = null;
+        exceptionHandler = null;
+        paused = false;
+        dataHandler = new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                // dropped
+            }
+        };
+        deliver();
+    }
+
+    /**
+     * Aborts the body, the reader gets the exception instead of the rest of the data.
+     */
+    public void fail(Exception e) {
+        if (failure != null || completed) {
+            return;
+        }
+        failure = e;
+        pending.clear();
+        if (!sourceEnded) {
+            sourceEnded = true;
+            complete(e);
+        }
+        deliver();
+    }
+
+    private void received(Buffer buffer) {
+        if (failure != null) {
+            return;
+        }
+        pending.add(buffer);
+        deliver();
+    }
+
+    private void sourceEnded() {
+        if (sourceEnded) {
+            return;
+        }
+        if (flushOnEnd != null) {
+            flushOnEnd.run();
+        }
+        sourceEnded = true;
+        complete(null);
+        deliver();
+    }
+
+    private void complete(Exception e) {
+        if (completionHandler != null) {
+            completionHandler.handle(e);
+        }
+    }
+
+    private void deliver() {
+        if (delivering) {
+            return;
+        }
+        delivering = true;
+        try {
+            while (!paused && dataHandler != null && !pending.isEmpty()) {
+                dataHandler.handle(pending.poll());
+            }
+            if (!completed && pending.isEmpty()) {
+                if (failure != null && exceptionHandler != null) {
+                    completed = true;
+                    exceptionHandler.handle(failure);
+                } else if (failure == null && sourceEnded && endHandler != null && !paused) {
+                    completed = true;
+                    endHandler.handle(null);
+                }
+            }
+            // only read from the source while the reader keeps up
+            final boolean wantData = !paused && dataHandler != null && pending.isEmpty();
+            if (!sourceEnded && wantData == sourcePaused) {
+                sourcePaused = !wantData;
+                if (sourcePaused) {
+                    source.pause();
+                } else {
+                    source.resume();
+                }
+            }
+        } finally {
+            delivering = false;
+        }
+    }
+}
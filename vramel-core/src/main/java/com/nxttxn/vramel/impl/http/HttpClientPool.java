@@ -0,0 +1,373 @@
+package com.nxttxn.vramel.impl.http;
+
+import com.google.common.base.Optional;
+import com.nxttxn.vramel.management.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.http.HttpClientResponse;
+import org.vertx.java.core.json.JsonObject;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Manages the connections to one HTTP host.
+ * <p/>
+ * At most <tt>max_connections</tt> requests are on the wire at a time, one per connection; the ones after that
+ * wait in a queue of <tt>max_pending_requests</tt> and are rejected once it is full, so a burst never opens more
+ * sockets than the host allows. Every request is given <tt>request_timeout</tt> from being queued until its
+ * response has been read, and connections left idle for <tt>idle_timeout</tt> are closed.
+ * <p/>
+ * Requests are made by extending {@link Request}, which must call {@link Request#end()} once the response has
+ * been read or {@link Request#fail(Exception)} when it cannot be, to give its connection to the next request.
+ */
+public class HttpClientPool implements HttpClientPoolMBean, MetricsSource {
+    public static final String METRICS_TYPE = "httpClientPools";
+
+    protected final Logger logger = LoggerFactory.getLogger(HttpClientPool.class);
+
+    private final Vertx vertx;
+    private final URI uri;
+    private final String name;
+    private final Optional<String> keystorePath;
+    private final Optional<String> keystorePassword;
+    private final HttpClientPoolOptions options;
+    private final Queue<Request> pendingRequests = new ArrayDeque<>();
+    private final long idleTimerId;
+
+    private HttpClient httpClient;
+    private int inFlight;
+    private long lastUsed = System.currentTimeMillis();
+    private long sent;
+    private long completed;
+    private long failed;
+    private long timedOut;
+    private long rejected;
+    private long evicted;
+    private boolean closed;
+
+    /**
+     * A request waiting for, or using, one of the pool's connections.
+     */
+    public static abstract class Request {
+        private final String method;
+        private final String uri;
+        private HttpClientPool pool;
+        private long timerId = -1;
+        private boolean started;
+        private boolean finished;
+
+        protected Request(String method, String uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        /**
+         * Called once a connection is free; writes the headers and body and ends the request.
+         */
+        protected abstract void writeRequest(HttpClientRequest request) throws Exception;
+
+        protected abstract void handleResponse(HttpClientResponse response);
+
+        /**
+         * Called instead of, or after, {@link #handleResponse(HttpClientResponse)} when the request is rejected,
+         * times out or fails.
+         */
+        protected abstract void handleException(Exception e);
+
+        /**
+         * The response has been read.
+         *
+         * @return false if the request had already timed out or failed
+         */
+        public final boolean end() {
+            return pool.finish(this, null);
+        }
+
+        public final boolean fail(Exception e) {
+            return pool.finish(this, e);
+        }
+    }
+
+    public HttpClientPool(Vertx vertx, URI uri, Optional<String> keystorePath, Optional<String> keystorePassword, HttpClientPoolOptions options) {
+        this.vertx = vertx;
+        this.uri = uri;
+        this.name = uri.getHost() + ":" + uri.getPort();
+        this.keystorePath = keystorePath;
+        this.keystorePassword = keystorePassword;
+        this.options = options;
+
+        if (options.getIdleTimeout() > 0) {
+            idleTimerId = vertx.setPeriodic(Math.max(options.getIdleTimeout() / 2, 1), new Handler<Long>() {
+                @Override
+                public void handle(Long event) {
+                    evictIdleConnections();
+                }
+            });
+        } else {
+            idleTimerId = -1;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return options.getMaxConnections();
+    }
+
+    public HttpClientPoolOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Sends the request as soon as a connection is free.
+     */
+    public void request(final Request request) {
+        final Exception rejection;
+        synchronized (this) {
+            request.pool = this;
+            if (closed) {
+                rejection = new RejectedExecutionException("[HttpClientPool-" + name + "] is closed");
+            } else if (inFlight < options.getMaxConnections()) {
+                reserveConnection(request);
+                rejection = null;
+            } else if (pendingRequests.size() < options.getMaxPendingRequests()) {
+                pendingRequests.add(request);
+                startTimer(request);
+                return;
+            } else {
+                rejected++;
+                rejection = new RejectedExecutionException(String.format("[HttpClientPool-%s] %d requests in flight and %d queued, rejecting request",
+                        name, inFlight, pendingRequests.size()));
+            }
+        }
+
+        if (rejection != null) {
+            request.finished = true;
+            request.handleException(rejection);
+            return;
+        }
+        startTimer(request);
+        send(request);
+    }
+
+    private void startTimer(final Request request) {
+        if (options.getRequestTimeout() <= 0) {
+            return;
+        }
+        request.timerId = vertx.setTimer(options.getRequestTimeout(), new Handler<Long>() {
+            @Override
+            public void handle(Long event) {
+                request.timerId = -1;
+                synchronized (HttpClientPool.this) {
+                    if (!request.finished) {
+                        timedOut++;
+                    }
+                }
+                finish(request, new TimeoutException(String.format("[HttpClientPool-%s] No response within %d ms", name, options.getRequestTimeout())));
+            }
+        });
+    }
+
+    /**
+     * Counts the request in flight, called holding the pool's lock.
+     */
+    private void reserveConnection(Request request) {
+        request.started = true;
+        inFlight++;
+        sent++;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Sends a request that has reserved its connection.
+     */
+    private void send(final Request request) {
+        final HttpClient client;
+        synchronized (this) {
+            if (request.finished) {
+                // timed out before it could be sent
+                return;
+            }
+            client = getOrCreateHttpClient();
+        }
+
+        try {
+            final HttpClientRequest httpClientRequest = client.request(request.method, request.uri, new Handler<HttpClientResponse>() {
+                @Override
+                public void handle(HttpClientResponse response) {
+                    if (isFinished(request)) {
+                        logger.debug("[HttpClientPool-{}] Ignoring response {} of a request that already completed", name, response.statusCode);
+                        return;
+                    }
+                    request.handleResponse(response);
+                }
+            });
+            httpClientRequest.exceptionHandler(new Handler<Exception>() {
+                @Override
+                public void handle(Exception e) {
+                    finish(request, e);
+                }
+            });
+            request.writeRequest(httpClientRequest);
+        } catch (Exception e) {
+            finish(request, e);
+        }
+    }
+
+    private boolean finish(Request request, Exception e) {
+        synchronized (this) {
+            if (request.finished) {
+                return false;
+            }
+            request.finished = true;
+            if (request.started) {
+                inFlight--;
+                lastUsed = System.currentTimeMillis();
+            } else {
+                pendingRequests.remove(request);
+            }
+            if (e == null) {
+                completed++;
+            } else {
+                failed++;
+            }
+        }
+        if (request.timerId != -1) {
+            vertx.cancelTimer(request.timerId);
+            request.timerId = -1;
+        }
+        if (e != null) {
+            request.handleException(e);
+        }
+        sendPendingRequests();
+        return true;
+    }
+
+    private void sendPendingRequests() {
+        while (true) {
+            final Request next;
+            synchronized (this) {
+                if (closed || inFlight >= options.getMaxConnections() || pendingRequests.isEmpty()) {
+                    return;
+                }
+                next = pendingRequests.poll();
+                reserveConnection(next);
+            }
+            send(next);
+        }
+    }
+
+    private synchronized boolean isFinished(Request request) {
+        return request.finished;
+    }
+
+    private HttpClient getOrCreateHttpClient() {
+        if (httpClient == null) {
+            logger.debug("[HttpClientPool-{}] Creating http client with {}", name, options);
+            httpClient = vertx.createHttpClient()
+                    .setKeepAlive(options.isKeepAlive())
+                    .setMaxPoolSize(options.getMaxConnections())
+                    .setConnectTimeout(options.getConnectTimeout())
+                    .setHost(uri.getHost())
+                    .setPort(uri.getPort())
+                    .setSSL("https".equals(uri.getScheme()));
+            if (keystorePath.isPresent()) {
+                httpClient = httpClient.setKeyStorePath(keystorePath.get()).setKeyStorePassword(keystorePassword.orNull());
+            }
+            httpClient.exceptionHandler(new Handler<Exception>() {
+                @Override
+                public void handle(Exception e) {
+                    logger.warn("[HttpClientPool-" + name + "] Connection error", e);
+                }
+            });
+        }
+        return httpClient;
+    }
+
+    /**
+     * Closes the kept alive connections once nothing has used them for <tt>idle_timeout</tt>; the next request
+     * opens new ones.
+     */
+    private void evictIdleConnections() {
+        final HttpClient idleClient;
+        synchronized (this) {
+            if (httpClient == null || inFlight > 0 || System.currentTimeMillis() - lastUsed < options.getIdleTimeout()) {
+                return;
+            }
+            idleClient = httpClient;
+            httpClient = null;
+            evicted++;
+        }
+        logger.debug("[HttpClientPool-{}] Closing connections idle for {} ms", name, options.getIdleTimeout());
+        idleClient.close();
+    }
+
+    @Override
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    @Override
+    public synchronized int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    @Override
+    public synchronized JsonObject toJson() {
+        return new JsonObject()
+                .putString("name", name)
+                .putNumber("maxConnections", options.getMaxConnections())
+                .putNumber("maxPendingRequests", options.getMaxPendingRequests())
+                .putNumber("inFlight", inFlight)
+                .putNumber("pendingRequests", pendingRequests.size())
+                .putNumber("sent", sent)
+                .putNumber("completed", completed)
+                .putNumber("failed", failed)
+                .putNumber("timedOut", timedOut)
+                .putNumber("rejected", rejected)
+                .putNumber("evicted", evicted);
+    }
+
+    @Override
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
+
+    /**
+     * Fails the queued requests and closes the connections.
+     */
+    public void close() {
+        final Queue<Request> abandoned;
+        final HttpClient client;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            abandoned = new ArrayDeque<>(pendingRequests);
+            client = httpClient;
+            httpClient = null;
+        }
+        if (idleTimerId != -1) {
+            vertx.cancelTimer(idleTimerId);
+        }
+        for (Request request : abandoned) {
+            finish(request, new RejectedExecutionException("[HttpClientPool-" + name + "] is closed"));
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nxttxn.vramel.impl.http;
+
+/**
+ * JMX view of a {@link HttpClientPool}.
+ */
+public interface HttpClientPoolMBean {
+
+    String getName();
+
+    int getMaxConnections();
+
+    int getInFlightCount();
+
+    int getPendingRequestCount();
+
+    String dumpStatsAsJson();
+}
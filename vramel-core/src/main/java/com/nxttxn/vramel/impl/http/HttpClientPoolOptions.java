@@ -0,0 +1,115 @@
+package com.nxttxn.vramel.impl.http;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Limits and timeouts of a {@link HttpClientPool}.
+ * <p/>
+ * Created from the rest endpoint config with {@link #fromConfig(JsonObject)}:
+ * <ul>
+ *   <li><tt>max_connections</tt> - connections opened to the host at most, default 20</li>
+ *   <li><tt>max_pending_requests</tt> - requests queued while all connections are busy, default 1024.
+ *   Requests beyond that are rejected right away</li>
+ *   <li><tt>keep_alive</tt> - reuse connections between requests, default true</li>
+ *   <li><tt>idle_timeout</tt> - ms without any request after which the open connections are closed, default 60000,
+ *   0 keeps them open</li>
+ *   <li><tt>connect_timeout</tt> - ms to wait for a connection, default 10000</li>
+ *   <li><tt>request_timeout</tt> - ms from queuing a request until its response has been read, default 0 which
+ *   waits forever. A streamed response is given its connection back once it has been read, or once the exchange
+ *   completes without reading it</li>
+ * </ul>
+ */
+public class HttpClientPoolOptions {
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+    public static final int DEFAULT_IDLE_TIMEOUT = 60 * 1000;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000;
+    public static final int DEFAULT_REQUEST_TIMEOUT = 0;
+
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+    private boolean keepAlive = true;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    public static HttpClientPoolOptions fromConfig(JsonObject config) {
+        return new HttpClientPoolOptions()
+                .setMaxConnections(config.getNumber("max_connections", DEFAULT_MAX_CONNECTIONS).intValue())
+                .setMaxPendingRequests(config.getNumber("max_pending_requests", DEFAULT_MAX_PENDING_REQUESTS).intValue())
+                .setKeepAlive(config.getBoolean("keep_alive", true))
+                .setIdleTimeout(config.getNumber("idle_timeout", DEFAULT_IDLE_TIMEOUT).longValue())
+                .setConnectTimeout(config.getNumber("connect_timeout", DEFAULT_CONNECT_TIMEOUT).longValue())
+                .setRequestTimeout(config.getNumber("request_timeout", DEFAULT_REQUEST_TIMEOUT).longValue());
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public HttpClientPoolOptions setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("max_connections must be at least 1, was: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public HttpClientPoolOptions setMaxPendingRequests(int maxPendingRequests) {
+        if (maxPendingRequests < 0) {
+            throw new IllegalArgumentException("max_pending_requests cannot be negative, was: " + maxPendingRequests);
+        }
+        this.maxPendingRequests = maxPendingRequests;
+        return this;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public HttpClientPoolOptions setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public HttpClientPoolOptions setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public HttpClientPoolOptions setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public HttpClientPoolOptions setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "max_connections=" + maxConnections
+                + ", max_pending_requests=" + maxPendingRequests
+                + ", keep_alive=" + keepAlive
+                + ", idle_timeout=" + idleTimeout
+                + ", connect_timeout=" + connectTimeout
+                + ", request_timeout=" + requestTimeout;
+    }
+}
@@ -0,0 +1,336 @@
+package com.nxttxn.vramel.impl.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.http.HttpServerRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes http requests by walking a trie of their path segments, so the cost of a lookup depends on the depth
+ * of the path instead of on the number of routes like it does for {@link org.vertx.java.core.http.RouteMatcher}.
+ * <p/>
+ * A route pattern is made of <tt>/</tt> separated segments, each one either
+ * <ul>
+ *   <li>static, matching the same text</li>
+ *   <li><tt>:name</tt>, matching any non empty segment which is put in {@link HttpServerRequest#params()} under <tt>name</tt></li>
+ *   <li><tt>*</tt> or <tt>*name</tt> as the last segment, matching the rest of the path, possibly empty</li>
+ * </ul>
+ * Where several routes match, a static segment wins over a parameter and a parameter over a wildcard, whatever
+ * the order they were added in. Routes are added for any http method, or with {@link #all} for every method.
+ * <p/>
+ * Looking up a route does not allocate; only the captured parameters of the matched route are copied out of the path.
+ * Routes must all be added before the router starts handling requests.
+ */
+public class TrieRouter implements Handler<HttpServerRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(TrieRouter.class);
+    private static final String ANY_METHOD = "*";
+
+    private final Node root = new Node(null);
+    private final ThreadLocal<Match> matches = new ThreadLocal<Match>() {
+        @Override
+        protected Match initialValue() {
+            return new Match(maxParams);
+        }
+    };
+    private Handler<HttpServerRequest> noMatchHandler;
+    private int maxParams;
+    private int size;
+
+    /**
+     * The outcome of a lookup, reused from one lookup to the next.
+     */
+    public static final class Match {
+        private int[] bounds;
+        private int paramCount;
+        private Route route;
+
+        public Match(int capacity) {
+            bounds = new int[Math.max(capacity, 1) * 2];
+        }
+
+        public Handler<HttpServerRequest> getHandler() {
+            return route == null ? null : route.handler;
+        }
+
+        public String getPattern() {
+            return route == null ? null : route.pattern;
+        }
+
+        public int getParamCount() {
+            return paramCount;
+        }
+
+        /**
+         * @return the name of the i-th captured parameter, <tt>null</tt> for an unnamed wildcard
+         */
+        public String getParamName(int i) {
+            return route.paramNames[i];
+        }
+
+        public String getParamValue(String path, int i) {
+            return path.substring(bounds[i * 2], bounds[i * 2 + 1]);
+        }
+
+        private void capture(int i, int start, int end) {
+            bounds[i * 2] = start;
+            bounds[i * 2 + 1] = end;
+        }
+    }
+
+    private static final class Route {
+        private final String pattern;
+        private final String[] paramNames;
+        private final Handler<HttpServerRequest> handler;
+
+        private Route(String pattern, String[] paramNames, Handler<HttpServerRequest> handler) {
+            this.pattern = pattern;
+            this.paramNames = paramNames;
+            this.handler = handler;
+        }
+    }
+
+    private static final class Node {
+        private final String segment;
+        private final int hash;
+        // static children by segment, open addressed so they can be looked up by a region of the path
+        private Node[] children = new Node[4];
+        private int childCount;
+        private Node paramChild;
+        private Map<String, Route> routes;
+        private Map<String, Route> wildcardRoutes;
+
+        private Node(String segment) {
+            this.segment = segment;
+            this.hash = segment == null ? 0 : segment.hashCode();
+        }
+
+        private Node findChild(String path, int start, int end) {
+            final int length = end - start;
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            final int mask = children.length - 1;
+            for (int i = spread(h) & mask; children[i] != null; i = (i + 1) & mask) {
+                final Node child = children[i];
+                if (child.hash == h && child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(String segment) {
+            final Node existing = findChild(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            final Node child = new Node(segment);
+            if ((childCount + 1) * 2 > children.length) {
+                final Node[] old = children;
+                children = new Node[old.length * 2];
+                for (Node node : old) {
+                    if (node != null) {
+                        insert(node);
+                    }
+                }
+            }
+            insert(child);
+            childCount++;
+            return child;
+        }
+
+        private void insert(Node child) {
+            final int mask = children.length - 1;
+            int i = spread(child.hash) & mask;
+            while (children[i] != null) {
+                i = (i + 1) & mask;
+            }
+            children[i] = child;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        private static Route get(Map<String, Route> routes, String method) {
+            if (routes == null) {
+                return null;
+            }
+            final Route route = routes.get(method);
+            return route != null ? route : routes.get(ANY_METHOD);
+        }
+    }
+
+    public TrieRouter get(String pattern, Handler<HttpServerRequest> handler) {
+        return add("GET", pattern, handler);
+    }
+
+    public TrieRouter post(String pattern, Handler<HttpServerRequest> handler) {
+        return add("POST", pattern, handler);
+    }
+
+    public TrieRouter put(String pattern, Handler<HttpServerRequest> handler) {
+        return add("PUT", pattern, handler);
+    }
+
+    public TrieRouter delete(String pattern, Handler<HttpServerRequest> handler) {
+        return add("DELETE", pattern, handler);
+    }
+
+    public TrieRouter options(String pattern, Handler<HttpServerRequest> handler) {
+        return add("OPTIONS", pattern, handler);
+    }
+
+    public TrieRouter all(String pattern, Handler<HttpServerRequest> handler) {
+        return add(ANY_METHOD, pattern, handler);
+    }
+
+    public void noMatch(Handler<HttpServerRequest> handler) {
+        this.noMatchHandler = handler;
+    }
+
+    /**
+     * Adds a route for requests of <tt>method</tt> whose path matches <tt>pattern</tt>; the first route added for
+     * the same method and pattern is kept.
+     */
+    public synchronized TrieRouter add(String method, String pattern, Handler<HttpServerRequest> handler) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with a /, was: " + pattern);
+        }
+        method = method.toUpperCase();
+
+        final List<String> paramNames = new ArrayList<>();
+        final String[] segments = pattern.substring(1).split("/", -1);
+        Node node = root;
+        boolean wildcard = false;
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i];
+            if (segment.startsWith("*")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("A wildcard can only be the last segment of a route pattern, was: " + pattern);
+                }
+                paramNames.add(segment.length() > 1 ? segment.substring(1) : null);
+                wildcard = true;
+            } else if (segment.startsWith(":")) {
+                if (segment.length() == 1) {
+                    throw new IllegalArgumentException("Route parameter without a name in: " + pattern);
+                }
+                paramNames.add(segment.substring(1));
+                if (node.paramChild == null) {
+                    node.paramChild = new Node(null);
+                }
+                node = node.paramChild;
+            } else {
+                node = node.getOrAddChild(segment);
+            }
+        }
+
+        if (wildcard) {
+            if (node.wildcardRoutes == null) {
+                node.wildcardRoutes = new HashMap<>();
+            }
+        } else if (node.routes == null) {
+            node.routes = new HashMap<>();
+        }
+        final Map<String, Route> routes = wildcard ? node.wildcardRoutes : node.routes;
+        if (routes.containsKey(method)) {
+            logger.warn("Route {} {} is already registered as {}, ignoring it", method, pattern, routes.get(method).pattern);
+            return this;
+        }
+        routes.put(method, new Route(pattern, paramNames.toArray(new String[paramNames.size()]), handler));
+        maxParams = Math.max(maxParams, paramNames.size());
+        size++;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the route for a request, without allocating.
+     *
+     * @return true when a route matched, its handler and parameters are then in <tt>match</tt>
+     */
+    public boolean match(String method, String path, Match match) {
+        match.route = null;
+        match.paramCount = 0;
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        if (match.bounds.length < maxParams * 2) {
+            match.bounds = new int[maxParams * 2];
+        }
+        return match(root, method, path, 1, match, 0);
+    }
+
+    private boolean match(Node node, String method, String path, int start, Match match, int params) {
+        int end = path.indexOf('/', start);
+        final boolean last = end < 0;
+        if (last) {
+            end = path.length();
+        }
+
+        final Node child = node.findChild(path, start, end);
+        if (child != null && (last ? matched(child, method, match, params) : match(child, method, path, end + 1, match, params))) {
+            return true;
+        }
+
+        final Node paramChild = node.paramChild;
+        if (paramChild != null && end > start) {
+            match.capture(params, start, end);
+            if (last ? matched(paramChild, method, match, params + 1) : match(paramChild, method, path, end + 1, match, params + 1)) {
+                return true;
+            }
+        }
+
+        final Route route = Node.get(node.wildcardRoutes, method);
+        if (route != null) {
+            match.capture(params, start, path.length());
+            match.route = route;
+            match.paramCount = params + 1;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matched(Node node, String method, Match match, int params) {
+        final Route route = Node.get(node.routes, method);
+        if (route == null) {
+            return false;
+        }
+        match.route = route;
+        match.paramCount = params;
+        return true;
+    }
+
+    @Override
+    public void handle(HttpServerRequest request) {
+        final Match match = matches.get();
+        if (!match(request.method, request.path, match)) {
+            if (noMatchHandler != null) {
+                noMatchHandler.handle(request);
+            } else {
+                request.response.statusCode = 404;
+                request.response.end();
+            }
+            return;
+        }
+
+        final Route route = match.route;
+        for (int i = 0; i < match.paramCount; i++) {
+            if (route.paramNames[i] != null) {
+                request.params().put(route.paramNames[i], match.getParamValue(request.path, i));
+            }
+        }
+        // don't hold on to the handler between requests
+        match.route = null;
+        route.handler.handle(request);
+    }
+}
@@ -4,6 +4,7 @@ import org.jpos.iso.ISOMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
 import org.vertx.java.core.net.NetSocket;
 import org.vertx.java.core.streams.Pump;
 
@@ -18,8 +19,8 @@ public class JPOSChannel implements Handler<NetSocket> {
     private Handler<Void> connectedHandler;
     private Handler<Void> disconnectedHandler;
 
-    JPOSChannel(String name) {
-        this(name, new JPOSChannelIn(name), new JPOSChannelOut(name));
+    JPOSChannel(String name, Vertx vertx, JPOSChannelFormat format) {
+        this(name, new JPOSChannelIn(name, vertx, format), new JPOSChannelOut(name, format));
     }
 
     JPOSChannel(String name, JPOSChannelIn in, JPOSChannelOut out) {
@@ -34,6 +35,13 @@ public class JPOSChannel implements Handler<NetSocket> {
         final Pump outPump = Pump.createPump(out, socket);
         final Pump inPump = Pump.createPump(socket, in);
 
+        in.frameTooLongHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                logger.error(logPrefix+"Closing the connection as the peer sent a message which is too long", e);
+                socket.close();
+            }
+        });
         socket.exceptionHandler(new Handler<Exception>() {
             @Override
             public void handle(Exception e) {
@@ -93,4 +101,15 @@ public class JPOSChannel implements Handler<NetSocket> {
     void sendISOMsg(ISOMsg isoMsg) throws Exception {
         out.sendISOMsg(isoMsg);
     }
+
+    /**
+     * @return <tt>true</tt> if the outgoing queue is full and {@link #sendISOMsg(ISOMsg)} would fail
+     */
+    boolean writeQueueFull() {
+        return out.writeQueueFull();
+    }
+
+    int getPendingOutCount() {
+        return out.getPendingMessageCount();
+    }
 }
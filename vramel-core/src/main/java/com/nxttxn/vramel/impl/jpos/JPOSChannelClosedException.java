@@ -0,0 +1,12 @@
+package com.nxttxn.vramel.impl.jpos;
+
+/**
+ * JPOSChannelClosedException is thrown when the JPOS connection closes while a request is waiting for its response.
+ */
+class JPOSChannelClosedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    JPOSChannelClosedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,170 @@
+package com.nxttxn.vramel.impl.jpos;
+
+import org.jpos.iso.ISOBasePackager;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.iso.packager.XMLPackager;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * How ISO messages are packed and framed on a JPOS connection.
+ * <p/>
+ * The default is the original format: messages packed with the {@link XMLPackager} and delimited by their
+ * closing <tt>&lt;/isomsg&gt;</tt> tag. Any other jPOS {@link ISOPackager} is framed by a binary, big endian,
+ * 2 or 4 byte length header in front of each message, which is how most switches expect binary ISO8583.
+ * <p/>
+ * Created from the jpos endpoint config with {@link #fromConfig(JsonObject)}:
+ * <ul>
+ *   <li><tt>packager</tt> - <tt>xml</tt> (default), <tt>generic</tt>, or the class name of an ISOPackager
+ *   such as <tt>org.jpos.iso.packager.ISO87BPackager</tt></li>
+ *   <li><tt>packager_config</tt> - the field definition file for the <tt>generic</tt> packager</li>
+ *   <li><tt>length_header</tt> - 2 (default) or 4, ignored for <tt>xml</tt></li>
+ *   <li><tt>max_frame_length</tt> - the largest message accepted, in bytes, default 1 MiB; a peer sending a
+ *   larger one, or for <tt>xml</tt> that many bytes without a closing tag, is disconnected</li>
+ * </ul>
+ */
+public class JPOSChannelFormat {
+    public static final String XML_DELIM = "</isomsg>\n";
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+    public static final JPOSChannelFormat XML = new JPOSChannelFormat(null, 0);
+    private static final int MAX_GENERATED_FIELD_LENGTH = 32;
+    private static final Random RANDOM = new Random();
+
+    private final ISOPackager packager;
+    private final int lengthHeaderSize;
+    private final int maxFrameLength;
+
+    /**
+     * @param packager         the packager, which must be safe to share between connections; <tt>null</tt> for xml
+     * @param lengthHeaderSize 2 or 4; <tt>0</tt> for xml
+     */
+    public JPOSChannelFormat(ISOPackager packager, int lengthHeaderSize) {
+        this(packager, lengthHeaderSize, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @param packager         the packager, which must be safe to share between connections; <tt>null</tt> for xml
+     * @param lengthHeaderSize 2 or 4; <tt>0</tt> for xml
+     * @param maxFrameLength   the largest message accepted, in bytes
+     */
+    public JPOSChannelFormat(ISOPackager packager, int lengthHeaderSize, int maxFrameLength) {
+        if (packager != null && lengthHeaderSize != 2 && lengthHeaderSize != 4) {
+            throw new IllegalArgumentException("length_header must be 2 or 4, was: " + lengthHeaderSize);
+        }
+        if (maxFrameLength < 1) {
+            throw new IllegalArgumentException("max_frame_length must be at least 1, was: " + maxFrameLength);
+        }
+        this.packager = packager;
+        this.lengthHeaderSize = packager == null ? 0 : lengthHeaderSize;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    public static JPOSChannelFormat fromConfig(JsonObject config) {
+        final String packagerName = config.getString("packager", "xml");
+        final int maxFrameLength = config.getNumber("max_frame_length", DEFAULT_MAX_FRAME_LENGTH).intValue();
+        if ("xml".equals(packagerName)) {
+            return maxFrameLength == DEFAULT_MAX_FRAME_LENGTH ? XML : new JPOSChannelFormat(null, 0, maxFrameLength);
+        }
+
+        final int lengthHeaderSize = config.getNumber("length_header", 2).intValue();
+        final ISOPackager packager;
+        try {
+            if ("generic".equals(packagerName)) {
+                final String packagerConfig = config.getString("packager_config");
+                if (packagerConfig == null) {
+                    throw new IllegalArgumentException("packager_config must be set when using the generic packager");
+                }
+                packager = new GenericPackager(packagerConfig);
+            } else {
+                packager = (ISOPackager) Class.forName(packagerName).getDeclaredConstructor().newInstance();
+            }
+        } catch (ISOException | ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create the jpos packager: " + packagerName, e);
+        }
+        return new JPOSChannelFormat(packager, lengthHeaderSize, maxFrameLength);
+    }
+
+    public boolean isLengthPrefixed() {
+        return lengthHeaderSize > 0;
+    }
+
+    public int getLengthHeaderSize() {
+        return lengthHeaderSize;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    /**
+     * Packs the message and frames it, ready to be written to the socket.
+     */
+    public Buffer pack(ISOMsg isoMsg) throws ISOException {
+        // the xml packager keeps parser state, so it cannot be shared
+        isoMsg.setPackager(packager == null ? new XMLPackager() : packager);
+        final byte[] packed = isoMsg.pack();
+        if (!isLengthPrefixed()) {
+            return new Buffer(packed);
+        }
+
+        final Buffer framed = new Buffer(lengthHeaderSize + packed.length);
+        if (lengthHeaderSize == 2) {
+            if (packed.length > 0xFFFF) {
+                throw new ISOException("Message of " + packed.length + " bytes does not fit a 2 byte length header");
+            }
+            framed.appendShort((short) packed.length);
+        } else {
+            framed.appendInt(packed.length);
+        }
+        return framed.appendBytes(packed);
+    }
+
+    /**
+     * Unpacks one message, without its length header or, for xml, including its closing delimiter.
+     */
+    public ISOMsg unpack(byte[] bytes) throws ISOException {
+        if (packager == null) {
+            return JPOSChannelIn.buildISOMsgFromBytes(bytes);
+        }
+        final ISOMsg isoMsg = new ISOMsg();
+        isoMsg.setPackager(packager);
+        isoMsg.unpack(bytes);
+        return isoMsg;
+    }
+
+    /**
+     * Creates a unique value for a key field of a message the client makes up itself, such as the 2800
+     * handshake. Binary packagers have fixed field formats, so they get random digits of the field's length.
+     */
+    public String createUniqueFieldValue(String fieldId) {
+        if (!(packager instanceof ISOBasePackager) || !fieldId.matches("\\d+")) {
+            return UUID.randomUUID().toString();
+        }
+        final ISOFieldPackager fieldPackager = ((ISOBasePackager) packager).getFieldPackager(Integer.parseInt(fieldId));
+        final int length = fieldPackager == null ? MAX_GENERATED_FIELD_LENGTH : Math.min(fieldPackager.getLength(), MAX_GENERATED_FIELD_LENGTH);
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('0' + RANDOM.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the message length from a length header.
+     */
+    int readLength(Buffer header) {
+        return lengthHeaderSize == 2 ? header.getShort(0) & 0xFFFF : header.getInt(0);
+    }
+
+    @Override
+    public String toString() {
+        return packager == null ? "xml" : packager.getClass().getSimpleName() + "/" + lengthHeaderSize + "-byte length";
+    }
+}
@@ -2,48 +2,131 @@ package com.nxttxn.vramel.impl.jpos;
 
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOUtil;
 import org.jpos.iso.packager.XMLPackager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.parsetools.RecordParser;
 import org.vertx.java.core.streams.WriteStream;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+
 /**
  * Created with IntelliJ IDEA.
  * User: chuck
  * Date: 7/29/13
  * Time: 9:35 AM
  * To change this template use File | Settings | File Templates.
+ * <p/>
+ * Incoming data is only split into messages as it arrives. The messages are queued and parsed a batch per
+ * event loop tick, and once {@link #getWriteQueueMaxSize()} messages are waiting {@link #writeQueueFull()}
+ * tells the {@link org.vertx.java.core.streams.Pump} to pause the socket until the queue has drained.
+ * <p/>
+ * A message longer than the {@link JPOSChannelFormat#getMaxFrameLength() max frame length} of the format is never
+ * buffered: everything received from then on is discarded and the {@link #frameTooLongHandler(Handler)} is told to
+ * close the connection.
  */
 public class JPOSChannelIn implements WriteStream {
-
+    public static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 64;
+    private static final int MAX_MESSAGES_PER_TICK = 16;
 
     protected final Logger logger = LoggerFactory.getLogger(JPOSChannelIn.class);
     private final String logPrefix;
+    private final Vertx vertx;
     private Handler<Void> drainHandler;
     private Handler<Exception> exceptionHandler;
     private Handler<ISOMsg> newISOMsgHandler;
+    private Handler<Exception> frameTooLongHandler;
+
+    private final Queue<Buffer> pendingMessages = new ArrayDeque<>();
+    private int writeQueueMaxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+    private boolean processingScheduled;
+    private boolean drainRequested;
+    // bytes received which are not yet part of a complete message
+    private long unframedBytes;
+    private boolean discarding;
+
+    private static final String ISOMSG_DELIM = JPOSChannelFormat.XML_DELIM;
 
-    private static final String ISOMSG_DELIM = "</isomsg>\n";
+    private final JPOSChannelFormat format;
+    private final RecordParser recordParser;
 
-    private RecordParser isoXmlParser = RecordParser.newDelimited(ISOMSG_DELIM, new Handler<Buffer>() {
+    private final Handler<Void> processPendingMessages = new Handler<Void>() {
         @Override
-        public void handle(Buffer isoMsgBuffer) {
-            isoMsgBuffer.appendString(ISOMSG_DELIM);
-            logger.debug(logPrefix+"Incoming jpos data {}", isoMsgBuffer.toString());
-            try {
-                final ISOMsg isoMsg = buildISOMsgFromBytes(isoMsgBuffer.getBytes());
-                newISOMsgHandler.handle(isoMsg);
-            } catch (Exception e) {
-                handleException(e);
-            }
+        public void handle(Void event) {
+            processingScheduled = false;
+            processPendingMessages(MAX_MESSAGES_PER_TICK);
         }
-    });
+    };
 
+    /**
+     * Creates a channel which parses every message as soon as it arrives, without any flow control.
+     */
     public JPOSChannelIn(String name) {
+        this(name, null, JPOSChannelFormat.XML);
+    }
+
+    public JPOSChannelIn(String name, Vertx vertx) {
+        this(name, vertx, JPOSChannelFormat.XML);
+    }
+
+    public JPOSChannelIn(String name, Vertx vertx, JPOSChannelFormat format) {
         this.logPrefix = String.format("[JPOSChannelIn-%s-%x] ", name, this.hashCode());
+        this.vertx = vertx;
+        this.format = format;
+        this.recordParser = format.isLengthPrefixed() ? createLengthPrefixedParser() : createXmlParser();
+    }
+
+    private RecordParser createXmlParser() {
+        return RecordParser.newDelimited(ISOMSG_DELIM, new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer isoMsgBuffer) {
+                isoMsgBuffer.appendString(ISOMSG_DELIM);
+                unframedBytes -= isoMsgBuffer.length();
+                pendingMessages.add(isoMsgBuffer);
+            }
+        });
+    }
+
+    /**
+     * Alternates between reading a length header and reading a message of that length.
+     */
+    private RecordParser createLengthPrefixedParser() {
+        final int headerSize = format.getLengthHeaderSize();
+        final RecordParser parser = RecordParser.newFixed(headerSize, null);
+        parser.setOutput(new Handler<Buffer>() {
+            private boolean readingHeader = true;
+
+            @Override
+            public void handle(Buffer buffer) {
+                if (discarding) {
+                    return;
+                }
+                unframedBytes -= buffer.length();
+                if (readingHeader) {
+                    final int length = format.readLength(buffer);
+                    if (length == 0) {
+                        // empty messages are used as keep alives by some switches
+                        return;
+                    }
+                    if (length < 0 || length > format.getMaxFrameLength()) {
+                        frameTooLong("Message length " + (length & 0xFFFFFFFFL) + " exceeds the max frame length of " + format.getMaxFrameLength());
+                        return;
+                    }
+                    readingHeader = false;
+                    parser.fixedSizeMode(length);
+                } else {
+                    pendingMessages.add(buffer);
+                    readingHeader = true;
+                    parser.fixedSizeMode(headerSize);
+                }
+            }
+        });
+        return parser;
     }
 
     public static ISOMsg buildISOMsgFromBytes(byte[] bytes) throws ISOException {
@@ -63,19 +146,91 @@ public class JPOSChannelIn implements WriteStream {
         exceptionHandler.handle(e);
     }
 
+    private void frameTooLong(String message) {
+        discarding = true;
+        final ISOException e = new ISOException(message);
+        logger.error(logPrefix + message + ". Discarding the rest of the input.");
+        if (frameTooLongHandler != null) {
+            frameTooLongHandler.handle(e);
+        }
+    }
+
     @Override
     public void writeBuffer(Buffer data) {
-        isoXmlParser.handle(data);
+        if (discarding) {
+            return;
+        }
+        unframedBytes += data.length();
+        recordParser.handle(data);
+        if (!discarding && !format.isLengthPrefixed() && unframedBytes > format.getMaxFrameLength()) {
+            frameTooLong("No end of message found within the max frame length of " + format.getMaxFrameLength());
+        }
+
+        if (vertx == null) {
+            processPendingMessages(Integer.MAX_VALUE);
+        } else {
+            scheduleProcessing();
+        }
     }
 
+    private void scheduleProcessing() {
+        if (!processingScheduled && !pendingMessages.isEmpty()) {
+            processingScheduled = true;
+            vertx.runOnLoop(processPendingMessages);
+        }
+    }
+
+    private void processPendingMessages(int maxMessages) {
+        Buffer isoMsgBuffer;
+        for (int i = 0; i < maxMessages && (isoMsgBuffer = pendingMessages.poll()) != null; i++) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(logPrefix+"Incoming jpos data {}", format.isLengthPrefixed() ? ISOUtil.hexString(isoMsgBuffer.getBytes()) : isoMsgBuffer.toString());
+            }
+            try {
+                final ISOMsg isoMsg = format.unpack(isoMsgBuffer.getBytes());
+                newISOMsgHandler.handle(isoMsg);
+            } catch (Exception e) {
+                handleException(e);
+            }
+        }
+
+        if (drainRequested && pendingMessages.size() <= writeQueueMaxSize / 2) {
+            drainRequested = false;
+            if (drainHandler != null) {
+                drainHandler.handle(null);
+            }
+        }
+        if (vertx != null) {
+            scheduleProcessing();
+        }
+    }
+
+    /**
+     * @param maxSize the number of received messages which may wait to be parsed before the socket is paused
+     */
     @Override
     public void setWriteQueueMaxSize(int maxSize) {
-        //no op
+        this.writeQueueMaxSize = maxSize;
+    }
+
+    public int getWriteQueueMaxSize() {
+        return writeQueueMaxSize;
     }
 
     @Override
     public boolean writeQueueFull() {
-        return false;
+        final boolean full = pendingMessages.size() >= writeQueueMaxSize;
+        if (full) {
+            drainRequested = true;
+        }
+        return full;
+    }
+
+    /**
+     * @return the number of received messages waiting to be parsed
+     */
+    public int getPendingMessageCount() {
+        return pendingMessages.size();
     }
 
     @Override
@@ -95,5 +250,12 @@ public class JPOSChannelIn implements WriteStream {
         this.newISOMsgHandler = newISOMsgHandler;
     }
 
+    /**
+     * Sets a handler called once when a message exceeds the max frame length, which should close the connection.
+     */
+    public void frameTooLongHandler(Handler<Exception> frameTooLongHandler) {
+        this.frameTooLongHandler = frameTooLongHandler;
+    }
+
 
 }
@@ -1,31 +1,48 @@
 package com.nxttxn.vramel.impl.jpos;
 
 import org.jpos.iso.ISOMsg;
-import org.jpos.iso.packager.XMLPackager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.streams.ReadStream;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+
 /**
  * Created with IntelliJ IDEA.
  * User: chuck
  * Date: 7/29/13
  * Time: 9:47 AM
  * To change this template use File | Settings | File Templates.
+ * <p/>
+ * While the {@link org.vertx.java.core.streams.Pump} has paused this stream, because the socket cannot take more,
+ * sent messages are queued and written once it resumes. Sending fails once {@link #writeQueueFull()}.
  */
 public class JPOSChannelOut implements ReadStream {
+    public static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 1024;
+
     protected final Logger logger = LoggerFactory.getLogger(JPOSChannelOut.class);
     private Handler<Buffer> dataHandler;
     private boolean paused;
+    private final Queue<Buffer> pendingMessages = new ArrayDeque<>();
+    private int writeQueueMaxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+    private Handler<Void> drainHandler;
+    private boolean drainRequested;
     private Handler<Exception> exceptionHandler;
     private Handler<Void> endHandler;
     private final String logPrefix;
+    private final JPOSChannelFormat format;
 
 
     public JPOSChannelOut(String name) {
+        this(name, JPOSChannelFormat.XML);
+    }
+
+    public JPOSChannelOut(String name, JPOSChannelFormat format) {
         this.logPrefix = String.format("[JPOSChannelOut-%s-%x] ", name, hashCode());
+        this.format = format;
     }
 
     @Override
@@ -35,15 +52,25 @@ public class JPOSChannelOut implements ReadStream {
     }
 
     @Override
-    public void pause() {
+    public synchronized void pause() {
         paused = true;
     }
 
 
 
     @Override
-    public void resume() {
+    public synchronized void resume() {
         paused = false;
+
+        while (!paused && dataHandler != null && !pendingMessages.isEmpty()) {
+            dataHandler.handle(pendingMessages.poll());
+        }
+        if (drainRequested && pendingMessages.size() <= writeQueueMaxSize / 2) {
+            drainRequested = false;
+            if (drainHandler != null) {
+                drainHandler.handle(null);
+            }
+        }
     }
 
     @Override
@@ -59,22 +86,64 @@ public class JPOSChannelOut implements ReadStream {
     }
 
 
-    public void sendISOMsg(ISOMsg isoMsg) throws Exception {
+    public synchronized void sendISOMsg(ISOMsg isoMsg) throws Exception {
         if (dataHandler == null) {
             throw new RuntimeException(logPrefix+"JPOSChannelOut is not configured properly. Please set the data handler.");
         }
 
-        if (paused) {
-            throw new RuntimeException(logPrefix+"JPOSChannelOut is currently paused.");
+        if (pendingMessages.size() >= writeQueueMaxSize) {
+            throw new RuntimeException(logPrefix+"JPOSChannelOut write queue is full.");
+        }
+
+
+        final Buffer packedBuffer = format.pack(isoMsg);
+
+        // only what identifies the message, the packed bytes carry card data
+        if (logger.isDebugEnabled()) {
+            logger.debug(logPrefix+"Sending message {} of {} bytes to jpos", isoMsg.getMTI(), packedBuffer.length());
+        }
+
+        if (paused || !pendingMessages.isEmpty()) {
+            logger.debug(logPrefix+"Socket is paused, queueing message. {} message(s) queued.", pendingMessages.size() + 1);
+            pendingMessages.add(packedBuffer);
+            return;
         }
+        dataHandler.handle(packedBuffer);
+    }
+
+    /**
+     * @param maxSize the number of messages which may be queued while the socket is paused
+     */
+    public synchronized void setWriteQueueMaxSize(int maxSize) {
+        this.writeQueueMaxSize = maxSize;
+    }
 
+    public synchronized int getWriteQueueMaxSize() {
+        return writeQueueMaxSize;
+    }
 
-        XMLPackager packager = new XMLPackager();
-        isoMsg.setPackager(packager);
-        final Buffer packedXmlBuffer = new Buffer(isoMsg.pack());
+    /**
+     * @return <tt>true</tt> if no more messages can be sent until the queue has drained, see {@link #drainHandler(Handler)}
+     */
+    public synchronized boolean writeQueueFull() {
+        final boolean full = pendingMessages.size() >= writeQueueMaxSize;
+        if (full) {
+            drainRequested = true;
+        }
+        return full;
+    }
 
-        logger.info(logPrefix+"Sending this message to jpos {}", packedXmlBuffer.toString());
+    /**
+     * Sets a handler called once the queue has drained to half of its maximum size after it was full.
+     */
+    public synchronized void drainHandler(Handler<Void> drainHandler) {
+        this.drainHandler = drainHandler;
+    }
 
-        dataHandler.handle(packedXmlBuffer);
+    /**
+     * @return the number of messages queued while the socket is paused
+     */
+    public synchronized int getPendingMessageCount() {
+        return pendingMessages.size();
     }
 }
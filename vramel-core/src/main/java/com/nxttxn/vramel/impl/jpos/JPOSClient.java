@@ -1,5 +1,6 @@
 package com.nxttxn.vramel.impl.jpos;
 
+import com.nxttxn.vramel.management.MetricsSource;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.slf4j.Logger;
@@ -8,12 +9,20 @@ import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.AsyncResultHandler;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.java.core.net.NetClient;
 
 import java.net.URI;
-import java.util.Map;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created with IntelliJ IDEA.
@@ -21,57 +30,87 @@ import java.util.concurrent.ConcurrentMap;
  * Date: 7/31/13
  * Time: 4:16 PM
  * To change this template use File | Settings | File Templates.
+ * <p/>
+ * Keeps a pool of connections to one JPOS host. Each connection does its own 2800/2810 handshake and is only
+ * used once that completed; requests go to the active connection with the fewest responses outstanding.
+ * Responses are matched to their request by the configured key fields, whichever connection they arrive on.
  */
-public class JPOSClient {
+public class JPOSClient implements JPOSClientMBean, MetricsSource {
+    public static final String METRICS_TYPE = "jposClients";
+
     public static final String DEFAULT_KEY = "1000";
+    public static final int DEFAULT_POOL_SIZE = 1;
     protected final Logger logger = LoggerFactory.getLogger(JPOSClient.class);
 
-    private static final int DELAY = 200;
     private static final int DEFAULT_TIMEOUT = 5000;
     private static final int ALWAYS_ATTEMPT_RECONNECT = -1;
     private static final String networkManagementRequestMTI = "2800";
     public static final String networkManagementResponseMTI = "2810";
-    private boolean active;
     private final NetClient netClient;
     private final Vertx vertx;
     private final URI uri;
-    private JPOSChannel jposChannel;
+    private final List<PooledChannel> channels;
+    private final JPOSChannelFormat format;
     private final String name;
 
     private final String[] keyFields;
+    private final ConcurrentMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    private final Queue<ActiveWaiter> activeWaiters = new ConcurrentLinkedQueue<>();
 
     public JPOSClient(Vertx vertx, URI uri, String keyFields) {
         this(vertx, uri, keyFields, -1);
     }
 
     public JPOSClient(Vertx vertx, URI uri, String keyFields, int connectTimeout) {
+        this(vertx, uri, keyFields, connectTimeout, DEFAULT_POOL_SIZE);
+    }
+
+    public JPOSClient(Vertx vertx, URI uri, String keyFields, int connectTimeout, int poolSize) {
+        this(vertx, uri, keyFields, connectTimeout, poolSize, JPOSChannelFormat.XML);
+    }
+
+    public JPOSClient(Vertx vertx, URI uri, String keyFields, int connectTimeout, int poolSize, JPOSChannelFormat format) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be at least 1, was: " + poolSize);
+        }
         this.vertx = vertx;
         this.uri = uri;
         this.keyFields = keyFields.split(",");
         this.name = uri.getHost()+":"+uri.getPort();
+        this.format = format;
 
         netClient = vertx.createNetClient().setReconnectAttempts(ALWAYS_ATTEMPT_RECONNECT);
         if (connectTimeout > 0) {
             netClient.setConnectTimeout(connectTimeout);
         }
-        establishConnection();
-    }
+        netClient.exceptionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                logger.error("[JPOSClient-"+name+"] NetClient connection exception", e);
+            }
+        });
 
-    private ConcurrentMap<String, byte[]> getIsoMsgResults() {
-        return vertx.sharedData().getMap("ISOMsgResults");
+        List<PooledChannel> pool = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            pool.add(new PooledChannel(i));
+        }
+        this.channels = Collections.unmodifiableList(pool);
+        for (PooledChannel channel : channels) {
+            establishConnection(channel);
+        }
     }
 
-
     private Handler<ISOMsg> isoMsgReplyHandler = new Handler<ISOMsg>() {
         @Override
         public void handle(ISOMsg isoMsg) {
-            try {
-                final Map<String, byte[]> isoMsgResults = getIsoMsgResults();
-                String key = getKey(isoMsg);
-                isoMsgResults.put(key, isoMsg.pack());
-            } catch (ISOException e) {
-                logger.error("[JPOSClient"+name+"] Problem handling a response from JPOS.", e);
+            final String key = getKey(isoMsg);
+            final PendingRequest pendingRequest = pendingRequests.remove(key);
+            if (pendingRequest == null) {
+                logger.warn("[JPOSClient-"+name+"] Received a response with key {} and MTI {} but no request is waiting for it. Discarding it.", key, getMTI(isoMsg));
+                return;
             }
+            pendingRequest.channel.received.incrementAndGet();
+            pendingRequest.complete(new AsyncResult<>(isoMsg));
         }
     };
 
@@ -83,55 +122,64 @@ public class JPOSClient {
         return sb.toString();
     }
 
-    private void establishConnection() {
+    private void establishConnection(final PooledChannel channel) {
         final String host = uri.getHost();
         final Number port = uri.getPort();
 
-        jposChannel = new JPOSChannel("c<"+name+">");
+        final JPOSChannel jposChannel = new JPOSChannel("c<"+channel.name+">", vertx, format);
+        channel.jposChannel = jposChannel;
         jposChannel.isoMsgHandler(isoMsgReplyHandler);
         jposChannel.connectedHandler(new Handler<Void>() {
             @Override
             public void handle(Void event) {
                 try {
-                    logger.info("[JPOSClient-"+name+"] Verifying connection with JPOS");
-                    initializeJPOSChannel(new AsyncResultHandler<ISOMsg>() {
+                    logger.info("[JPOSClient-"+channel.name+"] Verifying connection with JPOS");
+                    initializeJPOSChannel(channel, new AsyncResultHandler<ISOMsg>() {
                         @Override
                         public void handle(AsyncResult<ISOMsg> isoMsgAsyncResult) {
                             if (isoMsgAsyncResult.failed()) {
-                                logger.error("[JPOSClient-"+name+"] Unable to establish connection with JPOS within timeout.", isoMsgAsyncResult.exception);
+                                logger.error("[JPOSClient-"+channel.name+"] Unable to establish connection with JPOS within timeout.", isoMsgAsyncResult.exception);
                                 return;
                             }
 
-                            active = true;
-                            logger.info("[JPOSClient-"+name+"] JPOS connection established: {}", isoMsgAsyncResult.result);
+                            channel.active = true;
+                            logger.info("[JPOSClient-"+channel.name+"] JPOS connection established: {}", isoMsgAsyncResult.result);
+                            notifyActiveWaiters();
                         }
                     });
                 } catch (Exception e) {
-                    logger.error("[JPOSClient-"+name+"] cannot verify JPOS connection", e);
+                    logger.error("[JPOSClient-"+channel.name+"] cannot verify JPOS connection", e);
                 }
             }
         });
         jposChannel.disconnectedHandler(new Handler<Void>() {
             @Override
             public void handle(Void event) {
-                active = false;
-                logger.info("[JPOSClient-"+name+"] JPOSChannel disconnected. Attempting to reestablish connection.");
-                establishConnection();
+                // a socket can report both an exception and a close, only reconnect once
+                if (channel.jposChannel != jposChannel) {
+                    return;
+                }
+                channel.active = false;
+                logger.info("[JPOSClient-"+channel.name+"] JPOSChannel disconnected. Attempting to reestablish connection.");
+                failPendingRequests(channel, new JPOSChannelClosedException("JPOS connection closed while waiting for a response"));
+                establishConnection(channel);
             }
         });
 
-        netClient.exceptionHandler(new Handler<Exception>() {
-            @Override
-            public void handle(Exception e) {
-                logger.error("[JPOSClient-"+name+"] NetClient connection exception", e);
-            }
-        });
         netClient.connect(port.intValue(), host, jposChannel);
     }
 
 
+    /**
+     * @return <tt>true</tt> if at least one connection of the pool completed its handshake
+     */
     public boolean isActive() {
-        return active;
+        for (PooledChannel channel : channels) {
+            if (channel.active) {
+                return true;
+            }
+        }
+        return false;
     }
 
 
@@ -140,93 +188,244 @@ public class JPOSClient {
     }
 
     public void sendISOMsg(final ISOMsg isoMsg, final AsyncResultHandler<ISOMsg> asyncResultHandler, int timeout) {
+        sendISOMsg(selectChannel(), isoMsg, asyncResultHandler, timeout);
+    }
+
+    private void sendISOMsg(final PooledChannel channel, final ISOMsg isoMsg, final AsyncResultHandler<ISOMsg> asyncResultHandler, int timeout) {
+        final String key = getKey(isoMsg);
+        final PendingRequest pendingRequest = new PendingRequest(key, channel, asyncResultHandler);
+
+        // register before sending so the response can never arrive ahead of its request
+        if (pendingRequests.putIfAbsent(key, pendingRequest) != null) {
+            asyncResultHandler.handle(new AsyncResult<ISOMsg>(new IllegalStateException("A request with key " + key + " is already waiting for a response")));
+            return;
+        }
+        channel.inFlight.incrementAndGet();
+
         try {
-            final String key = getKey(isoMsg);
+            channel.jposChannel.sendISOMsg(isoMsg);
+            channel.sent.incrementAndGet();
+        } catch (Exception e) {
+            if (pendingRequests.remove(key, pendingRequest)) {
+                pendingRequest.complete(new AsyncResult<ISOMsg>(e));
+            }
+            return;
+        }
 
-            //first make sure it's not already waiting for us
-            ISOMsg result = removeResult(key);
-            if (result != null) {
-                asyncResultHandler.handle(new AsyncResult<ISOMsg>(result));
-                return;
+        if (timeout > 0) {
+            pendingRequest.timerId = vertx.setTimer(timeout, new Handler<Long>() {
+                @Override
+                public void handle(Long timerId) {
+                    if (pendingRequests.remove(key, pendingRequest)) {
+                        channel.timedOut.incrementAndGet();
+                        pendingRequest.timerId = -1;
+                        pendingRequest.complete(new AsyncResult<ISOMsg>(new JPOSResponseTimeoutException("Timeout waiting for JPOS response")));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Picks the active connection with the fewest requests in flight, skipping connections whose socket is
+     * backed up so far that their outgoing queue is full. If there is no such connection the least loaded one
+     * is used anyway, which fails the request if it is not connected or its queue is full.
+     */
+    private PooledChannel selectChannel() {
+        PooledChannel best = null;
+        for (PooledChannel channel : channels) {
+            if (channel.active && !channel.jposChannel.writeQueueFull()
+                    && (best == null || channel.inFlight.get() < best.inFlight.get())) {
+                best = channel;
             }
+        }
+        if (best != null) {
+            return best;
+        }
+        for (PooledChannel channel : channels) {
+            if (best == null || channel.inFlight.get() < best.inFlight.get()) {
+                best = channel;
+            }
+        }
+        return best;
+    }
 
-            jposChannel.sendISOMsg(isoMsg);
-            receiveISOMsg(key, asyncResultHandler, timeout);
-        } catch (Exception e) {
-            asyncResultHandler.handle(new AsyncResult<ISOMsg>(e));
+    /**
+     * @return the host and port this client connects to
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of requests sent which are still waiting for a response
+     */
+    @Override
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return channels.size();
+    }
+
+    /**
+     * @return the number of connections of the pool which completed their handshake
+     */
+    @Override
+    public int getActiveChannelCount() {
+        int active = 0;
+        for (PooledChannel channel : channels) {
+            if (channel.active) {
+                active++;
+            }
         }
+        return active;
     }
 
-    public ISOMsg removeResult(String key) throws ISOException {
-        final byte[] response = getIsoMsgResults().remove(key);
-        if (response == null) {
-            return null;
+    /**
+     * Reports the state of each pooled connection: whether it is active, how many requests it has in
+     * flight, how many are queued behind a paused socket, and how many it sent, got a response to and timed out.
+     */
+    @Override
+    public JsonObject toJson() {
+        final JsonArray channelMetrics = new JsonArray();
+        for (PooledChannel channel : channels) {
+            channelMetrics.addObject(new JsonObject()
+                    .putNumber("channel", channel.index)
+                    .putBoolean("active", channel.active)
+                    .putNumber("inFlight", channel.inFlight.get())
+                    .putNumber("queued", channel.jposChannel.getPendingOutCount())
+                    .putNumber("sent", channel.sent.get())
+                    .putNumber("received", channel.received.get())
+                    .putNumber("timedOut", channel.timedOut.get()));
         }
-        ISOMsg result = JPOSChannelIn.buildISOMsgFromBytes(response);
-        return result;
+        return new JsonObject()
+                .putString("name", name)
+                .putNumber("poolSize", channels.size())
+                .putNumber("activeChannels", getActiveChannelCount())
+                .putNumber("pendingRequests", pendingRequests.size())
+                .putArray("channels", channelMetrics);
     }
 
-    public void receiveISOMsg(String key, AsyncResultHandler<ISOMsg> asyncResultHandler, int timeout) {
-        final int iterationsToCheck = timeout == -1 ? -1 : timeout / DELAY;
-        vertx.setPeriodic(DELAY, new ISOMsgReceiver(asyncResultHandler, iterationsToCheck, vertx, key));
+    @Override
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
 
+    private void failPendingRequests(PooledChannel channel, Exception e) {
+        for (PendingRequest pendingRequest : pendingRequests.values()) {
+            if (pendingRequest.channel == channel && pendingRequests.remove(pendingRequest.key, pendingRequest)) {
+                pendingRequest.complete(new AsyncResult<ISOMsg>(e));
+            }
+        }
     }
 
-    private void initializeJPOSChannel(AsyncResultHandler<ISOMsg> asyncResultHandler) throws Exception {
+    private void initializeJPOSChannel(PooledChannel channel, AsyncResultHandler<ISOMsg> asyncResultHandler) throws Exception {
         final int neverTimeout = -1;
-        sendISOMsg(buildNetworkManagementRequestMsg(), asyncResultHandler, neverTimeout);
+        sendISOMsg(channel, buildNetworkManagementRequestMsg(), asyncResultHandler, neverTimeout);
     }
 
-
     private ISOMsg buildNetworkManagementRequestMsg() throws Exception {
         ISOMsg netReq = new ISOMsg();
         netReq.setMTI(networkManagementRequestMTI);
         for (String fieldId : keyFields) {
-            netReq.set(fieldId, UUID.randomUUID().toString());
+            netReq.set(fieldId, format.createUniqueFieldValue(fieldId));
         }
 
         return netReq;
     }
 
-    public void whenActive(int timeout, AsyncResultHandler<Void> asyncResultHandler) {
-        if (active) {
+    public void whenActive(int timeout, final AsyncResultHandler<Void> asyncResultHandler) {
+        if (isActive()) {
             asyncResultHandler.handle(new AsyncResult<>((Void) null));
             return;
         }
 
         logger.info("[JPOSClient-"+name+"] not yet active. Will wait for {} ms", timeout);
-        vertx.setPeriodic(DELAY, new AbstractTimeoutHandler<Void>(asyncResultHandler, timeout / DELAY, vertx) {
+        final ActiveWaiter waiter = new ActiveWaiter(asyncResultHandler);
+        activeWaiters.add(waiter);
+        waiter.timerId = vertx.setTimer(timeout, new Handler<Long>() {
             @Override
-            protected boolean resultReceived() {
-                if (active) {
-                    logger.info("[JPOSClient-"+name+"] is now active. Notifying whenActive caller.");
-                    asyncResultHandler.handle(new AsyncResult<Void>((Void) null));
+            public void handle(Long timerId) {
+                if (activeWaiters.remove(waiter)) {
+                    asyncResultHandler.handle(new AsyncResult<Void>(new JPOSResponseTimeoutException("Timeout waiting for JPOS response")));
                 }
-                return active;
             }
         });
     }
 
+    private void notifyActiveWaiters() {
+        ActiveWaiter waiter;
+        while ((waiter = activeWaiters.poll()) != null) {
+            vertx.cancelTimer(waiter.timerId);
+            logger.info("[JPOSClient-"+name+"] is now active. Notifying whenActive caller.");
+            waiter.asyncResultHandler.handle(new AsyncResult<Void>((Void) null));
+        }
+    }
 
-    private class ISOMsgReceiver extends AbstractTimeoutHandler<ISOMsg> {
+    private static String getMTI(ISOMsg isoMsg) {
+        try {
+            return isoMsg.getMTI();
+        } catch (ISOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A request sent to JPOS, waiting for the response with the same key fields.
+     */
+    private class PendingRequest {
         private final String key;
+        private final PooledChannel channel;
+        private final AsyncResultHandler<ISOMsg> asyncResultHandler;
+        private volatile long timerId = -1;
 
-        public ISOMsgReceiver(AsyncResultHandler<ISOMsg> asyncResultHandler, int iterationsToCheck, Vertx vertx, String key) {
-            super(asyncResultHandler, iterationsToCheck, vertx);
+        PendingRequest(String key, PooledChannel channel, AsyncResultHandler<ISOMsg> asyncResultHandler) {
             this.key = key;
+            this.channel = channel;
+            this.asyncResultHandler = asyncResultHandler;
         }
 
-        protected boolean resultReceived() {
-            try {
-                final ISOMsg resultIsoMsg = removeResult(key);
-                if (resultIsoMsg != null) {
-                    asyncResultHandler.handle(new AsyncResult<>(resultIsoMsg));
-                    return true;
-                }
-            } catch (ISOException e) {
-                logger.warn("[JPOSClient-"+name+"] Error reading ISO Msg result. Will keep trying until timeout.", e);
+        /**
+         * Only called by whoever removed this request from the pending requests, so it is called once.
+         */
+        void complete(AsyncResult<ISOMsg> result) {
+            channel.inFlight.decrementAndGet();
+            if (timerId != -1) {
+                vertx.cancelTimer(timerId);
             }
-            return false;
+            asyncResultHandler.handle(result);
+        }
+    }
+
+    /**
+     * One connection of the pool. The {@link JPOSChannel} is replaced each time the connection is reestablished.
+     */
+    private class PooledChannel {
+        private final int index;
+        private final String name;
+        private volatile JPOSChannel jposChannel;
+        private volatile boolean active;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+
+        PooledChannel(int index) {
+            this.index = index;
+            this.name = JPOSClient.this.name + "#" + index;
+        }
+    }
+
+    private static class ActiveWaiter {
+        private final AsyncResultHandler<Void> asyncResultHandler;
+        private long timerId;
+
+        ActiveWaiter(AsyncResultHandler<Void> asyncResultHandler) {
+            this.asyncResultHandler = asyncResultHandler;
         }
     }
 }
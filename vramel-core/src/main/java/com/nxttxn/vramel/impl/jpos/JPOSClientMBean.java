@@ -0,0 +1,17 @@
+package com.nxttxn.vramel.impl.jpos;
+
+/**
+ * JMX view of a {@link JPOSClient}.
+ */
+public interface JPOSClientMBean {
+
+    String getName();
+
+    int getPoolSize();
+
+    int getActiveChannelCount();
+
+    int getPendingRequestCount();
+
+    String dumpStatsAsJson();
+}
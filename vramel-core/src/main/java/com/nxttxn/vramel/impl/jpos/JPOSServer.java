@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.net.NetServer;
+import org.vertx.java.core.net.NetSocket;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -20,17 +21,20 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class JPOSServer {
     protected final Logger logger = LoggerFactory.getLogger(JPOSServer.class);
     private final Vertx vertx;
-    private JPOSChannelIn in;
-    private JPOSChannelOut out;
+    private final JPOSChannelFormat format;
     private String name;
-    private JPOSChannel jposChannel;
 
     private Handler<JPOSServerRequest> jposServerRequestHandler;
     private NetServer netServer;
 
 
     public JPOSServer(Vertx vertx) {
+        this(vertx, JPOSChannelFormat.XML);
+    }
+
+    public JPOSServer(Vertx vertx, JPOSChannelFormat format) {
         this.vertx = vertx;
+        this.format = format;
     }
 
 
@@ -48,8 +52,19 @@ public class JPOSServer {
 
         name = host+":"+port;
 
-        in = new JPOSChannelIn("s<"+name+">");
-        out = new JPOSChannelOut("s<"+name+">");
+        // every connection gets its own channel, so several clients (or a pooled client) can be served at once
+        netServer = vertx.createNetServer().connectHandler(new Handler<NetSocket>() {
+            @Override
+            public void handle(NetSocket socket) {
+                createJPOSChannel().handle(socket);
+            }
+        }).listen(port, host);
+        return this;
+    }
+
+    private JPOSChannel createJPOSChannel() {
+        final JPOSChannelIn in = new JPOSChannelIn("s<"+name+">", vertx, format);
+        final JPOSChannelOut out = new JPOSChannelOut("s<"+name+">", format);
 
         in.newISOMsgHandler(new Handler<ISOMsg>() {
             @Override
@@ -57,9 +72,7 @@ public class JPOSServer {
                 jposServerRequestHandler.handle(new DefaultJPOSServerRequest(out, isoMsg));
             }
         });
-        jposChannel = new JPOSChannel("s<"+name+">", in, out);
-        netServer = vertx.createNetServer().connectHandler(jposChannel).listen(port, host);
-        return this;
+        return new JPOSChannel("s<"+name+">", in, out);
     }
 
     public void close() {
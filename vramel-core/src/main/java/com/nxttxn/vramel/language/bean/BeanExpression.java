@@ -148,6 +148,65 @@ public class BeanExpression implements Expression, Predicate {
         return holder;
     }
 
+    /**
+     * Looks up the key of an OGNL index, such as <tt>[foo]</tt> or <tt>[last-1]</tt>, in a Map, List or array.
+     */
+    static Object lookupResult(Exchange exchange, String key, Object result, boolean nullSafe, String ognlPath, Object bean) {
+        ObjectHelper.notEmpty(key, "key", "in Simple language ognl path: " + ognlPath);
+
+        // trim key
+        key = key.trim();
+
+        // remove any enclosing quotes
+        key = StringHelper.removeLeadingAndEndingQuotes(key);
+
+        // try map first
+        Map<?, ?> map = exchange.getContext().getTypeConverter().convertTo(Map.class, result);
+        if (map != null) {
+            return map.get(key);
+        }
+
+        // special for list is last keyword
+        Integer num = exchange.getContext().getTypeConverter().tryConvertTo(Integer.class, key);
+        boolean checkList = key.startsWith("last") || num != null;
+
+        if (checkList) {
+            List<?> list = exchange.getContext().getTypeConverter().convertTo(List.class, result);
+            if (list != null) {
+                if (key.startsWith("last")) {
+                    num = list.size() - 1;
+
+                    // maybe its an expression to subtract a number after last
+                    String after = ObjectHelper.after(key, "-");
+                    if (after != null) {
+                        Integer redux = exchange.getContext().getTypeConverter().tryConvertTo(Integer.class, after.trim());
+                        if (redux != null) {
+                            num -= redux;
+                        } else {
+                            throw new ExpressionIllegalSyntaxException(key);
+                        }
+                    }
+                }
+                if (num != null && num >= 0 && list.size() > num - 1) {
+                    return list.get(num);
+                }
+                if (!nullSafe) {
+                    // not null safe then its mandatory so thrown out of bounds exception
+                    throw new IndexOutOfBoundsException("Index: " + num + ", Size: " + list.size()
+                            + " out of bounds with List from bean: " + bean + "using OGNL path [" + ognlPath + "]");
+                }
+            }
+        }
+
+        if (!nullSafe) {
+            throw new IndexOutOfBoundsException("Key: " + key + " not found in bean: " + bean + " of type: "
+                    + ObjectHelper.classCanonicalName(bean) + " using OGNL path [" + ognlPath + "]");
+        } else {
+            // null safe so we can return null
+            return null;
+        }
+    }
+
     /**
      * Invokes a given bean holder. The method name is optional.
      */
@@ -288,62 +347,6 @@ public class BeanExpression implements Expression, Predicate {
             }
         }
 
-        private Object lookupResult(Exchange exchange, String key, Object result, boolean nullSafe, String ognlPath, Object bean) {
-            ObjectHelper.notEmpty(key, "key", "in Simple language ognl path: " + ognlPath);
-
-            // trim key
-            key = key.trim();
-
-            // remove any enclosing quotes
-            key = StringHelper.removeLeadingAndEndingQuotes(key);
-
-            // try map first
-            Map<?, ?> map = exchange.getContext().getTypeConverter().convertTo(Map.class, result);
-            if (map != null) {
-                return map.get(key);
-            }
-
-            // special for list is last keyword
-            Integer num = exchange.getContext().getTypeConverter().tryConvertTo(Integer.class, key);
-            boolean checkList = key.startsWith("last") || num != null;
-
-            if (checkList) {
-                List<?> list = exchange.getContext().getTypeConverter().convertTo(List.class, result);
-                if (list != null) {
-                    if (key.startsWith("last")) {
-                        num = list.size() - 1;
-
-                        // maybe its an expression to subtract a number after last
-                        String after = ObjectHelper.after(key, "-");
-                        if (after != null) {
-                            Integer redux = exchange.getContext().getTypeConverter().tryConvertTo(Integer.class, after.trim());
-                            if (redux != null) {
-                                num -= redux;
-                            } else {
-                                throw new ExpressionIllegalSyntaxException(key);
-                            }
-                        }
-                    }
-                    if (num != null && num >= 0 && list.size() > num - 1) {
-                        return list.get(num);
-                    }
-                    if (!nullSafe) {
-                        // not null safe then its mandatory so thrown out of bounds exception
-                        throw new IndexOutOfBoundsException("Index: " + num + ", Size: " + list.size()
-                                + " out of bounds with List from bean: " + bean + "using OGNL path [" + ognlPath + "]");
-                    }
-                }
-            }
-
-            if (!nullSafe) {
-                throw new IndexOutOfBoundsException("Key: " + key + " not found in bean: " + bean + " of type: "
-                        + ObjectHelper.classCanonicalName(bean) + " using OGNL path [" + ognlPath + "]");
-            } else {
-                // null safe so we can return null
-                return null;
-            }
-        }
-
         public Object getResult() {
             return result;
         }
@@ -0,0 +1,257 @@
+package com.nxttxn.vramel.language.bean;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.model.language.MethodCallExpression;
+import com.nxttxn.vramel.util.IntrospectionSupport;
+import com.nxttxn.vramel.util.ObjectHelper;
+import org.apache.camel.util.KeyValueHolder;
+import org.apache.camel.util.OgnlHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A simple language OGNL chain, such as <tt>foo.bar[0]?.baz</tt>, compiled to {@link MethodHandle}s so evaluating
+ * it does not go through the bean introspection and reflection of the bean language every time.
+ * <p/>
+ * Each method of the chain is linked once per class of the object it is called on, and remembers the last class it
+ * was called on, so an expression which always sees the same classes costs a class check and a direct call per
+ * method. A method which cannot be linked, as it is overloaded, static or not public, is left to the bean language
+ * along with the rest of the chain, and chains which pass parameters to a method are not compiled at all.
+ */
+public final class CompiledOgnl {
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledOgnl.class);
+
+    // past this many classes a method stops remembering its links, but for the last one
+    private static final int MAX_LINKS = 16;
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String ognl;
+    private final Segment[] segments;
+
+    private CompiledOgnl(String ognl, Segment[] segments) {
+        this.ognl = ognl;
+        this.segments = segments;
+    }
+
+    /**
+     * Compiles the OGNL chain.
+     *
+     * @param ognl the OGNL chain, as split by {@link OgnlHelper#splitOgnl(String)}
+     * @return the compiled chain, or <tt>null</tt> if it must be evaluated by the bean language
+     */
+    public static CompiledOgnl compile(String ognl) {
+        // the parameters of the methods are bound by the bean language
+        if (ognl == null || ognl.indexOf('(') != -1) {
+            return null;
+        }
+        final List<String> methods = OgnlHelper.splitOgnl(ognl);
+        if (methods.isEmpty()) {
+            return null;
+        }
+
+        final Segment[] segments = new Segment[methods.size()];
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            final String text = methods.get(i);
+            path.append(text);
+            final boolean nullSafe = OgnlHelper.isNullSafeOperator(text);
+            String methodName = OgnlHelper.removeLeadingOperators(text);
+            String key = null;
+            final KeyValueHolder<String, String> index = OgnlHelper.isOgnlIndex(methodName);
+            if (index != null) {
+                methodName = index.getKey();
+                key = index.getValue();
+            }
+            if (methodName != null && methodName.isEmpty()) {
+                return null;
+            }
+            segments[i] = new Segment(text, path.toString(), methodName, key, nullSafe);
+        }
+        return new CompiledOgnl(ognl, segments);
+    }
+
+    /**
+     * Evaluates the chain on the given bean.
+     *
+     * @param exchange the exchange
+     * @param bean     the object the chain starts from
+     * @return the result of the last method, or <tt>null</tt> if a null safe method returned <tt>null</tt>
+     */
+    public Object evaluate(Exchange exchange, Object bean) {
+        Object result = bean;
+        for (int i = 0; i < segments.length; i++) {
+            final Segment segment = segments[i];
+            final Object target = result;
+            if (segment.methodName != null) {
+                if (target == null) {
+                    throw new RuntimeBeanExpressionException(exchange, null, segment.path,
+                            new IllegalArgumentException("Bean instance is null. OGNL bean expressions requires bean instances."));
+                }
+                final MethodHandle handle = segment.link(target.getClass());
+                if (handle == null) {
+                    return new MethodCallExpression(target, remainder(i)).evaluate(exchange);
+                }
+                try {
+                    result = (Object) handle.invokeExact(target);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeBeanExpressionException(exchange, ObjectHelper.className(target), segment.methodName, e);
+                }
+            }
+
+            if (segment.key != null) {
+                result = BeanExpression.lookupResult(exchange, segment.key, result, segment.nullSafe, segment.path, target);
+            }
+
+            if (result == null && segment.nullSafe) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The rest of the chain from the given segment, for the bean language to evaluate.
+     */
+    private String remainder(int from) {
+        final StringBuilder answer = new StringBuilder(OgnlHelper.removeLeadingOperators(segments[from].text));
+        for (int i = from + 1; i < segments.length; i++) {
+            answer.append(segments[i].text);
+        }
+        return answer.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledOgnl[" + ognl + "]";
+    }
+
+    /**
+     * The methods a segment is linked to on a given class, <tt>null</tt> if the bean language must be used.
+     */
+    private static final class Link {
+        final Class<?> type;
+        final MethodHandle handle;
+
+        Link(Class<?> type, MethodHandle handle) {
+            this.type = type;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * One method of the chain, with an optional index lookup on its result.
+     */
+    private static final class Segment {
+        final String text;
+        final String path;
+        final String methodName;
+        final String key;
+        final boolean nullSafe;
+        private final ConcurrentMap<Class<?>, Link> links = new ConcurrentHashMap<Class<?>, Link>();
+        private volatile Link last;
+
+        Segment(String text, String path, String methodName, String key, boolean nullSafe) {
+            this.text = text;
+            this.path = path;
+            this.methodName = methodName;
+            this.key = key;
+            this.nullSafe = nullSafe;
+        }
+
+        MethodHandle link(Class<?> type) {
+            Link link = last;
+            if (link != null && link.type == type) {
+                return link.handle;
+            }
+
+            // the class changed, relink
+            link = links.get(type);
+            if (link == null) {
+                link = new Link(type, resolve(type, methodName));
+                if (links.size() < MAX_LINKS) {
+                    links.putIfAbsent(type, link);
+                }
+            }
+            last = link;
+            return link.handle;
+        }
+    }
+
+    /**
+     * Finds the public no argument method of the given name, or the getter it is the shorthand name of, the same way
+     * {@link com.nxttxn.vramel.components.bean.BeanInfo} does.
+     */
+    static MethodHandle resolve(Class<?> type, String name) {
+        Method named = null;
+        Method getter = null;
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name)) {
+                if (method.getParameterTypes().length != 0 || Modifier.isStatic(method.getModifiers())) {
+                    // overloaded or static, leave it to the bean language to choose
+                    return null;
+                }
+                if (named == null || !method.isBridge()) {
+                    named = method;
+                }
+            } else if (getter == null && IntrospectionSupport.isGetter(method)
+                    && name.equals(IntrospectionSupport.getGetterShorthandName(method))) {
+                getter = method;
+            }
+        }
+        final Method method = named != null ? named : getter;
+        if (method == null) {
+            return null;
+        }
+
+        // the class may not be public, such as a private implementation of an interface, so look the method up
+        // on a public class or interface it inherits it from
+        for (Class<?> owner : publicTypes(type)) {
+            try {
+                final Method declared = owner.getMethod(method.getName());
+                return MethodHandles.publicLookup()
+                        .findVirtual(owner, declared.getName(), MethodType.methodType(declared.getReturnType()))
+                        .asType(INVOKER_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // try the next one
+            }
+        }
+        LOG.debug("Cannot link method {} on {}, using the bean language", name, type);
+        return null;
+    }
+
+    private static List<Class<?>> publicTypes(Class<?> type) {
+        final Set<Class<?>> answer = new LinkedHashSet<Class<?>>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            if (Modifier.isPublic(current.getModifiers())) {
+                answer.add(current);
+            }
+        }
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            addPublicInterfaces(current, answer);
+        }
+        return new ArrayList<Class<?>>(answer);
+    }
+
+    private static void addPublicInterfaces(Class<?> type, Set<Class<?>> answer) {
+        for (Class<?> candidate : type.getInterfaces()) {
+            if (Modifier.isPublic(candidate.getModifiers())) {
+                answer.add(candidate);
+            }
+            addPublicInterfaces(candidate, answer);
+        }
+    }
+}
@@ -20,9 +20,14 @@ package com.nxttxn.vramel.language.simple;
 import com.nxttxn.vramel.Expression;
 import com.nxttxn.vramel.Predicate;
 import com.nxttxn.vramel.builder.ExpressionBuilder;
+import com.nxttxn.vramel.management.MetricsSource;
 import com.nxttxn.vramel.support.LanguageSupport;
 import com.nxttxn.vramel.util.ObjectHelper;
 import org.apache.camel.language.simple.SimpleTokenizer;
+import org.apache.camel.util.LRUCache;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A <a href="http://camel.apache.org/simple.html">simple language</a>
@@ -89,11 +94,22 @@ import org.apache.camel.language.simple.SimpleTokenizer;
  * The <b>only</b> file is the filename only with all paths clipped.
  *
  */
-public class SimpleLanguage extends LanguageSupport {
+public class SimpleLanguage extends LanguageSupport implements MetricsSource {
+
+    public static final int CACHE_SIZE = 1000;
 
-    // singleton for expressions without a result type
+    // bumped when the function tokens change, as what was parsed with the old tokens no longer applies
+    private static final AtomicInteger TOKENS_VERSION = new AtomicInteger();
+
+    // singleton for the expressions built with the static methods
     private static final SimpleLanguage SIMPLE = new SimpleLanguage();
 
+    // the parsed expressions and predicates are stateless, so they are reused by this instance of the language,
+    // keyed by the text along with the settings they were parsed with
+    private final LRUCache<String, Expression> expressionCache = new LRUCache<String, Expression>(16, CACHE_SIZE);
+    private final LRUCache<String, Predicate> predicateCache = new LRUCache<String, Predicate>(16, CACHE_SIZE);
+    private volatile int tokensVersion = TOKENS_VERSION.get();
+
     protected Class<?> resultType;
     protected boolean allowEscape = true;
 
@@ -128,6 +144,17 @@ public class SimpleLanguage extends LanguageSupport {
     public Predicate createPredicate(String expression) {
         ObjectHelper.notNull(expression, "expression");
 
+        // a resource is read again each time, as it may have changed
+        final boolean cacheable = !expression.startsWith(RESOURCE);
+        final String key = allowEscape + ":" + expression;
+        if (cacheable) {
+            checkTokens();
+            Predicate cached = predicateCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         expression = loadResource(expression);
 
         // support old simple language syntax
@@ -138,12 +165,33 @@ public class SimpleLanguage extends LanguageSupport {
             SimplePredicateParser parser = new SimplePredicateParser(expression, allowEscape);
             answer = parser.parsePredicate();
         }
+        if (cacheable) {
+            predicateCache.put(key, answer);
+        }
         return answer;
     }
 
     public Expression createExpression(String expression) {
+        return createExpression(expression, resultType);
+    }
+
+    /**
+     * Creates an expression converting its result to the given type, rather than to the result type of the language.
+     */
+    public Expression createExpression(String expression, Class<?> resultType) {
         ObjectHelper.notNull(expression, "expression");
 
+        // a resource is read again each time, as it may have changed
+        final boolean cacheable = !expression.startsWith(RESOURCE);
+        final String key = (resultType != null ? resultType.getName() : "") + ":" + allowEscape + ":" + expression;
+        if (cacheable) {
+            checkTokens();
+            Expression cached = expressionCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         expression = loadResource(expression);
 
         SimpleExpressionParser parser = new SimpleExpressionParser(expression, allowEscape);
@@ -152,17 +200,63 @@ public class SimpleLanguage extends LanguageSupport {
         if (resultType != null) {
             answer = ExpressionBuilder.convertToExpression(answer, resultType);
         }
+        if (cacheable) {
+            expressionCache.put(key, answer);
+        }
         return answer;
     }
 
+    /**
+     * The statistics of the caches of parsed expressions and predicates.
+     */
+    public JsonObject getCacheStatistics() {
+        checkTokens();
+        return new JsonObject()
+                .putObject("expressions", cacheStatistics(expressionCache))
+                .putObject("predicates", cacheStatistics(predicateCache));
+    }
+
+    /**
+     * @see #getCacheStatistics()
+     */
+    @Override
+    public JsonObject toJson() {
+        return getCacheStatistics();
+    }
+
+    private static JsonObject cacheStatistics(LRUCache<String, ?> cache) {
+        return new JsonObject()
+                .putNumber("size", cache.size())
+                .putNumber("maxSize", cache.getMaxCacheSize())
+                .putNumber("hits", cache.getHits())
+                .putNumber("misses", cache.getMisses())
+                .putNumber("evicted", cache.getEvicted());
+    }
+
+    /**
+     * Clears the caches of parsed expressions and predicates, and their statistics.
+     */
+    public void clearCache() {
+        expressionCache.clear();
+        expressionCache.resetStatistics();
+        predicateCache.clear();
+        predicateCache.resetStatistics();
+    }
+
+    private void checkTokens() {
+        final int version = TOKENS_VERSION.get();
+        if (tokensVersion != version) {
+            tokensVersion = version;
+            clearCache();
+        }
+    }
+
     public static Expression simple(String expression) {
         return SIMPLE.createExpression(expression);
     }
 
     public static Expression simple(String expression, Class<?> resultType) {
-        SimpleLanguage answer = new SimpleLanguage();
-        answer.setResultType(resultType);
-        return answer.createExpression(expression);
+        return SIMPLE.createExpression(expression, resultType);
     }
 
     /**
@@ -177,6 +271,7 @@ public class SimpleLanguage extends LanguageSupport {
      */
     public static void changeFunctionStartToken(String... startToken) {
         SimpleTokenizer.changeFunctionStartToken(startToken);
+        TOKENS_VERSION.incrementAndGet();
     }
 
     /**
@@ -191,6 +286,7 @@ public class SimpleLanguage extends LanguageSupport {
      */
     public static void changeFunctionEndToken(String... endToken) {
         SimpleTokenizer.changeFunctionEndToken(endToken);
+        TOKENS_VERSION.incrementAndGet();
     }
 
     /**
@@ -0,0 +1,33 @@
+package com.nxttxn.vramel.language.vtdxml;
+
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.IsSingleton;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.builder.xml.StreamingXPathBuilder;
+import com.nxttxn.vramel.spi.Language;
+
+/**
+ * The <tt>vtdxml</tt> language, for routing on a few fields of large XML messages.
+ * <p/>
+ * The expressions are evaluated by a {@link StreamingXPathBuilder}, which reads the raw body without building a DOM
+ * and stops at the first node found, instead of by the VTD-XML library the language is named after, which is GPL
+ * licensed.
+ */
+public class VtdXmlLanguage implements Language, IsSingleton {
+
+    public static StreamingXPathBuilder vtdxml(String expression) {
+        return new StreamingXPathBuilder(expression);
+    }
+
+    public Predicate createPredicate(String expression) {
+        return vtdxml(expression);
+    }
+
+    public Expression createExpression(String expression) {
+        return vtdxml(expression);
+    }
+
+    public boolean isSingleton() {
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nxttxn.vramel.language.xpath;
+
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.IsSingleton;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.builder.xml.XPathBuilder;
+import com.nxttxn.vramel.spi.Language;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * XPath language.
+ * <p/>
+ * Every expression or predicate is an {@link XPathBuilder}, which pools its compiled XPath expressions so they are
+ * only compiled once per concurrent evaluation rather than once per exchange.
+ *
+ * @version
+ */
+public class XPathLanguage implements Language, IsSingleton {
+    private QName resultType;
+    private XPathFactory xpathFactory;
+    private String objectModelUri;
+
+    public Predicate createPredicate(String expression) {
+        XPathBuilder builder = XPathBuilder.xpath(expression);
+        configureBuilder(builder);
+        return builder;
+    }
+
+    public Expression createExpression(String expression) {
+        XPathBuilder builder = XPathBuilder.xpath(expression);
+        configureBuilder(builder);
+        return builder;
+    }
+
+    public QName getResultType() {
+        return resultType;
+    }
+
+    public void setResultType(QName resultType) {
+        this.resultType = resultType;
+    }
+
+    public XPathFactory getXpathFactory() {
+        return xpathFactory;
+    }
+
+    public void setXpathFactory(XPathFactory xpathFactory) {
+        this.xpathFactory = xpathFactory;
+    }
+
+    public String getObjectModelUri() {
+        return objectModelUri;
+    }
+
+    public void setObjectModelUri(String objectModelUri) {
+        this.objectModelUri = objectModelUri;
+    }
+
+    protected void configureBuilder(XPathBuilder builder) {
+        if (resultType != null) {
+            builder.setResultQName(resultType);
+        }
+        if (xpathFactory != null) {
+            builder.setXPathFactory(xpathFactory);
+        }
+        if (objectModelUri != null) {
+            builder.setObjectModelUri(objectModelUri);
+        }
+    }
+
+    public boolean isSingleton() {
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.nxttxn.vramel.management;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.processor.DelegateAsyncProcessor;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+
+/**
+ * Records each exchange going through the wrapped processor in a {@link PerformanceCounter}, from the call until
+ * the processor is done with it, however long the asynchronous part takes.
+ */
+public class InstrumentationProcessor extends DelegateAsyncProcessor {
+    private final PerformanceCounter counter;
+
+    public InstrumentationProcessor(Processor processor, PerformanceCounter counter) {
+        super(processor);
+        this.counter = counter;
+    }
+
+    public PerformanceCounter getCounter() {
+        return counter;
+    }
+
+    @Override
+    protected boolean processNext(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        final long startedAt = counter.processExchange();
+        try {
+            return processor.process(exchange, new OptionalAsyncResultHandler() {
+                @Override
+                public void handle(AsyncExchangeResult optionalAsyncResult) {
+                    final Exchange answer = optionalAsyncResult.result.or(exchange);
+                    counter.completedExchange(startedAt, answer.isFailed());
+                    optionalAsyncResultHandler.done(answer);
+                }
+            });
+        } catch (Exception e) {
+            counter.completedExchange(startedAt, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Instrumentation[" + processor + "]";
+    }
+}
@@ -0,0 +1,117 @@
+package com.nxttxn.vramel.management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies in nanoseconds into a fixed set of log-linear buckets, in the manner of an HDR histogram.
+ * <p/>
+ * Every power of two is split into 64 buckets, so a percentile is reported within 1/64 of the latencies that were
+ * recorded, from 1 ns up to about 68 seconds; longer latencies are counted in the last bucket, though the maximum
+ * stays exact. Recording is a couple of atomic increments and never allocates or locks, so it can be done on
+ * every exchange.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_TRACKABLE_VALUE) + 1);
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter total = new StripedCounter();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int bucket = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return bucket * SUB_BUCKET_HALF_COUNT + (int) (value >>> bucket);
+    }
+
+    /**
+     * @return the largest value which is counted in the bucket at <tt>index</tt>
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int bucket = index / SUB_BUCKET_HALF_COUNT - 1;
+        final long subBucket = index - bucket * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(Math.min(nanos, MAX_TRACKABLE_VALUE)));
+        count.increment();
+        total.add(nanos);
+
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // retry
+        }
+        while (nanos < (current = min.get()) && !min.compareAndSet(current, nanos)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMin() {
+        final long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        final long n = count.get();
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in nanoseconds which <tt>percentile</tt>% of the recorded latencies did not exceed
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long[] snapshot = new long[counts.length()];
+        long n = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                // the last bucket also counts the longer latencies, which only the maximum tells
+                return i == snapshot.length - 1 ? getMax() : Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+}
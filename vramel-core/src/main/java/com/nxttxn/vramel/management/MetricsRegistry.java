@@ -0,0 +1,353 @@
+package com.nxttxn.vramel.management;
+
+import com.nxttxn.vramel.support.ServiceSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the {@link PerformanceCounter}s of every flow of a vramel context and of each processor in them, along
+ * with the {@link MetricsSource}s the components add themselves, such as the in memory queues, the connection
+ * pools or the circuit breakers of a flow. Each source is reported under its type and name, and the sources of
+ * the {@link #CONTEXT} type directly under their name.
+ * <p/>
+ * The counters are created as the flows are built, when the registry is enabled, and are read with
+ * {@link #getMetrics()}, over JMX under the <tt>com.nxttxn.vramel</tt> domain while the context is started, or
+ * from the <tt>/metrics</tt> route of a rest listener configured with <tt>"metrics": true</tt>. Configured from
+ * the <tt>metrics</tt> object of the context config:
+ * <ul>
+ *   <li><tt>enabled</tt> - instrument the flows built from now on, default true</li>
+ *   <li><tt>jmx</tt> - register the counters as MBeans, default true</li>
+ * </ul>
+ */
+public class MetricsRegistry extends ServiceSupport implements MetricsRegistryMBean {
+    public static final String DOMAIN = "com.nxttxn.vramel";
+    public static final String CONTEXT = "context";
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private final String contextName;
+    private final Map<String, PerformanceCounter> flowCounters = new LinkedHashMap<>();
+    private final Map<String, Map<String, PerformanceCounter>> processorCounters = new LinkedHashMap<>();
+    private final Map<String, Map<String, MetricsSource>> sources = new LinkedHashMap<>();
+    private final Map<String, Map<String, Map<String, MetricsSource>>> flowSources = new LinkedHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private boolean enabled = true;
+    private boolean jmxEnabled = true;
+
+    public MetricsRegistry(String contextName) {
+        this.contextName = contextName;
+    }
+
+    public static MetricsRegistry fromConfig(String contextName, JsonObject config) {
+        final MetricsRegistry registry = new MetricsRegistry(contextName);
+        registry.setEnabled(config.getBoolean("enabled", true));
+        registry.setJmxEnabled(config.getBoolean("jmx", true));
+        return registry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public synchronized PerformanceCounter getOrCreateFlowCounter(String flowId) {
+        PerformanceCounter counter = flowCounters.get(flowId);
+        if (counter == null) {
+            counter = new PerformanceCounter(flowId, null, "flow");
+            flowCounters.put(flowId, counter);
+            processorCounters.put(flowId, new LinkedHashMap<String, PerformanceCounter>());
+            if (isStarted()) {
+                register(counter);
+            }
+        }
+        return counter;
+    }
+
+    public synchronized PerformanceCounter getOrCreateProcessorCounter(String flowId, String nodeId, String type) {
+        getOrCreateFlowCounter(flowId);
+        final Map<String, PerformanceCounter> counters = processorCounters.get(flowId);
+        PerformanceCounter counter = counters.get(nodeId);
+        if (counter == null) {
+            counter = new PerformanceCounter(flowId, nodeId, type);
+            counters.put(nodeId, counter);
+            if (isStarted()) {
+                register(counter);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Adds the statistics of a component, replacing the source of the same type and name which was there before.
+     * Components shared by several endpoints can add themselves from each of them, adding the same source again
+     * does nothing.
+     *
+     * @param type   the kind of component, such as <tt>queues</tt>, or {@link #CONTEXT} to report it directly
+     *               under its name
+     * @param name   the name of the component
+     * @param source the statistics, also registered over JMX when it is a standard MBean
+     */
+    public synchronized void addMetrics(String type, String name, MetricsSource source) {
+        Map<String, MetricsSource> named = sources.get(type);
+        if (named == null) {
+            named = new LinkedHashMap<>();
+            sources.put(type, named);
+        }
+        replace(named, name, source, sourceName(null, type, name));
+    }
+
+    public synchronized MetricsSource getMetricsSource(String type, String name) {
+        final Map<String, MetricsSource> named = sources.get(type);
+        return named == null ? null : named.get(name);
+    }
+
+    /**
+     * Adds the statistics of a component of a flow, such as a circuit breaker, they are then reported with the
+     * statistics of the flow.
+     */
+    public synchronized void addFlowMetrics(String flowId, String type, String name, MetricsSource source) {
+        Map<String, Map<String, MetricsSource>> types = flowSources.get(flowId);
+        if (types == null) {
+            types = new LinkedHashMap<>();
+            flowSources.put(flowId, types);
+        }
+        Map<String, MetricsSource> named = types.get(type);
+        if (named == null) {
+            named = new LinkedHashMap<>();
+            types.put(type, named);
+        }
+        replace(named, name, source, sourceName(flowId, type, name));
+    }
+
+    public synchronized MetricsSource getFlowMetricsSource(String flowId, String type, String name) {
+        final Map<String, Map<String, MetricsSource>> types = flowSources.get(flowId);
+        final Map<String, MetricsSource> named = types == null ? null : types.get(type);
+        return named == null ? null : named.get(name);
+    }
+
+    public synchronized PerformanceCounter getFlowCounter(String flowId) {
+        return flowCounters.get(flowId);
+    }
+
+    public synchronized PerformanceCounter getProcessorCounter(String flowId, String nodeId) {
+        final Map<String, PerformanceCounter> counters = processorCounters.get(flowId);
+        return counters == null ? null : counters.get(nodeId);
+    }
+
+    public synchronized int getFlowCount() {
+        return flowCounters.size();
+    }
+
+    /**
+     * The statistics of every flow and its processors, processing times are in microseconds.
+     */
+    public synchronized JsonObject getMetrics() {
+        final JsonObject flows = new JsonObject();
+        for (String flowId : flowCounters.keySet()) {
+            flows.putObject(flowId, getFlowMetrics(flowId));
+        }
+        final JsonObject metrics = new JsonObject()
+                .putString("context", contextName)
+                .putObject("flows", flows);
+        for (Map.Entry<String, Map<String, MetricsSource>> entry : sources.entrySet()) {
+            if (CONTEXT.equals(entry.getKey())) {
+                for (Map.Entry<String, MetricsSource> source : entry.getValue().entrySet()) {
+                    metrics.putObject(source.getKey(), source.getValue().toJson());
+                }
+            } else {
+                final JsonObject named = new JsonObject();
+                for (Map.Entry<String, MetricsSource> source : entry.getValue().entrySet()) {
+                    named.putObject(source.getKey(), source.getValue().toJson());
+                }
+                metrics.putObject(entry.getKey(), named);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the statistics of the flow and its processors, <tt>null</tt> if there is no such flow
+     */
+    public synchronized JsonObject getFlowMetrics(String flowId) {
+        final PerformanceCounter flowCounter = flowCounters.get(flowId);
+        if (flowCounter == null) {
+            return null;
+        }
+        final JsonArray processors = new JsonArray();
+        for (PerformanceCounter counter : processorCounters.get(flowId).values()) {
+            processors.addObject(counter.toJson());
+        }
+        final JsonObject metrics = flowCounter.toJson().putArray("processors", processors);
+        final Map<String, Map<String, MetricsSource>> types = flowSources.get(flowId);
+        if (types != null) {
+            for (Map.Entry<String, Map<String, MetricsSource>> entry : types.entrySet()) {
+                final JsonArray named = new JsonArray();
+                for (MetricsSource source : entry.getValue().values()) {
+                    named.addObject(source.toJson());
+                }
+                metrics.putArray(entry.getKey(), named);
+            }
+        }
+        return metrics;
+    }
+
+    public String dumpMetricsAsJson() {
+        return getMetrics().encode();
+    }
+
+    public String dumpFlowMetricsAsJson(String flowId) {
+        final JsonObject metrics = getFlowMetrics(flowId);
+        return metrics == null ? null : metrics.encode();
+    }
+
+    public synchronized void reset() {
+        for (PerformanceCounter counter : flowCounters.values()) {
+            counter.reset();
+        }
+        for (Map<String, PerformanceCounter> counters : processorCounters.values()) {
+            for (PerformanceCounter counter : counters.values()) {
+                counter.reset();
+            }
+        }
+    }
+
+    @Override
+    protected synchronized void doStart() throws Exception {
+        if (!jmxEnabled) {
+            return;
+        }
+        register(this, new ObjectName(DOMAIN + ":context=" + ObjectName.quote(contextName) + ",type=context,name=metrics"));
+        for (PerformanceCounter counter : flowCounters.values()) {
+            register(counter);
+        }
+        for (Map<String, PerformanceCounter> counters : processorCounters.values()) {
+            for (PerformanceCounter counter : counters.values()) {
+                register(counter);
+            }
+        }
+        for (Map.Entry<String, Map<String, MetricsSource>> entry : sources.entrySet()) {
+            for (Map.Entry<String, MetricsSource> source : entry.getValue().entrySet()) {
+                register(source.getValue(), sourceName(null, entry.getKey(), source.getKey()));
+            }
+        }
+        for (Map.Entry<String, Map<String, Map<String, MetricsSource>>> flow : flowSources.entrySet()) {
+            for (Map.Entry<String, Map<String, MetricsSource>> entry : flow.getValue().entrySet()) {
+                for (Map.Entry<String, MetricsSource> source : entry.getValue().entrySet()) {
+                    register(source.getValue(), sourceName(flow.getKey(), entry.getKey(), source.getKey()));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected synchronized void doStop() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                logger.warn("Cannot unregister MBean " + name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    private void register(PerformanceCounter counter) {
+        if (!jmxEnabled) {
+            return;
+        }
+        final StringBuilder name = new StringBuilder(DOMAIN)
+                .append(":context=").append(ObjectName.quote(contextName))
+                .append(",flow=").append(ObjectName.quote(counter.getFlowId()));
+        if (counter.getNodeId() == null) {
+            name.append(",type=flows");
+        } else {
+            name.append(",type=processors,name=").append(ObjectName.quote(counter.getNodeId()));
+        }
+        try {
+            register(counter, new ObjectName(name.toString()));
+        } catch (JMException e) {
+            logger.warn("Cannot register MBean for " + counter, e);
+        }
+    }
+
+    private void replace(Map<String, MetricsSource> named, String name, MetricsSource source, ObjectName objectName) {
+        final MetricsSource previous = named.put(name, source);
+        if (previous == source) {
+            return;
+        }
+        if (isStarted() && jmxEnabled) {
+            if (previous != null) {
+                unregister(objectName);
+            }
+            register(source, objectName);
+        }
+    }
+
+    private ObjectName sourceName(String flowId, String type, String name) {
+        final StringBuilder objectName = new StringBuilder(DOMAIN)
+                .append(":context=").append(ObjectName.quote(contextName));
+        if (flowId != null) {
+            objectName.append(",flow=").append(ObjectName.quote(flowId));
+        }
+        objectName.append(",type=").append(type).append(",name=").append(ObjectName.quote(name));
+        try {
+            return new ObjectName(objectName.toString());
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid name " + name + " of " + type, e);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            registered.remove(name);
+        } catch (JMException e) {
+            logger.warn("Cannot unregister MBean " + name, e);
+        }
+    }
+
+    private void register(Object mbean, ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+            registered.add(name);
+        } catch (NotCompliantMBeanException e) {
+            logger.debug("Not registering {} over JMX as it is not an MBean", name);
+        } catch (JMException e) {
+            logger.warn("Cannot register MBean " + name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsRegistry[" + contextName + "]";
+    }
+}
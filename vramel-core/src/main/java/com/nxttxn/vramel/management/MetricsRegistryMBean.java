@@ -0,0 +1,17 @@
+package com.nxttxn.vramel.management;
+
+/**
+ * JMX view of the {@link MetricsRegistry} of a vramel context.
+ */
+public interface MetricsRegistryMBean {
+
+    boolean isEnabled();
+
+    int getFlowCount();
+
+    String dumpMetricsAsJson();
+
+    String dumpFlowMetricsAsJson(String flowId);
+
+    void reset();
+}
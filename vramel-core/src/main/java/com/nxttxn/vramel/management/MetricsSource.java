@@ -0,0 +1,15 @@
+package com.nxttxn.vramel.management;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Something which reports its statistics through the {@link MetricsRegistry}, such as a queue, a connection pool
+ * or a circuit breaker. When it is a standard MBean as well, it is also registered over JMX.
+ */
+public interface MetricsSource {
+
+    /**
+     * @return the current statistics
+     */
+    JsonObject toJson();
+}
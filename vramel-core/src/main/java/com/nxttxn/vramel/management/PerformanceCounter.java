@@ -0,0 +1,146 @@
+package com.nxttxn.vramel.management;
+
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the exchanges going through a flow or one of its processors and how long they took.
+ */
+public class PerformanceCounter implements PerformanceCounterMBean {
+    private final String flowId;
+    private final String nodeId;
+    private final String type;
+    private final StripedCounter started = new StripedCounter();
+    private final StripedCounter completed = new StripedCounter();
+    private final StripedCounter failed = new StripedCounter();
+    private final LatencyHistogram processingTimes = new LatencyHistogram();
+
+    public PerformanceCounter(String flowId, String nodeId, String type) {
+        this.flowId = flowId;
+        this.nodeId = nodeId;
+        this.type = type;
+    }
+
+    /**
+     * Counts an exchange as started.
+     *
+     * @return the time it started at, to pass to {@link #completedExchange(long, boolean)}
+     */
+    public long processExchange() {
+        started.increment();
+        return System.nanoTime();
+    }
+
+    public void completedExchange(long startedAt, boolean failure) {
+        processingTimes.record(System.nanoTime() - startedAt);
+        if (failure) {
+            failed.increment();
+        }
+        completed.increment();
+    }
+
+    public String getFlowId() {
+        return flowId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public LatencyHistogram getProcessingTimes() {
+        return processingTimes;
+    }
+
+    public long getExchangesTotal() {
+        return started.get();
+    }
+
+    public long getExchangesCompleted() {
+        return completed.get();
+    }
+
+    public long getExchangesFailed() {
+        return failed.get();
+    }
+
+    public long getExchangesInflight() {
+        // read completed first so a racing exchange can only make this too high, never negative
+        final long done = completed.get();
+        return Math.max(0, started.get() - done);
+    }
+
+    public long getMinProcessingTime() {
+        return toMicros(processingTimes.getMin());
+    }
+
+    public long getMeanProcessingTime() {
+        return toMicros(processingTimes.getMean());
+    }
+
+    public long getMaxProcessingTime() {
+        return toMicros(processingTimes.getMax());
+    }
+
+    public long getProcessingTimeP50() {
+        return toMicros(processingTimes.getValueAtPercentile(50));
+    }
+
+    public long getProcessingTimeP99() {
+        return toMicros(processingTimes.getValueAtPercentile(99));
+    }
+
+    public long getProcessingTimeP999() {
+        return toMicros(processingTimes.getValueAtPercentile(99.9));
+    }
+
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
+
+    public void reset() {
+        // leave the exchanges in flight counted
+        final long inflight = getExchangesInflight();
+        started.reset();
+        completed.reset();
+        failed.reset();
+        started.add(inflight);
+        processingTimes.reset();
+    }
+
+    /**
+     * The statistics with processing times in microseconds.
+     */
+    public JsonObject toJson() {
+        final JsonObject json = new JsonObject()
+                .putString("type", type)
+                .putNumber("exchangesTotal", getExchangesTotal())
+                .putNumber("exchangesCompleted", getExchangesCompleted())
+                .putNumber("exchangesFailed", getExchangesFailed())
+                .putNumber("exchangesInflight", getExchangesInflight());
+        if (nodeId != null) {
+            json.putString("id", nodeId);
+        }
+        return json.putObject("processingTime", new JsonObject()
+                .putNumber("min", getMinProcessingTime())
+                .putNumber("mean", getMeanProcessingTime())
+                .putNumber("p50", getProcessingTimeP50())
+                .putNumber("p90", toMicros(processingTimes.getValueAtPercentile(90)))
+                .putNumber("p99", getProcessingTimeP99())
+                .putNumber("p999", getProcessingTimeP999())
+                .putNumber("max", getMaxProcessingTime()));
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "PerformanceCounter[" + flowId + (nodeId != null ? "/" + nodeId : "") + "]";
+    }
+}
@@ -0,0 +1,37 @@
+package com.nxttxn.vramel.management;
+
+/**
+ * JMX view of a {@link PerformanceCounter}, processing times are in microseconds.
+ */
+public interface PerformanceCounterMBean {
+
+    String getFlowId();
+
+    String getNodeId();
+
+    String getType();
+
+    long getExchangesTotal();
+
+    long getExchangesCompleted();
+
+    long getExchangesFailed();
+
+    long getExchangesInflight();
+
+    long getMinProcessingTime();
+
+    long getMeanProcessingTime();
+
+    long getMaxProcessingTime();
+
+    long getProcessingTimeP50();
+
+    long getProcessingTimeP99();
+
+    long getProcessingTimeP999();
+
+    String dumpStatsAsJson();
+
+    void reset();
+}
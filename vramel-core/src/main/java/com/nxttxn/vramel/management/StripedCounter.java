@@ -0,0 +1,58 @@
+package com.nxttxn.vramel.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which many threads can update at once without fighting over one cache line.
+ * <p/>
+ * Each thread adds to one of several cells, picked from its id, and {@link #get()} sums them all; reading is
+ * therefore slower than updating, which is the right trade for statistics updated on every exchange.
+ */
+public class StripedCounter {
+    // spread the cells 8 longs (a cache line) apart
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int stripes() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private static int cell() {
+        final long id = Thread.currentThread().getId();
+        final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+
+    public void increment() {
+        cells.incrementAndGet(cell());
+    }
+
+    public void add(long delta) {
+        cells.addAndGet(cell(), delta);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            cells.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
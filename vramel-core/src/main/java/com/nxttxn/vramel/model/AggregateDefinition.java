@@ -0,0 +1,295 @@
+package com.nxttxn.vramel.model;
+
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.model.language.ExpressionDefinition;
+import com.nxttxn.vramel.processor.UnitOfWorkProcessor;
+import com.nxttxn.vramel.processor.aggregate.AggregateProcessor;
+import com.nxttxn.vramel.processor.aggregate.AggregationStrategy;
+import com.nxttxn.vramel.spi.AggregationRepository;
+import com.nxttxn.vramel.spi.FlowContext;
+import com.nxttxn.vramel.util.VramelContextHelper;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Represents an XML &lt;aggregate/&gt; element, its expression gives the correlation key of an exchange
+ *
+ * @version
+ */
+@XmlRootElement(name = "aggregate")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class AggregateDefinition extends ExpressionNode {
+    @XmlTransient
+    private AggregationStrategy aggregationStrategy;
+    @XmlAttribute
+    private String strategyRef;
+    @XmlTransient
+    private AggregationRepository aggregationRepository;
+    @XmlAttribute
+    private String aggregationRepositoryRef;
+    @XmlAttribute
+    private Integer completionSize;
+    @XmlAttribute
+    private Long completionTimeout;
+    @XmlAttribute
+    private Long completionInterval;
+    @XmlTransient
+    private Predicate completionPredicate;
+    @XmlAttribute
+    private Boolean forceCompletionOnStop;
+
+    public AggregateDefinition() {
+    }
+
+    public AggregateDefinition(Expression correlationExpression) {
+        super(correlationExpression);
+    }
+
+    public AggregateDefinition(ExpressionDefinition correlationExpression) {
+        super(correlationExpression);
+    }
+
+    public AggregateDefinition(Expression correlationExpression, AggregationStrategy aggregationStrategy) {
+        super(correlationExpression);
+        this.aggregationStrategy = aggregationStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return "Aggregate[" + getExpression() + " -> " + getOutputs() + "]";
+    }
+
+    @Override
+    public String getShortName() {
+        return "aggregate";
+    }
+
+    @Override
+    public String getLabel() {
+        return "aggregate[" + getExpression() + "]";
+    }
+
+    @Override
+    public Processor createProcessor(FlowContext flowContext) throws Exception {
+        Processor childProcessor = this.createChildProcessor(flowContext);
+        // the aggregated exchange is a new exchange, so it gets its own unit of work
+        childProcessor = new UnitOfWorkProcessor(flowContext, childProcessor);
+
+        AggregationStrategy strategy = getAggregationStrategy();
+        if (strategy == null && strategyRef != null) {
+            strategy = VramelContextHelper.mandatoryLookup(flowContext.getVramelContext(), strategyRef, AggregationStrategy.class);
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("AggregationStrategy or strategyRef must be set on " + this);
+        }
+
+        Expression correlation = getExpression().createExpression(flowContext);
+        AggregateProcessor answer = new AggregateProcessor(flowContext.getVramelContext(), childProcessor, correlation, strategy);
+
+        AggregationRepository repository = getAggregationRepository();
+        if (repository == null && aggregationRepositoryRef != null) {
+            repository = VramelContextHelper.mandatoryLookup(flowContext.getVramelContext(), aggregationRepositoryRef, AggregationRepository.class);
+        }
+        if (repository != null) {
+            answer.setAggregationRepository(repository);
+        }
+        if (completionSize != null) {
+            answer.setCompletionSize(completionSize);
+        }
+        if (completionTimeout != null) {
+            answer.setCompletionTimeout(completionTimeout);
+        }
+        if (completionInterval != null) {
+            answer.setCompletionInterval(completionInterval);
+        }
+        answer.setCompletionPredicate(completionPredicate);
+        answer.setForceCompletionOnStop(isForceCompletionOnStop());
+        return answer;
+    }
+
+    // Fluent API
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets the aggregation strategy to use
+     *
+     * @param aggregationStrategy the strategy
+     * @return the builder
+     */
+    public AggregateDefinition aggregationStrategy(AggregationStrategy aggregationStrategy) {
+        setAggregationStrategy(aggregationStrategy);
+        return this;
+    }
+
+    /**
+     * Sets the aggregation strategy to use
+     *
+     * @param aggregationStrategyRef reference to the strategy to lookup in the registry
+     * @return the builder
+     */
+    public AggregateDefinition aggregationStrategyRef(String aggregationStrategyRef) {
+        setStrategyRef(aggregationStrategyRef);
+        return this;
+    }
+
+    /**
+     * Sets the repository which keeps the groups being aggregated, by default they are kept in memory
+     *
+     * @param aggregationRepository the repository
+     * @return the builder
+     */
+    public AggregateDefinition aggregationRepository(AggregationRepository aggregationRepository) {
+        setAggregationRepository(aggregationRepository);
+        return this;
+    }
+
+    /**
+     * Sets the repository which keeps the groups being aggregated, by default they are kept in memory
+     *
+     * @param aggregationRepositoryRef reference to the repository to lookup in the registry
+     * @return the builder
+     */
+    public AggregateDefinition aggregationRepositoryRef(String aggregationRepositoryRef) {
+        setAggregationRepositoryRef(aggregationRepositoryRef);
+        return this;
+    }
+
+    /**
+     * Completes a group once it holds this number of exchanges
+     *
+     * @param completionSize the number of exchanges
+     * @return the builder
+     */
+    public AggregateDefinition completionSize(int completionSize) {
+        setCompletionSize(completionSize);
+        return this;
+    }
+
+    /**
+     * Completes a group once no exchange has arrived for it within the timeout
+     *
+     * @param completionTimeout timeout in millis
+     * @return the builder
+     */
+    public AggregateDefinition completionTimeout(long completionTimeout) {
+        setCompletionTimeout(completionTimeout);
+        return this;
+    }
+
+    /**
+     * Completes all the groups at this interval
+     *
+     * @param completionInterval interval in millis
+     * @return the builder
+     */
+    public AggregateDefinition completionInterval(long completionInterval) {
+        setCompletionInterval(completionInterval);
+        return this;
+    }
+
+    /**
+     * Completes a group once the predicate matches its aggregated exchange
+     *
+     * @param completionPredicate the predicate
+     * @return the builder
+     */
+    public AggregateDefinition completionPredicate(Predicate completionPredicate) {
+        setCompletionPredicate(completionPredicate);
+        return this;
+    }
+
+    /**
+     * Completes the groups which are left when the aggregator stops, instead of leaving them in the repository
+     *
+     * @return the builder
+     */
+    public AggregateDefinition forceCompletionOnStop() {
+        setForceCompletionOnStop(true);
+        return this;
+    }
+
+    // Properties
+    //-------------------------------------------------------------------------
+
+    public AggregationStrategy getAggregationStrategy() {
+        return aggregationStrategy;
+    }
+
+    public void setAggregationStrategy(AggregationStrategy aggregationStrategy) {
+        this.aggregationStrategy = aggregationStrategy;
+    }
+
+    public String getStrategyRef() {
+        return strategyRef;
+    }
+
+    public void setStrategyRef(String strategyRef) {
+        this.strategyRef = strategyRef;
+    }
+
+    public AggregationRepository getAggregationRepository() {
+        return aggregationRepository;
+    }
+
+    public void setAggregationRepository(AggregationRepository aggregationRepository) {
+        this.aggregationRepository = aggregationRepository;
+    }
+
+    public String getAggregationRepositoryRef() {
+        return aggregationRepositoryRef;
+    }
+
+    public void setAggregationRepositoryRef(String aggregationRepositoryRef) {
+        this.aggregationRepositoryRef = aggregationRepositoryRef;
+    }
+
+    public Integer getCompletionSize() {
+        return completionSize;
+    }
+
+    public void setCompletionSize(Integer completionSize) {
+        this.completionSize = completionSize;
+    }
+
+    public Long getCompletionTimeout() {
+        return completionTimeout;
+    }
+
+    public void setCompletionTimeout(Long completionTimeout) {
+        this.completionTimeout = completionTimeout;
+    }
+
+    public Long getCompletionInterval() {
+        return completionInterval;
+    }
+
+    public void setCompletionInterval(Long completionInterval) {
+        this.completionInterval = completionInterval;
+    }
+
+    public Predicate getCompletionPredicate() {
+        return completionPredicate;
+    }
+
+    public void setCompletionPredicate(Predicate completionPredicate) {
+        this.completionPredicate = completionPredicate;
+    }
+
+    public Boolean getForceCompletionOnStop() {
+        return forceCompletionOnStop;
+    }
+
+    public void setForceCompletionOnStop(Boolean forceCompletionOnStop) {
+        this.forceCompletionOnStop = forceCompletionOnStop;
+    }
+
+    public boolean isForceCompletionOnStop() {
+        return forceCompletionOnStop != null && forceCompletionOnStop;
+    }
+}
@@ -0,0 +1,300 @@
+package com.nxttxn.vramel.model;
+
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.management.MetricsRegistry;
+import com.nxttxn.vramel.processor.CircuitBreaker;
+import com.nxttxn.vramel.processor.SendProcessor;
+import com.nxttxn.vramel.spi.FlowContext;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Represents an XML &lt;circuitBreaker/&gt; element
+ *
+ * @version
+ */
+@XmlRootElement(name = "circuitBreaker")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CircuitBreakerDefinition extends OutputDefinition<CircuitBreakerDefinition> {
+    @XmlAttribute
+    private Integer slidingWindowSize;
+    @XmlAttribute
+    private Integer minimumNumberOfCalls;
+    @XmlAttribute
+    private Float failureRateThreshold;
+    @XmlAttribute
+    private Float slowCallRateThreshold;
+    @XmlAttribute
+    private Long slowCallDurationThreshold;
+    @XmlAttribute
+    private Long openDuration;
+    @XmlAttribute
+    private Integer permittedCallsInHalfOpen;
+    @XmlAttribute
+    private String fallbackUri;
+    @XmlTransient
+    private Processor fallback;
+    @XmlAttribute
+    private String eventAddress;
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + getOutputs() + "]";
+    }
+
+    @Override
+    public String getShortName() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public String getLabel() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public Processor createProcessor(FlowContext flowContext) throws Exception {
+        Processor childProcessor = this.createChildProcessor(flowContext);
+        VramelContext vramelContext = flowContext.getVramelContext();
+        String flowId = flowContext.getFlow().idOrCreate(vramelContext.getNodeIdFactory());
+        String nodeId = idOrCreate(vramelContext.getNodeIdFactory());
+
+        CircuitBreaker answer = new CircuitBreaker(vramelContext, childProcessor, flowId, nodeId);
+        if (slidingWindowSize != null) {
+            answer.setSlidingWindowSize(slidingWindowSize);
+        }
+        if (minimumNumberOfCalls != null) {
+            answer.setMinimumNumberOfCalls(minimumNumberOfCalls);
+        }
+        if (failureRateThreshold != null) {
+            answer.setFailureRateThreshold(failureRateThreshold);
+        }
+        if (slowCallRateThreshold != null) {
+            answer.setSlowCallRateThreshold(slowCallRateThreshold);
+        }
+        if (slowCallDurationThreshold != null) {
+            answer.setSlowCallDurationThreshold(slowCallDurationThreshold);
+        }
+        if (openDuration != null) {
+            answer.setOpenDuration(openDuration);
+        }
+        if (permittedCallsInHalfOpen != null) {
+            answer.setPermittedCallsInHalfOpen(permittedCallsInHalfOpen);
+        }
+        if (eventAddress != null) {
+            answer.setEventAddress(eventAddress);
+        }
+        if (fallback != null) {
+            answer.setFallback(fallback);
+        } else if (fallbackUri != null) {
+            answer.setFallback(new SendProcessor(flowContext.resolveEndpoint(fallbackUri)));
+        }
+
+        MetricsRegistry metricsRegistry = vramelContext.getMetricsRegistry();
+        if (metricsRegistry.isEnabled()) {
+            metricsRegistry.addFlowMetrics(answer.getFlowId(), CircuitBreaker.METRICS_TYPE, answer.getNodeId(), answer);
+        }
+        return answer;
+    }
+
+    // Fluent API
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets how many of the latest calls the failure and slow call rates are computed over
+     *
+     * @param slidingWindowSize the number of calls
+     * @return the builder
+     */
+    public CircuitBreakerDefinition slidingWindowSize(int slidingWindowSize) {
+        setSlidingWindowSize(slidingWindowSize);
+        return this;
+    }
+
+    /**
+     * Sets how many calls must have been made before the circuit may open
+     *
+     * @param minimumNumberOfCalls the number of calls
+     * @return the builder
+     */
+    public CircuitBreakerDefinition minimumNumberOfCalls(int minimumNumberOfCalls) {
+        setMinimumNumberOfCalls(minimumNumberOfCalls);
+        return this;
+    }
+
+    /**
+     * Sets the percentage of failed calls which opens the circuit
+     *
+     * @param failureRateThreshold the percentage
+     * @return the builder
+     */
+    public CircuitBreakerDefinition failureRateThreshold(float failureRateThreshold) {
+        setFailureRateThreshold(failureRateThreshold);
+        return this;
+    }
+
+    /**
+     * Sets the percentage of slow calls which opens the circuit
+     *
+     * @param slowCallRateThreshold the percentage
+     * @return the builder
+     */
+    public CircuitBreakerDefinition slowCallRateThreshold(float slowCallRateThreshold) {
+        setSlowCallRateThreshold(slowCallRateThreshold);
+        return this;
+    }
+
+    /**
+     * Sets how long a call may take before it counts as slow
+     *
+     * @param slowCallDurationThreshold the duration in millis
+     * @return the builder
+     */
+    public CircuitBreakerDefinition slowCallDurationThreshold(long slowCallDurationThreshold) {
+        setSlowCallDurationThreshold(slowCallDurationThreshold);
+        return this;
+    }
+
+    /**
+     * Sets how long the circuit stays open before probing the downstream again
+     *
+     * @param openDuration the duration in millis
+     * @return the builder
+     */
+    public CircuitBreakerDefinition openDuration(long openDuration) {
+        setOpenDuration(openDuration);
+        return this;
+    }
+
+    /**
+     * Sets how many probes are let through while the circuit is half open
+     *
+     * @param permittedCallsInHalfOpen the number of calls
+     * @return the builder
+     */
+    public CircuitBreakerDefinition permittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+        setPermittedCallsInHalfOpen(permittedCallsInHalfOpen);
+        return this;
+    }
+
+    /**
+     * Sends the exchanges to the endpoint while the circuit is open, instead of failing them
+     *
+     * @param fallbackUri the uri of the endpoint
+     * @return the builder
+     */
+    public CircuitBreakerDefinition fallbackUri(String fallbackUri) {
+        setFallbackUri(fallbackUri);
+        return this;
+    }
+
+    /**
+     * Sends the exchanges to the processor while the circuit is open, instead of failing them
+     *
+     * @param fallback the processor
+     * @return the builder
+     */
+    public CircuitBreakerDefinition fallback(Processor fallback) {
+        setFallback(fallback);
+        return this;
+    }
+
+    /**
+     * Sets the event bus address the changes of state are published at
+     *
+     * @param eventAddress the address
+     * @return the builder
+     */
+    public CircuitBreakerDefinition eventAddress(String eventAddress) {
+        setEventAddress(eventAddress);
+        return this;
+    }
+
+    // Properties
+    //-------------------------------------------------------------------------
+
+    public Integer getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(Integer slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public Integer getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public void setMinimumNumberOfCalls(Integer minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public Float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(Float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(Float slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Long getSlowCallDurationThreshold() {
+        return slowCallDurationThreshold;
+    }
+
+    public void setSlowCallDurationThreshold(Long slowCallDurationThreshold) {
+        this.slowCallDurationThreshold = slowCallDurationThreshold;
+    }
+
+    public Long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public Integer getPermittedCallsInHalfOpen() {
+        return permittedCallsInHalfOpen;
+    }
+
+    public void setPermittedCallsInHalfOpen(Integer permittedCallsInHalfOpen) {
+        this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+    }
+
+    public String getFallbackUri() {
+        return fallbackUri;
+    }
+
+    public void setFallbackUri(String fallbackUri) {
+        this.fallbackUri = fallbackUri;
+    }
+
+    public Processor getFallback() {
+        return fallback;
+    }
+
+    public void setFallback(Processor fallback) {
+        this.fallback = fallback;
+    }
+
+    public String getEventAddress() {
+        return eventAddress;
+    }
+
+    public void setEventAddress(String eventAddress) {
+        this.eventAddress = eventAddress;
+    }
+}
@@ -26,6 +26,8 @@ public class MulticastDefinition extends OutputDefinition<MulticastDefinition> {
     private Boolean stopOnException;
     @XmlAttribute
     private Long timeout;
+    @XmlAttribute
+    private Integer maxConcurrency;
     @XmlTransient
     private AggregationStrategy aggregationStrategy;
     @XmlAttribute
@@ -79,6 +81,14 @@ public class MulticastDefinition extends OutputDefinition<MulticastDefinition> {
         this.timeout = timeout;
     }
 
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
     public String getOnPrepareRef() {
         return onPrepareRef;
     }
@@ -178,6 +188,18 @@ public class MulticastDefinition extends OutputDefinition<MulticastDefinition> {
         return this;
     }
 
+    /**
+     * Limits how many exchanges are sent out at the same time when using parallelProcessing.
+     * The next exchange is only sent once an earlier one completes.
+     *
+     * @param maxConcurrency the maximum number of exchanges in flight
+     * @return the builder
+     */
+    public MulticastDefinition maxConcurrency(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        return this;
+    }
+
     /**
      * Shares the {@link org.apache.camel.spi.UnitOfWork} with the parent and each of the sub messages.
      *
@@ -201,7 +223,14 @@ public class MulticastDefinition extends OutputDefinition<MulticastDefinition> {
             setAggregationStrategy(new UseLatestAggregationStrategy());
         }
         long timeout = getTimeout() != null ? getTimeout() : 0;
-        return new MulticastProcessor(list, getAggregationStrategy(), isParallelProcessing(), isStreaming(), isStopOnException(), timeout, onPrepare, isShareUnitOfWork());
+        if (timeout > 0 && !isParallelProcessing()) {
+            throw new IllegalArgumentException("Timeout is used but ParallelProcessing has not been enabled.");
+        }
+        int maxConcurrency = getMaxConcurrency() != null ? getMaxConcurrency() : 0;
+        if (maxConcurrency > 0 && !isParallelProcessing()) {
+            throw new IllegalArgumentException("MaxConcurrency is used but ParallelProcessing has not been enabled.");
+        }
+        return new MulticastProcessor(list, getAggregationStrategy(), isParallelProcessing(), isStreaming(), isStopOnException(), timeout, maxConcurrency, onPrepare, isShareUnitOfWork());
     }
 
     public AggregationStrategy getAggregationStrategy() {
@@ -21,9 +21,11 @@ import com.nxttxn.vramel.builder.ErrorHandlerBuilder;
 import com.nxttxn.vramel.builder.ExpressionBuilder;
 import com.nxttxn.vramel.processor.CatchProcessor;
 import com.nxttxn.vramel.processor.FatalFallbackErrorHandler;
+import com.nxttxn.vramel.processor.RedeliveryPolicy;
 import com.nxttxn.vramel.spi.ClassResolver;
 import com.nxttxn.vramel.spi.FlowContext;
 import com.nxttxn.vramel.util.ExpressionToPredicateAdapter;
+import com.nxttxn.vramel.util.VramelContextHelper;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -68,6 +70,12 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
     @XmlTransient
     private Predicate continuedPolicy;
     @XmlTransient
+    private Predicate retryWhilePolicy;
+    @XmlTransient
+    private RedeliveryPolicy redeliveryPolicy;
+    @XmlTransient
+    private Processor onRedelivery;
+    @XmlTransient
     private Boolean flowScoped;
     // TODO: in Camel 3.0 the OnExceptionDefinition should not contain state and ErrorHandler processors
     @XmlTransient
@@ -124,6 +132,7 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
 
         setHandledFromExpressionType(flowContext);
         setContinuedFromExpressionType(flowContext);
+        setOnRedeliveryFromRedeliveryRef(flowContext);
 
 
         // load exception classes
@@ -192,7 +201,8 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
         // validate that at least some option is set as you cannot just have onException(Exception.class);
         if (outputs == null || getOutputs().isEmpty()) {
             // no outputs so there should be some sort of configuration
-            if (handledPolicy == null && continuedPolicy == null && useOriginalMessagePolicy == null) {
+            if (handledPolicy == null && continuedPolicy == null && useOriginalMessagePolicy == null
+                    && redeliveryPolicy == null && retryWhilePolicy == null) {
                 throw new IllegalArgumentException(this + " is not configured.");
             }
         }
@@ -295,6 +305,103 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
 
 
 
+    /**
+     * Sets the retry while predicate.
+     * <p/>
+     * Will continue retrying until predicate returns <tt>false</tt>. When set it is used
+     * instead of the maximum redeliveries.
+     *
+     * @param retryWhile predicate that determines when to stop retrying
+     * @return the builder
+     */
+    public OnExceptionDefinition retryWhile(Predicate retryWhile) {
+        setRetryWhilePolicy(retryWhile);
+        return this;
+    }
+
+    /**
+     * Sets the maximum redeliveries
+     * <ul>
+     *   <li>0 = no redeliveries (default)</li>
+     *   <li>-1 = redeliver forever</li>
+     * </ul>
+     *
+     * @param maximumRedeliveries the value
+     * @return the builder
+     */
+    public OnExceptionDefinition maximumRedeliveries(int maximumRedeliveries) {
+        getOrCreateRedeliveryPolicy().maximumRedeliveries(maximumRedeliveries);
+        return this;
+    }
+
+    /**
+     * Sets the initial redelivery delay
+     *
+     * @param delay delay in millis
+     * @return the builder
+     */
+    public OnExceptionDefinition redeliveryDelay(long delay) {
+        getOrCreateRedeliveryPolicy().redeliveryDelay(delay);
+        return this;
+    }
+
+    /**
+     * Sets the back off multiplier, turning on exponential back off when greater than 1
+     *
+     * @param backOffMultiplier the back off multiplier
+     * @return the builder
+     */
+    public OnExceptionDefinition backOffMultiplier(double backOffMultiplier) {
+        getOrCreateRedeliveryPolicy().backOffMultiplier(backOffMultiplier);
+        return this;
+    }
+
+    /**
+     * Sets the maximum delay between redelivery
+     *
+     * @param maximumRedeliveryDelay the delay in millis
+     * @return the builder
+     */
+    public OnExceptionDefinition maximumRedeliveryDelay(long maximumRedeliveryDelay) {
+        getOrCreateRedeliveryPolicy().maximumRedeliveryDelay(maximumRedeliveryDelay);
+        return this;
+    }
+
+    /**
+     * Sets the jitter factor used to randomly spread the redelivery delays
+     *
+     * @param jitterFactor the factor, between 0 and 1
+     * @return the builder
+     */
+    public OnExceptionDefinition jitterFactor(double jitterFactor) {
+        getOrCreateRedeliveryPolicy().jitterFactor(jitterFactor);
+        return this;
+    }
+
+    /**
+     * Sets a processor that should be processed <b>before</b> a redelivery attempt.
+     * <p/>
+     * Can be used to change the {@link com.nxttxn.vramel.Exchange} <b>before</b> its being redelivered.
+     *
+     * @param processor the processor
+     * @return the builder
+     */
+    public OnExceptionDefinition onRedelivery(Processor processor) {
+        setOnRedelivery(processor);
+        return this;
+    }
+
+    /**
+     * Sets a reference to a processor that should be processed <b>before</b> a redelivery attempt.
+     *
+     * @param ref reference to the processor
+     * @return the builder
+     */
+    public OnExceptionDefinition onRedeliveryRef(String ref) {
+        setOnRedeliveryRef(ref);
+        return this;
+    }
+
     /**
      * Will use the original input message when an {@link org.apache.camel.Exchange} is moved to the dead letter queue.
      * <p/>
@@ -388,6 +495,38 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
         this.continuedPolicy = continuedPolicy;
     }
 
+    public Predicate getRetryWhilePolicy() {
+        return retryWhilePolicy;
+    }
+
+    public void setRetryWhilePolicy(Predicate retryWhilePolicy) {
+        this.retryWhilePolicy = retryWhilePolicy;
+    }
+
+    public RedeliveryPolicy getRedeliveryPolicy() {
+        return redeliveryPolicy;
+    }
+
+    public void setRedeliveryPolicy(RedeliveryPolicy redeliveryPolicy) {
+        this.redeliveryPolicy = redeliveryPolicy;
+    }
+
+    public String getOnRedeliveryRef() {
+        return onRedeliveryRef;
+    }
+
+    public void setOnRedeliveryRef(String onRedeliveryRef) {
+        this.onRedeliveryRef = onRedeliveryRef;
+    }
+
+    public Processor getOnRedelivery() {
+        return onRedelivery;
+    }
+
+    public void setOnRedelivery(Processor onRedelivery) {
+        this.onRedelivery = onRedelivery;
+    }
+
     public WhenDefinition getOnWhen() {
         return onWhen;
     }
@@ -431,6 +570,19 @@ public class OnExceptionDefinition extends ProcessorDefinition<OnExceptionDefini
         }
     }
 
+    private RedeliveryPolicy getOrCreateRedeliveryPolicy() {
+        if (redeliveryPolicy == null) {
+            redeliveryPolicy = new RedeliveryPolicy();
+        }
+        return redeliveryPolicy;
+    }
+
+    private void setOnRedeliveryFromRedeliveryRef(FlowContext flowContext) {
+        if (onRedeliveryRef != null && onRedelivery == null) {
+            onRedelivery = VramelContextHelper.mandatoryLookup(flowContext.getVramelContext(), onRedeliveryRef, Processor.class);
+        }
+    }
+
     private void setContinuedFromExpressionType(FlowContext flowContext) {
         if (getContinued() != null && continuedPolicy == null && flowContext != null) {
             continued(getContinued().createPredicate(flowContext));
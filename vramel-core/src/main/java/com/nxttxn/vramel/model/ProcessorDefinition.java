@@ -167,6 +167,33 @@ public abstract class ProcessorDefinition<T extends ProcessorDefinition<T>> exte
         addOutput(unmarshalDefinition);
         return (T)this;
     }
+    /**
+     * Runs the marshal or unmarshal step just added on the blocking task executor of the context instead of on the
+     * event loop, for data formats which take long to parse, sign or encrypt a document.
+     *
+     * @return the builder
+     */
+    @SuppressWarnings("unchecked")
+    public T offload() {
+        ProcessorDefinition<?> last = getLastOutput();
+        if (last instanceof MarshalDefinition) {
+            ((MarshalDefinition) last).setOffload(true);
+        } else if (last instanceof UnmarshalDefinition) {
+            ((UnmarshalDefinition) last).setOffload(true);
+        } else {
+            throw new IllegalArgumentException("offload() must follow a marshal or unmarshal step, was: " + last);
+        }
+        return (T) this;
+    }
+
+    private ProcessorDefinition<?> getLastOutput() {
+        List<ProcessorDefinition<?>> outputs = getOutputs();
+        if (!blocks.isEmpty() && blocks.getLast() instanceof ProcessorDefinition) {
+            outputs = ((ProcessorDefinition<?>) blocks.getLast()).getOutputs();
+        }
+        return outputs.isEmpty() ? null : outputs.get(outputs.size() - 1);
+    }
+
     @SuppressWarnings("unchecked")
     public T toF(String uri, JsonObject config, Object... args) {
 
@@ -478,6 +505,68 @@ public abstract class ProcessorDefinition<T extends ProcessorDefinition<T>> exte
         return answer;
     }
 
+    /**
+     * <a href="http://camel.apache.org/aggregator.html">Aggregator EIP:</a>
+     * Creates an aggregator allowing you to combine a number of messages together into a single message.
+     * <p>
+     * At least one completion condition must be set on the returned definition.
+     *
+     * @param aggregationStrategy  the strategy used to combine the messages
+     * @return the expression clause builder for the expression giving the correlation key
+     */
+    public ExpressionClause<AggregateDefinition> aggregate(AggregationStrategy aggregationStrategy) {
+        AggregateDefinition answer = new AggregateDefinition();
+        answer.setAggregationStrategy(aggregationStrategy);
+        addOutput(answer);
+        return ExpressionClause.createAndSetExpression(answer);
+    }
+
+    /**
+     * <a href="http://camel.apache.org/aggregator.html">Aggregator EIP:</a>
+     * Creates an aggregator allowing you to combine a number of messages together into a single message.
+     * <p>
+     * At least one completion condition must be set on the returned definition.
+     *
+     * @param correlationExpression  the expression giving the correlation key of a message
+     * @param aggregationStrategy  the strategy used to combine the messages
+     * @return the builder
+     */
+    public AggregateDefinition aggregate(Expression correlationExpression, AggregationStrategy aggregationStrategy) {
+        AggregateDefinition answer = new AggregateDefinition(correlationExpression, aggregationStrategy);
+        addOutput(answer);
+        return answer;
+    }
+
+    /**
+     * <a href="http://camel.apache.org/throttler.html">Throttler EIP:</a>
+     * Creates a throttler allowing you to ensure that a specific endpoint does not get overloaded,
+     * or that we don't exceed an agreed SLA with some external service.
+     * <p/>
+     * Will default use a time period of 1 second, so setting the maximumRequestCount to eg 10
+     * will default ensure at most 10 messages per second.
+     *
+     * @param maximumRequestCount  the maximum messages
+     * @return the builder
+     */
+    public ThrottleDefinition throttle(long maximumRequestCount) {
+        ThrottleDefinition answer = new ThrottleDefinition(maximumRequestCount);
+        addOutput(answer);
+        return answer;
+    }
+
+    /**
+     * <a href="http://camel.apache.org/circuitbreaker-eip.html">Circuit Breaker EIP:</a>
+     * Creates a circuit breaker around the outputs which follow, which fails exchanges fast, or sends them to a
+     * fallback, while the downstream keeps failing or answering slowly.
+     *
+     * @return the builder
+     */
+    public CircuitBreakerDefinition circuitBreaker() {
+        CircuitBreakerDefinition answer = new CircuitBreakerDefinition();
+        addOutput(answer);
+        return answer;
+    }
+
 
 
     /**
@@ -58,6 +58,8 @@ public class SplitDefinition extends ExpressionNode {
     @XmlAttribute
     private Long timeout;
     @XmlAttribute
+    private Integer maxConcurrency;
+    @XmlAttribute
     private String onPrepareRef;
     @XmlTransient
     private Processor onPrepare;
@@ -100,6 +102,10 @@ public class SplitDefinition extends ExpressionNode {
         if (timeout > 0 && !isParallelProcessing()) {
             throw new IllegalArgumentException("Timeout is used but ParallelProcessing has not been enabled.");
         }
+        int maxConcurrency = getMaxConcurrency() != null ? getMaxConcurrency() : 0;
+        if (maxConcurrency > 0 && !isParallelProcessing()) {
+            throw new IllegalArgumentException("MaxConcurrency is used but ParallelProcessing has not been enabled.");
+        }
         if (onPrepareRef != null) {
             onPrepare = VramelContextHelper.mandatoryLookup(flowContext.getVramelContext(), onPrepareRef, Processor.class);
         }
@@ -108,7 +114,7 @@ public class SplitDefinition extends ExpressionNode {
 
         Splitter answer = new Splitter(exp, childProcessor, aggregationStrategy,
                 isParallelProcessing(), isStreaming(), isStopOnException(),
-                timeout, onPrepare, isShareUnitOfWork());
+                timeout, maxConcurrency, onPrepare, isShareUnitOfWork());
         if (isShareUnitOfWork()) {
             // wrap answer in a sub unit of work, since we share the unit of work
             return new SubUnitOfWorkProcessor(answer);
@@ -226,6 +232,18 @@ public class SplitDefinition extends ExpressionNode {
         return this;
     }
 
+    /**
+     * Limits how many parts are sent out at the same time when using parallelProcessing.
+     * The next part is only sent once an earlier one completes.
+     *
+     * @param maxConcurrency the maximum number of parts in flight
+     * @return the builder
+     */
+    public SplitDefinition maxConcurrency(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        return this;
+    }
+
     /**
      * Shares the {@link org.apache.camel.spi.UnitOfWork} with the parent and each of the sub messages.
      *
@@ -270,8 +288,9 @@ public class SplitDefinition extends ExpressionNode {
 
     /**
      * The splitter should use streaming -- exchanges are being sent as the data for them becomes available.
-     * This improves throughput and memory usage, but it has a drawback:
-     * - the sent exchanges will no longer contain the {@link org.apache.camel.Exchange#SPLIT_SIZE} header property
+     * Only a bounded number of parts are in flight at once, so memory usage does not grow with the size of the
+     * input, but it has a drawback:
+     * - only the last split exchange contains the {@link com.nxttxn.vramel.Exchange#SPLIT_SIZE} property
      *
      * @return whether or not streaming should be used
      */
@@ -317,6 +336,14 @@ public class SplitDefinition extends ExpressionNode {
         this.timeout = timeout;
     }
 
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
     public String getOnPrepareRef() {
         return onPrepareRef;
     }
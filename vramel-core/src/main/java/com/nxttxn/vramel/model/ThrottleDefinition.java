@@ -0,0 +1,174 @@
+package com.nxttxn.vramel.model;
+
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.ThreadPoolRejectedPolicy;
+import com.nxttxn.vramel.processor.Throttler;
+import com.nxttxn.vramel.spi.FlowContext;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Represents an XML &lt;throttle/&gt; element
+ *
+ * @version
+ */
+@XmlRootElement(name = "throttle")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ThrottleDefinition extends OutputDefinition<ThrottleDefinition> {
+    @XmlAttribute
+    private Long maxRequestsPerPeriod;
+    @XmlAttribute
+    private Long timePeriodMillis;
+    @XmlTransient
+    private Expression correlationExpression;
+    @XmlAttribute
+    private Integer maxQueueSize;
+    @XmlAttribute
+    private ThreadPoolRejectedPolicy rejectedPolicy;
+
+    public ThrottleDefinition() {
+    }
+
+    public ThrottleDefinition(long maxRequestsPerPeriod) {
+        this.maxRequestsPerPeriod = maxRequestsPerPeriod;
+    }
+
+    @Override
+    public String toString() {
+        return "Throttle[" + maxRequestsPerPeriod + " per " + getTimePeriodMillis() + " millis -> " + getOutputs() + "]";
+    }
+
+    @Override
+    public String getShortName() {
+        return "throttle";
+    }
+
+    @Override
+    public String getLabel() {
+        return "throttle[" + maxRequestsPerPeriod + " per " + getTimePeriodMillis() + " millis]";
+    }
+
+    @Override
+    public Processor createProcessor(FlowContext flowContext) throws Exception {
+        Processor childProcessor = this.createChildProcessor(flowContext);
+        if (maxRequestsPerPeriod == null) {
+            throw new IllegalArgumentException("MaxRequestsPerPeriod must be set on " + this);
+        }
+
+        Throttler answer = new Throttler(flowContext.getVramelContext(), childProcessor, maxRequestsPerPeriod,
+                getTimePeriodMillis(), correlationExpression);
+        if (maxQueueSize != null) {
+            answer.setMaxQueueSize(maxQueueSize);
+        }
+        if (rejectedPolicy != null) {
+            answer.setRejectedPolicy(rejectedPolicy);
+        }
+        return answer;
+    }
+
+    // Fluent API
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets the time period during which the maximum request count is valid for
+     *
+     * @param timePeriodMillis period in millis
+     * @return the builder
+     */
+    public ThrottleDefinition timePeriodMillis(long timePeriodMillis) {
+        setTimePeriodMillis(timePeriodMillis);
+        return this;
+    }
+
+    /**
+     * Sets the time period maximum request count
+     *
+     * @param maxRequestsPerPeriod the maximum request count
+     * @return the builder
+     */
+    public ThrottleDefinition maximumRequestsPerPeriod(long maxRequestsPerPeriod) {
+        setMaxRequestsPerPeriod(maxRequestsPerPeriod);
+        return this;
+    }
+
+    /**
+     * Throttles each value of the expression on its own, such as each partner
+     *
+     * @param correlationExpression the expression giving the key to throttle by
+     * @return the builder
+     */
+    public ThrottleDefinition correlationExpression(Expression correlationExpression) {
+        setCorrelationExpression(correlationExpression);
+        return this;
+    }
+
+    /**
+     * Sets how many exchanges may wait for their turn, per key
+     *
+     * @param maxQueueSize the number of exchanges
+     * @return the builder
+     */
+    public ThrottleDefinition maxQueueSize(int maxQueueSize) {
+        setMaxQueueSize(maxQueueSize);
+        return this;
+    }
+
+    /**
+     * Sets what to do with an exchange when the queue is full, <tt>Abort</tt> by default
+     *
+     * @param rejectedPolicy the policy
+     * @return the builder
+     */
+    public ThrottleDefinition rejectedPolicy(ThreadPoolRejectedPolicy rejectedPolicy) {
+        setRejectedPolicy(rejectedPolicy);
+        return this;
+    }
+
+    // Properties
+    //-------------------------------------------------------------------------
+
+    public Long getMaxRequestsPerPeriod() {
+        return maxRequestsPerPeriod;
+    }
+
+    public void setMaxRequestsPerPeriod(Long maxRequestsPerPeriod) {
+        this.maxRequestsPerPeriod = maxRequestsPerPeriod;
+    }
+
+    public long getTimePeriodMillis() {
+        return timePeriodMillis != null ? timePeriodMillis : 1000L;
+    }
+
+    public void setTimePeriodMillis(Long timePeriodMillis) {
+        this.timePeriodMillis = timePeriodMillis;
+    }
+
+    public Expression getCorrelationExpression() {
+        return correlationExpression;
+    }
+
+    public void setCorrelationExpression(Expression correlationExpression) {
+        this.correlationExpression = correlationExpression;
+    }
+
+    public Integer getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(Integer maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public ThreadPoolRejectedPolicy getRejectedPolicy() {
+        return rejectedPolicy;
+    }
+
+    public void setRejectedPolicy(ThreadPoolRejectedPolicy rejectedPolicy) {
+        this.rejectedPolicy = rejectedPolicy;
+    }
+}
@@ -3,6 +3,7 @@ package com.nxttxn.vramel.model;
 import com.nxttxn.vramel.AsyncProcessor;
 import com.nxttxn.vramel.Processor;
 import com.nxttxn.vramel.processor.UnmarshalProcessor;
+import com.nxttxn.vramel.processor.OffloadProcessor;
 import com.nxttxn.vramel.spi.DataFormat;
 import com.nxttxn.vramel.spi.FlowContext;
 
@@ -15,6 +16,7 @@ import com.nxttxn.vramel.spi.FlowContext;
  */
 public class UnmarshalDefinition extends NoOutputDefinition<UnmarshalDefinition> {
     private final DataFormatDefinition dataFormatType;
+    private boolean offload;
 
     public UnmarshalDefinition(DataFormatDefinition dataFormatType) {
         this.dataFormatType = dataFormatType;
@@ -23,6 +25,21 @@ public class UnmarshalDefinition extends NoOutputDefinition<UnmarshalDefinition>
     @Override
     public Processor createProcessor(FlowContext flowContext) throws Exception {
         DataFormat dataFormat = dataFormatType.getDataFormat(flowContext);
-        return new UnmarshalProcessor(dataFormat);
+        UnmarshalProcessor answer = new UnmarshalProcessor(dataFormat);
+        if (offload) {
+            return new OffloadProcessor(flowContext.getVramelContext(), answer);
+        }
+        return answer;
+    }
+
+    public boolean isOffload() {
+        return offload;
+    }
+
+    /**
+     * Sets whether the data format runs on the blocking task executor of the context instead of on the event loop
+     */
+    public void setOffload(boolean offload) {
+        this.offload = offload;
     }
 }
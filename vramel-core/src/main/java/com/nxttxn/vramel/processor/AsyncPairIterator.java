@@ -0,0 +1,38 @@
+package com.nxttxn.vramel.processor;
+
+import java.util.Iterator;
+
+/**
+ * Pairs which arrive over time, such as the parts of a stream being split.
+ * <p/>
+ * {@link #hasNext()} is true while more pairs may still arrive, but {@link #next()} may only be called when
+ * {@link #isAvailable()}; the listener is called whenever a pair arrives, the source ends or it fails.
+ */
+abstract class AsyncPairIterator implements Iterator<ProcessorExchangePair> {
+    private Runnable listener;
+
+    /**
+     * @return true when {@link #next()} can be called without waiting
+     */
+    abstract boolean isAvailable();
+
+    /**
+     * @return the failure of the source, <tt>null</tt> while it is healthy
+     */
+    abstract Exception getFailure();
+
+    void listen(Runnable listener) {
+        this.listener = listener;
+    }
+
+    protected void signal() {
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Remove is not supported by this iterator");
+    }
+}
@@ -0,0 +1,423 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.management.MetricsSource;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.AsyncProcessorConverterHelper;
+import com.nxttxn.vramel.util.AsyncProcessorHelper;
+import com.nxttxn.vramel.util.ServiceHelper;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.nxttxn.vramel.util.ObjectHelper.notNull;
+
+/**
+ * Guards a downstream, typically a producer, with a circuit breaker.
+ * <p/>
+ * The outcome of the last {@link #setSlidingWindowSize slidingWindowSize} calls is kept; once at least
+ * {@link #setMinimumNumberOfCalls minimumNumberOfCalls} of them were made and the share which failed, or which took
+ * longer than {@link #setSlowCallDurationThreshold slowCallDurationThreshold}, reaches its threshold, the circuit
+ * opens. While it is open exchanges are not sent downstream: they fail at once with a
+ * {@link RejectedExecutionException}, or go to the fallback processor when there is one. After
+ * {@link #setOpenDuration openDuration} the circuit is half open and lets
+ * {@link #setPermittedCallsInHalfOpen permittedCallsInHalfOpen} probes through; it closes again if they are
+ * below the thresholds and opens again otherwise.
+ * <p/>
+ * Every change of state is logged and published as a json event on the Vert.x event bus, at
+ * {@link #DEFAULT_EVENT_ADDRESS} unless another address is set.
+ */
+public class CircuitBreaker extends DelegateAsyncProcessor implements CircuitBreakerMBean, MetricsSource {
+    public static final String METRICS_TYPE = "circuitBreakers";
+
+    public static final String DEFAULT_EVENT_ADDRESS = "vramel.circuitBreaker";
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final VramelContext vramelContext;
+    private final String flowId;
+    private final String nodeId;
+    private AsyncProcessor fallback;
+    private String eventAddress = DEFAULT_EVENT_ADDRESS;
+    private int slidingWindowSize = 100;
+    private int minimumNumberOfCalls = 10;
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 100;
+    private long slowCallDurationThreshold = 10000;
+    private long openDuration = 30000;
+    private int permittedCallsInHalfOpen = 5;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int generation;
+    private boolean[] failedCalls;
+    private boolean[] slowCalls;
+    private int next;
+    private int calls;
+    private int failed;
+    private int slow;
+    private long openedAt;
+    private int halfOpenPermits;
+
+    private final AtomicLong callsPermitted = new AtomicLong();
+    private final AtomicLong callsRejected = new AtomicLong();
+    private final AtomicLong callsFailed = new AtomicLong();
+    private final AtomicLong callsSlow = new AtomicLong();
+    private final AtomicLong stateTransitions = new AtomicLong();
+
+    public CircuitBreaker(VramelContext vramelContext, Processor processor, String flowId, String nodeId) {
+        super(processor);
+        notNull(vramelContext, "vramelContext");
+        this.vramelContext = vramelContext;
+        this.flowId = flowId;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + nodeId + " -> " + processor + "]";
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        final int callGeneration;
+        final State current;
+        final State observed;
+        synchronized (this) {
+            current = acquirePermission();
+            callGeneration = generation;
+            observed = state;
+        }
+
+        if (current == null) {
+            callsRejected.incrementAndGet();
+            exchange.setProperty(Exchange.CIRCUIT_BREAKER_STATE, observed.name());
+            if (fallback != null) {
+                return fallback.process(exchange, optionalAsyncResultHandler);
+            }
+            exchange.setException(new RejectedExecutionException("[CircuitBreaker-" + nodeId + "] is open, rejecting exchange"));
+            optionalAsyncResultHandler.done(exchange);
+            return true;
+        }
+
+        callsPermitted.incrementAndGet();
+        final long start = System.nanoTime();
+        try {
+            return processNext(exchange, new OptionalAsyncResultHandler() {
+                @Override
+                public void handle(AsyncExchangeResult result) {
+                    onCallCompleted(callGeneration, result.failed(), System.nanoTime() - start);
+                    optionalAsyncResultHandler.handle(result);
+                }
+            });
+        } catch (Exception e) {
+            onCallCompleted(callGeneration, true, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the state the call goes through in, <tt>null</tt> if it is rejected
+     */
+    private State acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(openDuration)) {
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return null;
+            }
+            halfOpenPermits--;
+        }
+        return state;
+    }
+
+    private void onCallCompleted(int callGeneration, boolean callFailed, long nanos) {
+        final boolean callSlow = nanos >= TimeUnit.MILLISECONDS.toNanos(slowCallDurationThreshold);
+        if (callFailed) {
+            callsFailed.incrementAndGet();
+        }
+        if (callSlow) {
+            callsSlow.incrementAndGet();
+        }
+
+        synchronized (this) {
+            if (callGeneration != generation) {
+                // the call started before the circuit last changed state
+                return;
+            }
+            record(callFailed, callSlow);
+            if (state == State.CLOSED) {
+                if (calls >= minimumNumberOfCalls && isOverThresholds()) {
+                    transitionTo(State.OPEN);
+                }
+            } else if (state == State.HALF_OPEN && calls >= Math.min(permittedCallsInHalfOpen, slidingWindowSize)) {
+                transitionTo(isOverThresholds() ? State.OPEN : State.CLOSED);
+            }
+        }
+    }
+
+    private void record(boolean callFailed, boolean callSlow) {
+        if (failedCalls == null || failedCalls.length != slidingWindowSize) {
+            failedCalls = new boolean[slidingWindowSize];
+            slowCalls = new boolean[slidingWindowSize];
+            next = 0;
+            calls = 0;
+            failed = 0;
+            slow = 0;
+        }
+        if (calls == slidingWindowSize) {
+            // forget the oldest call
+            failed -= failedCalls[next] ? 1 : 0;
+            slow -= slowCalls[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failedCalls[next] = callFailed;
+        slowCalls[next] = callSlow;
+        failed += callFailed ? 1 : 0;
+        slow += callSlow ? 1 : 0;
+        next = (next + 1) % slidingWindowSize;
+    }
+
+    private boolean isOverThresholds() {
+        return failed * 100f / calls >= failureRateThreshold || slow * 100f / calls >= slowCallRateThreshold;
+    }
+
+    private void transitionTo(State target) {
+        final State from = state;
+        final float failureRate = getFailureRate();
+        final float slowCallRate = getSlowCallRate();
+        state = target;
+        generation++;
+        next = 0;
+        calls = 0;
+        failed = 0;
+        slow = 0;
+        if (failedCalls != null) {
+            failedCalls = new boolean[slidingWindowSize];
+            slowCalls = new boolean[slidingWindowSize];
+        }
+        if (target == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (target == State.HALF_OPEN) {
+            halfOpenPermits = permittedCallsInHalfOpen;
+        }
+        stateTransitions.incrementAndGet();
+
+        if (target == State.OPEN) {
+            logger.warn("[CircuitBreaker-{}] Opened, failure rate {}% and slow call rate {}%", new Object[]{nodeId, failureRate, slowCallRate});
+        } else {
+            logger.info("[CircuitBreaker-{}] {} -> {}", new Object[]{nodeId, from, target});
+        }
+        if (eventAddress != null) {
+            vramelContext.getVertx().eventBus().publish(eventAddress, new JsonObject()
+                    .putString("flowId", flowId)
+                    .putString("nodeId", nodeId)
+                    .putString("from", from.name())
+                    .putString("to", target.name())
+                    .putNumber("failureRate", failureRate)
+                    .putNumber("slowCallRate", slowCallRate)
+                    .putNumber("timestamp", System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        ServiceHelper.startService(fallback);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        ServiceHelper.stopService(fallback);
+        super.doStop();
+    }
+
+    public synchronized State getCurrentState() {
+        return state;
+    }
+
+    public String getFlowId() {
+        return flowId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public synchronized String getState() {
+        return state.name();
+    }
+
+    public synchronized float getFailureRate() {
+        return calls == 0 ? 0 : failed * 100f / calls;
+    }
+
+    public synchronized float getSlowCallRate() {
+        return calls == 0 ? 0 : slow * 100f / calls;
+    }
+
+    public long getCallsPermitted() {
+        return callsPermitted.get();
+    }
+
+    public long getCallsRejected() {
+        return callsRejected.get();
+    }
+
+    public long getCallsFailed() {
+        return callsFailed.get();
+    }
+
+    public long getCallsSlow() {
+        return callsSlow.get();
+    }
+
+    public long getStateTransitions() {
+        return stateTransitions.get();
+    }
+
+    @Override
+    public synchronized JsonObject toJson() {
+        return new JsonObject()
+                .putString("nodeId", nodeId)
+                .putString("state", state.name())
+                .putNumber("failureRate", getFailureRate())
+                .putNumber("slowCallRate", getSlowCallRate())
+                .putNumber("callsPermitted", callsPermitted.get())
+                .putNumber("callsRejected", callsRejected.get())
+                .putNumber("callsFailed", callsFailed.get())
+                .putNumber("callsSlow", callsSlow.get())
+                .putNumber("stateTransitions", stateTransitions.get());
+    }
+
+    public String dumpStatsAsJson() {
+        return toJson().encode();
+    }
+
+    public synchronized void reset() {
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        } else {
+            failedCalls = null;
+            slowCalls = null;
+            next = 0;
+            calls = 0;
+            failed = 0;
+            slow = 0;
+        }
+    }
+
+    public AsyncProcessor getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Sets the processor exchanges go to while the circuit is open, instead of failing.
+     */
+    public void setFallback(Processor fallback) {
+        this.fallback = fallback == null ? null : AsyncProcessorConverterHelper.convert(fallback);
+    }
+
+    public String getEventAddress() {
+        return eventAddress;
+    }
+
+    /**
+     * Sets the event bus address the changes of state are published at, <tt>null</tt> to not publish them.
+     */
+    public void setEventAddress(String eventAddress) {
+        this.eventAddress = eventAddress;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        if (slidingWindowSize <= 0) {
+            throw new IllegalArgumentException("SlidingWindowSize must be a positive number, was: " + slidingWindowSize);
+        }
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Sets the percentage of failed calls which opens the circuit.
+     */
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * Sets the percentage of slow calls which opens the circuit.
+     */
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDurationThreshold() {
+        return slowCallDurationThreshold;
+    }
+
+    /**
+     * Sets how long a call may take before it counts as slow, in millis.
+     */
+    public void setSlowCallDurationThreshold(long slowCallDurationThreshold) {
+        this.slowCallDurationThreshold = slowCallDurationThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Sets how long the circuit stays open before it lets probes through, in millis.
+     */
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getPermittedCallsInHalfOpen() {
+        return permittedCallsInHalfOpen;
+    }
+
+    public void setPermittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+        if (permittedCallsInHalfOpen <= 0) {
+            throw new IllegalArgumentException("PermittedCallsInHalfOpen must be a positive number, was: " + permittedCallsInHalfOpen);
+        }
+        this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+    }
+}
@@ -0,0 +1,34 @@
+package com.nxttxn.vramel.processor;
+
+/**
+ * JMX view of a {@link CircuitBreaker}.
+ */
+public interface CircuitBreakerMBean {
+
+    String getFlowId();
+
+    String getNodeId();
+
+    String getState();
+
+    float getFailureRate();
+
+    float getSlowCallRate();
+
+    long getCallsPermitted();
+
+    long getCallsRejected();
+
+    long getCallsFailed();
+
+    long getCallsSlow();
+
+    long getStateTransitions();
+
+    String dumpStatsAsJson();
+
+    /**
+     * Closes the circuit and forgets the calls recorded so far.
+     */
+    void reset();
+}
@@ -23,12 +23,17 @@ import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
 import com.nxttxn.vramel.processor.exceptionpolicy.ExceptionPolicyStrategy;
 import com.nxttxn.vramel.spi.UnitOfWork;
 import com.nxttxn.vramel.util.*;
+import org.vertx.java.core.Handler;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
 /**
  * Default error handler
+ * <p/>
+ * Failed exchanges are redelivered according to the {@link RedeliveryPolicy} of the matching
+ * onException, or of this error handler, before they are handed to the failure processor.
+ * Redeliveries are scheduled with Vert.x timers so no thread is ever put to sleep.
  */
 public class DefaultErrorHandler extends ErrorHandlerSupport {
 
@@ -37,6 +42,9 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
     protected final AsyncProcessor outputAsync;
     private final VramelLogger logger;
     private final ExceptionPolicyStrategy exceptionPolicyStrategy;
+    private final RedeliveryPolicy redeliveryPolicy;
+    private final Predicate retryWhile;
+    private final Processor onRedelivery;
 
     /**
      * Creates the default error handler.
@@ -48,12 +56,31 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
      */
     public DefaultErrorHandler(VramelContext vramelContext, Processor output, VramelLogger logger,
                                ExceptionPolicyStrategy exceptionPolicyStrategy) {
+        this(vramelContext, output, logger, exceptionPolicyStrategy, new RedeliveryPolicy(), null, null);
+    }
+
+    /**
+     * Creates the default error handler.
+     *
+     * @param vramelContext           the camel context
+     * @param output                  outer processor that should use this default error handler
+     * @param logger                  logger to use for logging failures and redelivery attempts
+     * @param exceptionPolicyStrategy strategy for onException handling
+     * @param redeliveryPolicy        policy for redelivery when no onException provides one
+     * @param retryWhile              retry while predicate when no onException provides one
+     * @param onRedelivery            processor invoked before every redelivery when no onException provides one
+     */
+    public DefaultErrorHandler(VramelContext vramelContext, Processor output, VramelLogger logger,
+                               ExceptionPolicyStrategy exceptionPolicyStrategy, RedeliveryPolicy redeliveryPolicy,
+                               Predicate retryWhile, Processor onRedelivery) {
         this.vramelContext = vramelContext;
         this.output = output;
         this.outputAsync = AsyncProcessorConverterHelper.convert(output);
         this.logger = logger;
         this.exceptionPolicyStrategy = exceptionPolicyStrategy;
-
+        this.redeliveryPolicy = redeliveryPolicy != null ? redeliveryPolicy : new RedeliveryPolicy();
+        this.retryWhile = retryWhile;
+        this.onRedelivery = onRedelivery;
 
         setExceptionPolicy(exceptionPolicyStrategy);
     }
@@ -84,6 +111,10 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
     @Override
     public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
         checkNotNull(outputAsync);
+        return deliver(exchange, optionalAsyncResultHandler, new RedeliveryData());
+    }
+
+    private boolean deliver(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler, final RedeliveryData data) {
         try {
             return outputAsync.process(exchange, new OptionalAsyncResultHandler() {
                 @Override
@@ -92,7 +123,7 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
                     final Exchange response = optionalAsyncResult.result.get();
                     if (optionalAsyncResult.failed()) {
                         final Exception exception = response.getException();
-                        handleProcessorException(exception, exchange, optionalAsyncResultHandler);
+                        handleProcessorException(exception, exchange, optionalAsyncResultHandler, data);
                         return;
                     }
 
@@ -100,18 +131,27 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
                 }
             });
         } catch (Exception e) {
-            handleProcessorException(e, exchange, optionalAsyncResultHandler);
+            handleProcessorException(e, exchange, optionalAsyncResultHandler, data);
         }
         return false;
     }
 
-    private void handleProcessorException(Exception exception, Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) {
-        log.error("[DefaultErrorHandler] Exception invoking processor. Most likely an uncaught exception inside the processor.", exception);
+    private void handleProcessorException(Exception exception, Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler, RedeliveryData data) {
         exchange.setException(exception);
         // store the original caused exception in a property, so we can restore it later
         exchange.setProperty(Exchange.EXCEPTION_CAUGHT, exception);
 
         final OnExceptionDefinition exceptionPolicy = getExceptionPolicy(exchange, exchange.getException());
+        final RedeliveryPolicy policy = getRedeliveryPolicy(exceptionPolicy);
+        if (policy.shouldRedeliver(exchange, data.redeliveryCounter + 1, getRetryWhile(exceptionPolicy))) {
+            scheduleRedelivery(exchange, optionalAsyncResultHandler, data, policy, getOnRedelivery(exceptionPolicy));
+            return;
+        }
+
+        log.error("[DefaultErrorHandler] Exception invoking processor. Most likely an uncaught exception inside the processor.", exception);
+        if (data.redeliveryCounter > 0) {
+            exchange.setProperty(Exchange.REDELIVERY_EXHAUSTED, Boolean.TRUE);
+        }
         Processor processor = getFailureProcessor(exchange, exchange.getUnitOfWork(), exceptionPolicy);
         try {
             deliveryToFailureProcessor(processor, exceptionPolicy, exchange, optionalAsyncResultHandler);
@@ -121,6 +161,94 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
         }
     }
 
+    private void scheduleRedelivery(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler, final RedeliveryData data,
+                                    final RedeliveryPolicy policy, final Processor onRedeliveryProcessor) {
+        data.redeliveryCounter++;
+        data.redeliveryDelay = policy.calculateRedeliveryDelay(data.redeliveryDelay, data.redeliveryCounter);
+        final long delay = policy.applyJitter(data.redeliveryDelay);
+        log.debug("Failed delivery for exchangeId: {}. On delivery attempt: {} caught: {}. Redelivering in {} millis.",
+                new Object[]{exchange.getExchangeId(), data.redeliveryCounter, exchange.getException(), delay});
+
+        prepareExchangeForRedelivery(exchange, data, policy, delay);
+
+        if (delay > 0) {
+            vramelContext.getVertx().setTimer(delay, new Handler<Long>() {
+                @Override
+                public void handle(Long event) {
+                    redeliver(exchange, optionalAsyncResultHandler, data, onRedeliveryProcessor);
+                }
+            });
+        } else {
+            // still go through the event loop so a failing flow cannot recurse on the stack
+            vramelContext.getVertx().runOnLoop(new Handler<Void>() {
+                @Override
+                public void handle(Void event) {
+                    redeliver(exchange, optionalAsyncResultHandler, data, onRedeliveryProcessor);
+                }
+            });
+        }
+    }
+
+    private void redeliver(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler, final RedeliveryData data, Processor onRedeliveryProcessor) {
+        if (onRedeliveryProcessor == null) {
+            deliver(exchange, optionalAsyncResultHandler, data);
+            return;
+        }
+
+        log.trace("Redelivery processor {} is processing Exchange: {} before its redelivered", onRedeliveryProcessor, exchange);
+        try {
+            AsyncProcessorConverterHelper.convert(onRedeliveryProcessor).process(exchange, new OptionalAsyncResultHandler() {
+                @Override
+                public void handle(AsyncExchangeResult optionalAsyncResult) {
+                    if (optionalAsyncResult.failed()) {
+                        // the redelivery processor failed so give up
+                        optionalAsyncResultHandler.done(exchange);
+                        return;
+                    }
+                    deliver(exchange, optionalAsyncResultHandler, data);
+                }
+            });
+        } catch (Exception e) {
+            exchange.setException(e);
+            optionalAsyncResultHandler.done(exchange);
+        }
+    }
+
+    private void prepareExchangeForRedelivery(Exchange exchange, RedeliveryData data, RedeliveryPolicy policy, long delay) {
+        // okay we will give it another go so clear the exception so we can try again
+        exchange.setException(null);
+        exchange.removeProperty(Exchange.FAILURE_HANDLED);
+        exchange.removeProperty(Exchange.ERRORHANDLER_HANDLED);
+
+        exchange.getIn().setHeader(Exchange.REDELIVERED, Boolean.TRUE);
+        exchange.getIn().setHeader(Exchange.REDELIVERY_COUNTER, data.redeliveryCounter);
+        exchange.getIn().setHeader(Exchange.REDELIVERY_DELAY, delay);
+        if (policy.getMaximumRedeliveries() > 0) {
+            exchange.getIn().setHeader(Exchange.REDELIVERY_MAX_COUNTER, policy.getMaximumRedeliveries());
+        }
+    }
+
+    private RedeliveryPolicy getRedeliveryPolicy(OnExceptionDefinition exceptionPolicy) {
+        if (exceptionPolicy != null && exceptionPolicy.getRedeliveryPolicy() != null) {
+            return exceptionPolicy.getRedeliveryPolicy();
+        }
+        return redeliveryPolicy;
+    }
+
+    private Predicate getRetryWhile(OnExceptionDefinition exceptionPolicy) {
+        if (exceptionPolicy != null && exceptionPolicy.getRetryWhilePolicy() != null) {
+            return exceptionPolicy.getRetryWhilePolicy();
+        }
+        return retryWhile;
+    }
+
+    private Processor getOnRedelivery(OnExceptionDefinition exceptionPolicy) {
+        if (exceptionPolicy != null && exceptionPolicy.getOnRedelivery() != null) {
+            return exceptionPolicy.getOnRedelivery();
+        }
+        return onRedelivery;
+    }
+
     private Processor getFailureProcessor(Exchange exchange, UnitOfWork uow, OnExceptionDefinition exceptionPolicy) {
         if (exceptionPolicy == null) {
             return null;
@@ -178,7 +306,7 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
             // store the last to endpoint as the failure endpoint
             exchange.setProperty(Exchange.FAILURE_ENDPOINT, exchange.getProperty(Exchange.TO_ENDPOINT));
             // and store the route id so we know in which route we failed
-            if (exchange.getUnitOfWork().getFlowContext() != null) {
+            if (exchange.getUnitOfWork() != null && exchange.getUnitOfWork().getFlowContext() != null) {
                 exchange.setProperty(Exchange.FAILURE_ROUTE_ID, exchange.getUnitOfWork().getFlowContext().getFlow().getId());
             }
 
@@ -243,7 +371,7 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
             // and put failure endpoint back as well
             exchange.setProperty(Exchange.FAILURE_ENDPOINT, exchange.getProperty(Exchange.TO_ENDPOINT));
             // and store the route id so we know in which route we failed
-            if (exchange.getUnitOfWork().getFlowContext() != null) {
+            if (exchange.getUnitOfWork() != null && exchange.getUnitOfWork().getFlowContext() != null) {
                 exchange.setProperty(Exchange.FAILURE_ROUTE_ID, exchange.getUnitOfWork().getFlowContext().getFlow().getId());
             }
         }
@@ -292,6 +420,18 @@ public class DefaultErrorHandler extends ErrorHandlerSupport {
         return exceptionPolicy.getExceptionPolicy(exceptionPolicies, exchange, exception);
     }
 
+    public RedeliveryPolicy getRedeliveryPolicy() {
+        return redeliveryPolicy;
+    }
+
+    /**
+     * Redelivery state for a single exchange, kept across the asynchronous attempts.
+     */
+    private static final class RedeliveryData {
+        int redeliveryCounter;
+        long redeliveryDelay;
+    }
+
     @Override
     protected void doStart() throws Exception {
         ServiceHelper.startServices(output, outputAsync);
@@ -5,16 +5,22 @@ import com.nxttxn.vramel.AsyncProcessor;
 import com.nxttxn.vramel.Exchange;
 import com.nxttxn.vramel.Navigate;
 import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.RuntimeVramelException;
 import com.nxttxn.vramel.processor.aggregate.AggregationStrategy;
+import com.nxttxn.vramel.processor.aggregate.TimeoutAwareAggregationStrategy;
 import com.nxttxn.vramel.processor.async.*;
 import com.nxttxn.vramel.support.MulticastSupport;
 import com.nxttxn.vramel.util.AsyncProcessorConverterHelper;
 import com.nxttxn.vramel.util.AsyncProcessorHelper;
+import org.vertx.java.core.Handler;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -26,10 +32,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class MulticastProcessor extends MulticastSupport implements AsyncProcessor, Navigate<Processor> {
 
+    /**
+     * How many pairs may be in flight at once when streaming in parallel without a max concurrency.
+     */
+    public static final int DEFAULT_STREAMING_WINDOW = 100;
+
     public MulticastProcessor(Collection<Processor> processors, AggregationStrategy aggregationStrategy, Boolean parallelProcessing, boolean streaming, boolean stopOnException, long timeout, Processor onPrepare, boolean shareUnitOfWork) {
         super(processors, aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, onPrepare, shareUnitOfWork);
     }
 
+    public MulticastProcessor(Collection<Processor> processors, AggregationStrategy aggregationStrategy, Boolean parallelProcessing, boolean streaming, boolean stopOnException, long timeout, int maxConcurrency, Processor onPrepare, boolean shareUnitOfWork) {
+        super(processors, aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, maxConcurrency, onPrepare, shareUnitOfWork);
+    }
+
     public MulticastProcessor(List<Processor> processors) {
         super(processors);
     }
@@ -49,7 +64,9 @@ public class MulticastProcessor extends MulticastSupport implements AsyncProcess
 
         final Iterable<ProcessorExchangePair> pairs = createProcessorExchangePairs(exchange);
 
-        if (isParallelProcessing()) {
+        if (isStreaming()) {
+            doStreaming(exchange, result, pairs, optionalAsyncResultHandler);
+        } else if (isParallelProcessing()) {
             doParallel(exchange, result, pairs, optionalAsyncResultHandler);
         } else {
             final Iterator<ProcessorExchangePair> iterator = pairs.iterator();
@@ -68,19 +85,39 @@ public class MulticastProcessor extends MulticastSupport implements AsyncProcess
     }
 
     private void doParallel(final Exchange original, final AtomicExchange result, Iterable<ProcessorExchangePair> pairs, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
-
-        final AtomicInteger counter = new AtomicInteger(0);
-
-        for (ProcessorExchangePair pair : pairs) {
-            Exchange newExchange = pair.getExchange();
-            final Processor processor = pair.getProcessor();
-            AsyncProcessor ap = AsyncProcessorConverterHelper.convert(processor);
-            ap.process(newExchange, new ParallelResultHandler(optionalAsyncResultHandler, counter, result, original, getAggregationStrategy()));
+        if (!(pairs instanceof Collection)) {
+            // size is not known up front so count results in flight instead
+            doStreaming(original, result, pairs, optionalAsyncResultHandler);
+            return;
+        }
+        final Collection<ProcessorExchangePair> allPairs = (Collection<ProcessorExchangePair>) pairs;
+        if (allPairs.isEmpty()) {
+            optionalAsyncResultHandler.done(original);
+            return;
         }
-    }
 
+        final int window = getMaxConcurrency() > 0 ? getMaxConcurrency() : Integer.MAX_VALUE;
+        final Iterator<ProcessorExchangePair> iterator = allPairs.iterator();
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        final DoneStrategy<Exchange> doneStrategy = new FixedSizeDoneStrategy<Exchange>(allPairs.size(), new AtomicInteger(0));
+        new ParallelResultHandler(optionalAsyncResultHandler, result, allPairs, iterator, original, getAggregationStrategy(), doneStrategy, inFlight, window).start();
+    }
 
+    private void doStreaming(final Exchange original, final AtomicExchange result, Iterable<ProcessorExchangePair> pairs, final OptionalAsyncResultHandler optionalAsyncResultHandler) {
+        final Iterator<ProcessorExchangePair> iterator = pairs.iterator();
+        if (!iterator.hasNext()) {
+            optionalAsyncResultHandler.done(original);
+            return;
+        }
 
+        int window = 1;
+        if (isParallelProcessing()) {
+            window = getMaxConcurrency() > 0 ? getMaxConcurrency() : DEFAULT_STREAMING_WINDOW;
+        }
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        final DoneStrategy<Exchange> doneStrategy = new InFlightDoneStrategy<Exchange>(iterator, inFlight);
+        new StreamingResultHandler(optionalAsyncResultHandler, result, pairs, iterator, original, getAggregationStrategy(), doneStrategy, inFlight, window).start();
+    }
 
     //recursive with aggregation
     private void doSequential(final Exchange original, final AtomicExchange result, final OptionalAsyncResultHandler optionalAsyncResultHandler, final Iterator<ProcessorExchangePair> pairs, ProcessorExchangePair pair) throws Exception {
@@ -93,10 +130,10 @@ public class MulticastProcessor extends MulticastSupport implements AsyncProcess
     }
 
 
-    private class ParallelResultHandler extends AggregatingExchangeHandler {
+    private class ParallelResultHandler extends WindowedResultHandler {
 
-        public ParallelResultHandler(OptionalAsyncResultHandler optionalAsyncResultHandler, AtomicInteger counter, AtomicExchange result, Exchange original, AggregationStrategy aggregationStrategy) {
-            super(original, optionalAsyncResultHandler, new FixedSizeDoneStrategy(getProcessors().size(), counter), aggregationStrategy, result);
+        public ParallelResultHandler(OptionalAsyncResultHandler optionalAsyncResultHandler, AtomicExchange result, Iterable<ProcessorExchangePair> allPairs, Iterator<ProcessorExchangePair> pairs, Exchange original, AggregationStrategy aggregationStrategy, DoneStrategy<Exchange> doneStrategy, AtomicInteger inFlight, int window) {
+            super(optionalAsyncResultHandler, result, allPairs, pairs, original, aggregationStrategy, doneStrategy, inFlight, window);
         }
 
         @Override
@@ -129,6 +166,259 @@ public class MulticastProcessor extends MulticastSupport implements AsyncProcess
         }
     }
 
+    private class StreamingResultHandler extends WindowedResultHandler {
+
+        public StreamingResultHandler(OptionalAsyncResultHandler optionalAsyncResultHandler, AtomicExchange result, Iterable<ProcessorExchangePair> allPairs, Iterator<ProcessorExchangePair> pairs, Exchange original, AggregationStrategy aggregationStrategy, DoneStrategy<Exchange> doneStrategy, AtomicInteger inFlight, int window) {
+            super(optionalAsyncResultHandler, result, allPairs, pairs, original, aggregationStrategy, doneStrategy, inFlight, window);
+        }
+
+        @Override
+        protected String getName() {
+            return "Streaming Results Handler";
+        }
+    }
+
+    /**
+     * Pulls pairs from the iterator only as earlier ones complete, so at most <tt>window</tt> pairs
+     * (and their exchanges) are in flight at any time. Results are aggregated as they arrive and
+     * counted by the given {@link DoneStrategy}.
+     * <p/>
+     * If a timeout is configured a Vert.x timer completes the exchange with whatever was aggregated
+     * when it fires; replies arriving after that are dropped.
+     * <p/>
+     * The caller is answered once this handler has released its monitor, so it can carry on routing, or
+     * call back into a part still in flight, without holding it.
+     */
+    private abstract class WindowedResultHandler extends AggregatingExchangeHandler {
+
+        private final Iterable<ProcessorExchangePair> allPairs;
+        private final Iterator<ProcessorExchangePair> pairs;
+        private final AtomicInteger inFlight;
+        private final int window;
+        private final DeferredResultHandler answer;
+        // the indexes still in flight, relative to outstandingBase, for a timeout aware strategy
+        private BitSet outstanding;
+        private int outstandingBase;
+        private int index;
+        private boolean dispatching;
+        private boolean completed;
+        private long timerId = -1;
+
+        public WindowedResultHandler(OptionalAsyncResultHandler optionalAsyncResultHandler, AtomicExchange result, Iterable<ProcessorExchangePair> allPairs, Iterator<ProcessorExchangePair> pairs, Exchange original, AggregationStrategy aggregationStrategy, DoneStrategy<Exchange> doneStrategy, AtomicInteger inFlight, int window) {
+            super(original, new DeferredResultHandler(optionalAsyncResultHandler), doneStrategy, aggregationStrategy, result);
+            this.answer = (DeferredResultHandler) this.optionalAsyncResultHandler;
+            this.allPairs = allPairs;
+            this.pairs = pairs;
+            this.inFlight = inFlight;
+            this.window = window;
+            this.outstanding = getTimeout() > 0 ? new BitSet() : null;
+        }
+
+        void start() {
+            if (pairs instanceof AsyncPairIterator) {
+                ((AsyncPairIterator) pairs).listen(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch();
+                    }
+                });
+            }
+            if (getTimeout() > 0) {
+                timerId = original.getContext().getVertx().setTimer(getTimeout(), new Handler<Long>() {
+                    @Override
+                    public void handle(Long event) {
+                        timeout();
+                    }
+                });
+            }
+            dispatch();
+        }
+
+        @Override
+        public void handle(AsyncExchangeResult asyncExchangeResult) {
+            synchronized (this) {
+                if (completed) {
+                    // a previous part already failed or timed out and answered the caller
+                    return;
+                }
+                inFlight.decrementAndGet();
+                if (outstanding != null) {
+                    final Integer replyIndex = getExchangeIndex(asyncExchangeResult.result.get());
+                    if (replyIndex != null) {
+                        clearOutstanding(replyIndex);
+                    }
+                }
+                super.handle(asyncExchangeResult);
+            }
+            answer();
+        }
+
+        private void clearOutstanding(int replyIndex) {
+            final int bit = replyIndex - outstandingBase;
+            if (bit < 0) {
+                return;
+            }
+            outstanding.clear(bit);
+            if (bit == 0) {
+                // the oldest part is in, so move the base up to the oldest part still out
+                final int oldest = outstanding.nextSetBit(0);
+                if (oldest < 0) {
+                    outstanding.clear();
+                    outstandingBase = index;
+                } else {
+                    outstanding = outstanding.get(oldest, outstanding.length());
+                    outstandingBase += oldest;
+                }
+            }
+        }
+
+        /**
+         * Answers the caller if this handler is done, unless we are called back from within our own monitor.
+         */
+        private void answer() {
+            if (!Thread.holdsLock(this)) {
+                answer.flush();
+            }
+        }
+
+        @Override
+        protected void failed(Optional<Exchange> currentResult) {
+            complete();
+            super.failed(currentResult);
+        }
+
+        @Override
+        protected Optional<Exchange> getFinalResult(Optional<Exchange> finalResult) {
+            complete();
+            return super.getFinalResult(finalResult);
+        }
+
+        private void complete() {
+            completed = true;
+            if (timerId != -1) {
+                original.getContext().getVertx().cancelTimer(timerId);
+                timerId = -1;
+            }
+        }
+
+        void timeout() {
+            synchronized (this) {
+                timerId = -1;
+                if (completed) {
+                    return;
+                }
+                logger.debug("[{}] Timed out after {} millis with {} exchanges in flight", new Object[]{getName(), getTimeout(), inFlight.get()});
+
+                final Exchange aggregated = result.get();
+                if (aggregationStrategy instanceof TimeoutAwareAggregationStrategy) {
+                    final TimeoutAwareAggregationStrategy strategy = (TimeoutAwareAggregationStrategy) aggregationStrategy;
+                    final int total = allPairs instanceof Collection ? ((Collection<?>) allPairs).size() : -1;
+                    for (int i = outstanding.nextSetBit(0); i >= 0; i = outstanding.nextSetBit(i + 1)) {
+                        strategy.timeout(aggregated, outstandingBase + i, total, getTimeout());
+                    }
+                    // and the ones we never got round to sending
+                    for (int i = index; i < total; i++) {
+                        strategy.timeout(aggregated, i, total, getTimeout());
+                    }
+                }
+
+                completeWith(aggregated);
+            }
+            answer();
+        }
+
+        private void completeWith(Exchange aggregated) {
+            if (aggregated == null) {
+                complete();
+                optionalAsyncResultHandler.done(original);
+            } else {
+                optionalAsyncResultHandler.done(getFinalResult(Optional.of(aggregated)).get());
+            }
+        }
+
+        @Override
+        protected void proceed(Optional<Exchange> currentResult) throws Exception {
+            dispatch();
+        }
+
+        /**
+         * Sends pairs until the window is full. A pair which completes synchronously calls back into
+         * {@link #proceed} while we are still looping here; that call returns straight away and this
+         * loop carries on, so the stack does not grow with the number of parts.
+         */
+        void dispatch() {
+            synchronized (this) {
+                doDispatch();
+            }
+            answer();
+        }
+
+        private void doDispatch() {
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+            try {
+                final AsyncPairIterator asyncPairs = pairs instanceof AsyncPairIterator ? (AsyncPairIterator) pairs : null;
+                while (!completed && inFlight.get() < window && pairs.hasNext() && (asyncPairs == null || asyncPairs.isAvailable())) {
+                    final ProcessorExchangePair pair = pairs.next();
+                    final Exchange exchange = pair.getExchange();
+                    if (outstanding != null) {
+                        outstanding.set(index - outstandingBase);
+                    }
+                    updateNewExchange(exchange, index++, allPairs, pairs);
+
+                    inFlight.incrementAndGet();
+                    try {
+                        AsyncProcessor ap = AsyncProcessorConverterHelper.convert(pair.getProcessor());
+                        ap.process(exchange, this);
+                    } catch (Exception e) {
+                        exchange.setException(e);
+                        done(exchange);
+                    }
+                }
+                if (asyncPairs != null && !completed) {
+                    // pairs which arrive over time can run out, or fail, with nothing left in flight to notice
+                    if (asyncPairs.getFailure() != null) {
+                        throw new RuntimeVramelException("Failed to read the next part", asyncPairs.getFailure());
+                    } else if (!pairs.hasNext() && inFlight.get() == 0) {
+                        completeWith(result.get());
+                    }
+                }
+            } catch (RuntimeException e) {
+                // the underlying iterator failed, e.g. an IOException while reading the next part
+                complete();
+                original.setException(e);
+                optionalAsyncResultHandler.done(original);
+            } finally {
+                dispatching = false;
+            }
+        }
+    }
+
+    /**
+     * Holds on to the answer of a {@link WindowedResultHandler} until it has left its monitor.
+     */
+    private static class DeferredResultHandler extends OptionalAsyncResultHandler {
+        private final OptionalAsyncResultHandler target;
+        private final Queue<AsyncExchangeResult> results = new ConcurrentLinkedQueue<AsyncExchangeResult>();
+
+        DeferredResultHandler(OptionalAsyncResultHandler target) {
+            this.target = target;
+        }
+
+        @Override
+        public void handle(AsyncExchangeResult result) {
+            results.add(result);
+        }
+
+        void flush() {
+            AsyncExchangeResult result;
+            while ((result = results.poll()) != null) {
+                target.handle(result);
+            }
+        }
+    }
 
     public List<Processor> next() {
         if (!hasNext()) {
@@ -0,0 +1,98 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Navigate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.spi.BlockingTaskExecutor;
+import com.nxttxn.vramel.support.ServiceSupport;
+import com.nxttxn.vramel.util.AsyncProcessorHelper;
+import com.nxttxn.vramel.util.ServiceHelper;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.AsyncResultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a synchronous processor, such as a marshal or unmarshal step, on the {@link BlockingTaskExecutor} of the
+ * context, and continues routing the exchange on the Vert.x context it came from once the processor is done.
+ * <p/>
+ * This keeps steps which take long to parse, sign or encrypt a document from holding up the event loop and every
+ * other flow on it.
+ */
+public class OffloadProcessor extends ServiceSupport implements AsyncProcessor, Navigate<Processor> {
+    private final VramelContext vramelContext;
+    private final Processor processor;
+    private BlockingTaskExecutor executor;
+
+    public OffloadProcessor(VramelContext vramelContext, Processor processor) {
+        if (processor instanceof AsyncProcessor) {
+            throw new IllegalArgumentException("Cannot offload " + processor + " as it is asynchronous already");
+        }
+        this.vramelContext = vramelContext;
+        this.processor = processor;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        executor.execute(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                processor.process(exchange);
+                return null;
+            }
+        }, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> result) {
+                if (result.failed()) {
+                    exchange.setException(result.exception);
+                }
+                optionalAsyncResultHandler.done(exchange);
+            }
+        });
+        return false;
+    }
+
+    public Processor getProcessor() {
+        return processor;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        executor = vramelContext.getBlockingTaskExecutor();
+        ServiceHelper.startService(processor);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        ServiceHelper.stopService(processor);
+        // the context may hand out a new executor when it is restarted
+        executor = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    @Override
+    public List<Processor> next() {
+        List<Processor> answer = new ArrayList<Processor>(1);
+        answer.add(processor);
+        return answer;
+    }
+
+    @Override
+    public String toString() {
+        return "Offload[" + processor + "]";
+    }
+}
@@ -0,0 +1,214 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Predicate;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * The policy used to decide how many times to redeliver and the time between
+ * the redeliveries before being sent to the failure processor.
+ * <p/>
+ * The default values are:
+ * <ul>
+ *   <li>maximumRedeliveries = 0</li>
+ *   <li>redeliveryDelay = 1000L (the initial delay)</li>
+ *   <li>maximumRedeliveryDelay = 60 * 1000L</li>
+ *   <li>backOffMultiplier = 1 (no exponential back off)</li>
+ *   <li>jitterFactor = 0 (no random jitter)</li>
+ * </ul>
+ * <p/>
+ * Setting the maximumRedeliveries to a negative value such as -1 will then always redeliver (unlimited).
+ * Setting the maximumRedeliveries to 0 will disable redelivery.
+ * <p/>
+ * The delay is never slept on a thread; {@link DefaultErrorHandler} schedules the next attempt
+ * with a Vert.x timer.
+ */
+public class RedeliveryPolicy implements Cloneable, Serializable {
+    private static final long serialVersionUID = -338222777701473252L;
+    private static final Random RANDOM_NUMBER_GENERATOR = new Random();
+
+    protected int maximumRedeliveries;
+    protected long redeliveryDelay = 1000L;
+    protected long maximumRedeliveryDelay = 60 * 1000L;
+    protected double backOffMultiplier = 1;
+    protected double jitterFactor;
+
+    public RedeliveryPolicy() {
+    }
+
+    @Override
+    public String toString() {
+        return "RedeliveryPolicy[maximumRedeliveries=" + maximumRedeliveries
+            + ", redeliveryDelay=" + redeliveryDelay
+            + ", maximumRedeliveryDelay=" + maximumRedeliveryDelay
+            + ", backOffMultiplier=" + backOffMultiplier
+            + ", jitterFactor=" + jitterFactor + "]";
+    }
+
+    public RedeliveryPolicy copy() {
+        try {
+            return (RedeliveryPolicy) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException("Could not clone: " + e, e);
+        }
+    }
+
+    /**
+     * Returns true if the policy decides that the message exchange should be
+     * redelivered.
+     *
+     * @param exchange           the current exchange
+     * @param redeliveryCounter  the current retry counter
+     * @param retryWhile         an optional predicate to determine if we should redeliver or not,
+     *                           when set it is used instead of the maximumRedeliveries
+     * @return true to redeliver, false to stop and let the failure processor have the exchange
+     */
+    public boolean shouldRedeliver(Exchange exchange, int redeliveryCounter, Predicate retryWhile) {
+        // predicate is always used if provided
+        if (retryWhile != null) {
+            return retryWhile.matches(exchange);
+        }
+
+        if (getMaximumRedeliveries() < 0) {
+            // retry forever if negative value
+            return true;
+        }
+        // redeliver until we hit the max
+        return redeliveryCounter <= getMaximumRedeliveries();
+    }
+
+    /**
+     * Calculates the new redelivery delay based on the last one
+     *
+     * @param previousDelay     previous redelivery delay, <tt>0</tt> for the first redelivery
+     * @param redeliveryCounter number of previous redelivery attempts
+     * @return the calculated delay in millis
+     */
+    public long calculateRedeliveryDelay(long previousDelay, int redeliveryCounter) {
+        long redeliveryDelayResult;
+        if (previousDelay == 0 || redeliveryCounter <= 1) {
+            redeliveryDelayResult = redeliveryDelay;
+        } else if (backOffMultiplier > 1) {
+            redeliveryDelayResult = Math.round(backOffMultiplier * previousDelay);
+        } else {
+            redeliveryDelayResult = previousDelay;
+        }
+
+        if (maximumRedeliveryDelay > 0 && redeliveryDelayResult > maximumRedeliveryDelay) {
+            redeliveryDelayResult = maximumRedeliveryDelay;
+        }
+        return redeliveryDelayResult;
+    }
+
+    /**
+     * Applies the jitter factor to a delay calculated by {@link #calculateRedeliveryDelay(long, int)}.
+     * <p/>
+     * The jitter is kept out of the back off calculation so it does not compound across attempts.
+     *
+     * @param delay the delay in millis
+     * @return the delay randomly spread by +/- the jitter factor
+     */
+    public long applyJitter(long delay) {
+        if (jitterFactor <= 0 || delay <= 0) {
+            return delay;
+        }
+        // random in the range [-jitterFactor, +jitterFactor]
+        double variance = (RANDOM_NUMBER_GENERATOR.nextDouble() * 2 - 1) * jitterFactor;
+        return Math.max(0, Math.round(delay * (1 + variance)));
+    }
+
+    // Builder methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets the maximum number of times a message exchange will be redelivered.
+     * Setting a negative value will retry forever.
+     */
+    public RedeliveryPolicy maximumRedeliveries(int maximumRedeliveries) {
+        setMaximumRedeliveries(maximumRedeliveries);
+        return this;
+    }
+
+    /**
+     * Sets the initial redelivery delay in milliseconds
+     */
+    public RedeliveryPolicy redeliveryDelay(long delay) {
+        setRedeliveryDelay(delay);
+        return this;
+    }
+
+    /**
+     * Sets the maximum redelivery delay if using exponential back off.
+     * Use -1 if you wish to have no maximum
+     */
+    public RedeliveryPolicy maximumRedeliveryDelay(long maximumRedeliveryDelay) {
+        setMaximumRedeliveryDelay(maximumRedeliveryDelay);
+        return this;
+    }
+
+    /**
+     * Enables exponential back off by multiplying the previous delay with the given multiplier
+     * for each redelivery attempt.
+     */
+    public RedeliveryPolicy backOffMultiplier(double multiplier) {
+        setBackOffMultiplier(multiplier);
+        return this;
+    }
+
+    /**
+     * Spreads each delay randomly by up to the given factor (e.g. 0.15 for +/- 15%),
+     * so exchanges failing together do not all retry at the same moment.
+     */
+    public RedeliveryPolicy jitterFactor(double jitterFactor) {
+        setJitterFactor(jitterFactor);
+        return this;
+    }
+
+    // Properties
+    // -------------------------------------------------------------------------
+
+    public int getMaximumRedeliveries() {
+        return maximumRedeliveries;
+    }
+
+    public void setMaximumRedeliveries(int maximumRedeliveries) {
+        this.maximumRedeliveries = maximumRedeliveries;
+    }
+
+    public long getRedeliveryDelay() {
+        return redeliveryDelay;
+    }
+
+    public void setRedeliveryDelay(long redeliveryDelay) {
+        this.redeliveryDelay = redeliveryDelay;
+    }
+
+    public long getMaximumRedeliveryDelay() {
+        return maximumRedeliveryDelay;
+    }
+
+    public void setMaximumRedeliveryDelay(long maximumRedeliveryDelay) {
+        this.maximumRedeliveryDelay = maximumRedeliveryDelay;
+    }
+
+    public double getBackOffMultiplier() {
+        return backOffMultiplier;
+    }
+
+    public void setBackOffMultiplier(double backOffMultiplier) {
+        this.backOffMultiplier = backOffMultiplier;
+    }
+
+    public double getJitterFactor() {
+        return jitterFactor;
+    }
+
+    public void setJitterFactor(double jitterFactor) {
+        if (jitterFactor < 0 || jitterFactor > 1) {
+            throw new IllegalArgumentException("JitterFactor must be between 0 and 1, was: " + jitterFactor);
+        }
+        this.jitterFactor = jitterFactor;
+    }
+}
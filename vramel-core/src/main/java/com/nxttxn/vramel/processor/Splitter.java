@@ -18,15 +18,19 @@ package com.nxttxn.vramel.processor;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Scanner;
 
 
 import com.nxttxn.vramel.*;
+import com.nxttxn.vramel.impl.StreamBody;
 import com.nxttxn.vramel.processor.aggregate.AggregationStrategy;
 import com.nxttxn.vramel.processor.aggregate.UseOriginalAggregationStrategy;
 import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
@@ -36,6 +40,9 @@ import com.nxttxn.vramel.util.IOHelper;
 import com.nxttxn.vramel.util.ObjectHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.ReadStream;
 
 import static org.apache.camel.util.ObjectHelper.notNull;
 
@@ -50,6 +57,11 @@ import static org.apache.camel.util.ObjectHelper.notNull;
 public class Splitter extends MulticastProcessor implements AsyncProcessor {
     private static final transient Logger LOG = LoggerFactory.getLogger(Splitter.class);
 
+    /**
+     * How many chunks of a stream body are read ahead of the parts being processed.
+     */
+    public static final int STREAM_READ_AHEAD = 16;
+
     private final Expression expression;
 
     public Splitter(Expression expression, Processor destination, AggregationStrategy aggregationStrategy) {
@@ -59,7 +71,13 @@ public class Splitter extends MulticastProcessor implements AsyncProcessor {
     public Splitter(Expression expression, Processor destination, AggregationStrategy aggregationStrategy,
                     boolean parallelProcessing,
                     boolean streaming, boolean stopOnException, long timeout, Processor onPrepare, boolean useSubUnitOfWork) {
-        super(Collections.singleton(destination), aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, onPrepare, useSubUnitOfWork);
+        this(expression, destination, aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, 0, onPrepare, useSubUnitOfWork);
+    }
+
+    public Splitter(Expression expression, Processor destination, AggregationStrategy aggregationStrategy,
+                    boolean parallelProcessing,
+                    boolean streaming, boolean stopOnException, long timeout, int maxConcurrency, Processor onPrepare, boolean useSubUnitOfWork) {
+        super(Collections.singleton(destination), aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, maxConcurrency, onPrepare, useSubUnitOfWork);
         this.expression = expression;
         notNull(expression, "expression");
         notNull(destination, "destination");
@@ -95,9 +113,14 @@ public class Splitter extends MulticastProcessor implements AsyncProcessor {
         }
 
         Iterable<ProcessorExchangePair> answer;
-        if (isStreaming()) {
-            throw new UnsupportedOperationException("Streaming not enabled yet");
-//            answer = createProcessorExchangePairsIterable(exchange, value);
+        if (value instanceof ReadStream) {
+            if (!isStreaming()) {
+                throw new IllegalArgumentException("Streaming must be enabled to split a stream body: " + this);
+            }
+            answer = createProcessorExchangePairsFromStream(exchange, (ReadStream) value);
+        } else if (isStreaming()) {
+            // parts are created lazily as the multicast pulls them, see MulticastProcessor#doStreaming
+            answer = createProcessorExchangePairsIterable(exchange, value);
         } else {
             answer = createProcessorExchangePairsList(exchange, value);
         }
@@ -150,21 +173,7 @@ public class Splitter extends MulticastProcessor implements AsyncProcessor {
                     }
 
                     public ProcessorExchangePair next() {
-                        Object part = iterator.next();
-                        // create a correlated copy as the new exchange to be routed in the splitter from the copy
-                        // and do not share the unit of work
-                        Exchange newExchange = ExchangeHelper.createCorrelatedCopy(copy, false);
-                        // if we share unit of work, we need to prepare the child exchange
-                        if (isShareUnitOfWork()) {
-                            prepareSharedUnitOfWork(newExchange, copy);
-                        }
-                        if (part instanceof Message) {
-                            newExchange.setIn((Message) part);
-                        } else {
-                            Message in = newExchange.getIn();
-                            in.setBody(part);
-                        }
-                        return createProcessorExchangePair(index++, getProcessors().iterator().next(), newExchange, flowContext);
+                        return createPart(copy, flowContext, index++, iterator.next());
                     }
 
                     public void remove() {
@@ -176,6 +185,128 @@ public class Splitter extends MulticastProcessor implements AsyncProcessor {
         };
     }
 
+    /**
+     * Each chunk of the stream, or each record of a {@link StreamBody#delimited delimited} stream, becomes a part.
+     * The stream is paused while {@link #STREAM_READ_AHEAD} chunks are waiting for the window of parts in flight.
+     * <p/>
+     * A chunk is only handed out once the next one has arrived or the stream has ended, so the last part is known
+     * to be the last when it is sent and gets the split size and completion properties.
+     */
+    private Iterable<ProcessorExchangePair> createProcessorExchangePairsFromStream(final Exchange exchange, final ReadStream stream) {
+        return new Iterable<ProcessorExchangePair>() {
+            private final Exchange copy = copyExchangeNoAttachments(exchange, true);
+            private final FlowContext flowContext = exchange.getUnitOfWork() != null ? exchange.getUnitOfWork().getFlowContext() : null;
+
+            public Iterator<ProcessorExchangePair> iterator() {
+                return new AsyncPairIterator() {
+                    // the stream handlers run on its event loop while the parts are pulled by whichever thread
+                    // completed the previous part, so the state is guarded by this lock and the listener is
+                    // signalled outside of it
+                    private final Object lock = new Object();
+                    private final Queue<Buffer> chunks = new ArrayDeque<Buffer>();
+                    private boolean ended;
+                    private Exception failure;
+                    private boolean paused;
+                    private int index;
+
+                    {
+                        stream.dataHandler(new Handler<Buffer>() {
+                            @Override
+                            public void handle(Buffer chunk) {
+                                synchronized (lock) {
+                                    chunks.add(chunk);
+                                    if (!paused && chunks.size() >= STREAM_READ_AHEAD) {
+                                        paused = true;
+                                        stream.pause();
+                                    }
+                                }
+                                signal();
+                            }
+                        });
+                        stream.endHandler(new Handler<Void>() {
+                            @Override
+                            public void handle(Void event) {
+                                synchronized (lock) {
+                                    ended = true;
+                                }
+                                signal();
+                            }
+                        });
+                        stream.exceptionHandler(new Handler<Exception>() {
+                            @Override
+                            public void handle(Exception e) {
+                                synchronized (lock) {
+                                    failure = e;
+                                }
+                                signal();
+                            }
+                        });
+                    }
+
+                    public boolean hasNext() {
+                        synchronized (lock) {
+                            return !chunks.isEmpty() || (!ended && failure == null);
+                        }
+                    }
+
+                    @Override
+                    boolean isAvailable() {
+                        synchronized (lock) {
+                            // hold the newest chunk back until we know whether it is the last one
+                            return chunks.size() > 1 || (ended && !chunks.isEmpty());
+                        }
+                    }
+
+                    @Override
+                    Exception getFailure() {
+                        synchronized (lock) {
+                            return failure;
+                        }
+                    }
+
+                    public ProcessorExchangePair next() {
+                        final Buffer chunk;
+                        final int partIndex;
+                        boolean resume = false;
+                        synchronized (lock) {
+                            if (!(chunks.size() > 1 || (ended && !chunks.isEmpty()))) {
+                                throw new NoSuchElementException("No part of the stream is available yet");
+                            }
+                            chunk = chunks.poll();
+                            partIndex = index++;
+                            if (paused && chunks.size() < STREAM_READ_AHEAD / 2) {
+                                paused = false;
+                                resume = true;
+                            }
+                        }
+                        if (resume) {
+                            // outside the lock, as the stream may hand us the chunks it held straight away
+                            stream.resume();
+                        }
+                        return createPart(copy, flowContext, partIndex, chunk.getBytes());
+                    }
+                };
+            }
+        };
+    }
+
+    private ProcessorExchangePair createPart(Exchange copy, FlowContext flowContext, int index, Object part) {
+        // create a correlated copy as the new exchange to be routed in the splitter from the copy
+        // and do not share the unit of work
+        Exchange newExchange = ExchangeHelper.createCorrelatedCopy(copy, false);
+        // if we share unit of work, we need to prepare the child exchange
+        if (isShareUnitOfWork()) {
+            prepareSharedUnitOfWork(newExchange, copy);
+        }
+        if (part instanceof Message) {
+            newExchange.setIn((Message) part);
+        } else {
+            Message in = newExchange.getIn();
+            in.setBody(part);
+        }
+        return createProcessorExchangePair(index, getProcessors().iterator().next(), newExchange, flowContext);
+    }
+
     private Iterable<ProcessorExchangePair> createProcessorExchangePairsList(Exchange exchange, Object value) {
         List<ProcessorExchangePair> result = new ArrayList<ProcessorExchangePair>();
 
@@ -0,0 +1,277 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.ThreadPoolRejectedPolicy;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.VramelExchangeException;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.AsyncProcessorHelper;
+import com.nxttxn.vramel.util.ObjectHelper;
+import org.vertx.java.core.Handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.nxttxn.vramel.util.ObjectHelper.notNull;
+
+/**
+ * An implementation of the <a href="http://camel.apache.org/throttler.html">Throttler</a> pattern, which sends at
+ * most {@link #getMaxRequestsPerPeriod() maxRequestsPerPeriod} exchanges to the processor in each
+ * {@link #getTimePeriodMillis() timePeriodMillis}.
+ * <p/>
+ * The limit is kept as a token bucket which holds up to <tt>maxRequestsPerPeriod</tt> tokens and gets them back
+ * evenly over the period, so a burst of up to <tt>maxRequestsPerPeriod</tt> goes through at once after a quiet
+ * spell, and then exchanges go through at the steady rate. With a correlation expression each key, such as a
+ * partner id, gets a bucket of its own; the keys should be few, as the buckets are kept while the throttler runs.
+ * <p/>
+ * An exchange which has no token waits in a queue of its bucket, and is sent on from a Vert.x timer once a token
+ * comes back; no thread is ever blocked. When the queue holds {@link #getMaxQueueSize() maxQueueSize} exchanges
+ * the {@link #getRejectedPolicy() rejectedPolicy} decides: <tt>Abort</tt> fails the new exchange,
+ * <tt>DiscardOldest</tt> fails the exchange which waited longest and queues the new one, and <tt>Discard</tt>
+ * drops the new exchange without failing it.
+ */
+public class Throttler extends DelegateAsyncProcessor {
+    public static final String DEFAULT_KEY = "";
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+
+    private final VramelContext vramelContext;
+    private final long maxRequestsPerPeriod;
+    private final long timePeriodMillis;
+    private final long nanosPerToken;
+    private final Expression correlationExpression;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private ThreadPoolRejectedPolicy rejectedPolicy = ThreadPoolRejectedPolicy.Abort;
+
+    private static final class Pending {
+        private final Exchange exchange;
+        private final OptionalAsyncResultHandler handler;
+
+        private Pending(Exchange exchange, OptionalAsyncResultHandler handler) {
+            this.exchange = exchange;
+            this.handler = handler;
+        }
+    }
+
+    private final class Bucket {
+        private final String key;
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        private long tokens = maxRequestsPerPeriod;
+        private long lastRefill = System.nanoTime();
+        private long timerId = -1;
+
+        private Bucket(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Gives back the tokens earned since the last refill, the caller holds the lock of the bucket.
+         */
+        private void refill(long now) {
+            final long earned = (now - lastRefill) / nanosPerToken;
+            if (earned <= 0) {
+                return;
+            }
+            tokens = Math.min(maxRequestsPerPeriod, tokens + earned);
+            lastRefill = tokens == maxRequestsPerPeriod ? now : lastRefill + earned * nanosPerToken;
+        }
+
+        /**
+         * Sets a timer for when the next token comes back, the caller holds the lock of the bucket.
+         */
+        private void schedule(long now) {
+            if (timerId != -1 || queue.isEmpty()) {
+                return;
+            }
+            final long delay = Math.max(1, TimeUnit.NANOSECONDS.toMillis(lastRefill + nanosPerToken - now + 999999));
+            timerId = vramelContext.getVertx().setTimer(delay, new Handler<Long>() {
+                @Override
+                public void handle(Long event) {
+                    release();
+                }
+            });
+        }
+
+        private void release() {
+            final List<Pending> ready = new ArrayList<>();
+            synchronized (this) {
+                timerId = -1;
+                final long now = System.nanoTime();
+                refill(now);
+                while (tokens > 0 && !queue.isEmpty()) {
+                    tokens--;
+                    ready.add(queue.poll());
+                }
+                schedule(now);
+            }
+            for (Pending pending : ready) {
+                send(pending.exchange, pending.handler);
+            }
+        }
+    }
+
+    public Throttler(VramelContext vramelContext, Processor processor, long maxRequestsPerPeriod, long timePeriodMillis, Expression correlationExpression) {
+        super(processor);
+        notNull(vramelContext, "vramelContext");
+        if (maxRequestsPerPeriod <= 0) {
+            throw new IllegalArgumentException("MaxRequestsPerPeriod must be a positive number, was: " + maxRequestsPerPeriod);
+        }
+        if (timePeriodMillis <= 0) {
+            throw new IllegalArgumentException("TimePeriodMillis must be a positive number, was: " + timePeriodMillis);
+        }
+        this.vramelContext = vramelContext;
+        this.maxRequestsPerPeriod = maxRequestsPerPeriod;
+        this.timePeriodMillis = timePeriodMillis;
+        this.nanosPerToken = Math.max(1, TimeUnit.MILLISECONDS.toNanos(timePeriodMillis) / maxRequestsPerPeriod);
+        this.correlationExpression = correlationExpression;
+    }
+
+    @Override
+    public String toString() {
+        return "Throttler[" + maxRequestsPerPeriod + " per " + timePeriodMillis + " millis -> " + processor + "]";
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        String key = DEFAULT_KEY;
+        if (correlationExpression != null) {
+            key = correlationExpression.evaluate(exchange, String.class);
+            if (ObjectHelper.isEmpty(key)) {
+                exchange.setException(new VramelExchangeException("Invalid correlation key", exchange));
+                optionalAsyncResultHandler.done(exchange);
+                return true;
+            }
+        }
+
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            final Bucket created = new Bucket(key);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        Pending rejected = null;
+        synchronized (bucket) {
+            final long now = System.nanoTime();
+            bucket.refill(now);
+            if (bucket.queue.isEmpty() && bucket.tokens > 0) {
+                bucket.tokens--;
+            } else if (bucket.queue.size() < maxQueueSize) {
+                bucket.queue.add(new Pending(exchange, optionalAsyncResultHandler));
+                bucket.schedule(now);
+                return false;
+            } else if (rejectedPolicy == ThreadPoolRejectedPolicy.DiscardOldest) {
+                rejected = bucket.queue.poll();
+                bucket.queue.add(new Pending(exchange, optionalAsyncResultHandler));
+                bucket.schedule(now);
+            } else {
+                rejected = new Pending(exchange, optionalAsyncResultHandler);
+            }
+        }
+
+        if (rejected != null) {
+            reject(bucket.key, rejected);
+            return rejected.exchange == exchange;
+        }
+        return send(exchange, optionalAsyncResultHandler);
+    }
+
+    private boolean send(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) {
+        try {
+            return processNext(exchange, optionalAsyncResultHandler);
+        } catch (Exception e) {
+            exchange.setException(e);
+            optionalAsyncResultHandler.done(exchange);
+            return true;
+        }
+    }
+
+    private void reject(String key, Pending pending) {
+        if (rejectedPolicy == ThreadPoolRejectedPolicy.Discard) {
+            logger.debug("[Throttler-{}] Queue is full, discarding exchange {}", key, pending.exchange.getExchangeId());
+        } else {
+            pending.exchange.setException(new RejectedExecutionException(String.format("[Throttler-%s] %d exchanges are waiting, rejecting exchange",
+                    key, maxQueueSize)));
+        }
+        pending.handler.done(pending.exchange);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        // fail whatever is still waiting, their timers would fire into a stopped processor
+        for (Bucket bucket : buckets.values()) {
+            final List<Pending> waiting;
+            synchronized (bucket) {
+                if (bucket.timerId != -1) {
+                    vramelContext.getVertx().cancelTimer(bucket.timerId);
+                    bucket.timerId = -1;
+                }
+                waiting = new ArrayList<>(bucket.queue);
+                bucket.queue.clear();
+            }
+            for (Pending pending : waiting) {
+                pending.exchange.setException(new RejectedExecutionException("[Throttler-" + bucket.key + "] is stopped"));
+                pending.handler.done(pending.exchange);
+            }
+        }
+        buckets.clear();
+        super.doStop();
+    }
+
+    public long getMaxRequestsPerPeriod() {
+        return maxRequestsPerPeriod;
+    }
+
+    public long getTimePeriodMillis() {
+        return timePeriodMillis;
+    }
+
+    public Expression getCorrelationExpression() {
+        return correlationExpression;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Sets how many exchanges may wait for a token, per correlation key, at least one so <tt>DiscardOldest</tt>
+     * has an exchange to discard.
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 1) {
+            throw new IllegalArgumentException("MaxQueueSize must be a positive number, was: " + maxQueueSize);
+        }
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public ThreadPoolRejectedPolicy getRejectedPolicy() {
+        return rejectedPolicy;
+    }
+
+    /**
+     * Sets what to do with an exchange when the queue is full, <tt>CallerRuns</tt> is not supported as it would
+     * send the exchange on over the limit.
+     */
+    public void setRejectedPolicy(ThreadPoolRejectedPolicy rejectedPolicy) {
+        notNull(rejectedPolicy, "rejectedPolicy");
+        if (rejectedPolicy == ThreadPoolRejectedPolicy.CallerRuns) {
+            throw new IllegalArgumentException("The CallerRuns policy is not supported by the throttler");
+        }
+        this.rejectedPolicy = rejectedPolicy;
+    }
+}
@@ -95,8 +95,13 @@ public class UnitOfWorkProcessor extends DelegateAsyncProcessor {
                 @Override
                 public void handle(AsyncExchangeResult optionalAsyncResult) {
                     final Exchange result = optionalAsyncResult.result.get();
-                    optionalAsyncResultHandler.done(result);
-                    result.setUnitOfWork(null);
+                    try {
+                        optionalAsyncResultHandler.done(result);
+                    } finally {
+                        // after the consumer has had the answer, so a body it is still writing out is in use
+                        uow.done(result);
+                        result.setUnitOfWork(null);
+                    }
                 }
             });
 
@@ -0,0 +1,377 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Navigate;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.VramelContextAware;
+import com.nxttxn.vramel.VramelExchangeException;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.spi.AggregationRepository;
+import com.nxttxn.vramel.support.ServiceSupport;
+import com.nxttxn.vramel.util.AsyncProcessorConverterHelper;
+import com.nxttxn.vramel.util.AsyncProcessorHelper;
+import com.nxttxn.vramel.util.ExchangeHelper;
+import com.nxttxn.vramel.util.ObjectHelper;
+import com.nxttxn.vramel.util.ServiceHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.Handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.nxttxn.vramel.util.ObjectHelper.notNull;
+
+/**
+ * An implementation of the <a href="http://camel.apache.org/aggregator2.html">Aggregator</a> pattern, which
+ * combines the exchanges with the same correlation key into one, using an {@link AggregationStrategy}, and sends
+ * it on to the processor once the group is complete.
+ * <p/>
+ * A group is complete once it holds {@link #setCompletionSize completionSize} exchanges, once the
+ * {@link #setCompletionPredicate completionPredicate} matches the aggregated exchange, once no exchange has
+ * arrived for it within the {@link #setCompletionTimeout completionTimeout}, or every
+ * {@link #setCompletionInterval completionInterval} when all the groups are completed; at least one of them must be
+ * set. Why a group completed is in the {@link Exchange#AGGREGATED_COMPLETED_BY} property of the aggregated exchange.
+ * <p/>
+ * An exchange which does not complete its group is done as soon as it has been aggregated; one which does is done
+ * once the processor has processed the group, so a consumer sending in exchanges one after the other does not get
+ * ahead of the processor. Failures of the processor are logged, they are not passed back to the exchange.
+ */
+public class AggregateProcessor extends ServiceSupport implements AsyncProcessor, Navigate<Processor> {
+    private static final Logger logger = LoggerFactory.getLogger(AggregateProcessor.class);
+
+    public static final String COMPLETED_BY_SIZE = "size";
+    public static final String COMPLETED_BY_PREDICATE = "predicate";
+    public static final String COMPLETED_BY_TIMEOUT = "timeout";
+    public static final String COMPLETED_BY_INTERVAL = "interval";
+    public static final String COMPLETED_BY_STOP = "forceCompletionOnStop";
+
+    private final VramelContext vramelContext;
+    private final AsyncProcessor processor;
+    private final Expression correlationExpression;
+    private final AggregationStrategy aggregationStrategy;
+    private final Object lock = new Object();
+    // completion timeout timers by correlation key
+    private final Map<String, Long> timeouts = new HashMap<>();
+    private AggregationRepository aggregationRepository = new MemoryAggregationRepository();
+    private int completionSize;
+    private long completionTimeout;
+    private long completionInterval;
+    private Predicate completionPredicate;
+    private boolean forceCompletionOnStop;
+    private long intervalTimerId = -1;
+
+    public AggregateProcessor(VramelContext vramelContext, Processor processor,
+                              Expression correlationExpression, AggregationStrategy aggregationStrategy) {
+        notNull(vramelContext, "vramelContext");
+        notNull(processor, "processor");
+        notNull(correlationExpression, "correlationExpression");
+        notNull(aggregationStrategy, "aggregationStrategy");
+        this.vramelContext = vramelContext;
+        this.processor = AsyncProcessorConverterHelper.convert(processor);
+        this.correlationExpression = correlationExpression;
+        this.aggregationStrategy = aggregationStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateProcessor[to: " + processor + "]";
+    }
+
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        final String key = correlationExpression.evaluate(exchange, String.class);
+        if (ObjectHelper.isEmpty(key)) {
+            exchange.setException(new VramelExchangeException("Invalid correlation key", exchange));
+            optionalAsyncResultHandler.done(exchange);
+            return true;
+        }
+
+        final Exchange completed;
+        final String completedBy;
+        synchronized (lock) {
+            final Exchange oldExchange = aggregationRepository.get(vramelContext, key);
+            final int size = oldExchange == null ? 1 : oldExchange.getProperty(Exchange.AGGREGATED_SIZE, 0, Integer.class) + 1;
+            // a copy without the unit of work of the exchange, as the aggregated exchange gets one of its own
+            final Exchange answer = aggregationStrategy.aggregate(oldExchange, ExchangeHelper.createCorrelatedCopy(exchange, false));
+            if (answer == null) {
+                exchange.setException(new VramelExchangeException("AggregationStrategy " + aggregationStrategy + " returned null", exchange));
+                optionalAsyncResultHandler.done(exchange);
+                return true;
+            }
+            answer.setProperty(Exchange.AGGREGATED_SIZE, size);
+
+            if (completionSize > 0 && size >= completionSize) {
+                completedBy = COMPLETED_BY_SIZE;
+            } else if (completionPredicate != null && completionPredicate.matches(answer)) {
+                completedBy = COMPLETED_BY_PREDICATE;
+            } else {
+                completedBy = null;
+            }
+
+            if (completedBy != null) {
+                if (oldExchange != null) {
+                    aggregationRepository.remove(vramelContext, key, answer);
+                }
+                cancelTimeout(key);
+                completed = answer;
+            } else {
+                aggregationRepository.add(vramelContext, key, answer);
+                scheduleTimeout(key);
+                completed = null;
+            }
+        }
+
+        if (completed == null) {
+            optionalAsyncResultHandler.done(exchange);
+            return true;
+        }
+        logger.debug("[Aggregator] Group {} completed by {} with {} exchanges", new Object[]{key, completedBy, completed.getProperty(Exchange.AGGREGATED_SIZE)});
+        onCompletion(key, completed, completedBy, new Runnable() {
+            @Override
+            public void run() {
+                optionalAsyncResultHandler.done(exchange);
+            }
+        });
+        return false;
+    }
+
+    /**
+     * (Re)starts the completion timeout of a group, the caller holds the lock.
+     */
+    private void scheduleTimeout(final String key) {
+        if (completionTimeout <= 0) {
+            return;
+        }
+        cancelTimeout(key);
+        final long timerId = vramelContext.getVertx().setTimer(completionTimeout, new Handler<Long>() {
+            @Override
+            public void handle(Long timerId) {
+                onTimeout(key, timerId);
+            }
+        });
+        timeouts.put(key, timerId);
+    }
+
+    private void cancelTimeout(String key) {
+        final Long timerId = timeouts.remove(key);
+        if (timerId != null) {
+            vramelContext.getVertx().cancelTimer(timerId);
+        }
+    }
+
+    private void onTimeout(String key, long timerId) {
+        final Exchange completed;
+        synchronized (lock) {
+            final Long current = timeouts.get(key);
+            if (current == null || current != timerId) {
+                // the group was completed or got a new exchange meanwhile
+                return;
+            }
+            timeouts.remove(key);
+            completed = aggregationRepository.get(vramelContext, key);
+            if (completed == null) {
+                return;
+            }
+            aggregationRepository.remove(vramelContext, key, completed);
+        }
+        logger.debug("[Aggregator] Group {} timed out after {} millis", key, completionTimeout);
+        if (aggregationStrategy instanceof TimeoutAwareAggregationStrategy) {
+            ((TimeoutAwareAggregationStrategy) aggregationStrategy).timeout(completed, -1, -1, completionTimeout);
+        }
+        onCompletion(key, completed, COMPLETED_BY_TIMEOUT, null);
+    }
+
+    /**
+     * Completes every group in the repository.
+     */
+    private void completeAll(String completedBy) {
+        final Map<String, Exchange> completed = new LinkedHashMap<>();
+        synchronized (lock) {
+            for (String key : aggregationRepository.getKeys()) {
+                final Exchange exchange = aggregationRepository.get(vramelContext, key);
+                if (exchange != null) {
+                    aggregationRepository.remove(vramelContext, key, exchange);
+                    completed.put(key, exchange);
+                }
+                cancelTimeout(key);
+            }
+        }
+        if (!completed.isEmpty()) {
+            logger.debug("[Aggregator] Completing {} groups by {}", completed.size(), completedBy);
+        }
+        for (Map.Entry<String, Exchange> entry : completed.entrySet()) {
+            onCompletion(entry.getKey(), entry.getValue(), completedBy, null);
+        }
+    }
+
+    /**
+     * Sends a completed group on to the processor.
+     *
+     * @param done run once the processor is done with the group, may be <tt>null</tt>
+     */
+    private void onCompletion(final String key, final Exchange aggregated, final String completedBy, final Runnable done) {
+        aggregated.setProperty(Exchange.AGGREGATED_CORRELATION_KEY, key);
+        aggregated.setProperty(Exchange.AGGREGATED_COMPLETED_BY, completedBy);
+        if (aggregationStrategy instanceof CompletionAwareAggregationStrategy) {
+            ((CompletionAwareAggregationStrategy) aggregationStrategy).onCompletion(aggregated);
+        }
+
+        try {
+            processor.process(aggregated, new OptionalAsyncResultHandler() {
+                @Override
+                public void handle(AsyncExchangeResult result) {
+                    if (result.failed()) {
+                        logger.warn("[Aggregator] Error processing aggregated exchange of group " + key, result.getException());
+                    }
+                    if (done != null) {
+                        done.run();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("[Aggregator] Error processing aggregated exchange of group " + key, e);
+            if (done != null) {
+                done.run();
+            }
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (completionSize <= 0 && completionTimeout <= 0 && completionInterval <= 0 && completionPredicate == null) {
+            throw new IllegalStateException("At least one of the completions options"
+                    + " [completionSize, completionTimeout, completionInterval, completionPredicate] must be set");
+        }
+        if (aggregationRepository instanceof VramelContextAware) {
+            ((VramelContextAware) aggregationRepository).setVramelContext(vramelContext);
+        }
+        ServiceHelper.startServices(processor, aggregationRepository);
+
+        // groups recovered by a persistent repository wait for a timeout again
+        synchronized (lock) {
+            for (String key : aggregationRepository.getKeys()) {
+                scheduleTimeout(key);
+            }
+        }
+        if (completionInterval > 0) {
+            intervalTimerId = vramelContext.getVertx().setPeriodic(completionInterval, new Handler<Long>() {
+                @Override
+                public void handle(Long timerId) {
+                    completeAll(COMPLETED_BY_INTERVAL);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (intervalTimerId != -1) {
+            vramelContext.getVertx().cancelTimer(intervalTimerId);
+            intervalTimerId = -1;
+        }
+        if (forceCompletionOnStop) {
+            completeAll(COMPLETED_BY_STOP);
+        } else {
+            synchronized (lock) {
+                for (String key : new ArrayList<>(timeouts.keySet())) {
+                    cancelTimeout(key);
+                }
+            }
+        }
+        ServiceHelper.stopServices(aggregationRepository, processor);
+    }
+
+    @Override
+    public List<Processor> next() {
+        if (!hasNext()) {
+            return null;
+        }
+        return Collections.<Processor>singletonList(processor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return processor != null;
+    }
+
+    public VramelContext getVramelContext() {
+        return vramelContext;
+    }
+
+    public Expression getCorrelationExpression() {
+        return correlationExpression;
+    }
+
+    public AggregationStrategy getAggregationStrategy() {
+        return aggregationStrategy;
+    }
+
+    public AggregationRepository getAggregationRepository() {
+        return aggregationRepository;
+    }
+
+    public void setAggregationRepository(AggregationRepository aggregationRepository) {
+        notNull(aggregationRepository, "aggregationRepository");
+        this.aggregationRepository = aggregationRepository;
+    }
+
+    public int getCompletionSize() {
+        return completionSize;
+    }
+
+    public void setCompletionSize(int completionSize) {
+        this.completionSize = completionSize;
+    }
+
+    public long getCompletionTimeout() {
+        return completionTimeout;
+    }
+
+    /**
+     * Sets how long a group may go without a new exchange before it completes, in millis.
+     */
+    public void setCompletionTimeout(long completionTimeout) {
+        this.completionTimeout = completionTimeout;
+    }
+
+    public long getCompletionInterval() {
+        return completionInterval;
+    }
+
+    /**
+     * Sets how often all the groups are completed, in millis.
+     */
+    public void setCompletionInterval(long completionInterval) {
+        this.completionInterval = completionInterval;
+    }
+
+    public Predicate getCompletionPredicate() {
+        return completionPredicate;
+    }
+
+    public void setCompletionPredicate(Predicate completionPredicate) {
+        this.completionPredicate = completionPredicate;
+    }
+
+    public boolean isForceCompletionOnStop() {
+        return forceCompletionOnStop;
+    }
+
+    public void setForceCompletionOnStop(boolean forceCompletionOnStop) {
+        this.forceCompletionOnStop = forceCompletionOnStop;
+    }
+}
@@ -0,0 +1,694 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.VramelContextAware;
+import com.nxttxn.vramel.impl.BinaryExchangeCodec;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.spi.AggregationRepository;
+import com.nxttxn.vramel.spi.ExchangeCodec;
+import com.nxttxn.vramel.support.ServiceSupport;
+import com.nxttxn.vramel.util.IOHelper;
+import com.nxttxn.vramel.util.ObjectHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.nxttxn.vramel.util.ObjectHelper.notNull;
+
+/**
+ * Keeps the groups in a memory mapped file, so they survive a restart of the application.
+ * <p/>
+ * The file is an append only log. The first {@link #add} of a group writes its exchange; later ones only write
+ * what changed, the exchange when it differs from the one stored and the values appended to its
+ * {@link Exchange#GROUPED_EXCHANGE} list since, so growing a group of <tt>n</tt> exchanges costs <tt>O(n)</tt>
+ * rather than <tt>O(n&sup2;)</tt>. The values of the list are taken to be appended only, as the
+ * {@link AbstractListAggregationStrategy list aggregation strategies} do; a group whose list was replaced or
+ * shrunk is written again as a whole. Every {@link #remove} writes a marker. The length of a record is written
+ * last, so a record torn by a crash is ignored when the log is replayed on start.
+ * <p/>
+ * Exchanges are encoded with a {@link BinaryExchangeCodec#setStrict(boolean) strict} {@link BinaryExchangeCodec}
+ * unless another {@link ExchangeCodec} is set, so adding an exchange with a header or property which cannot be
+ * stored fails rather than losing it on a restart.
+ * <p/>
+ * Once the records which were replaced or removed take up more room than the live ones, and the file is full,
+ * the live records are copied into a new file by a worker thread while the log carries on growing. The groups are
+ * also kept on the heap, so {@link #get} does not read the file.
+ * <p/>
+ * Writes are not forced to disk unless {@link #setSync(boolean)} is enabled, so without it a crash of the
+ * machine, though not of the process, can lose the latest writes.
+ */
+public class MappedFileAggregationRepository extends ServiceSupport implements AggregationRepository, VramelContextAware {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileAggregationRepository.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // "VRAG"
+    private static final int MAGIC = 0x56524147;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    // clears what was stored for the key and stores its exchange
+    private static final byte GROUP = 1;
+    private static final byte REMOVE = 2;
+    // replaces the exchange of the key, keeping its grouped values
+    private static final byte UPDATE = 3;
+    // appends a value to the grouped list of the key
+    private static final byte VALUE = 4;
+    // the exchange of a GROUP or UPDATE has a grouped list
+    private static final byte HAS_LIST = 1;
+    // the value is an exchange, otherwise it is the body of the encoded exchange
+    private static final byte IS_EXCHANGE = 2;
+    public static final int DEFAULT_INITIAL_SIZE = 1024 * 1024;
+
+    private final File file;
+    private VramelContext vramelContext;
+    private ExchangeCodec exchangeCodec;
+    private int initialSize = DEFAULT_INITIAL_SIZE;
+    private boolean sync;
+
+    // the mapping is only swapped while holding this lock, so the worker never forces an unmapped buffer
+    private final Object mappingLock = new Object();
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+    private int position;
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private long liveBytes;
+    private long garbageBytes;
+    private ExecutorService worker;
+    private final AtomicBoolean forcePending = new AtomicBoolean();
+    private boolean compacting;
+    private int compactions;
+
+    private final Runnable forceTask = new Runnable() {
+        @Override
+        public void run() {
+            forcePending.set(false);
+            synchronized (mappingLock) {
+                if (buffer != null) {
+                    buffer.force();
+                }
+            }
+        }
+    };
+
+    /**
+     * What is stored of a group, and where.
+     */
+    private static final class Group {
+        private Exchange exchange;
+        // the grouped list as it was stored, compared by identity
+        private List<?> list;
+        private int storedValues;
+        // the exchange as it was stored, without its grouped list
+        private byte[] encoded;
+        private int exchangeOffset = -1;
+        private final List<Integer> valueOffsets = new ArrayList<>();
+    }
+
+    public MappedFileAggregationRepository(File file) {
+        notNull(file, "file");
+        this.file = file;
+    }
+
+    public MappedFileAggregationRepository(String fileName) {
+        this(new File(fileName));
+    }
+
+    public synchronized Exchange add(VramelContext vramelContext, String key, Exchange exchange) {
+        checkStarted();
+        final List<?> list = exchange.getProperty(Exchange.GROUPED_EXCHANGE, List.class);
+        Group group = groups.get(key);
+        final boolean appendValues = group != null && list != null && group.list == list && list.size() >= group.storedValues;
+        final int from = appendValues ? group.storedValues : 0;
+
+        // encode everything first, so an exchange which cannot be stored leaves the log as it was
+        final byte[] encoded;
+        final byte[][] values = new byte[list == null ? 0 : list.size() - from][];
+        try {
+            encoded = encodeExchange(exchange, list != null);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = encodeValue(list.get(from + i));
+            }
+        } catch (Exception e) {
+            throw ObjectHelper.wrapRuntimeCamelException(e);
+        }
+
+        final Exchange previous = group == null ? null : group.exchange;
+        final byte flags = list != null ? HAS_LIST : 0;
+        if (!appendValues) {
+            if (group == null) {
+                group = new Group();
+                groups.put(key, group);
+            } else {
+                release(group);
+            }
+            group.exchangeOffset = append(GROUP, key, flags, encoded);
+            liveBytes += recordSize(group.exchangeOffset);
+        } else if (!Arrays.equals(encoded, group.encoded)) {
+            release(group.exchangeOffset);
+            group.exchangeOffset = append(UPDATE, key, flags, encoded);
+            liveBytes += recordSize(group.exchangeOffset);
+        }
+        for (int i = 0; i < values.length; i++) {
+            final int offset = append(VALUE, key, list.get(from + i) instanceof Exchange ? IS_EXCHANGE : 0, values[i]);
+            group.valueOffsets.add(offset);
+            liveBytes += recordSize(offset);
+        }
+        group.exchange = exchange;
+        group.list = list;
+        group.storedValues = list == null ? 0 : list.size();
+        group.encoded = encoded;
+        written();
+        return previous;
+    }
+
+    public synchronized Exchange get(VramelContext vramelContext, String key) {
+        final Group group = groups.get(key);
+        return group == null ? null : group.exchange;
+    }
+
+    public synchronized void remove(VramelContext vramelContext, String key, Exchange exchange) {
+        checkStarted();
+        final Group group = groups.remove(key);
+        if (group == null) {
+            return;
+        }
+        release(group);
+        garbageBytes += recordSize(append(REMOVE, key, (byte) 0, new byte[0]));
+        written();
+    }
+
+    public synchronized Set<String> getKeys() {
+        // do not allow edits to the set
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(groups.keySet()));
+    }
+
+    @Override
+    protected synchronized void doStart() throws Exception {
+        notNull(vramelContext, "vramelContext");
+        if (exchangeCodec == null) {
+            final BinaryExchangeCodec codec = new BinaryExchangeCodec();
+            codec.setStrict(true);
+            exchangeCodec = codec;
+        }
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        final boolean existing = file.exists() && file.length() >= HEADER_SIZE;
+        open(file, Math.max(existing ? file.length() : 0, initialSize));
+        worker = vramelContext.getExecutorServiceManager().newSingleThreadExecutor(this, "MappedFileAggregationRepository[" + file.getName() + "]");
+        if (existing) {
+            recover();
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            position = HEADER_SIZE;
+        }
+        logger.info("[MappedFileAggregationRepository] Started on {} with {} groups", file, groups.size());
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (worker != null) {
+            // lets a compaction which is running finish, it needs the lock
+            vramelContext.getExecutorServiceManager().shutdownGraceful(worker);
+            worker = null;
+        }
+        synchronized (this) {
+            if (buffer != null) {
+                buffer.force();
+            }
+            close();
+            groups.clear();
+            liveBytes = 0;
+            garbageBytes = 0;
+        }
+    }
+
+    private void checkStarted() {
+        if (buffer == null) {
+            throw new IllegalStateException("The aggregation repository on " + file + " is not started");
+        }
+    }
+
+    private void open(File target, long size) throws IOException {
+        final RandomAccessFile opened = new RandomAccessFile(target, "rw");
+        final MappedByteBuffer mapped = opened.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        synchronized (mappingLock) {
+            randomAccessFile = opened;
+            buffer = mapped;
+        }
+    }
+
+    private void close() throws IOException {
+        synchronized (mappingLock) {
+            if (buffer != null) {
+                unmap(buffer);
+                buffer = null;
+            }
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+                randomAccessFile = null;
+            }
+        }
+    }
+
+    /**
+     * Replays the log, decoding only the live records of each group which was not removed.
+     */
+    private void recover() throws Exception {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " is not an aggregation repository file of version " + VERSION);
+        }
+        final Map<String, Group> replayed = new LinkedHashMap<>();
+        position = HEADER_SIZE;
+        long total = 0;
+        while (position + 4 <= buffer.capacity()) {
+            final int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+            final String key = readKey(position);
+            final byte type = buffer.get(position + 4);
+            if (type == GROUP || type == REMOVE) {
+                replayed.remove(key);
+            }
+            if (type != REMOVE) {
+                Group group = replayed.get(key);
+                if (group == null) {
+                    group = new Group();
+                    replayed.put(key, group);
+                }
+                if (type == VALUE) {
+                    group.valueOffsets.add(position);
+                } else {
+                    group.exchangeOffset = position;
+                }
+            }
+            total += 4 + length;
+            position += 4 + length;
+        }
+
+        for (Map.Entry<String, Group> entry : replayed.entrySet()) {
+            final Group group = entry.getValue();
+            if (group.exchangeOffset < 0) {
+                logger.warn("[MappedFileAggregationRepository] Dropping the values of group {} in {} as its exchange is missing", entry.getKey(), file);
+                continue;
+            }
+            group.encoded = readPayload(group.exchangeOffset);
+            group.exchange = decode(group.encoded);
+            liveBytes += recordSize(group.exchangeOffset);
+            if ((readFlags(group.exchangeOffset) & HAS_LIST) != 0) {
+                final List<Object> list = new ArrayList<>(group.valueOffsets.size());
+                for (int offset : group.valueOffsets) {
+                    final Exchange value = decode(readPayload(offset));
+                    list.add((readFlags(offset) & IS_EXCHANGE) != 0 ? value : value.getIn().getBody());
+                    liveBytes += recordSize(offset);
+                }
+                group.exchange.setProperty(Exchange.GROUPED_EXCHANGE, list);
+                group.list = list;
+                group.storedValues = list.size();
+            } else {
+                group.valueOffsets.clear();
+            }
+            groups.put(entry.getKey(), group);
+        }
+        garbageBytes = total - liveBytes;
+        if (garbageBytes > liveBytes) {
+            compact();
+        }
+    }
+
+    private Exchange decode(byte[] payload) throws Exception {
+        final Exchange exchange = new DefaultExchange(vramelContext);
+        exchangeCodec.decode(exchange, payload);
+        return exchange;
+    }
+
+    /**
+     * Encodes the exchange, leaving out its grouped list which is stored value by value.
+     */
+    private byte[] encodeExchange(Exchange exchange, boolean hasList) throws Exception {
+        if (!hasList) {
+            return exchangeCodec.encode(exchange);
+        }
+        final Object list = exchange.removeProperty(Exchange.GROUPED_EXCHANGE);
+        try {
+            return exchangeCodec.encode(exchange);
+        } finally {
+            exchange.setProperty(Exchange.GROUPED_EXCHANGE, list);
+        }
+    }
+
+    private byte[] encodeValue(Object value) throws Exception {
+        if (value instanceof Exchange) {
+            return exchangeCodec.encode((Exchange) value);
+        }
+        final Exchange holder = new DefaultExchange(vramelContext);
+        holder.getIn().setBody(value);
+        return exchangeCodec.encode(holder);
+    }
+
+    private String readKey(int offset) {
+        final byte[] key = new byte[buffer.getShort(offset + 5) & 0xFFFF];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(offset + 7);
+        source.get(key);
+        return new String(key, UTF_8);
+    }
+
+    private byte readFlags(int offset) {
+        return buffer.get(offset + 7 + (buffer.getShort(offset + 5) & 0xFFFF));
+    }
+
+    private byte[] readPayload(int offset) {
+        final int start = offset + 8 + (buffer.getShort(offset + 5) & 0xFFFF);
+        final byte[] payload = new byte[offset + 4 + buffer.getInt(offset) - start];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(start);
+        source.get(payload);
+        return payload;
+    }
+
+    private int recordSize(int offset) {
+        return 4 + buffer.getInt(offset);
+    }
+
+    private void release(int offset) {
+        final int size = recordSize(offset);
+        liveBytes -= size;
+        garbageBytes += size;
+    }
+
+    private void release(Group group) {
+        release(group.exchangeOffset);
+        for (int offset : group.valueOffsets) {
+            release(offset);
+        }
+        group.valueOffsets.clear();
+    }
+
+    /**
+     * Writes a record at the end of the log.
+     *
+     * @return the offset of the record
+     */
+    private int append(byte type, String key, byte flags, byte[] payload) {
+        final byte[] keyBytes = key.getBytes(UTF_8);
+        if (keyBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Correlation key is too long to be stored: " + key);
+        }
+        final int length = 1 + 2 + keyBytes.length + 1 + payload.length;
+        // room for the record and the empty length which ends the log
+        ensureCapacity(4 + length + 4);
+
+        final int offset = position;
+        buffer.position(offset + 4);
+        buffer.put(type);
+        buffer.putShort((short) keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.put(flags);
+        buffer.put(payload);
+        buffer.putInt(0);
+        // the length goes last, a record is only there once it has been fully written
+        buffer.putInt(offset, length);
+        position = offset + 4 + length;
+        return offset;
+    }
+
+    /**
+     * Forces the writes to disk on the worker, a force which is already waiting to run covers them too.
+     */
+    private void written() {
+        if (sync && forcePending.compareAndSet(false, true)) {
+            worker.execute(forceTask);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if ((long) position + needed <= buffer.capacity()) {
+            return;
+        }
+        if (garbageBytes > liveBytes) {
+            scheduleCompaction();
+        }
+        final long size = Math.max((long) buffer.capacity() * 2, (long) position + needed);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The aggregation repository on " + file + " is full");
+        }
+        try {
+            close();
+            open(file, size);
+        } catch (IOException e) {
+            throw ObjectHelper.wrapRuntimeCamelException(e);
+        }
+    }
+
+    /**
+     * Copies the live records into a new file on the worker; the records written in the meantime are copied
+     * over once it is done, before the new file replaces the log.
+     */
+    private void scheduleCompaction() {
+        if (compacting) {
+            return;
+        }
+        compacting = true;
+        final int end = position;
+        final List<Integer> records = liveRecords();
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact(records, end);
+                } catch (Exception e) {
+                    logger.warn("[MappedFileAggregationRepository] Failed to compact " + file + ", it will be retried once it fills up", e);
+                    synchronized (MappedFileAggregationRepository.this) {
+                        compacting = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Compacts the log straight away, while starting.
+     */
+    private void compact() throws IOException {
+        compacting = true;
+        compact(liveRecords(), position);
+    }
+
+    private List<Integer> liveRecords() {
+        final List<Integer> records = new ArrayList<>();
+        for (Group group : groups.values()) {
+            // a group being added when the log filled up has no record yet
+            if (group.exchangeOffset >= 0) {
+                records.add(group.exchangeOffset);
+            }
+            records.addAll(group.valueOffsets);
+        }
+        return records;
+    }
+
+    private void compact(List<Integer> records, int end) throws IOException {
+        final File compacted = new File(file.getPath() + ".compact");
+        final Map<Integer, Integer> moved = new HashMap<>(records.size() * 2);
+        int target = HEADER_SIZE;
+        // closed before the compacted file is moved over the log, or as soon as it failed
+        final RandomAccessFile targetFile = new RandomAccessFile(compacted, "rw");
+        // the records before the end are not written to anymore, so they are read through a mapping of our own
+        try (RandomAccessFile sourceFile = new RandomAccessFile(file, "r")) {
+            final MappedByteBuffer source = sourceFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, end);
+            try {
+                long live = 0;
+                for (int offset : records) {
+                    live += 4 + source.getInt(offset);
+                }
+                long size = Math.max(initialSize, Math.min(Integer.MAX_VALUE, (HEADER_SIZE + live) * 2));
+                MappedByteBuffer compactedBuffer = targetFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                try {
+                    compactedBuffer.putInt(0, MAGIC);
+                    compactedBuffer.putInt(4, VERSION);
+                    for (int offset : records) {
+                        final ByteBuffer record = source.duplicate();
+                        record.limit(offset + 4 + source.getInt(offset)).position(offset);
+                        compactedBuffer.position(target);
+                        compactedBuffer.put(record);
+                        moved.put(offset, target);
+                        target += record.limit() - offset;
+                    }
+                    compactedBuffer.putInt(target, 0);
+                    compactedBuffer.force();
+
+                    synchronized (this) {
+                        if (buffer == null) {
+                            logger.debug("[MappedFileAggregationRepository] Dropping the compaction of {} as it was stopped", file);
+                            compacting = false;
+                            targetFile.close();
+                            Files.deleteIfExists(compacted.toPath());
+                            return;
+                        }
+                        final int tail = position - end;
+                        if ((long) target + tail + 4 > size) {
+                            size = Math.max(size * 2, (long) target + tail + 4);
+                            if (size > Integer.MAX_VALUE) {
+                                throw new IOException("The compacted aggregation repository on " + file + " is full");
+                            }
+                            unmap(compactedBuffer);
+                            compactedBuffer = targetFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                        }
+                        final ByteBuffer written = buffer.duplicate();
+                        written.limit(position).position(end);
+                        compactedBuffer.position(target);
+                        compactedBuffer.put(written);
+                        compactedBuffer.putInt(target + tail, 0);
+                        unmap(compactedBuffer);
+                        compactedBuffer = null;
+                        targetFile.close();
+
+                        final int capacity = buffer.capacity();
+                        close();
+                        try {
+                            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException e) {
+                            open(file, capacity);
+                            throw e;
+                        }
+                        open(file, size);
+                        logger.debug("[MappedFileAggregationRepository] Compacted {} from {} to {} bytes", new Object[]{file, position, target + tail});
+
+                        for (Group group : groups.values()) {
+                            group.exchangeOffset = rebase(group.exchangeOffset, moved, end, target);
+                            for (int i = 0; i < group.valueOffsets.size(); i++) {
+                                group.valueOffsets.set(i, rebase(group.valueOffsets.get(i), moved, end, target));
+                            }
+                        }
+                        position = target + tail;
+                        garbageBytes = position - HEADER_SIZE - liveBytes;
+                        compactions++;
+                        compacting = false;
+                        written();
+                    }
+                } finally {
+                    if (compactedBuffer != null) {
+                        unmap(compactedBuffer);
+                    }
+                }
+            } finally {
+                unmap(source);
+            }
+        } finally {
+            IOHelper.close(targetFile);
+        }
+    }
+
+    private static int rebase(int offset, Map<Integer, Integer> moved, int end, int target) {
+        return offset < end ? moved.get(offset) : offset - end + target;
+    }
+
+    /**
+     * Releases the mapping straight away rather than once the buffer is garbage collected, which keeps the
+     * replaced files and their address space around. The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            try {
+                // Java 9 and later
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), mapped);
+            } catch (NoSuchMethodException e) {
+                // Java 8 and earlier
+                final Method cleanerMethod = mapped.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(mapped);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            logger.debug("[MappedFileAggregationRepository] Cannot unmap a buffer, it is left to the garbage collector", e);
+        }
+    }
+
+    synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    synchronized long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    synchronized int getCompactions() {
+        return compactions;
+    }
+
+    @Override
+    public VramelContext getVramelContext() {
+        return vramelContext;
+    }
+
+    @Override
+    public void setVramelContext(VramelContext vramelContext) {
+        this.vramelContext = vramelContext;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public ExchangeCodec getExchangeCodec() {
+        return exchangeCodec;
+    }
+
+    /**
+     * Sets the codec the exchanges are stored with, a strict {@link BinaryExchangeCodec} by default.
+     */
+    public void setExchangeCodec(ExchangeCodec exchangeCodec) {
+        this.exchangeCodec = exchangeCodec;
+    }
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    /**
+     * Sets the size the file is mapped with when it is created, it doubles whenever it fills up.
+     */
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    /**
+     * Forces the writes to disk on a worker thread soon after they are made, so the aggregator is not held up by
+     * the disk; writes made while a force is waiting to run are forced together.
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+}
@@ -0,0 +1,35 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.VramelContext;
+import com.nxttxn.vramel.spi.AggregationRepository;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the groups on the heap, they are lost when the application stops. The default repository of an aggregator.
+ */
+public class MemoryAggregationRepository implements AggregationRepository {
+    private final ConcurrentMap<String, Exchange> cache = new ConcurrentHashMap<String, Exchange>();
+
+    public Exchange add(VramelContext vramelContext, String key, Exchange exchange) {
+        return cache.put(key, exchange);
+    }
+
+    public Exchange get(VramelContext vramelContext, String key) {
+        return cache.get(key);
+    }
+
+    public void remove(VramelContext vramelContext, String key, Exchange exchange) {
+        cache.remove(key);
+    }
+
+    public Set<String> getKeys() {
+        // do not allow edits to the set
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(cache.keySet()));
+    }
+}
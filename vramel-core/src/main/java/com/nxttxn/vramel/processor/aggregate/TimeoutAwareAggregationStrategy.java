@@ -0,0 +1,20 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.Exchange;
+
+/**
+ * An {@link AggregationStrategy} which is told when a parallel multicast or split times out
+ * before all its replies arrived.
+ */
+public interface TimeoutAwareAggregationStrategy extends AggregationStrategy {
+
+    /**
+     * Invoked once for each index which had not replied when the timeout expired.
+     *
+     * @param oldExchange the exchange aggregated so far, may be <tt>null</tt> if nothing arrived yet
+     * @param index       the index of the missing exchange
+     * @param total       the total number of exchanges, or <tt>-1</tt> if unknown (streaming)
+     * @param timeout     the timeout value in millis
+     */
+    void timeout(Exchange oldExchange, int index, int total, long timeout);
+}
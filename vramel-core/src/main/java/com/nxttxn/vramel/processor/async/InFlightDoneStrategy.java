@@ -0,0 +1,27 @@
+package com.nxttxn.vramel.processor.async;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Done strategy for sequences which are pulled lazily from an {@link Iterator} while a number of
+ * them are still in flight. The sequence is done once nothing is in flight and the iterator has
+ * no more elements.
+ * <p/>
+ * The caller must increment the shared counter for every element it sends out and decrement it
+ * for every result before asking this strategy.
+ */
+public class InFlightDoneStrategy<T> implements DoneStrategy<T> {
+    private final Iterator<?> iterator;
+    private final AtomicInteger inFlight;
+
+    public InFlightDoneStrategy(Iterator<?> iterator, AtomicInteger inFlight) {
+        this.iterator = iterator;
+        this.inFlight = inFlight;
+    }
+
+    @Override
+    public boolean isDone(T t) {
+        return inFlight.get() == 0 && !iterator.hasNext();
+    }
+}
@@ -21,6 +21,9 @@ import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
 import com.nxttxn.vramel.*;
+import com.nxttxn.vramel.management.InstrumentationProcessor;
+import com.nxttxn.vramel.management.MetricsRegistry;
+import com.nxttxn.vramel.management.PerformanceCounter;
 import com.nxttxn.vramel.model.ModelChannel;
 import com.nxttxn.vramel.model.ProcessorDefinition;
 import com.nxttxn.vramel.processor.FlowContextProcessor;
@@ -146,6 +149,15 @@ public class DefaultChannel extends ServiceSupport implements ModelChannel {
 
         // sets the delegate to our wrapped output
         output = target;
+
+        // record the statistics of this node, inside the error handler so each attempt is counted
+        MetricsRegistry metricsRegistry = vramelContext.getMetricsRegistry();
+        if (metricsRegistry.isEnabled() && target != null) {
+            String flowId = flowContext.getFlow().idOrCreate(vramelContext.getNodeIdFactory());
+            String nodeId = targetOutputDef.idOrCreate(vramelContext.getNodeIdFactory());
+            PerformanceCounter counter = metricsRegistry.getOrCreateProcessorCounter(flowId, nodeId, targetOutputDef.getShortName());
+            output = new InstrumentationProcessor(target, counter);
+        }
     }
 
     @Override
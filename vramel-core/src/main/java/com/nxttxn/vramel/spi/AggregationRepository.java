@@ -0,0 +1,52 @@
+package com.nxttxn.vramel.spi;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.VramelContext;
+
+import java.util.Set;
+
+/**
+ * Keeps the groups of exchanges an aggregator is still collecting, by correlation key.
+ * <p/>
+ * The aggregator calls the repository holding its own lock, so implementations only need to be thread safe
+ * when they are shared between aggregators. A repository which is also a {@link com.nxttxn.vramel.Service} is
+ * started and stopped with the aggregator, and the groups it still holds once started are completed by the
+ * aggregator's completion timeout or interval, as if they had just been added.
+ */
+public interface AggregationRepository {
+
+    /**
+     * Stores the aggregated exchange of a group, replacing the one stored before.
+     *
+     * @param vramelContext the context
+     * @param key           the correlation key of the group
+     * @param exchange      the aggregated exchange
+     * @return the exchange stored before, or <tt>null</tt> if the group is new
+     */
+    Exchange add(VramelContext vramelContext, String key, Exchange exchange);
+
+    /**
+     * Gets the aggregated exchange of a group.
+     *
+     * @param vramelContext the context
+     * @param key           the correlation key of the group
+     * @return the exchange, or <tt>null</tt> if there is no such group
+     */
+    Exchange get(VramelContext vramelContext, String key);
+
+    /**
+     * Removes a group once it is complete.
+     *
+     * @param vramelContext the context
+     * @param key           the correlation key of the group
+     * @param exchange      the aggregated exchange being completed
+     */
+    void remove(VramelContext vramelContext, String key, Exchange exchange);
+
+    /**
+     * Gets the correlation keys of the groups in the repository.
+     *
+     * @return the keys
+     */
+    Set<String> getKeys();
+}
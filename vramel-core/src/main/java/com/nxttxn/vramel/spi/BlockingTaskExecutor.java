@@ -0,0 +1,35 @@
+package com.nxttxn.vramel.spi;
+
+import com.nxttxn.vramel.Service;
+import com.nxttxn.vramel.management.MetricsSource;
+import org.vertx.java.core.AsyncResultHandler;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs blocking or CPU heavy work off the Vert.x event loops, such as parsing, signing or encrypting a large
+ * document, so the other flows sharing the event loop are not held up by it.
+ * <p/>
+ * The executor in use is configured on the {@link com.nxttxn.vramel.VramelContext}.
+ */
+public interface BlockingTaskExecutor extends Service, MetricsSource {
+
+    /**
+     * Runs the task on a worker thread.
+     * <p/>
+     * The handler is called back on the Vert.x context of the caller, or on the worker thread when the caller is
+     * not on a Vert.x context. When the executor is saturated the handler is called with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param task    the task to run
+     * @param handler called with the result of the task, or the exception it threw
+     */
+    <T> void execute(Callable<T> task, AsyncResultHandler<T> handler);
+
+    /**
+     * @return the statistics of the executor, such as the number of queued tasks and how long they waited
+     */
+    @Override
+    JsonObject toJson();
+}
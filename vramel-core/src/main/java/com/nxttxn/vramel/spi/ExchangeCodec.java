@@ -0,0 +1,29 @@
+package com.nxttxn.vramel.spi;
+
+import com.nxttxn.vramel.Exchange;
+
+/**
+ * Encodes an {@link Exchange} to bytes, and back, when it is transferred over the Vert.x event bus.
+ * <p/>
+ * The codec in use is configured on the {@link com.nxttxn.vramel.VramelContext}.
+ */
+public interface ExchangeCodec {
+
+    /**
+     * Encodes the exchange id, messages, properties and exception of the exchange.
+     *
+     * @param exchange the exchange
+     * @return the encoded bytes
+     * @throws Exception is thrown if the exchange could not be encoded
+     */
+    byte[] encode(Exchange exchange) throws Exception;
+
+    /**
+     * Decodes the given bytes onto the exchange.
+     *
+     * @param exchange the exchange to populate
+     * @param bytes    the bytes created by {@link #encode(com.nxttxn.vramel.Exchange)}
+     * @throws Exception is thrown if the bytes could not be decoded
+     */
+    void decode(Exchange exchange, byte[] bytes) throws Exception;
+}
@@ -118,6 +118,13 @@ public interface UnitOfWork extends Service {
      */
     boolean containsSynchronization(Synchronization synchronization);
 
+    /**
+     * Invoked when this unit of work has been completed, whether it has failed or completed
+     *
+     * @param exchange the current exchange
+     */
+    void done(Exchange exchange);
+
     /**
      * Create a child unit of work, which is associated to this unit of work as its parent.
      * <p/>
@@ -37,17 +37,23 @@ public abstract class MulticastSupport extends AggregationSupport {
     private final boolean streaming;
     private final boolean stopOnException;
     private final long timeout;
+    private final int maxConcurrency;
     protected final Processor onPrepare;
     private final boolean shareUnitOfWork;
     private final ConcurrentMap<PreparedErrorHandler, Processor> errorHandlers = new ConcurrentHashMap<PreparedErrorHandler, Processor>();
 
     public MulticastSupport(Collection<Processor> processors, AggregationStrategy aggregationStrategy, boolean parallelProcessing, boolean streaming, boolean stopOnException, long timeout, Processor onPrepare, boolean shareUnitOfWork) {
+        this(processors, aggregationStrategy, parallelProcessing, streaming, stopOnException, timeout, 0, onPrepare, shareUnitOfWork);
+    }
+
+    public MulticastSupport(Collection<Processor> processors, AggregationStrategy aggregationStrategy, boolean parallelProcessing, boolean streaming, boolean stopOnException, long timeout, int maxConcurrency, Processor onPrepare, boolean shareUnitOfWork) {
         super(aggregationStrategy);
         this.processors = processors;
         this.parallelProcessing = parallelProcessing;
         this.streaming = streaming;
         this.stopOnException = stopOnException;
         this.timeout = timeout;
+        this.maxConcurrency = maxConcurrency;
         this.onPrepare = onPrepare;
         this.shareUnitOfWork = shareUnitOfWork;
     }
@@ -91,6 +97,16 @@ public abstract class MulticastSupport extends AggregationSupport {
         return timeout;
     }
 
+    /**
+     * The maximum number of exchanges sent out at the same time when using parallel processing.
+     * The next one is only sent when an earlier one completes.
+     *
+     * @return the limit, or <tt>0</tt> for no limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
 
     protected void doStart() throws Exception {
         ServiceHelper.startServices(getAggregationStrategy(), processors);
@@ -0,0 +1,138 @@
+package com.nxttxn.vramel.builder.xml;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link StreamingXPathBuilder} gives the same results as the {@link XPathBuilder} on the same documents
+ */
+public class StreamingXPathBuilderTest {
+    private static final String ISOMSG = "<isomsg direction=\"incoming\">"
+            + "<header>ISO016000055</header>"
+            + "<field id=\"0\" value=\"0200\"/>"
+            + "<field id=\"3\" value=\"000000\"/>"
+            + "<field id=\"4\" value=\"000000012500\"/>"
+            + "<field id=\"48\"><field id=\"1\" value=\"nested\"/></field>"
+            + "<field id=\"11\" value=\"123456\">trace <![CDATA[number]]></field>"
+            + "</isomsg>";
+    private static final String ORDER = "<o:order xmlns:o=\"urn:orders\" xmlns:c=\"urn:customers\">"
+            + "<c:customer c:id=\"7\"><c:name>Alice</c:name></c:customer>"
+            + "<o:line><o:item>book</o:item></o:line>"
+            + "<o:line><o:item>pen</o:item></o:line>"
+            + "</o:order>";
+
+    private DefaultVramelContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+    }
+
+    @Test
+    public void testAttributesAndElements() throws Exception {
+        assertSameAsXPath(ISOMSG, "/isomsg/field[@id='3']/@value", "000000");
+        assertSameAsXPath(ISOMSG, "/isomsg/@direction", "incoming");
+        assertSameAsXPath(ISOMSG, "/isomsg/header", "ISO016000055");
+        assertSameAsXPath(ISOMSG, "/isomsg/header/text()", "ISO016000055");
+        assertSameAsXPath(ISOMSG, "/isomsg/field[@id='11']", "trace number");
+    }
+
+    @Test
+    public void testPositionsAndWildcards() throws Exception {
+        assertSameAsXPath(ISOMSG, "/isomsg/field[2]/@value", "000000");
+        assertSameAsXPath(ISOMSG, "/isomsg/field[@id='48']/field[1]/@value", "nested");
+        assertSameAsXPath(ISOMSG, "/*/field[3]/@id", "4");
+        assertSameAsXPath(ISOMSG, "/isomsg/*[1]", "ISO016000055");
+    }
+
+    @Test
+    public void testDescendants() throws Exception {
+        assertSameAsXPath(ISOMSG, "//field[@id='1']/@value", "nested");
+        assertSameAsXPath(ISOMSG, "/isomsg//field[@id='4']/@value", "000000012500");
+        assertSameAsXPath(ISOMSG, "//header", "ISO016000055");
+    }
+
+    @Test
+    public void testNamespaces() throws Exception {
+        final Map<String, String> namespaces = new HashMap<String, String>();
+        namespaces.put("o", "urn:orders");
+        namespaces.put("c", "urn:customers");
+        assertSameAsXPath(ORDER, "/o:order/c:customer/@c:id", "7", namespaces);
+        assertSameAsXPath(ORDER, "/o:order/c:customer/c:name", "Alice", namespaces);
+        assertSameAsXPath(ORDER, "/o:order/o:line[2]/o:item", "pen", namespaces);
+        assertSameAsXPath(ORDER, "//o:item", "book", namespaces);
+    }
+
+    @Test
+    public void testMissingNode() throws Exception {
+        final StreamingXPathBuilder builder = new StreamingXPathBuilder("/isomsg/field[@id='99']/@value");
+        assertTrue(builder.isStreaming());
+        assertNull(builder.evaluate(exchange(ISOMSG), String.class));
+        assertFalse(builder.matches(exchange(ISOMSG)));
+        assertFalse(XPathBuilder.xpath("/isomsg/field[@id='99']/@value").matches(exchange(ISOMSG)));
+    }
+
+    @Test
+    public void testOtherXPathFallsBack() throws Exception {
+        final String text = "count(/isomsg/field)";
+        final StreamingXPathBuilder builder = new StreamingXPathBuilder(text);
+        assertFalse(builder.isStreaming());
+        assertEquals(XPathBuilder.xpath(text).stringResult().evaluate(exchange(ISOMSG), String.class),
+                builder.evaluate(exchange(ISOMSG), String.class));
+    }
+
+    @Test
+    public void testStreamBodyIsLeftToTheFallback() throws Exception {
+        final StreamingXPathBuilder builder = new StreamingXPathBuilder("/isomsg/field[@id='3']/@value");
+        final Exchange exchange = exchange(new ByteArrayInputStream(ISOMSG.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("000000", builder.evaluate(exchange, String.class));
+    }
+
+    @Test
+    public void testResultType() throws Exception {
+        final StreamingXPathBuilder builder = new StreamingXPathBuilder("/isomsg/field[@id='4']/@value");
+        builder.setResultType(Long.class);
+        assertEquals(Long.valueOf(12500), builder.evaluate(exchange(ISOMSG), Object.class));
+    }
+
+    private void assertSameAsXPath(String document, String text, String expected) {
+        assertSameAsXPath(document, text, expected, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Evaluates the path over the document as a String and as a byte[] body, and compares with the DOM
+     */
+    private void assertSameAsXPath(String document, String text, String expected, Map<String, String> namespaces) {
+        final XPathBuilder xpath = XPathBuilder.xpath(text).stringResult();
+        xpath.setNamespaces(namespaces);
+        final StreamingXPathBuilder streaming = new StreamingXPathBuilder(text);
+        streaming.setNamespaces(namespaces);
+        assertTrue(text + " is not streamed", streaming.isStreaming());
+
+        assertEquals(text, expected, xpath.evaluate(exchange(document), String.class));
+        assertEquals(text, expected, streaming.evaluate(exchange(document), String.class));
+        assertEquals(text, expected, streaming.evaluate(exchange(document.getBytes(StandardCharsets.UTF_8)), String.class));
+        assertTrue(text, streaming.matches(exchange(document)));
+    }
+
+    private Exchange exchange(Object body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+}
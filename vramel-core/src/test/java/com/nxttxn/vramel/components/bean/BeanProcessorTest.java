@@ -0,0 +1,148 @@
+package com.nxttxn.vramel.components.bean;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Handler;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link BeanProcessor} invokes the methods of a bean with the parameters bound from the exchange
+ */
+public class BeanProcessorTest {
+    private DefaultVramelContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+    }
+
+    @Test
+    public void testBodyIsBoundToTheParameter() throws Exception {
+        final Exchange exchange = invoke(new Greeter(), "greet", "World");
+        assertNull(exchange.getException());
+        assertEquals("Hello World", answer(exchange));
+
+        // the same method info, and its invoker, is used again
+        assertEquals("Hello Vert.x", answer(invoke(new Greeter(), "greet", "Vert.x")));
+    }
+
+    @Test
+    public void testBodyIsConvertedToThePrimitiveParameter() throws Exception {
+        assertEquals(Integer.valueOf(84), answer(invoke(new Greeter(), "twice", "42")));
+        assertEquals(Integer.valueOf(84), answer(invoke(new Greeter(), "twice", 42)));
+    }
+
+    @Test
+    public void testExchangeIsBoundToTheParameter() throws Exception {
+        final Exchange exchange = exchange("World");
+        exchange.getIn().setHeader("greeting", "Bonjour");
+        process(new Greeter(), "greetWithHeader", exchange);
+        assertEquals("Bonjour World", answer(exchange));
+    }
+
+    @Test
+    public void testStaticMethod() throws Exception {
+        assertEquals("WORLD", answer(invoke(new Greeter(), "upper", "World")));
+    }
+
+    @Test
+    public void testExceptionOfTheMethodIsSetOnTheExchange() throws Exception {
+        final Exchange exchange = invoke(new Greeter(), "fail", "World");
+        assertTrue(exchange.getException() instanceof IllegalStateException);
+        assertEquals("Cannot greet World", exchange.getException().getMessage());
+    }
+
+    @Test
+    public void testPrivateClassIsInvokedThroughItsInterface() throws Exception {
+        final Greeting greeting = new Greeting() {
+            @Override
+            public String greet(String name) {
+                return "Hi " + name;
+            }
+        };
+        assertEquals("Hi World", answer(invoke(greeting, "greet", "World")));
+    }
+
+    @Test
+    public void testHandlerAnnotationIsFound() throws Exception {
+        assertTrue(new BeanInfo(context, AnnotatedGreeter.class).hasAnyMethodHandlerAnnotation());
+        assertEquals("Welcome World", answer(invoke(new AnnotatedGreeter(), null, "World")));
+    }
+
+    @Test
+    public void testMethodInfoIsCached() throws Exception {
+        final MethodInfoCache cache = new MethodInfoCache(context);
+        final Method method = Greeter.class.getMethod("greet", String.class);
+        assertSame(cache.getMethodInfo(method), cache.getMethodInfo(method));
+    }
+
+    private Exchange invoke(Object bean, String method, Object body) {
+        final Exchange exchange = exchange(body);
+        process(bean, method, exchange);
+        return exchange;
+    }
+
+    private void process(Object bean, String method, Exchange exchange) {
+        final BeanProcessor processor = new BeanProcessor(bean, context);
+        processor.setMethod(method);
+        processor.process(exchange);
+    }
+
+    private Exchange exchange(Object body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private Object answer(Exchange exchange) {
+        return exchange.hasOut() ? exchange.getOut().getBody() : exchange.getIn().getBody();
+    }
+
+    public interface Greeting {
+        String greet(String name);
+    }
+
+    public static class Greeter implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+
+        public int twice(int value) {
+            return value * 2;
+        }
+
+        public String greetWithHeader(Exchange exchange) {
+            return exchange.getIn().getHeader("greeting") + " " + exchange.getIn().getBody();
+        }
+
+        public static String upper(String name) {
+            return name.toUpperCase();
+        }
+
+        public String fail(String name) {
+            throw new IllegalStateException("Cannot greet " + name);
+        }
+    }
+
+    public static class AnnotatedGreeter {
+        @Handler
+        public String welcome(String name) {
+            return "Welcome " + name;
+        }
+
+        public String other(String name) {
+            return "Other " + name;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.nxttxn.vramel.components.rest;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.impl.HTTPListener;
+import com.nxttxn.vramel.impl.StreamBody;
+import com.nxttxn.vramel.processor.UnitOfWorkProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.http.HttpClientResponse;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test a streaming {@link RestConsumer} against requests sent over one kept alive connection
+ */
+public class RestConsumerTest {
+    private static final int PORT = 9192;
+    private static final int FAILING_PORT = 9193;
+    private static final int CHUNKS = 64;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private DefaultVertx vertx;
+    private DefaultVramelContext context;
+    private HttpClient client;
+    private final List<StreamBody> bodies = new CopyOnWriteArrayList<StreamBody>();
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+        context = new DefaultVramelContext(vertx);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testUnreadRequestBodyIsDiscarded() throws Exception {
+        // answers straight away without reading the body
+        listen(PORT, new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                bodies.add(exchange.getIn().getBody(StreamBody.class));
+                exchange.getOut().setBody("ok");
+            }
+        });
+
+        final List<String> responses = post(PORT, 3);
+
+        assertEquals("[200 ok, 200 ok, 200 ok]", responses.toString());
+        for (StreamBody body : bodies) {
+            assertTrue(body.isSourceEnded());
+            assertEquals(CHUNKS * CHUNK_SIZE, body.getBytesRead());
+        }
+    }
+
+    @Test
+    public void testFailedFlowDiscardsTheRequestBody() throws Exception {
+        listen(FAILING_PORT, new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                final StreamBody body = exchange.getIn().getBody(StreamBody.class);
+                bodies.add(body);
+                // started reading, then gave up
+                body.dataHandler(new Handler<Buffer>() {
+                    @Override
+                    public void handle(Buffer buffer) {
+                    }
+                });
+                body.pause();
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        final List<String> responses = post(FAILING_PORT, 2);
+
+        assertEquals("[500 Internal Server Error, 500 Internal Server Error]", responses.toString());
+        for (StreamBody body : bodies) {
+            assertTrue(body.isSourceEnded());
+        }
+    }
+
+    private void listen(int port, Processor processor) throws Exception {
+        final JsonObject config = new JsonObject()
+                .putString("host", "localhost")
+                .putNumber("port", port)
+                .putBoolean("streaming", true);
+        final RestChannelAdapter endpoint = new RestChannelAdapter(context, "/upload", "POST", config);
+        endpoint.createConsumer(new UnitOfWorkProcessor(processor));
+        final HTTPListener listener = context.getServerFactory().createOrFindHttpListener(config);
+        final CountDownLatch listening = new CountDownLatch(1);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                listener.start();
+                listening.countDown();
+            }
+        });
+        assertTrue(listening.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+    }
+
+    /**
+     * Posts the requests one after the other over a single connection, each with a body larger than the socket
+     * buffers.
+     */
+    private List<String> post(final int port, final int count) throws Exception {
+        final List<String> responses = new CopyOnWriteArrayList<String>();
+        final CountDownLatch done = new CountDownLatch(count);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                client = vertx.createHttpClient().setHost("localhost").setPort(port).setKeepAlive(true).setMaxPoolSize(1);
+                for (int i = 0; i < count; i++) {
+                    final HttpClientRequest request = client.post("/upload", new Handler<HttpClientResponse>() {
+                        @Override
+                        public void handle(final HttpClientResponse response) {
+                            response.bodyHandler(new Handler<Buffer>() {
+                                @Override
+                                public void handle(Buffer buffer) {
+                                    responses.add(response.statusCode + " " + (response.statusCode == 200 ? buffer.toString() : response.statusMessage));
+                                    done.countDown();
+                                }
+                            });
+                        }
+                    });
+                    request.setChunked(true);
+                    final Buffer chunk = new Buffer(new byte[CHUNK_SIZE]);
+                    for (int c = 0; c < CHUNKS; c++) {
+                        request.write(chunk);
+                    }
+                    request.end();
+                }
+            }
+        });
+        assertTrue("Not every request was answered, got " + responses, done.await(10, TimeUnit.SECONDS));
+        // the bodies end on the event loop once discarded
+        Thread.sleep(100);
+        return responses;
+    }
+}
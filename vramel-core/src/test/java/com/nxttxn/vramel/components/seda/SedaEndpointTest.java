@@ -0,0 +1,248 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Consumer;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultUnitOfWork;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.AsyncProcessorConverterHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.impl.EventLoopContext;
+import org.vertx.java.core.impl.VertxInternal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the seda producers and consumers of a {@link SedaEndpoint}
+ */
+public class SedaEndpointTest {
+    private DefaultVramelContext context;
+    private final List<Consumer> consumers = new ArrayList<Consumer>();
+    private final List<Exchange> answers = new CopyOnWriteArrayList<Exchange>();
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Consumer consumer : consumers) {
+            consumer.stop();
+        }
+    }
+
+    @Test
+    public void testEndpointsOfTheSameNameShareTheQueue() throws Exception {
+        final SedaEndpoint first = endpoint("seda:shared?size=10");
+        final SedaEndpoint second = endpoint("seda:shared?concurrentConsumers=2");
+        assertSame(first.getQueue(), second.getQueue());
+        assertEquals(10, second.getQueue().getCapacity());
+        assertEquals(2, second.getConcurrentConsumers());
+        try {
+            context.getEndpoint("seda:shared?size=20");
+            fail("Created an endpoint with another size");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testProducerQueuesACopyWithAUnitOfWorkOfItsOwn() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:copy");
+        final Recorder recorder = consume(endpoint);
+
+        final Exchange exchange = exchange("hello");
+        exchange.setUnitOfWork(new DefaultUnitOfWork(exchange));
+        send(endpoint, exchange);
+        // the producer is done as soon as the copy is queued
+        assertEquals(1, answers.size());
+        assertSame(exchange, answers.get(0));
+
+        recorder.waitFor(1);
+        final Exchange processed = recorder.exchanges.get(0);
+        assertNotSame(exchange, processed);
+        assertEquals("hello", processed.getIn().getBody());
+        assertNull(processed.getUnitOfWork());
+        assertEquals(exchange.getExchangeId(), processed.getProperty(Exchange.CORRELATION_ID));
+    }
+
+    @Test
+    public void testConcurrentConsumersCompeteForTheExchanges() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:competing?concurrentConsumers=3");
+        final Recorder recorder = consume(endpoint);
+
+        for (int i = 0; i < 20; i++) {
+            send(endpoint, exchange(i));
+        }
+        recorder.waitFor(20);
+        // each exchange is processed once
+        final Set<Object> bodies = new HashSet<Object>();
+        for (Exchange exchange : recorder.exchanges) {
+            bodies.add(exchange.getIn().getBody());
+        }
+        assertEquals(20, bodies.size());
+    }
+
+    @Test
+    public void testOnlyOneConsumerWithoutMultipleConsumers() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:single");
+        consume(endpoint);
+        try {
+            consume(endpoint);
+            fail("Started a second consumer on the queue");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMultipleConsumersEachGetEveryExchange() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:topic?multipleConsumers=true");
+        final Recorder first = consume(endpoint);
+        final Recorder second = consume(endpoint);
+
+        for (int i = 0; i < 5; i++) {
+            final Exchange exchange = exchange(i);
+            exchange.setUnitOfWork(new DefaultUnitOfWork(exchange));
+            send(endpoint, exchange);
+        }
+        first.waitFor(5);
+        second.waitFor(5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), first.exchanges.get(i).getIn().getBody(Integer.class));
+            assertEquals(Integer.valueOf(i), second.exchanges.get(i).getIn().getBody(Integer.class));
+            // each consumer has an exchange of its own
+            assertNotSame(first.exchanges.get(i), second.exchanges.get(i));
+            assertNull(first.exchanges.get(i).getUnitOfWork());
+            assertNull(second.exchanges.get(i).getUnitOfWork());
+        }
+    }
+
+    @Test
+    public void testProducerWaitsForTheTaskToComplete() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:wait?waitForTaskToComplete=true");
+        final Recorder recorder = consume(endpoint);
+
+        final Exchange exchange = exchange("hello");
+        send(endpoint, exchange);
+        waitForAnswers(1);
+
+        assertSame(exchange, recorder.exchanges.get(0));
+        assertSame(exchange, answers.get(0));
+        assertEquals(Boolean.TRUE, answers.get(0).getIn().getHeader("processed"));
+    }
+
+    @Test
+    public void testConsumersRunOnTheEventLoops() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:loop?concurrentConsumers=2");
+        final Recorder recorder = consume(endpoint);
+        send(endpoint, exchange("hello"));
+        recorder.waitFor(1);
+        assertTrue(recorder.contexts.get(0) instanceof EventLoopContext);
+    }
+
+    @Test
+    public void testWorkerConsumersRunOnAThreadPool() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:worker?worker=true&concurrentConsumers=2");
+        final Recorder recorder = consume(endpoint);
+        send(endpoint, exchange("hello"));
+        recorder.waitFor(1);
+        assertNull(recorder.contexts.get(0));
+        assertFalse(recorder.threads.get(0).getName().startsWith("New I/O"));
+    }
+
+    @Test
+    public void testFailIfNoConsumers() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:none?failIfNoConsumers=true");
+        send(endpoint, exchange("hello"));
+        waitForAnswers(1);
+        assertTrue(answers.get(0).getException() instanceof RejectedExecutionException);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcurrentConsumersMustBePositive() throws Exception {
+        consume(endpoint("seda:zero?concurrentConsumers=0"));
+    }
+
+    private SedaEndpoint endpoint(String uri) {
+        return (SedaEndpoint) context.getEndpoint(uri);
+    }
+
+    private Recorder consume(SedaEndpoint endpoint) throws Exception {
+        final Recorder recorder = new Recorder();
+        final Consumer consumer = endpoint.createConsumer(AsyncProcessorConverterHelper.convert(recorder));
+        consumers.add(consumer);
+        consumer.start();
+        return recorder;
+    }
+
+    private void send(SedaEndpoint endpoint, Exchange exchange) throws Exception {
+        AsyncProcessorConverterHelper.convert(endpoint.createProducer()).process(exchange, new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        });
+    }
+
+    private Exchange exchange(Object body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private void waitForAnswers(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (answers.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, answers.size());
+    }
+
+    /**
+     * Records the exchanges it processes, and the threads and Vert.x contexts it processes them on
+     */
+    private class Recorder implements Processor {
+        final List<Exchange> exchanges = new CopyOnWriteArrayList<Exchange>();
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        final List<Context> contexts = Collections.synchronizedList(new ArrayList<Context>());
+
+        @Override
+        public void process(Exchange exchange) throws Exception {
+            threads.add(Thread.currentThread());
+            contexts.add(((VertxInternal) context.getVertx()).getContext());
+            exchange.getIn().setHeader("processed", true);
+            exchanges.add(exchange);
+        }
+
+        void waitFor(int count) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (exchanges.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, exchanges.size());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.nxttxn.vramel.components.seda;
+
+import com.nxttxn.vramel.Consumer;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.Producer;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.AsyncProcessorConverterHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the backpressure of the {@link SedaQueue}, and that producers are called back on their own context
+ */
+public class SedaQueueTest {
+    private DefaultVertx vertx;
+    private DefaultVramelContext context;
+    private final Semaphore processing = new Semaphore(0);
+    private final Semaphore release = new Semaphore(0);
+    private final List<String> processed = new CopyOnWriteArrayList<String>();
+    private final List<Exchange> answers = new CopyOnWriteArrayList<Exchange>();
+    private final List<Thread> answerThreads = new CopyOnWriteArrayList<Thread>();
+    private final AtomicReference<Thread> producerThread = new AtomicReference<Thread>();
+    private final AtomicInteger sentCount = new AtomicInteger();
+    private Context producerContext;
+    private Consumer consumer;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+        context = new DefaultVramelContext(vertx);
+        // the producers all run on the same event loop
+        final CountDownLatch started = new CountDownLatch(1);
+        producerContext = vertx.startOnEventLoop(new Runnable() {
+            @Override
+            public void run() {
+                producerThread.set(Thread.currentThread());
+                started.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.release(100);
+        if (consumer != null) {
+            consumer.stop();
+        }
+    }
+
+    @Test
+    public void testParkedProducerIsLetInOnceThereIsRoom() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:parked?size=2&whenFull=Block&worker=true");
+        startConsumer(endpoint);
+        final SedaQueue queue = endpoint.getQueue();
+
+        send(endpoint, 4);
+        // one is processed, two wait in the queue and the last producer is parked
+        assertTrue(processing.tryAcquire(5, TimeUnit.SECONDS));
+        waitFor(3);
+        assertEquals(2, queue.getSize());
+        assertEquals(1, queue.getBlockedProducers());
+
+        release.release();
+        waitFor(4);
+        assertEquals(0, queue.getBlockedProducers());
+        assertEquals(2, queue.getSize());
+        for (Exchange answer : answers) {
+            assertNull(answer.getException());
+        }
+
+        release.release(3);
+        waitForProcessed(4);
+        assertEquals("[0, 1, 2, 3]", processed.toString());
+        assertEquals(2, queue.getMaxSize());
+        assertProducerWasCalledBackOnItsOwnThread();
+    }
+
+    @Test
+    public void testWaitingProducerIsCalledBackOnItsOwnContext() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:wait?waitForTaskToComplete=true&worker=true");
+        startConsumer(endpoint);
+
+        send(endpoint, 2);
+        release.release(2);
+        waitFor(2);
+
+        assertEquals("processed 0", answers.get(0).getIn().getBody());
+        assertEquals("processed 1", answers.get(1).getIn().getBody());
+        assertProducerWasCalledBackOnItsOwnThread();
+        assertEquals(2, endpoint.getQueue().getCompleted());
+    }
+
+    @Test
+    public void testFullQueueFailsTheProducer() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:fail?size=1&worker=true");
+        startConsumer(endpoint);
+
+        send(endpoint, 1);
+        assertTrue(processing.tryAcquire(5, TimeUnit.SECONDS));
+        send(endpoint, 2);
+        waitFor(3);
+
+        assertNull(answers.get(0).getException());
+        assertNull(answers.get(1).getException());
+        assertTrue(answers.get(2).getException() instanceof RejectedExecutionException);
+        assertEquals(1, endpoint.getQueue().getRejected());
+    }
+
+    @Test
+    public void testFullQueueDropsTheExchange() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:drop?size=1&whenFull=Drop&worker=true");
+        startConsumer(endpoint);
+
+        send(endpoint, 1);
+        assertTrue(processing.tryAcquire(5, TimeUnit.SECONDS));
+        send(endpoint, 2);
+        waitFor(3);
+
+        for (Exchange answer : answers) {
+            assertNull(answer.getException());
+        }
+        assertEquals(1, endpoint.getQueue().getDropped());
+        release.release(2);
+        waitForProcessed(2);
+        assertEquals("[0, 1]", processed.toString());
+    }
+
+    @Test
+    public void testParkedProducerTimesOut() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:timeout?size=1&whenFull=Block&offerTimeout=100&worker=true");
+        startConsumer(endpoint);
+
+        send(endpoint, 1);
+        assertTrue(processing.tryAcquire(5, TimeUnit.SECONDS));
+        send(endpoint, 2);
+        waitFor(3);
+
+        assertTrue(answers.get(2).getException() instanceof RejectedExecutionException);
+        assertEquals(0, endpoint.getQueue().getBlockedProducers());
+        assertEquals(1, endpoint.getQueue().getRejected());
+        assertProducerWasCalledBackOnItsOwnThread();
+    }
+
+    @Test
+    public void testClearFailsTheWaitingProducers() throws Exception {
+        final SedaEndpoint endpoint = endpoint("seda:clear?size=1&whenFull=Block&worker=true");
+        startConsumer(endpoint);
+
+        send(endpoint, 1);
+        assertTrue(processing.tryAcquire(5, TimeUnit.SECONDS));
+        send(endpoint, 2);
+        waitFor(2);
+
+        endpoint.getQueue().clear();
+        waitFor(3);
+        assertTrue(answers.get(2).getException() instanceof RejectedExecutionException);
+        assertEquals(0, endpoint.getQueue().getSize());
+        assertProducerWasCalledBackOnItsOwnThread();
+    }
+
+    private SedaEndpoint endpoint(String uri) {
+        return (SedaEndpoint) context.getEndpoint(uri);
+    }
+
+    /**
+     * Starts a consumer which holds each exchange until the test releases it
+     */
+    private void startConsumer(SedaEndpoint endpoint) throws Exception {
+        consumer = endpoint.createConsumer(AsyncProcessorConverterHelper.convert(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                processing.release();
+                release.acquire();
+                processed.add(exchange.getIn().getBody(String.class));
+                exchange.getIn().setBody("processed " + exchange.getIn().getBody());
+            }
+        }));
+        consumer.start();
+    }
+
+    /**
+     * Sends <tt>count</tt> exchanges in a row from the event loop of the producers, numbered in the order they
+     * are sent
+     */
+    private void send(SedaEndpoint endpoint, final int count) throws Exception {
+        final Producer producer = endpoint.createProducer();
+        final CountDownLatch sent = new CountDownLatch(1);
+        producerContext.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        final Exchange exchange = new DefaultExchange(context);
+                        exchange.getIn().setBody(String.valueOf(sentCount.getAndIncrement()));
+                        AsyncProcessorConverterHelper.convert(producer).process(exchange, new OptionalAsyncResultHandler() {
+                            @Override
+                            public void handle(AsyncExchangeResult result) {
+                                answerThreads.add(Thread.currentThread());
+                                answers.add(result.result.get());
+                            }
+                        });
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                sent.countDown();
+            }
+        });
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+    }
+
+    private void waitFor(int answered) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (answers.size() < answered && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(answers.toString(), answered, answers.size());
+    }
+
+    private void waitForProcessed(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (processed.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, processed.size());
+    }
+
+    private void assertProducerWasCalledBackOnItsOwnThread() {
+        for (Thread thread : answerThreads) {
+            assertSame("A producer was called back on " + thread.getName(), producerThread.get(), thread);
+        }
+    }
+}
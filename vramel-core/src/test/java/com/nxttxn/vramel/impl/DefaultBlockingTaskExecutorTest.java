@@ -0,0 +1,171 @@
+package com.nxttxn.vramel.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.AsyncResultHandler;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link DefaultBlockingTaskExecutor} runs tasks off the event loop and calls back on it
+ */
+public class DefaultBlockingTaskExecutorTest {
+    private DefaultVertx vertx;
+    private DefaultBlockingTaskExecutor executor;
+    private final List<AsyncResult<String>> results = new CopyOnWriteArrayList<AsyncResult<String>>();
+    private final List<Thread> resultThreads = new CopyOnWriteArrayList<Thread>();
+    private final AtomicReference<Thread> callerThread = new AtomicReference<Thread>();
+    private Context callerContext;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+        executor = new DefaultBlockingTaskExecutor(new DefaultVramelContext(vertx));
+        executor.setPoolSize(1);
+        executor.setMaxQueueSize(1);
+        executor.start();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        callerContext = vertx.startOnEventLoop(new Runnable() {
+            @Override
+            public void run() {
+                callerThread.set(Thread.currentThread());
+                started.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    @Test
+    public void testTaskRunsOnAWorkerAndResumesOnTheCaller() throws Exception {
+        final AtomicReference<Thread> taskThread = new AtomicReference<Thread>();
+        execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                taskThread.set(Thread.currentThread());
+                return "done";
+            }
+        });
+        waitFor(1);
+
+        assertEquals("done", results.get(0).result);
+        assertNotSame(callerThread.get(), taskThread.get());
+        assertSame(callerThread.get(), resultThreads.get(0));
+        assertEquals(1, executor.getCompletedTasks());
+    }
+
+    @Test
+    public void testExceptionOfTheTaskIsTheResult() throws Exception {
+        execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new IllegalStateException("boom");
+            }
+        });
+        waitFor(1);
+
+        assertTrue(results.get(0).failed());
+        assertEquals("boom", results.get(0).exception.getMessage());
+        assertSame(callerThread.get(), resultThreads.get(0));
+        assertEquals(1, executor.getFailedTasks());
+    }
+
+    @Test
+    public void testSaturatedExecutorRejectsTheTask() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                running.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "first";
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        // one waits in the queue, the next has no room
+        execute(constant("second"));
+        execute(constant("third"));
+        waitFor(1);
+
+        assertTrue(results.get(0).exception instanceof RejectedExecutionException);
+        assertSame(callerThread.get(), resultThreads.get(0));
+        assertEquals(1, executor.getRejectedTasks());
+        assertEquals(1, executor.getQueueSize());
+
+        release.countDown();
+        waitFor(3);
+        assertEquals("first", results.get(1).result);
+        assertEquals("second", results.get(2).result);
+        assertEquals(0, executor.getQueueSize());
+        assertEquals(2, executor.getCompletedTasks());
+    }
+
+    @Test
+    public void testStoppedExecutorRejectsTheTask() throws Exception {
+        executor.stop();
+        execute(constant("never"));
+        waitFor(1);
+
+        assertTrue(results.get(0).exception instanceof RejectedExecutionException);
+        assertEquals(1, executor.getRejectedTasks());
+    }
+
+    private Callable<String> constant(final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Hands the task to the executor from the event loop of the caller
+     */
+    private void execute(final Callable<String> task) throws InterruptedException {
+        final CountDownLatch submitted = new CountDownLatch(1);
+        callerContext.execute(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(task, new AsyncResultHandler<String>() {
+                    @Override
+                    public void handle(AsyncResult<String> result) {
+                        resultThreads.add(Thread.currentThread());
+                        results.add(result);
+                    }
+                });
+                submitted.countDown();
+            }
+        });
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (results.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, results.size());
+    }
+}
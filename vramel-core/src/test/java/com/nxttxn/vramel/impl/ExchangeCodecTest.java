@@ -0,0 +1,212 @@
+package com.nxttxn.vramel.impl;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.spi.ExchangeCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the round trip of an {@link Exchange} through the {@link ExchangeCodec}s
+ */
+public class ExchangeCodecTest {
+    private DefaultVramelContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+    }
+
+    @Test
+    public void testSerializationIsTheDefault() throws Exception {
+        assertTrue(context.getExchangeCodec() instanceof SerializationExchangeCodec);
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        final Exchange exchange = sample();
+        final Exchange answer = roundTrip(new BinaryExchangeCodec(), exchange, new BinaryExchangeCodec());
+
+        assertEquals(exchange.getExchangeId(), answer.getExchangeId());
+        assertEquals(exchange.getIn().getBody(String.class), answer.getIn().getBody(String.class));
+        assertEquals("value", header(answer, "string"));
+        assertEquals(42, header(answer, "int"));
+        assertEquals(42L, header(answer, "long"));
+        assertEquals(1.5d, header(answer, "double"));
+        assertEquals(1.5f, header(answer, "float"));
+        assertEquals((short) 7, header(answer, "short"));
+        assertEquals((byte) 7, header(answer, "byte"));
+        assertEquals('c', header(answer, "char"));
+        assertEquals(Boolean.TRUE, header(answer, "true"));
+        assertEquals(Boolean.FALSE, header(answer, "false"));
+        assertEquals(new Date(1000), header(answer, "date"));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) answer.getIn().getHeader("bytes"));
+        assertEquals(exchange.getIn().getHeader("json"), header(answer, "json"));
+        assertEquals(exchange.getIn().getHeader("array"), header(answer, "array"));
+        assertEquals(exchange.getIn().getHeader("map"), header(answer, "map"));
+        // null values are skipped, like DefaultExchangeHolder does
+        assertFalse(answer.getIn().getHeaders().containsKey("null"));
+        assertEquals(new Currency("USD"), header(answer, "serializable"));
+
+        assertTrue(answer.hasOut());
+        assertEquals("reply", answer.getOut().getBody(String.class));
+        assertEquals(2.5f, answer.getProperty("property"));
+        assertTrue(answer.getException() instanceof IllegalStateException);
+        assertEquals("boom", answer.getException().getMessage());
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws Exception {
+        final Exchange exchange = sample();
+        final Exchange answer = roundTrip(new SerializationExchangeCodec(), exchange, new SerializationExchangeCodec());
+
+        assertEquals(exchange.getExchangeId(), answer.getExchangeId());
+        assertEquals(exchange.getIn().getBody(String.class), answer.getIn().getBody(String.class));
+        assertEquals("value", header(answer, "string"));
+        assertEquals(42L, header(answer, "long"));
+        assertEquals("reply", answer.getOut().getBody(String.class));
+        assertTrue(answer.getException() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testEachCodecReadsTheOtherFormat() throws Exception {
+        Exchange answer = roundTrip(new SerializationExchangeCodec(), sample(), new BinaryExchangeCodec());
+        assertEquals("value", header(answer, "string"));
+        assertEquals("reply", answer.getOut().getBody(String.class));
+
+        answer = roundTrip(new BinaryExchangeCodec(), sample(), new SerializationExchangeCodec());
+        assertEquals("value", header(answer, "string"));
+        assertEquals("reply", answer.getOut().getBody(String.class));
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanSerialization() throws Exception {
+        final Exchange exchange = sample();
+        final int binary = new BinaryExchangeCodec().encode(exchange).length;
+        final int serialized = new SerializationExchangeCodec().encode(exchange).length;
+        assertTrue("binary " + binary + " bytes, serialized " + serialized + " bytes", binary < serialized);
+    }
+
+    @Test
+    public void testWithoutJavaSerializationFallback() throws Exception {
+        final BinaryExchangeCodec codec = new BinaryExchangeCodec();
+        codec.setJavaSerializationFallback(false);
+        final Exchange answer = roundTrip(codec, sample(), codec);
+
+        assertFalse(answer.getIn().getHeaders().containsKey("serializable"));
+        assertEquals("value", header(answer, "string"));
+        // exceptions are always serialized
+        assertTrue(answer.getException() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testWithoutProperties() throws Exception {
+        final BinaryExchangeCodec codec = new BinaryExchangeCodec();
+        codec.setIncludeProperties(false);
+        final Exchange answer = roundTrip(codec, sample(), codec);
+
+        assertNull(answer.getProperty("property"));
+        assertEquals("value", header(answer, "string"));
+    }
+
+    @Test
+    public void testStrictFailsOnValuesItCannotWrite() throws Exception {
+        final BinaryExchangeCodec codec = new BinaryExchangeCodec();
+        codec.setStrict(true);
+        final Exchange exchange = sample();
+        // internal properties are still left out
+        exchange.setProperty(Exchange.AGGREGATION_STRATEGY, new Object());
+        assertEquals("value", header(roundTrip(codec, exchange, codec), "string"));
+
+        exchange.setProperty("notSerializable", new Object());
+        try {
+            codec.encode(exchange);
+            fail("Encoded a property which cannot be written");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("notSerializable"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedVersion() throws Exception {
+        final byte[] bytes = new BinaryExchangeCodec().encode(sample());
+        bytes[2] = 99;
+        new BinaryExchangeCodec().decode(new DefaultExchange(context), bytes);
+    }
+
+    private static Object header(Exchange exchange, String name) {
+        return exchange.getIn().getHeader(name);
+    }
+
+    private Exchange roundTrip(ExchangeCodec encoder, Exchange exchange, ExchangeCodec decoder) throws Exception {
+        final Exchange answer = new DefaultExchange(context);
+        decoder.decode(answer, encoder.encode(exchange));
+        return answer;
+    }
+
+    private Exchange sample() {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(new JsonObject().putString("accountId", "0123456789").putNumber("amount", 1250).encode());
+        exchange.getIn().setHeader("string", "value");
+        exchange.getIn().setHeader("int", 42);
+        exchange.getIn().setHeader("long", 42L);
+        exchange.getIn().setHeader("double", 1.5d);
+        exchange.getIn().setHeader("float", 1.5f);
+        exchange.getIn().setHeader("short", (short) 7);
+        exchange.getIn().setHeader("byte", (byte) 7);
+        exchange.getIn().setHeader("char", 'c');
+        exchange.getIn().setHeader("true", true);
+        exchange.getIn().setHeader("false", false);
+        exchange.getIn().setHeader("date", new Date(1000));
+        exchange.getIn().setHeader("bytes", new byte[]{1, 2, 3});
+        exchange.getIn().setHeader("json", new JsonObject().putString("x", "y").putNumber("n", 1));
+        exchange.getIn().setHeader("array", new JsonArray().addString("a").addNumber(2));
+        final List<Object> list = new ArrayList<Object>();
+        list.add(1);
+        list.add("two");
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("list", list);
+        map.put("key", "value");
+        exchange.getIn().setHeader("map", map);
+        exchange.getIn().setHeader("null", null);
+        exchange.getIn().setHeader("serializable", new Currency("USD"));
+        exchange.setProperty("property", 2.5f);
+        exchange.getOut().setBody("reply");
+        exchange.setException(new IllegalStateException("boom"));
+        return exchange;
+    }
+
+    private static class Currency implements java.io.Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String code;
+
+        Currency(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Currency && code.equals(((Currency) o).code);
+        }
+
+        @Override
+        public int hashCode() {
+            return code.hashCode();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.nxttxn.vramel.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.ReadStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the buffering, backpressure and framing of a {@link StreamBody} over a source the test pushes chunks into
+ */
+public class StreamBodyTest {
+    private PushedStream source;
+    private final List<String> events = new ArrayList<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        source = new PushedStream();
+    }
+
+    @Test
+    public void testSourceIsPausedUntilRead() throws Exception {
+        final StreamBody body = new StreamBody(source);
+        assertTrue(source.paused);
+        assertFalse(body.isReading());
+
+        // pushed before the source honours the pause
+        source.push("a");
+        source.push("b");
+        assertTrue(events.isEmpty());
+
+        read(body);
+        assertTrue(body.isReading());
+        assertFalse(source.paused);
+        assertEquals("[data a, data b]", events.toString());
+        assertEquals(2, body.getBytesRead());
+    }
+
+    @Test
+    public void testReaderPausesTheSource() throws Exception {
+        final StreamBody body = new StreamBody(source);
+        read(body);
+        source.push("a");
+
+        body.pause();
+        assertTrue(source.paused);
+        source.push("b");
+        source.end();
+        assertEquals("[data a]", events.toString());
+
+        body.resume();
+        assertEquals("[data a, data b, end]", events.toString());
+    }
+
+    @Test
+    public void testEndIsHeldWhilePaused() throws Exception {
+        final StreamBody body = new StreamBody(source);
+        read(body);
+        body.pause();
+        source.end();
+        assertTrue(body.isSourceEnded());
+        assertTrue(events.isEmpty());
+
+        body.resume();
+        assertEquals("[end]", events.toString());
+        body.resume();
+        assertEquals("The end is only delivered once", "[end]", events.toString());
+    }
+
+    @Test
+    public void testCompletionHandlerIsCalledWhetherOrNotTheBodyIsRead() throws Exception {
+        final StreamBody body = new StreamBody(source).completionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                events.add("completed " + e);
+            }
+        });
+        source.end();
+        assertEquals("[completed null]", events.toString());
+    }
+
+    @Test
+    public void testSourceExceptionDropsPendingData() throws Exception {
+        final StreamBody body = new StreamBody(source).completionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                events.add("completed " + e.getMessage());
+            }
+        });
+        source.push("a");
+        source.fail(new IllegalStateException("boom"));
+        assertEquals("[completed boom]", events.toString());
+
+        read(body);
+        assertEquals("[completed boom, exception boom]", events.toString());
+        source.push("b");
+        source.end();
+        assertEquals("[completed boom, exception boom]", events.toString());
+    }
+
+    @Test
+    public void testFailWhileReading() throws Exception {
+        final StreamBody body = new StreamBody(source);
+        read(body);
+        source.push("a");
+        body.fail(new IllegalStateException("timed out"));
+        body.fail(new IllegalStateException("again"));
+
+        assertEquals("[data a, exception timed out]", events.toString());
+    }
+
+    @Test
+    public void testDiscardReadsTheRestOfTheSource() throws Exception {
+        final StreamBody body = new StreamBody(source);
+        read(body);
+        body.pause();
+        source.push("a");
+        assertTrue(source.paused);
+
+        body.discard();
+        assertFalse(source.paused);
+        source.push("b");
+        source.end();
+
+        assertTrue(events.isEmpty());
+        assertTrue(body.isSourceEnded());
+        assertEquals(2, body.getBytesRead());
+    }
+
+    @Test
+    public void testDelimitedFramesRecordsAcrossChunks() throws Exception {
+        final StreamBody body = StreamBody.delimited(source, ",");
+        read(body);
+        source.push("a,b");
+        source.push("b,");
+        source.push("c");
+        source.end();
+
+        assertEquals("[data a, data bb, data c, end]", events.toString());
+    }
+
+    @Test
+    public void testDelimitedWithTrailingDelimiter() throws Exception {
+        final StreamBody body = StreamBody.delimited(source, "\n");
+        read(body);
+        source.push("a\nb\n");
+        source.end();
+
+        assertEquals("[data a, data b, end]", events.toString());
+    }
+
+    @Test
+    public void testDelimitedKeepsTheBackpressure() throws Exception {
+        final StreamBody body = StreamBody.delimited(source, ",");
+        read(body);
+        body.pause();
+        source.push("a,b,");
+        assertTrue(source.paused);
+        assertTrue(events.isEmpty());
+
+        body.resume();
+        assertEquals("[data a, data b]", events.toString());
+    }
+
+    @Test
+    public void testDelimitedAgainReturnsTheFramedBody() throws Exception {
+        final StreamBody body = StreamBody.delimited(new StreamBody(source), ",");
+        assertSame(body, StreamBody.delimited(body, ","));
+        read(body);
+        source.push("a,b");
+        source.end();
+
+        assertEquals("[data a, data b, end]", events.toString());
+    }
+
+    @Test
+    public void testDelimitedByAnotherDelimiterIsRejected() throws Exception {
+        final StreamBody body = StreamBody.delimited(source, ",");
+        try {
+            StreamBody.delimited(body, ";");
+            fail("Should have thrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private void read(StreamBody body) {
+        body.exceptionHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                events.add("exception " + e.getMessage());
+            }
+        });
+        body.endHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                events.add("end");
+            }
+        });
+        body.dataHandler(new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                events.add("data " + buffer.toString());
+            }
+        });
+    }
+
+    private static class PushedStream implements ReadStream {
+        private Handler<Buffer> dataHandler;
+        private Handler<Void> endHandler;
+        private Handler<Exception> exceptionHandler;
+        private boolean paused;
+
+        void push(String chunk) {
+            dataHandler.handle(new Buffer(chunk));
+        }
+
+        void end() {
+            endHandler.handle(null);
+        }
+
+        void fail(Exception e) {
+            exceptionHandler.handle(e);
+        }
+
+        @Override
+        public void dataHandler(Handler<Buffer> handler) {
+            dataHandler = handler;
+        }
+
+        @Override
+        public void pause() {
+            paused = true;
+        }
+
+        @Override
+        public void resume() {
+            paused = false;
+        }
+
+        @Override
+        public void exceptionHandler(Handler<Exception> handler) {
+            exceptionHandler = handler;
+        }
+
+        @Override
+        public void endHandler(Handler<Void> handler) {
+            endHandler = handler;
+        }
+    }
+}
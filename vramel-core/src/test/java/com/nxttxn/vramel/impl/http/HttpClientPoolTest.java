@@ -0,0 +1,259 @@
+package com.nxttxn.vramel.impl.http;
+
+import com.google.common.base.Optional;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.components.rest.RestChannelAdapter;
+import com.nxttxn.vramel.components.rest.RestProducer;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.impl.StreamBody;
+import com.nxttxn.vramel.processor.UnitOfWorkProcessor;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.http.HttpClientResponse;
+import org.vertx.java.core.http.HttpServer;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the limits and timeouts of a {@link HttpClientPool} against a local server whose responses are delayed
+ * by the number of ms in the request path
+ */
+public class HttpClientPoolTest {
+    private static final int PORT = 9191;
+
+    private DefaultVertx vertx;
+    private HttpServer server;
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final List<String> results = new CopyOnWriteArrayList<>();
+    private HttpClientPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+        final CountDownLatch listening = new CountDownLatch(1);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                server = vertx.createHttpServer().requestHandler(new Handler<HttpServerRequest>() {
+                    @Override
+                    public void handle(final HttpServerRequest request) {
+                        final int now = concurrent.incrementAndGet();
+                        synchronized (maxConcurrent) {
+                            maxConcurrent.set(Math.max(maxConcurrent.get(), now));
+                        }
+                        final long delay = Long.parseLong(request.path.substring(1));
+                        vertx.setTimer(Math.max(delay, 1), new Handler<Long>() {
+                            @Override
+                            public void handle(Long event) {
+                                concurrent.decrementAndGet();
+                                request.response.end(delay == 0 ? new String(new char[256 * 1024]).replace('\0', 'x') : "ok " + delay);
+                            }
+                        });
+                    }
+                }).listen(PORT, "localhost");
+                listening.countDown();
+            }
+        });
+        assertTrue(listening.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void testRequestsOverTheLimitsWaitOrAreRejected() throws Exception {
+        pool = createPool(new HttpClientPoolOptions().setMaxConnections(2).setMaxPendingRequests(3));
+        final CountDownLatch done = new CountDownLatch(6);
+        final List<String> state = new CopyOnWriteArrayList<>();
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                for (int i = 0; i < 6; i++) {
+                    pool.request(request(i, "/200", done));
+                }
+                // checked on the loop, before any response can come back
+                state.add("inFlight=" + pool.getInFlightCount() + " pending=" + pool.getPendingRequestCount());
+            }
+        });
+
+        assertTrue("Not every request completed", done.await(5, TimeUnit.SECONDS));
+        assertEquals("[inFlight=2 pending=3]", state.toString());
+        assertTrue(results.contains("5:RejectedExecutionException"));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(results.toString(), results.contains(i + ":ok 200"));
+        }
+        assertEquals("More requests on the wire than connections", 2, maxConcurrent.get());
+
+        final JsonObject metrics = pool.toJson();
+        assertEquals(5, metrics.getNumber("sent").intValue());
+        assertEquals(5, metrics.getNumber("completed").intValue());
+        assertEquals(1, metrics.getNumber("rejected").intValue());
+        assertEquals(0, metrics.getNumber("inFlight").intValue());
+    }
+
+    @Test
+    public void testRequestTimeoutCoversTheTimeSpentQueued() throws Exception {
+        pool = createPool(new HttpClientPoolOptions().setMaxConnections(1).setRequestTimeout(300));
+        final CountDownLatch done = new CountDownLatch(2);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                pool.request(request(0, "/1000", done));
+                pool.request(request(1, "/10", done));
+            }
+        });
+
+        assertTrue("Not every request completed", done.await(5, TimeUnit.SECONDS));
+        assertTrue(results.toString(), results.contains("0:TimeoutException"));
+        assertTrue(results.toString(), results.contains("1:TimeoutException"));
+        assertEquals(2, pool.toJson().getNumber("timedOut").intValue());
+        assertEquals(0, pool.getInFlightCount());
+    }
+
+    @Test
+    public void testNoRequestTimeoutByDefault() throws Exception {
+        final HttpClientPoolOptions options = HttpClientPoolOptions.fromConfig(new JsonObject());
+        assertEquals(0, options.getRequestTimeout());
+        assertEquals(HttpClientPoolOptions.DEFAULT_MAX_CONNECTIONS, options.getMaxConnections());
+
+        pool = createPool(options);
+        final CountDownLatch done = new CountDownLatch(1);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                pool.request(request(0, "/500", done));
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("[0:ok 500]", results.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxConnectionsMustBePositive() throws Exception {
+        HttpClientPoolOptions.fromConfig(new JsonObject().putNumber("max_connections", 0));
+    }
+
+    @Test
+    public void testRestProducerReportsItsPool() throws Exception {
+        final DefaultVramelContext context = new DefaultVramelContext(vertx);
+        final RestProducer producer = createRestProducer(context, false);
+        pool = producer.getHttpClientPool();
+
+        assertSame(pool, context.getMetricsRegistry().getMetricsSource(HttpClientPool.METRICS_TYPE, "localhost:" + PORT));
+        final JsonObject metrics = context.getMetricsRegistry().getMetrics().getObject("httpClientPools").getObject("localhost:" + PORT);
+        assertNotNull(metrics);
+        assertEquals(HttpClientPoolOptions.DEFAULT_MAX_CONNECTIONS, metrics.getNumber("maxConnections").intValue());
+    }
+
+    @Test
+    public void testUnreadStreamedResponseIsReleasedWhenTheExchangeCompletes() throws Exception {
+        final DefaultVramelContext context = new DefaultVramelContext(vertx);
+        final RestProducer producer = createRestProducer(context, true);
+        pool = producer.getHttpClientPool();
+        final CountDownLatch answered = new CountDownLatch(1);
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody("");
+        final List<Exchange> answers = new CopyOnWriteArrayList<>();
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                try {
+                    // the flow completes without ever reading the body
+                    new UnitOfWorkProcessor(producer).process(exchange, new OptionalAsyncResultHandler() {
+                        @Override
+                        public void handle(AsyncExchangeResult result) {
+                            answers.add(result.result.get());
+                            answered.countDown();
+                        }
+                    });
+                } catch (Exception e) {
+                    exchange.setException(e);
+                    answered.countDown();
+                }
+            }
+        });
+
+        assertTrue("No answer", answered.await(5, TimeUnit.SECONDS));
+        assertEquals(null, answers.get(0).getException());
+        final StreamBody body = (StreamBody) answers.get(0).getOut().getBody();
+        assertFalse(body.isReading());
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("The connection was not given back", 0, pool.getInFlightCount());
+        assertEquals(256 * 1024, body.getBytesRead());
+    }
+
+    private RestProducer createRestProducer(DefaultVramelContext context, boolean streaming) {
+        final JsonObject config = new JsonObject()
+                .putString("host", "localhost")
+                .putNumber("port", PORT)
+                .putBoolean("ssl", false)
+                .putBoolean("streaming", streaming)
+                .putNumber("max_connections", streaming ? 1 : HttpClientPoolOptions.DEFAULT_MAX_CONNECTIONS);
+        return new RestProducer(new RestChannelAdapter(context, "/0", "GET", config));
+    }
+
+    private HttpClientPool createPool(HttpClientPoolOptions options) {
+        return new HttpClientPool(vertx, URI.create("http://localhost:" + PORT), Optional.<String>absent(), Optional.<String>absent(), options);
+    }
+
+    private HttpClientPool.Request request(final int index, String path, final CountDownLatch done) {
+        return new HttpClientPool.Request("GET", path) {
+            @Override
+            protected void writeRequest(HttpClientRequest request) {
+                request.end();
+            }
+
+            @Override
+            protected void handleResponse(HttpClientResponse response) {
+                response.bodyHandler(new Handler<Buffer>() {
+                    @Override
+                    public void handle(Buffer buffer) {
+                        if (end()) {
+                            results.add(index + ":" + buffer.toString());
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            protected void handleException(Exception e) {
+                results.add(index + ":" + e.getClass().getSimpleName());
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.nxttxn.vramel.impl.http;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.http.HttpServerRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the route lookup of the {@link TrieRouter}
+ */
+public class TrieRouterTest {
+    private TrieRouter router;
+    private TrieRouter.Match match;
+
+    @Before
+    public void setUp() throws Exception {
+        router = new TrieRouter()
+                .get("/", handler())
+                .get("/status", handler())
+                .get("/accounts/:id", handler())
+                .get("/accounts/search", handler())
+                .get("/accounts/:accountId/cards", handler())
+                .post("/accounts/:id/transfers/:transferId", handler())
+                .get("/files/*path", handler())
+                .all("/any/:value", handler());
+        match = new TrieRouter.Match(0);
+    }
+
+    @Test
+    public void testStaticRoutes() throws Exception {
+        assertMatch("GET", "/", "/");
+        assertMatch("GET", "/status", "/status");
+        assertEquals(0, match.getParamCount());
+        assertEquals(8, router.size());
+    }
+
+    @Test
+    public void testParametersAreCaptured() throws Exception {
+        assertMatch("GET", "/accounts/42", "/accounts/:id");
+        assertParams("/accounts/42", "id=42");
+
+        assertMatch("POST", "/accounts/42/transfers/7", "/accounts/:id/transfers/:transferId");
+        assertParams("/accounts/42/transfers/7", "id=42", "transferId=7");
+    }
+
+    @Test
+    public void testRoutesSharingAParameterSegmentKeepTheirOwnNames() throws Exception {
+        assertMatch("GET", "/accounts/42/cards", "/accounts/:accountId/cards");
+        assertParams("/accounts/42/cards", "accountId=42");
+    }
+
+    @Test
+    public void testStaticSegmentWinsOverAParameter() throws Exception {
+        assertMatch("GET", "/accounts/search", "/accounts/search");
+        assertEquals(0, match.getParamCount());
+    }
+
+    @Test
+    public void testBacktracksFromAStaticSegmentToAParameter() throws Exception {
+        // search matches the static segment first, which has no transfers route under it
+        assertMatch("POST", "/accounts/search/transfers/7", "/accounts/:id/transfers/:transferId");
+        assertParams("/accounts/search/transfers/7", "id=search", "transferId=7");
+    }
+
+    @Test
+    public void testWildcardMatchesTheRestOfThePath() throws Exception {
+        assertMatch("GET", "/files/a/b/c.txt", "/files/*path");
+        assertParams("/files/a/b/c.txt", "path=a/b/c.txt");
+
+        assertMatch("GET", "/files/", "/files/*path");
+        assertParams("/files/", "path=");
+
+        assertNoMatch("GET", "/files");
+    }
+
+    @Test
+    public void testRoutesAreMatchedByMethod() throws Exception {
+        assertNoMatch("GET", "/accounts/42/transfers/7");
+        assertNoMatch("POST", "/status");
+
+        assertMatch("PATCH", "/any/3", "/any/:value");
+        assertMatch("GET", "/any/3", "/any/:value");
+        assertParams("/any/3", "value=3");
+    }
+
+    @Test
+    public void testPathsThatDoNotMatch() throws Exception {
+        // a parameter does not match an empty segment
+        assertNoMatch("GET", "/accounts/");
+        assertNoMatch("GET", "/status/");
+        assertNoMatch("GET", "/unknown");
+        assertNoMatch("GET", "status");
+        assertNoMatch("GET", "");
+        assertNoMatch("GET", null);
+    }
+
+    @Test
+    public void testFirstRouteAddedIsKept() throws Exception {
+        final Handler<HttpServerRequest> first = handler();
+        router.get("/twice", first).get("/twice", handler());
+
+        assertMatch("GET", "/twice", "/twice");
+        assertSame(first, match.getHandler());
+        assertEquals(9, router.size());
+    }
+
+    @Test
+    public void testMatchGrowsForRoutesWithMoreParameters() throws Exception {
+        router.get("/:a/:b/:c/:d", handler());
+        assertMatch("GET", "/1/2/3/4", "/:a/:b/:c/:d");
+        assertParams("/1/2/3/4", "a=1", "b=2", "c=3", "d=4");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPatternMustStartWithASlash() throws Exception {
+        router.get("status", handler());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWildcardMustBeTheLastSegment() throws Exception {
+        router.get("/files/*path/more", handler());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParameterMustHaveAName() throws Exception {
+        router.get("/accounts/:", handler());
+    }
+
+    private void assertMatch(String method, String path, String pattern) {
+        assertTrue(method + " " + path + " did not match", router.match(method, path, match));
+        assertEquals(pattern, match.getPattern());
+    }
+
+    private void assertNoMatch(String method, String path) {
+        assertFalse(method + " " + path + " matched " + match.getPattern(), router.match(method, path, match));
+        assertNull(match.getHandler());
+    }
+
+    private void assertParams(String path, String... expected) {
+        assertEquals(expected.length, match.getParamCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], match.getParamName(i) + "=" + match.getParamValue(path, i));
+        }
+    }
+
+    private static Handler<HttpServerRequest> handler() {
+        return new Handler<HttpServerRequest>() {
+            @Override
+            public void handle(HttpServerRequest request) {
+            }
+        };
+    }
+}
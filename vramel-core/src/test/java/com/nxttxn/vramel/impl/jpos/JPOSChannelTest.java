@@ -0,0 +1,309 @@
+package com.nxttxn.vramel.impl.jpos;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.packager.ISO87BPackager;
+import org.jpos.iso.packager.XMLPackager;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.net.NetSocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the flow control and framing of the {@link JPOSChannelIn} and {@link JPOSChannelOut} streams
+ */
+public class JPOSChannelTest {
+    private DefaultVertx vertx;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+    }
+
+    @Test
+    public void testIncomingMessagesAreParsedAfterTheWrite() throws Exception {
+        final AtomicInteger parsed = new AtomicInteger();
+        final AtomicInteger drained = new AtomicInteger();
+        final CountDownLatch allParsed = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                try {
+                    final JPOSChannelIn in = new JPOSChannelIn("test", vertx);
+                    in.newISOMsgHandler(new Handler<ISOMsg>() {
+                        @Override
+                        public void handle(ISOMsg isoMsg) {
+                            if (parsed.incrementAndGet() == 100) {
+                                allParsed.countDown();
+                            }
+                        }
+                    });
+                    in.drainHandler(new Handler<Void>() {
+                        @Override
+                        public void handle(Void event) {
+                            drained.incrementAndGet();
+                        }
+                    });
+
+                    final Buffer data = new Buffer();
+                    for (int i = 0; i < 100; i++) {
+                        data.appendBytes(pack(makeISOMsg(i)));
+                    }
+                    in.writeBuffer(data);
+
+                    // nothing is parsed on the stack of the socket, the messages wait for the next tick
+                    assertEquals(0, parsed.get());
+                    assertEquals(100, in.getPendingMessageCount());
+                    assertTrue("The queue of the default size is not full", in.writeQueueFull());
+                } catch (Throwable t) {
+                    failure.set(t);
+                    allParsed.countDown();
+                }
+            }
+        });
+
+        assertTrue("Not every message was parsed", allParsed.await(5, TimeUnit.SECONDS));
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(100, parsed.get());
+        assertEquals("The pump was not told to resume once", 1, drained.get());
+    }
+
+    @Test
+    public void testIncomingMessagesAreParsedStraightAwayWithoutVertx() throws Exception {
+        final List<String> stans = new ArrayList<>();
+        final JPOSChannelIn in = new JPOSChannelIn("test");
+        in.newISOMsgHandler(new Handler<ISOMsg>() {
+            @Override
+            public void handle(ISOMsg isoMsg) {
+                stans.add(isoMsg.getString(11));
+            }
+        });
+
+        // a message split across two reads
+        final byte[] packed = pack(makeISOMsg(1));
+        in.writeBuffer(new Buffer(packed).getBuffer(0, 10));
+        assertEquals(0, stans.size());
+        in.writeBuffer(new Buffer(packed).getBuffer(10, packed.length));
+
+        assertEquals(1, stans.size());
+        assertEquals("000001", stans.get(0));
+        assertFalse(in.writeQueueFull());
+    }
+
+    @Test
+    public void testOutgoingMessagesAreQueuedWhilePaused() throws Exception {
+        final List<Buffer> written = new ArrayList<>();
+        final AtomicInteger drained = new AtomicInteger();
+        final JPOSChannelOut out = new JPOSChannelOut("test");
+        out.dataHandler(new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                written.add(buffer);
+            }
+        });
+        out.drainHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                drained.incrementAndGet();
+            }
+        });
+        out.setWriteQueueMaxSize(2);
+
+        out.sendISOMsg(makeISOMsg(1));
+        assertEquals(1, written.size());
+
+        out.pause();
+        out.sendISOMsg(makeISOMsg(2));
+        out.sendISOMsg(makeISOMsg(3));
+        assertEquals(1, written.size());
+        assertEquals(2, out.getPendingMessageCount());
+        assertTrue(out.writeQueueFull());
+        try {
+            out.sendISOMsg(makeISOMsg(4));
+            fail("Sent a message over a full queue");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        out.resume();
+        assertEquals(3, written.size());
+        assertEquals(0, out.getPendingMessageCount());
+        assertFalse(out.writeQueueFull());
+        assertEquals(1, drained.get());
+    }
+
+    @Test
+    public void testLengthPrefixedMessagesSplitAcrossReads() throws Exception {
+        final JPOSChannelFormat format = new JPOSChannelFormat(new ISO87BPackager(), 2);
+        final List<String> stans = new ArrayList<>();
+        final JPOSChannelIn in = new JPOSChannelIn("test", null, format);
+        in.newISOMsgHandler(new Handler<ISOMsg>() {
+            @Override
+            public void handle(ISOMsg isoMsg) {
+                stans.add(isoMsg.getString(11));
+            }
+        });
+
+        final Buffer data = new Buffer();
+        data.appendBytes(format.pack(makeISOMsg(1)).getBytes());
+        // a keep alive
+        data.appendShort((short) 0);
+        data.appendBytes(format.pack(makeISOMsg(2)).getBytes());
+        for (int i = 0; i < data.length(); i++) {
+            in.writeBuffer(data.getBuffer(i, i + 1));
+        }
+
+        assertEquals(2, stans.size());
+        assertEquals("000001", stans.get(0));
+        assertEquals("000002", stans.get(1));
+    }
+
+    @Test
+    public void testLengthHeaderOverTheMaxFrameLength() throws Exception {
+        final JPOSChannelFormat format = new JPOSChannelFormat(new ISO87BPackager(), 4, 100);
+        final AtomicInteger parsed = new AtomicInteger();
+        final List<Exception> tooLong = new ArrayList<>();
+        final JPOSChannelIn in = new JPOSChannelIn("test", null, format);
+        in.newISOMsgHandler(new Handler<ISOMsg>() {
+            @Override
+            public void handle(ISOMsg isoMsg) {
+                parsed.incrementAndGet();
+            }
+        });
+        in.frameTooLongHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                tooLong.add(e);
+            }
+        });
+
+        in.writeBuffer(format.pack(makeISOMsg(1)));
+        assertEquals(1, parsed.get());
+
+        in.writeBuffer(new Buffer().appendInt(101).appendBytes(new byte[101]));
+        in.writeBuffer(format.pack(makeISOMsg(2)));
+        in.writeBuffer(new Buffer().appendInt(-1));
+
+        assertEquals("The connection was not closed once", 1, tooLong.size());
+        assertEquals("Kept reading after the frame that was too long", 1, parsed.get());
+    }
+
+    @Test
+    public void testXmlWithoutAnEndWithinTheMaxFrameLength() throws Exception {
+        final JPOSChannelFormat format = JPOSChannelFormat.fromConfig(new JsonObject().putNumber("max_frame_length", 1000));
+        final AtomicInteger parsed = new AtomicInteger();
+        final List<Exception> tooLong = new ArrayList<>();
+        final JPOSChannelIn in = new JPOSChannelIn("test", null, format);
+        in.newISOMsgHandler(new Handler<ISOMsg>() {
+            @Override
+            public void handle(ISOMsg isoMsg) {
+                parsed.incrementAndGet();
+            }
+        });
+        in.frameTooLongHandler(new Handler<Exception>() {
+            @Override
+            public void handle(Exception e) {
+                tooLong.add(e);
+            }
+        });
+
+        // many messages in one read are fine, only the bytes after the last complete one count
+        final Buffer data = new Buffer();
+        for (int i = 0; i < 20; i++) {
+            data.appendBytes(pack(makeISOMsg(i)));
+        }
+        in.writeBuffer(data);
+        assertEquals(20, parsed.get());
+        assertEquals(0, tooLong.size());
+
+        for (int i = 0; i < 11; i++) {
+            in.writeBuffer(new Buffer(new byte[100]));
+        }
+        assertEquals(1, tooLong.size());
+        assertEquals(20, parsed.get());
+    }
+
+    @Test
+    public void testConnectionIsClosedOnAFrameTooLong() throws Exception {
+        final JPOSChannelFormat format = new JPOSChannelFormat(new ISO87BPackager(), 2, 100);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final JPOSServer server = new JPOSServer(vertx, format).jposServerRequestHandler(new Handler<JPOSServerRequest>() {
+            @Override
+            public void handle(JPOSServerRequest event) {
+            }
+        }).listen(9190, "127.0.0.1");
+        try {
+            vertx.createNetClient().connect(9190, "127.0.0.1", new Handler<NetSocket>() {
+                @Override
+                public void handle(NetSocket socket) {
+                    socket.closedHandler(new Handler<Void>() {
+                        @Override
+                        public void handle(Void event) {
+                            closed.countDown();
+                        }
+                    });
+                    socket.write(new Buffer().appendShort((short) 1000));
+                }
+            });
+            assertTrue("The server did not close the connection", closed.await(5, TimeUnit.SECONDS));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testFormatFromConfig() throws Exception {
+        assertSame(JPOSChannelFormat.XML, JPOSChannelFormat.fromConfig(new JsonObject()));
+        assertEquals(JPOSChannelFormat.DEFAULT_MAX_FRAME_LENGTH, JPOSChannelFormat.XML.getMaxFrameLength());
+
+        final JPOSChannelFormat format = JPOSChannelFormat.fromConfig(new JsonObject()
+                .putString("packager", ISO87BPackager.class.getName())
+                .putNumber("length_header", 4)
+                .putNumber("max_frame_length", 4096));
+        assertTrue(format.isLengthPrefixed());
+        assertEquals(4, format.getLengthHeaderSize());
+        assertEquals(4096, format.getMaxFrameLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFormatFromConfigWithAnUnknownPackager() throws Exception {
+        JPOSChannelFormat.fromConfig(new JsonObject().putString("packager", "org.example.NoSuchPackager"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFormatFromConfigWithAnInvalidMaxFrameLength() throws Exception {
+        JPOSChannelFormat.fromConfig(new JsonObject().putString("packager", ISO87BPackager.class.getName()).putNumber("max_frame_length", 0));
+    }
+
+    static ISOMsg makeISOMsg(int stan) throws ISOException {
+        final ISOMsg isoMsg = new ISOMsg();
+        isoMsg.setMTI("0200");
+        isoMsg.set(11, String.format("%06d", stan));
+        return isoMsg;
+    }
+
+    private static byte[] pack(ISOMsg isoMsg) throws ISOException {
+        isoMsg.setPackager(new XMLPackager());
+        return isoMsg.pack();
+    }
+}
@@ -1,5 +1,6 @@
 package com.nxttxn.vramel.impl.jpos;
 
+import com.nxttxn.vramel.management.MetricsRegistry;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.slf4j.Logger;
@@ -7,12 +8,20 @@ import org.slf4j.LoggerFactory;
 import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.AsyncResultHandler;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.java.testframework.TestBase;
 import org.vertx.java.testframework.TestUtils;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test JPOSClient
@@ -259,6 +268,311 @@ public class JPOSClientTest extends TestBase {
     }
 
 
+    /**
+     * Test that responses are handed to the request with the same key, even when the server answers out of order.
+     */
+    public void testResponsesAreMatchedToTheirRequestsOutOfOrder() throws Exception {
+        final int port = 9184;
+        final List<JPOSServerRequest> held = new ArrayList<>();
+        final JPOSServer jposServer = createJPOSServer(port, new TestJPOSServerRequestHandler() {
+            @Override
+            void handleRequest(JPOSServerRequest event) throws Exception {
+                if (respondToAck(event)) {
+                    return;
+                }
+                held.add(event);
+                if (held.size() == 3) {
+                    // answer the newest request first
+                    for (int i = held.size() - 1; i >= 0; i--) {
+                        respond(held.get(i));
+                    }
+                }
+            }
+        });
+        final JPOSClient jposClient = createJPOSClient(port);
+
+        jposClient.whenActive(5000, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                final AtomicInteger responses = new AtomicInteger();
+                try {
+                    tu.azzert(!event.failed(), "whenActive failed");
+                    for (int i = 0; i < 3; i++) {
+                        final ISOMsg request = makeISOMsg("2100");
+                        jposClient.sendISOMsg(request, new AsyncResultHandler<ISOMsg>() {
+                            @Override
+                            public void handle(AsyncResult<ISOMsg> response) {
+                                try {
+                                    tu.azzert(!response.failed(), "request failed");
+                                    tu.azzert(request.getString("1000").equals(response.result.getString("1000")), "response matched to the wrong request");
+                                    tu.azzert("2110".equals(response.result.getMTI()), "not a response");
+                                } catch (ISOException e) {
+                                    tu.exception(e, "bad response");
+                                } finally {
+                                    if (responses.incrementAndGet() == 3) {
+                                        tu.azzert(jposClient.getPendingRequestCount() == 0, "requests still pending");
+                                        completeTest();
+                                        jposServer.close();
+                                    }
+                                }
+                            }
+                        });
+                    }
+                } catch (ISOException e) {
+                    tu.exception(e, "cannot build request");
+                    completeTest();
+                    jposServer.close();
+                }
+            }
+        });
+
+        startTest();
+    }
+
+    /**
+     * Test that a request fails with a timeout when its response does not arrive in time, and is then forgotten.
+     */
+    public void testRequestTimesOutWithoutAResponse() throws Exception {
+        final int port = 9185;
+        final JPOSServer jposServer = createJPOSServer(port, new TestJPOSServerRequestHandler() {
+            @Override
+            void handleRequest(JPOSServerRequest event) throws Exception {
+                respondToAck(event);
+            }
+        });
+        final JPOSClient jposClient = createJPOSClient(port);
+
+        jposClient.whenActive(5000, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                try {
+                    tu.azzert(!event.failed(), "whenActive failed");
+                    jposClient.sendISOMsg(makeISOMsg("2100"), new AsyncResultHandler<ISOMsg>() {
+                        @Override
+                        public void handle(AsyncResult<ISOMsg> response) {
+                            try {
+                                tu.azzert(response.failed(), "request did not time out");
+                                tu.azzert(response.exception instanceof JPOSResponseTimeoutException, "Exception is not a Timeout");
+                                tu.azzert(jposClient.getPendingRequestCount() == 0, "request still pending");
+                            } finally {
+                                completeTest();
+                                jposServer.close();
+                            }
+                        }
+                    }, 300);
+                } catch (ISOException e) {
+                    tu.exception(e, "cannot build request");
+                    completeTest();
+                    jposServer.close();
+                }
+            }
+        });
+
+        startTest();
+    }
+
+    /**
+     * Test that a second request with the key of one still waiting for its response is rejected.
+     */
+    public void testRequestWithAPendingKeyIsRejected() throws Exception {
+        final int port = 9186;
+        final JPOSServer jposServer = createJPOSServer(port, new TestJPOSServerRequestHandler() {
+            @Override
+            void handleRequest(JPOSServerRequest event) throws Exception {
+                respondToAck(event);
+            }
+        });
+        final JPOSClient jposClient = createJPOSClient(port);
+
+        jposClient.whenActive(5000, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                try {
+                    tu.azzert(!event.failed(), "whenActive failed");
+                    final ISOMsg request = makeISOMsg("2100");
+                    jposClient.sendISOMsg(request, new AsyncResultHandler<ISOMsg>() {
+                        @Override
+                        public void handle(AsyncResult<ISOMsg> response) {
+                        }
+                    }, 1000);
+                    jposClient.sendISOMsg(request, new AsyncResultHandler<ISOMsg>() {
+                        @Override
+                        public void handle(AsyncResult<ISOMsg> response) {
+                            try {
+                                tu.azzert(response.failed(), "duplicate request was sent");
+                                tu.azzert(response.exception instanceof IllegalStateException, "unexpected exception " + response.exception);
+                                tu.azzert(jposClient.getPendingRequestCount() == 1, "the first request is no longer pending");
+                            } finally {
+                                completeTest();
+                                jposServer.close();
+                            }
+                        }
+                    }, 1000);
+                } catch (ISOException e) {
+                    tu.exception(e, "cannot build request");
+                    completeTest();
+                    jposServer.close();
+                }
+            }
+        });
+
+        startTest();
+    }
+
+    /**
+     * Test that the requests waiting on a connection fail as soon as it closes, rather than waiting for their timeout.
+     */
+    public void testPendingRequestsFailWhenTheConnectionCloses() throws Exception {
+        final int port = 9187;
+        final JPOSServer[] jposServer = new JPOSServer[1];
+        jposServer[0] = createJPOSServer(port, new TestJPOSServerRequestHandler() {
+            @Override
+            void handleRequest(JPOSServerRequest event) throws Exception {
+                if (!respondToAck(event)) {
+                    closeServer(jposServer[0]);
+                }
+            }
+        });
+        final JPOSClient jposClient = createJPOSClient(port);
+
+        jposClient.whenActive(5000, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                try {
+                    tu.azzert(!event.failed(), "whenActive failed");
+                    jposClient.sendISOMsg(makeISOMsg("2100"), new AsyncResultHandler<ISOMsg>() {
+                        @Override
+                        public void handle(AsyncResult<ISOMsg> response) {
+                            try {
+                                tu.azzert(response.failed(), "request did not fail");
+                                tu.azzert(response.exception instanceof JPOSChannelClosedException, "unexpected exception " + response.exception);
+                                tu.azzert(jposClient.getPendingRequestCount() == 0, "request still pending");
+                            } finally {
+                                completeTest();
+                            }
+                        }
+                    }, 10000);
+                } catch (ISOException e) {
+                    tu.exception(e, "cannot build request");
+                    completeTest();
+                }
+            }
+        });
+
+        startTest();
+    }
+
+
+    /**
+     * Test that a pooled client spreads its requests over the connections with the fewest responses outstanding,
+     * and reports them in its metrics.
+     */
+    public void testPooledRequestsGoToTheLeastBusyConnection() throws Exception {
+        final int port = 9188;
+        final List<JPOSServerRequest> held = new ArrayList<>();
+        final JPOSServer jposServer = createJPOSServer(port, new TestJPOSServerRequestHandler() {
+            @Override
+            void handleRequest(JPOSServerRequest event) throws Exception {
+                if (!respondToAck(event)) {
+                    held.add(event);
+                }
+            }
+        });
+        final JPOSClient jposClient = new JPOSClient(vertx, URI.create("jpos://" + host + ":" + port), JPOSClient.DEFAULT_KEY, 2, 3);
+        tu.azzert(jposClient.getPoolSize() == 3);
+
+        jposClient.whenActive(5000, new AsyncResultHandler<Void>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                tu.azzert(!event.failed(), "whenActive failed");
+                // give the other connections time to complete their handshake
+                vertx.setTimer(500, new Handler<Long>() {
+                    @Override
+                    public void handle(Long timerId) {
+                        boolean testFailed = true;
+                        try {
+                            tu.azzert(jposClient.getActiveChannelCount() == 3, "not every connection is active");
+                            final AtomicInteger responses = new AtomicInteger();
+                            for (int i = 0; i < 6; i++) {
+                                jposClient.sendISOMsg(makeISOMsg("2100"), new AsyncResultHandler<ISOMsg>() {
+                                    @Override
+                                    public void handle(AsyncResult<ISOMsg> response) {
+                                        tu.azzert(!response.failed(), "request failed");
+                                        if (responses.incrementAndGet() == 6) {
+                                            assertChannelMetrics(jposClient.toJson(), 0, 2);
+                                            completeTest();
+                                            jposServer.close();
+                                        }
+                                    }
+                                });
+                            }
+                            assertChannelMetrics(jposClient.toJson(), 2, 0);
+                            vertx.setTimer(200, new Handler<Long>() {
+                                @Override
+                                public void handle(Long timerId) {
+                                    try {
+                                        tu.azzert(held.size() == 6, "the server got " + held.size() + " requests");
+                                        for (JPOSServerRequest request : held) {
+                                            respond(request);
+                                        }
+                                    } catch (Exception e) {
+                                        tu.exception(e, "cannot respond");
+                                        completeTest();
+                                        jposServer.close();
+                                    }
+                                }
+                            });
+                            testFailed = false;
+                        } catch (ISOException e) {
+                            tu.exception(e, "cannot build request");
+                        } finally {
+                            if (testFailed) {
+                                completeTest();
+                                jposServer.close();
+                            }
+                        }
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    /**
+     * Test that a client is reported by the metrics registry once, however many producers add it.
+     */
+    public void testMetricsRegistryReportsTheClient() throws Exception {
+        final JPOSClient jposClient = createJPOSClient(9189);
+        final MetricsRegistry metricsRegistry = new MetricsRegistry("jpos-test");
+        metricsRegistry.addMetrics(JPOSClient.METRICS_TYPE, jposClient.getName(), jposClient);
+        metricsRegistry.addMetrics(JPOSClient.METRICS_TYPE, jposClient.getName(), jposClient);
+        metricsRegistry.start();
+        try {
+            final JsonObject clients = metricsRegistry.getMetrics().getObject("jposClients");
+            assertEquals(1, clients.getFieldNames().size());
+            final JsonObject metrics = clients.getObject(jposClient.getName());
+            assertEquals(1, metrics.getInteger("poolSize").intValue());
+            assertEquals(0, metrics.getInteger("activeChannels").intValue());
+
+            final ObjectName name = new ObjectName(MetricsRegistry.DOMAIN + ":context=\"jpos-test\",type=jposClients,name=" + ObjectName.quote(jposClient.getName()));
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertTrue("client not registered with JMX", server.isRegistered(name));
+            assertEquals(1, server.getAttribute(name, "PoolSize"));
+        } finally {
+            metricsRegistry.stop();
+        }
+    }
+
+    private void assertChannelMetrics(JsonObject metrics, int inFlight, int received) {
+        final JsonArray channels = metrics.getArray("channels");
+        tu.azzert(channels.size() == 3, "wrong number of channels");
+        for (Object channel : channels) {
+            final JsonObject channelMetrics = (JsonObject) channel;
+            tu.azzert(channelMetrics.getInteger("inFlight") == inFlight, "unbalanced pool: " + metrics.encode());
+            tu.azzert(channelMetrics.getLong("received") == received + 1, "unbalanced pool: " + metrics.encode());
+        }
+    }
 
     private void closeServer(JPOSServer jposServer) {
         log.info("Closing server side down");
@@ -336,6 +650,35 @@ public class JPOSClientTest extends TestBase {
         return new JPOSClient(vertx, uri, JPOSClient.DEFAULT_KEY, 2);
     }
 
+    private JPOSClient createJPOSClient(int port) {
+        log.info("Create JPOSClient connecting to {}:{}", host, port);
+        return new JPOSClient(vertx, URI.create("jpos://" + host + ":" + port), JPOSClient.DEFAULT_KEY, 2);
+    }
+
+    private JPOSServer createJPOSServer(int port, Handler<JPOSServerRequest> handler) {
+        log.info("Create JPOSServer listening on {}:{}", host, port);
+        return new JPOSServer(vertx).jposServerRequestHandler(handler).listen(port, host);
+    }
+
+    /**
+     * Answers the 2800 handshake of a client.
+     *
+     * @return true if the request was the handshake
+     */
+    private boolean respondToAck(JPOSServerRequest event) throws Exception {
+        if (!"2800".equals(event.getMTI())) {
+            return false;
+        }
+        respond(event);
+        return true;
+    }
+
+    private void respond(JPOSServerRequest event) throws Exception {
+        final ISOMsg msg = event.getIsoMsg();
+        msg.setResponseMTI();
+        event.getOut().sendISOMsg(msg);
+    }
+
     private abstract class TestJPOSServerRequestHandler implements Handler<JPOSServerRequest> {
 
         @Override
@@ -0,0 +1,192 @@
+package com.nxttxn.vramel.language.bean;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.language.simple.SimpleLanguage;
+import com.nxttxn.vramel.model.language.MethodCallExpression;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Test a {@link CompiledOgnl} chain gives the same results as the bean language
+ */
+public class CompiledOgnlTest {
+    private DefaultVramelContext context;
+    private Exchange exchange;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        exchange = new DefaultExchange(context);
+    }
+
+    @Test
+    public void testMethodsAndGetters() throws Exception {
+        final Order order = new Order("42", new Address("Paris"));
+        assertSameAsBeanLanguage(order, "getId");
+        assertSameAsBeanLanguage(order, "id");
+        assertSameAsBeanLanguage(order, "address.city");
+        assertSameAsBeanLanguage(order, "getAddress.getCity.length");
+        assertSameAsBeanLanguage(order, "summary");
+    }
+
+    @Test
+    public void testIndexes() throws Exception {
+        final Order order = new Order("42", new Address("Paris"));
+        assertSameAsBeanLanguage(order, "lines[0]");
+        assertSameAsBeanLanguage(order, "lines[last]");
+        assertSameAsBeanLanguage(order, "lines[last-1].length");
+        assertSameAsBeanLanguage(order, "attributes[color]");
+        assertSameAsBeanLanguage(order, "attributes[size]");
+    }
+
+    @Test
+    public void testNullSafe() throws Exception {
+        final Order order = new Order("42", null);
+        // a null safe method stops the chain when it returns null
+        assertNull(evaluate(order, "?.address.city"));
+        assertSameAsBeanLanguage(order, "?.address.city");
+        try {
+            evaluate(order, "address.city");
+            fail("Called a method on null");
+        } catch (RuntimeBeanExpressionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrivateClassIsCalledThroughItsInterface() throws Exception {
+        final Named named = new Named() {
+            @Override
+            public String getName() {
+                return "anonymous";
+            }
+        };
+        assertEquals("anonymous", evaluate(named, "name"));
+        assertEquals(Integer.valueOf(9), evaluate(named, "name.length"));
+    }
+
+    @Test
+    public void testChainRelinksWhenTheClassChanges() throws Exception {
+        final CompiledOgnl compiled = CompiledOgnl.compile("name");
+        final List<Named> beans = Arrays.asList(new Address("Paris"), new Order("42", null), new Address("Rome"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Paris", compiled.evaluate(exchange, beans.get(0)));
+            assertEquals("order 42", compiled.evaluate(exchange, beans.get(1)));
+            assertEquals("Rome", compiled.evaluate(exchange, beans.get(2)));
+        }
+    }
+
+    @Test
+    public void testMethodsWhichCannotBeLinkedAreLeftToTheBeanLanguage() throws Exception {
+        final Order order = new Order("42", new Address("Paris"));
+        // overloaded
+        assertSameAsBeanLanguage(order, "total");
+        // static
+        assertSameAsBeanLanguage(order, "currency");
+        // parameters are bound by the bean language
+        assertNull(CompiledOgnl.compile("total(2)"));
+    }
+
+    @Test
+    public void testSimpleLanguage() throws Exception {
+        exchange.getIn().setBody(new Order("42", new Address("Paris")));
+        exchange.getIn().setHeader("order", new Order("43", null));
+        assertEquals("Paris", SimpleLanguage.simple("${body.address.city}").evaluate(exchange, String.class));
+        assertEquals("book", SimpleLanguage.simple("${body.lines[0]}").evaluate(exchange, String.class));
+        assertEquals("order 43", SimpleLanguage.simple("${header.order.name}").evaluate(exchange, String.class));
+        assertNull(SimpleLanguage.simple("${header.order?.address.city}").evaluate(exchange, String.class));
+    }
+
+    private void assertSameAsBeanLanguage(Object bean, String ognl) {
+        final Object expected = new MethodCallExpression(bean, ognl).evaluate(exchange);
+        assertNotNull(ognl + " is not compiled", CompiledOgnl.compile(ognl));
+        assertEquals(ognl, expected, evaluate(bean, ognl));
+        // and once linked
+        assertEquals(ognl, expected, evaluate(bean, ognl));
+    }
+
+    private Object evaluate(Object bean, String ognl) {
+        return CompiledOgnl.compile(ognl).evaluate(exchange, bean);
+    }
+
+    public interface Named {
+        String getName();
+    }
+
+    public static class Address implements Named {
+        private final String city;
+
+        public Address(String city) {
+            this.city = city;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        @Override
+        public String getName() {
+            return city;
+        }
+    }
+
+    public static class Order implements Named {
+        private final String id;
+        private final Address address;
+
+        public Order(String id, Address address) {
+            this.id = id;
+            this.address = address;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        @Override
+        public String getName() {
+            return "order " + id;
+        }
+
+        public String summary() {
+            return "order " + id + " to " + (address != null ? address.getCity() : "nowhere");
+        }
+
+        public List<String> getLines() {
+            return Arrays.asList("book", "pen", "lamp");
+        }
+
+        public Map<String, String> getAttributes() {
+            return Collections.singletonMap("color", "red");
+        }
+
+        public int total() {
+            return 10;
+        }
+
+        public int total(int quantity) {
+            return 10 * quantity;
+        }
+
+        public static String currency() {
+            return "EUR";
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.nxttxn.vramel.language.simple;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link SimpleLanguage} parses each expression and predicate once
+ */
+public class SimpleLanguageCacheTest {
+    private DefaultVramelContext context;
+    private SimpleLanguage language;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        language = new SimpleLanguage();
+    }
+
+    @Test
+    public void testExpressionIsParsedOnce() throws Exception {
+        final Expression expression = language.createExpression("Hello ${header.name}");
+        assertSame(expression, language.createExpression("Hello ${header.name}"));
+
+        // the cached expression holds no state of the exchanges it evaluated
+        assertEquals("Hello World", expression.evaluate(exchange("World", null), String.class));
+        assertEquals("Hello Vert.x", expression.evaluate(exchange("Vert.x", null), String.class));
+
+        final JsonObject statistics = language.getCacheStatistics().getObject("expressions");
+        assertEquals(1, statistics.getNumber("size").intValue());
+        assertEquals(1, statistics.getNumber("hits").intValue());
+        assertEquals(1, statistics.getNumber("misses").intValue());
+    }
+
+    @Test
+    public void testCacheIsPerInstance() throws Exception {
+        final SimpleLanguage other = new SimpleLanguage();
+        assertNotSame(language.createExpression("${body}"), other.createExpression("${body}"));
+
+        assertEquals(0, language.getCacheStatistics().getObject("expressions").getNumber("hits").intValue());
+        assertEquals(1, other.getCacheStatistics().getObject("expressions").getNumber("size").intValue());
+    }
+
+    @Test
+    public void testContextsHaveTheirOwnCache() throws Exception {
+        final SimpleLanguage simple = (SimpleLanguage) context.resolveLanguage("simple");
+        final SimpleLanguage otherSimple = (SimpleLanguage) new DefaultVramelContext(new DefaultVertx()).resolveLanguage("simple");
+
+        assertNotSame(simple.createPredicate("${body} == 'a'"), otherSimple.createPredicate("${body} == 'a'"));
+    }
+
+    @Test
+    public void testResultTypeIsPartOfTheKey() throws Exception {
+        final Expression untyped = language.createExpression("${body}");
+        final Expression typed = language.createExpression("${body}", Integer.class);
+        assertNotSame(untyped, typed);
+        assertSame(typed, language.createExpression("${body}", Integer.class));
+        assertSame(SimpleLanguage.simple("${body}", Integer.class), SimpleLanguage.simple("${body}", Integer.class));
+
+        final Exchange exchange = exchange(null, "42");
+        assertEquals("42", untyped.evaluate(exchange, Object.class));
+        assertEquals(Integer.valueOf(42), typed.evaluate(exchange, Object.class));
+    }
+
+    @Test
+    public void testAllowEscapeIsPartOfTheKey() throws Exception {
+        final SimpleLanguage escaping = new SimpleLanguage();
+        final SimpleLanguage literal = new SimpleLanguage();
+        literal.setAllowEscape(false);
+
+        final Exchange exchange = exchange(null, null);
+        assertEquals("a\tb", escaping.createExpression("a\\tb").evaluate(exchange, String.class));
+        assertEquals("a\\tb", literal.createExpression("a\\tb").evaluate(exchange, String.class));
+    }
+
+    @Test
+    public void testPredicateIsParsedOnce() throws Exception {
+        final Predicate predicate = language.createPredicate("${header.name} == 'World'");
+        assertSame(predicate, language.createPredicate("${header.name} == 'World'"));
+
+        assertTrue(predicate.matches(exchange("World", null)));
+        assertFalse(predicate.matches(exchange("Vert.x", null)));
+        assertEquals(1, language.getCacheStatistics().getObject("predicates").getNumber("hits").intValue());
+    }
+
+    @Test
+    public void testCacheIsBounded() throws Exception {
+        for (int i = 0; i < SimpleLanguage.CACHE_SIZE + 10; i++) {
+            language.createExpression("${header.h" + i + "}");
+        }
+        final JsonObject statistics = language.getCacheStatistics().getObject("expressions");
+        assertEquals(SimpleLanguage.CACHE_SIZE, statistics.getNumber("size").intValue());
+        assertEquals(10, statistics.getNumber("evicted").intValue());
+    }
+
+    @Test
+    public void testChangingTheTokensClearsTheCache() throws Exception {
+        final Expression expression = language.createExpression("${body}");
+        SimpleLanguage.changeFunctionStartToken("${");
+        try {
+            assertEquals(0, language.getCacheStatistics().getObject("expressions").getNumber("size").intValue());
+            assertNotSame(expression, language.createExpression("${body}"));
+        } finally {
+            // the default tokens
+            SimpleLanguage.changeFunctionStartToken("${", "$simple{");
+        }
+    }
+
+    @Test
+    public void testResourceIsNotCached() throws Exception {
+        language.setVramelContext(context);
+        final String resource = "resource:classpath:com/nxttxn/vramel/language/simple/greeting.txt";
+
+        final Expression expression = language.createExpression(resource);
+        assertEquals("Hello World", expression.evaluate(exchange("World", null), String.class));
+        assertNotSame(expression, language.createExpression(resource));
+        assertEquals(0, language.getCacheStatistics().getObject("expressions").getNumber("size").intValue());
+    }
+
+    private Exchange exchange(String name, Object body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setHeader("name", name);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+}
@@ -0,0 +1,131 @@
+package com.nxttxn.vramel.management;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the {@link InstrumentationProcessor} records the exchanges going through its processor
+ */
+public class InstrumentationProcessorTest {
+    private DefaultVramelContext context;
+    private PerformanceCounter counter;
+    private List<Exchange> answers;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        counter = new PerformanceCounter("flow", "node", "to");
+        answers = new CopyOnWriteArrayList<Exchange>();
+    }
+
+    @Test
+    public void testRecordsSuccess() throws Exception {
+        process(new InstrumentationProcessor(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.getIn().setBody("done");
+            }
+        }, counter));
+
+        assertEquals(1, answers.size());
+        assertEquals("done", answers.get(0).getIn().getBody());
+        assertEquals(1, counter.getExchangesCompleted());
+        assertEquals(0, counter.getExchangesFailed());
+        assertEquals(0, counter.getExchangesInflight());
+    }
+
+    @Test
+    public void testRecordsFailedExchange() throws Exception {
+        process(new InstrumentationProcessor(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.setException(new IllegalStateException("boom"));
+            }
+        }, counter));
+
+        assertEquals(1, counter.getExchangesCompleted());
+        assertEquals(1, counter.getExchangesFailed());
+    }
+
+    @Test
+    public void testRecordsThrownException() throws Exception {
+        final InstrumentationProcessor processor = new InstrumentationProcessor(new AsyncProcessor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean process(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+                throw new IllegalStateException("boom");
+            }
+        }, counter);
+
+        try {
+            process(processor);
+            fail("Should have thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(1, counter.getExchangesTotal());
+        assertEquals(1, counter.getExchangesFailed());
+        assertEquals(0, counter.getExchangesInflight());
+    }
+
+    @Test
+    public void testRecordsLatencyUntilTheAsynchronousPartIsDone() throws Exception {
+        final List<OptionalAsyncResultHandler> held = new CopyOnWriteArrayList<OptionalAsyncResultHandler>();
+        final List<Exchange> heldExchanges = new CopyOnWriteArrayList<Exchange>();
+        process(new InstrumentationProcessor(new AsyncProcessor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean process(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+                heldExchanges.add(exchange);
+                held.add(optionalAsyncResultHandler);
+                return false;
+            }
+        }, counter));
+
+        assertEquals(0, answers.size());
+        assertEquals(1, counter.getExchangesInflight());
+
+        Thread.sleep(20);
+        held.get(0).done(heldExchanges.get(0));
+
+        assertEquals(1, answers.size());
+        assertEquals(0, counter.getExchangesInflight());
+        assertEquals(1, counter.getExchangesCompleted());
+        assertTrue("Recorded " + counter.getMinProcessingTime() + " us",
+                counter.getMinProcessingTime() >= TimeUnit.MILLISECONDS.toMicros(20));
+    }
+
+    private void process(InstrumentationProcessor processor) throws Exception {
+        final Exchange exchange = new DefaultExchange(context);
+        processor.process(exchange, new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        });
+    }
+}
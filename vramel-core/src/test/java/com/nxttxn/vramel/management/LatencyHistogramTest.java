@@ -0,0 +1,146 @@
+package com.nxttxn.vramel.management;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the bucketing and the percentiles of the {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSmallValuesHaveABucketEach() throws Exception {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(value)));
+        }
+    }
+
+    @Test
+    public void testBucketsAreWithinOneSixtyFourthOfTheValue() throws Exception {
+        int previous = LatencyHistogram.indexOf(127);
+        for (long value = 128; value < (1L << 36); value += value / 37 + 1) {
+            final int index = LatencyHistogram.indexOf(value);
+            final long highest = LatencyHistogram.highestValueAt(index);
+            assertTrue("Bucket of " + value + " ends at " + highest, highest >= value);
+            assertTrue("Bucket of " + value + " ends at " + highest, highest - value <= value / 64);
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguous() throws Exception {
+        final int last = LatencyHistogram.indexOf((1L << 36) - 1);
+        for (int index = 1; index <= last; index++) {
+            final long lowest = LatencyHistogram.highestValueAt(index - 1) + 1;
+            assertEquals(index, LatencyHistogram.indexOf(lowest));
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestValueAt(index)));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 1000 microseconds
+        for (int i = 1000; i >= 1; i--) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000L, histogram.getMin());
+        assertEquals(1000000L, histogram.getMax());
+        assertEquals(500500L, histogram.getMean());
+        assertWithin(500000L, histogram.getValueAtPercentile(50));
+        assertWithin(900000L, histogram.getValueAtPercentile(90));
+        assertWithin(990000L, histogram.getValueAtPercentile(99));
+        assertWithin(1000L, histogram.getValueAtPercentile(0));
+        assertEquals(1000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPercentileNeverExceedsTheMaximum() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(1001);
+
+        assertEquals(1001L, histogram.getValueAtPercentile(50));
+        assertEquals(1001L, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void testOutOfRangeValues() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(100L * 1000 * 1000 * 1000);
+
+        assertEquals(0, histogram.getMin());
+        // beyond the last bucket, but the maximum stays exact
+        assertEquals(100L * 1000 * 1000 * 1000, histogram.getMax());
+        assertEquals(100L * 1000 * 1000 * 1000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        histogram.record(20);
+        assertEquals(20L, histogram.getMin());
+        assertEquals(20L, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(offset * 10000 + i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(79999L, histogram.getMax());
+        assertWithin(39999L, histogram.getValueAtPercentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / 64);
+    }
+}
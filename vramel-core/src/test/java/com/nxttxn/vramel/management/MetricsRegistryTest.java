@@ -0,0 +1,173 @@
+package com.nxttxn.vramel.management;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.json.JsonObject;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the flow counters and the metrics sources of the {@link MetricsRegistry}
+ */
+public class MetricsRegistryTest {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricsRegistry("registry-test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        registry.stop();
+    }
+
+    @Test
+    public void testFlowMetrics() throws Exception {
+        final PerformanceCounter flow = registry.getOrCreateFlowCounter("flow");
+        final PerformanceCounter processor = registry.getOrCreateProcessorCounter("flow", "to1", "to");
+        assertSame(flow, registry.getOrCreateFlowCounter("flow"));
+        assertSame(processor, registry.getProcessorCounter("flow", "to1"));
+        assertEquals(1, registry.getFlowCount());
+
+        flow.completedExchange(flow.processExchange(), false);
+        processor.completedExchange(processor.processExchange(), true);
+
+        final JsonObject metrics = registry.getFlowMetrics("flow");
+        assertEquals(1, metrics.getNumber("exchangesCompleted").intValue());
+        final JsonObject processorMetrics = (JsonObject) metrics.getArray("processors").get(0);
+        assertEquals("to1", processorMetrics.getString("id"));
+        assertEquals(1, processorMetrics.getNumber("exchangesFailed").intValue());
+        assertNull(registry.getFlowMetrics("other"));
+        assertNotNull(registry.getMetrics().getObject("flows").getObject("flow"));
+
+        registry.reset();
+        assertEquals(0, registry.getFlowCounter("flow").getExchangesCompleted());
+        assertEquals(0, registry.getProcessorCounter("flow", "to1").getExchangesFailed());
+    }
+
+    @Test
+    public void testMetricsSources() throws Exception {
+        registry.addMetrics("queues", "a", new Gauge(1));
+        registry.addMetrics("queues", "b", new Gauge(2));
+        registry.addMetrics(MetricsRegistry.CONTEXT, "blockingTasks", new Gauge(3));
+        registry.getOrCreateFlowCounter("flow");
+        registry.addFlowMetrics("flow", "circuitBreakers", "breaker", new Gauge(4));
+
+        final JsonObject metrics = registry.getMetrics();
+        assertEquals("registry-test", metrics.getString("context"));
+        assertEquals(1, metrics.getObject("queues").getObject("a").getNumber("value").intValue());
+        assertEquals(2, metrics.getObject("queues").getObject("b").getNumber("value").intValue());
+        // reported directly under their name
+        assertEquals(3, metrics.getObject("blockingTasks").getNumber("value").intValue());
+        final JsonObject breaker = (JsonObject) metrics.getObject("flows").getObject("flow").getArray("circuitBreakers").get(0);
+        assertEquals(4, breaker.getNumber("value").intValue());
+    }
+
+    @Test
+    public void testReplacesSourceOfTheSameName() throws Exception {
+        final Gauge first = new Gauge(1);
+        final Gauge second = new Gauge(2);
+        registry.addMetrics("queues", "a", first);
+        registry.addMetrics("queues", "a", first);
+        assertSame(first, registry.getMetricsSource("queues", "a"));
+
+        registry.addMetrics("queues", "a", second);
+        assertSame(second, registry.getMetricsSource("queues", "a"));
+        assertEquals(2, registry.getMetrics().getObject("queues").getObject("a").getNumber("value").intValue());
+        assertNull(registry.getMetricsSource("queues", "b"));
+        assertNull(registry.getFlowMetricsSource("flow", "circuitBreakers", "breaker"));
+    }
+
+    @Test
+    public void testRegistersOverJmx() throws Exception {
+        final Gauge before = new Gauge(1);
+        registry.getOrCreateFlowCounter("flow");
+        registry.addMetrics("queues", "a", before);
+        registry.addMetrics(MetricsRegistry.CONTEXT, "plain", new PlainSource());
+        registry.start();
+
+        final ObjectName queue = new ObjectName(MetricsRegistry.DOMAIN + ":context=\"registry-test\",type=queues,name=\"a\"");
+        final ObjectName breaker = new ObjectName(MetricsRegistry.DOMAIN
+                + ":context=\"registry-test\",flow=\"flow\",type=circuitBreakers,name=\"breaker\"");
+        assertTrue(server.isRegistered(new ObjectName(MetricsRegistry.DOMAIN + ":context=\"registry-test\",type=context,name=metrics")));
+        assertTrue(server.isRegistered(new ObjectName(MetricsRegistry.DOMAIN + ":context=\"registry-test\",flow=\"flow\",type=flows")));
+        assertEquals(1, ((Number) server.getAttribute(queue, "Value")).intValue());
+        // not an MBean, so only reported with the metrics
+        assertFalse(server.isRegistered(new ObjectName(MetricsRegistry.DOMAIN + ":context=\"registry-test\",type=context,name=\"plain\"")));
+        assertEquals("plain", registry.getMetrics().getObject("plain").getString("source"));
+
+        // added once started
+        registry.addFlowMetrics("flow", "circuitBreakers", "breaker", new Gauge(4));
+        assertEquals(4, ((Number) server.getAttribute(breaker, "Value")).intValue());
+        registry.addMetrics("queues", "a", new Gauge(2));
+        assertEquals(2, ((Number) server.getAttribute(queue, "Value")).intValue());
+
+        registry.stop();
+        assertFalse(server.isRegistered(queue));
+        assertFalse(server.isRegistered(breaker));
+    }
+
+    @Test
+    public void testJmxDisabled() throws Exception {
+        registry.setJmxEnabled(false);
+        registry.addMetrics("queues", "a", new Gauge(1));
+        registry.start();
+
+        assertFalse(server.isRegistered(new ObjectName(MetricsRegistry.DOMAIN + ":context=\"registry-test\",type=queues,name=\"a\"")));
+        assertEquals(1, registry.getMetrics().getObject("queues").getObject("a").getNumber("value").intValue());
+    }
+
+    @Test
+    public void testFromConfig() throws Exception {
+        final MetricsRegistry configured = MetricsRegistry.fromConfig("configured", new JsonObject()
+                .putBoolean("enabled", false)
+                .putBoolean("jmx", false));
+        assertFalse(configured.isEnabled());
+        assertFalse(configured.isJmxEnabled());
+
+        final MetricsRegistry defaults = MetricsRegistry.fromConfig("defaults", new JsonObject());
+        assertTrue(defaults.isEnabled());
+        assertTrue(defaults.isJmxEnabled());
+    }
+
+    public interface GaugeMBean {
+        int getValue();
+    }
+
+    public static class Gauge implements GaugeMBean, MetricsSource {
+        private final int value;
+
+        Gauge(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            return new JsonObject().putNumber("value", value);
+        }
+    }
+
+    private static class PlainSource implements MetricsSource {
+        @Override
+        public JsonObject toJson() {
+            return new JsonObject().putString("source", "plain");
+        }
+    }
+}
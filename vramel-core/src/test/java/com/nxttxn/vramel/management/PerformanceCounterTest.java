@@ -0,0 +1,80 @@
+package com.nxttxn.vramel.management;
+
+import org.junit.Test;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the exchange counts and processing times of the {@link PerformanceCounter}
+ */
+public class PerformanceCounterTest {
+
+    @Test
+    public void testCountsExchanges() throws Exception {
+        final PerformanceCounter counter = new PerformanceCounter("flow", "node", "to");
+        final long first = counter.processExchange();
+        final long second = counter.processExchange();
+        counter.processExchange();
+        assertEquals(3, counter.getExchangesTotal());
+        assertEquals(3, counter.getExchangesInflight());
+
+        counter.completedExchange(first, false);
+        counter.completedExchange(second, true);
+
+        assertEquals(3, counter.getExchangesTotal());
+        assertEquals(2, counter.getExchangesCompleted());
+        assertEquals(1, counter.getExchangesFailed());
+        assertEquals(1, counter.getExchangesInflight());
+        assertEquals(2, counter.getProcessingTimes().getCount());
+    }
+
+    @Test
+    public void testProcessingTimesAreInMicroseconds() throws Exception {
+        final PerformanceCounter counter = new PerformanceCounter("flow", null, "flow");
+        counter.completedExchange(counter.processExchange() - TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        assertTrue(counter.getMinProcessingTime() >= 20000);
+        assertTrue(counter.getMaxProcessingTime() < 20000 + TimeUnit.SECONDS.toMicros(5));
+        assertEquals(counter.getMaxProcessingTime(), counter.getProcessingTimeP999());
+        assertEquals(counter.getMinProcessingTime(), counter.getMeanProcessingTime());
+    }
+
+    @Test
+    public void testResetKeepsTheExchangesInFlight() throws Exception {
+        final PerformanceCounter counter = new PerformanceCounter("flow", "node", "to");
+        counter.completedExchange(counter.processExchange(), true);
+        final long inflight = counter.processExchange();
+
+        counter.reset();
+        assertEquals(1, counter.getExchangesTotal());
+        assertEquals(0, counter.getExchangesCompleted());
+        assertEquals(0, counter.getExchangesFailed());
+        assertEquals(1, counter.getExchangesInflight());
+        assertEquals(0, counter.getProcessingTimes().getCount());
+
+        counter.completedExchange(inflight, false);
+        assertEquals(0, counter.getExchangesInflight());
+    }
+
+    @Test
+    public void testToJson() throws Exception {
+        final PerformanceCounter counter = new PerformanceCounter("flow", "node", "to");
+        counter.completedExchange(counter.processExchange(), false);
+
+        final JsonObject json = counter.toJson();
+        assertEquals("to", json.getString("type"));
+        assertEquals("node", json.getString("id"));
+        assertEquals(1, json.getNumber("exchangesCompleted").intValue());
+        final JsonObject processingTime = json.getObject("processingTime");
+        for (String field : new String[]{"min", "mean", "p50", "p90", "p99", "p999", "max"}) {
+            assertTrue(field, processingTime.getNumber(field) != null);
+        }
+
+        assertNull(new PerformanceCounter("flow", null, "flow").toJson().getString("id"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.nxttxn.vramel.management;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the {@link StripedCounter} sums the updates of every thread
+ */
+public class StripedCounterTest {
+
+    @Test
+    public void testIncrementAndAdd() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        counter.increment();
+        counter.increment();
+        counter.add(40);
+        counter.add(-2);
+
+        assertEquals(40, counter.get());
+        assertEquals("40", counter.toString());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        counter.add(7);
+        counter.reset();
+        assertEquals(0, counter.get());
+
+        counter.increment();
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testSumsTheStripesOfEveryThread() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final List<Thread> threads = new ArrayList<Thread>();
+        // more threads than stripes, so some share a cell
+        for (int t = 0; t < 2 * Runtime.getRuntime().availableProcessors() + 3; t++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        counter.increment();
+                        counter.add(2);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threads.size() * 30000L, counter.get());
+    }
+}
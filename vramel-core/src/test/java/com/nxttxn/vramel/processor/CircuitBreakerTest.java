@@ -0,0 +1,236 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the state transitions of the {@link CircuitBreaker}
+ */
+public class CircuitBreakerTest {
+    private DefaultVertx vertx;
+    private DefaultVramelContext context;
+    private HoldingProcessor destination;
+    private List<Exchange> answers;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = new DefaultVertx();
+        context = new DefaultVramelContext(vertx);
+        destination = new HoldingProcessor();
+        answers = new CopyOnWriteArrayList<Exchange>();
+        breaker = new CircuitBreaker(context, destination, "flow", "breaker");
+        breaker.setSlidingWindowSize(4);
+        breaker.setMinimumNumberOfCalls(4);
+        breaker.setFailureRateThreshold(50);
+        breaker.setOpenDuration(100);
+        breaker.setPermittedCallsInHalfOpen(2);
+        breaker.setEventAddress(null);
+    }
+
+    @Test
+    public void testStaysClosedUntilTheMinimumNumberOfCalls() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            call();
+            destination.fail(new IllegalStateException("boom"));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getCurrentState());
+        assertEquals(100f, breaker.getFailureRate(), 0.01f);
+
+        call();
+        destination.release();
+        assertEquals("3 of 4 calls failed", CircuitBreaker.State.OPEN, breaker.getCurrentState());
+    }
+
+    @Test
+    public void testStaysClosedBelowTheFailureRate() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            call();
+            if (i % 4 == 0) {
+                destination.fail(new IllegalStateException("boom"));
+            } else {
+                destination.release();
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getCurrentState());
+        assertEquals(25f, breaker.getFailureRate(), 0.01f);
+    }
+
+    @Test
+    public void testOpenCircuitRejectsAtOnce() throws Exception {
+        open();
+
+        call();
+        assertEquals("The exchange went downstream", 0, destination.held());
+        final Exchange rejected = answers.get(answers.size() - 1);
+        assertTrue(rejected.getException() instanceof RejectedExecutionException);
+        assertEquals("OPEN", rejected.getProperty(Exchange.CIRCUIT_BREAKER_STATE));
+        assertEquals(1, breaker.getCallsRejected());
+    }
+
+    @Test
+    public void testOpenCircuitSendsToTheFallback() throws Exception {
+        breaker.setFallback(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.getIn().setBody("fallback");
+            }
+        });
+        open();
+
+        call();
+        final Exchange answer = answers.get(answers.size() - 1);
+        assertNull(answer.getException());
+        assertEquals("fallback", answer.getIn().getBody());
+        assertEquals("OPEN", answer.getProperty(Exchange.CIRCUIT_BREAKER_STATE));
+    }
+
+    @Test
+    public void testHalfOpenProbesCloseTheCircuit() throws Exception {
+        open();
+        Thread.sleep(150);
+
+        call();
+        call();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getCurrentState());
+        assertEquals("Only the permitted probes go through", 2, destination.held());
+        call();
+        assertTrue(answers.get(answers.size() - 1).getException() instanceof RejectedExecutionException);
+        assertEquals("HALF_OPEN", answers.get(answers.size() - 1).getProperty(Exchange.CIRCUIT_BREAKER_STATE));
+
+        destination.release();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getCurrentState());
+        destination.release();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getCurrentState());
+        assertEquals(0f, breaker.getFailureRate(), 0.01f);
+    }
+
+    @Test
+    public void testFailedProbesReopenTheCircuit() throws Exception {
+        open();
+        Thread.sleep(150);
+
+        call();
+        call();
+        destination.release();
+        destination.fail(new IllegalStateException("still down"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getCurrentState());
+
+        call();
+        assertEquals(0, destination.held());
+    }
+
+    @Test
+    public void testSlowCallsOpenTheCircuit() throws Exception {
+        breaker.setSlowCallDurationThreshold(20);
+        breaker.setSlowCallRateThreshold(50);
+        for (int i = 0; i < 4; i++) {
+            call();
+            if (i % 2 == 0) {
+                Thread.sleep(30);
+            }
+            destination.release();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getCurrentState());
+        assertEquals(2, breaker.getCallsSlow());
+        assertEquals(0, breaker.getCallsFailed());
+    }
+
+    @Test
+    public void testCallsStartedBeforeAChangeOfStateAreIgnored() throws Exception {
+        // held while the circuit opens and half opens
+        call();
+        for (int i = 0; i < 4; i++) {
+            call();
+            destination.fail(1, new IllegalStateException("boom"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getCurrentState());
+        Thread.sleep(150);
+        call();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getCurrentState());
+
+        // the late failure does not count as a probe
+        destination.fail(0, new IllegalStateException("late"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getCurrentState());
+        call();
+        destination.release();
+        destination.release();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getCurrentState());
+    }
+
+    @Test
+    public void testChangesOfStateArePublished() throws Exception {
+        final List<JsonObject> events = new CopyOnWriteArrayList<JsonObject>();
+        final CountDownLatch received = new CountDownLatch(2);
+        final CountDownLatch registered = new CountDownLatch(1);
+        vertx.runOnLoop(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                vertx.eventBus().registerHandler(CircuitBreaker.DEFAULT_EVENT_ADDRESS, new Handler<Message<JsonObject>>() {
+                    @Override
+                    public void handle(Message<JsonObject> message) {
+                        events.add(message.body);
+                        received.countDown();
+                    }
+                });
+                registered.countDown();
+            }
+        });
+        assertTrue(registered.await(5, TimeUnit.SECONDS));
+        breaker.setEventAddress(CircuitBreaker.DEFAULT_EVENT_ADDRESS);
+
+        open();
+        breaker.reset();
+
+        assertTrue("Not every change of state was published", received.await(5, TimeUnit.SECONDS));
+        assertEquals("CLOSED", events.get(0).getString("from"));
+        assertEquals("OPEN", events.get(0).getString("to"));
+        assertEquals("breaker", events.get(0).getString("nodeId"));
+        assertEquals(100, events.get(0).getNumber("failureRate").intValue());
+        assertEquals("OPEN", events.get(1).getString("from"));
+        assertEquals("CLOSED", events.get(1).getString("to"));
+        assertEquals(2, breaker.getStateTransitions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlidingWindowSizeMustBePositive() throws Exception {
+        breaker.setSlidingWindowSize(0);
+    }
+
+    private void open() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            call();
+            destination.fail(new IllegalStateException("boom"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getCurrentState());
+    }
+
+    private void call() throws Exception {
+        breaker.process(new DefaultExchange(context), new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.util.VramelLogger;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the redelivery of the {@link DefaultErrorHandler}
+ */
+public class DefaultErrorHandlerTest {
+    private DefaultVramelContext context;
+    private AtomicInteger attempts;
+    private AtomicReference<Exchange> answer;
+    private CountDownLatch latch;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        attempts = new AtomicInteger();
+        answer = new AtomicReference<Exchange>();
+        latch = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testRedeliversUntilTheOutputSucceeds() throws Exception {
+        final DefaultErrorHandler errorHandler = errorHandler(failing(2), new RedeliveryPolicy().maximumRedeliveries(3).redeliveryDelay(10), null);
+        errorHandler.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("No answer", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertNull(answer.get().getException());
+        assertEquals(Boolean.TRUE, answer.get().getIn().getHeader(Exchange.REDELIVERED));
+        assertEquals(Integer.valueOf(2), answer.get().getIn().getHeader(Exchange.REDELIVERY_COUNTER, Integer.class));
+        assertEquals(Integer.valueOf(3), answer.get().getIn().getHeader(Exchange.REDELIVERY_MAX_COUNTER, Integer.class));
+    }
+
+    @Test
+    public void testGivesUpWhenTheRedeliveriesAreExhausted() throws Exception {
+        final DefaultErrorHandler errorHandler = errorHandler(failing(Integer.MAX_VALUE), new RedeliveryPolicy().maximumRedeliveries(3).redeliveryDelay(10), null);
+        errorHandler.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("No answer", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(4, attempts.get());
+        assertEquals("attempt 4", answer.get().getException().getMessage());
+        assertEquals(Boolean.TRUE, answer.get().getProperty(Exchange.REDELIVERY_EXHAUSTED));
+    }
+
+    @Test
+    public void testDoesNotRedeliverByDefault() throws Exception {
+        final DefaultErrorHandler errorHandler = errorHandler(failing(Integer.MAX_VALUE), new RedeliveryPolicy(), null);
+        errorHandler.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("No answer", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        assertNull(answer.get().getProperty(Exchange.REDELIVERY_EXHAUSTED));
+    }
+
+    @Test
+    public void testRetryWhileDecidesInsteadOfTheMaximum() throws Exception {
+        final Predicate retryWhile = new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                return attempts.get() < 2;
+            }
+        };
+        final DefaultErrorHandler errorHandler = errorHandler(failing(Integer.MAX_VALUE), new RedeliveryPolicy().maximumRedeliveries(10), retryWhile);
+        errorHandler.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("No answer", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testRedeliveryDoesNotBlockTheCaller() throws Exception {
+        final DefaultErrorHandler errorHandler = errorHandler(failing(1), new RedeliveryPolicy().maximumRedeliveries(1).redeliveryDelay(500), null);
+        final long start = System.currentTimeMillis();
+        errorHandler.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("The caller waited for the redelivery delay", System.currentTimeMillis() - start < 400);
+        assertEquals(1, attempts.get());
+        assertTrue("No answer", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertTrue("Redelivered before the delay", System.currentTimeMillis() - start >= 500);
+    }
+
+    @Test
+    public void testBackOffIsCappedByTheMaximumDelay() throws Exception {
+        final RedeliveryPolicy policy = new RedeliveryPolicy().redeliveryDelay(100).backOffMultiplier(2).maximumRedeliveryDelay(300);
+
+        long delay = policy.calculateRedeliveryDelay(0, 1);
+        assertEquals(100, delay);
+        delay = policy.calculateRedeliveryDelay(delay, 2);
+        assertEquals(200, delay);
+        delay = policy.calculateRedeliveryDelay(delay, 3);
+        assertEquals(300, delay);
+        delay = policy.calculateRedeliveryDelay(delay, 4);
+        assertEquals(300, delay);
+    }
+
+    @Test
+    public void testJitterStaysWithinTheFactor() throws Exception {
+        final RedeliveryPolicy policy = new RedeliveryPolicy().jitterFactor(0.1);
+        for (int i = 0; i < 1000; i++) {
+            final long delay = policy.applyJitter(1000);
+            assertTrue("Jitter out of range: " + delay, delay >= 900 && delay <= 1100);
+        }
+        assertEquals(1000, new RedeliveryPolicy().applyJitter(1000));
+    }
+
+    private DefaultErrorHandler errorHandler(Processor output, RedeliveryPolicy policy, Predicate retryWhile) {
+        return new DefaultErrorHandler(context, output, new VramelLogger(), null, policy, retryWhile, null);
+    }
+
+    private Processor failing(final int failures) {
+        return new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                final int attempt = attempts.incrementAndGet();
+                if (attempt <= failures) {
+                    throw new Exception("attempt " + attempt);
+                }
+            }
+        };
+    }
+
+    private OptionalAsyncResultHandler answerHandler() {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answer.set(result.result.get());
+                latch.countDown();
+            }
+        };
+    }
+}
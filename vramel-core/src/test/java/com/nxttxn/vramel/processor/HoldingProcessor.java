@@ -0,0 +1,63 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.AsyncProcessor;
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds on to the exchanges it is sent until the test releases them, oldest first unless told otherwise.
+ */
+public class HoldingProcessor implements AsyncProcessor {
+    private final List<Exchange> exchanges = new ArrayList<Exchange>();
+    private final List<OptionalAsyncResultHandler> handlers = new ArrayList<OptionalAsyncResultHandler>();
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        throw new UnsupportedOperationException("Only asynchronous processing is supported");
+    }
+
+    @Override
+    public synchronized boolean process(Exchange exchange, OptionalAsyncResultHandler optionalAsyncResultHandler) throws Exception {
+        exchanges.add(exchange);
+        handlers.add(optionalAsyncResultHandler);
+        return false;
+    }
+
+    public synchronized int held() {
+        return exchanges.size();
+    }
+
+    public Exchange release() {
+        return release(0);
+    }
+
+    public Exchange release(int position) {
+        final Exchange exchange;
+        final OptionalAsyncResultHandler handler;
+        synchronized (this) {
+            exchange = exchanges.remove(position);
+            handler = handlers.remove(position);
+        }
+        handler.done(exchange);
+        return exchange;
+    }
+
+    public Exchange fail(Exception e) {
+        return fail(0, e);
+    }
+
+    public Exchange fail(int position, Exception e) {
+        final Exchange exchange;
+        final OptionalAsyncResultHandler handler;
+        synchronized (this) {
+            exchange = exchanges.remove(position);
+            handler = handlers.remove(position);
+        }
+        exchange.setException(e);
+        handler.done(exchange);
+        return exchange;
+    }
+}
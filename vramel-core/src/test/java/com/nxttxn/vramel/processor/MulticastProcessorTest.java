@@ -0,0 +1,151 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.aggregate.TimeoutAwareAggregationStrategy;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the timeout of a parallel {@link MulticastProcessor}
+ */
+public class MulticastProcessorTest {
+    private DefaultVramelContext context;
+    private HoldingProcessor destination;
+    private RecordingStrategy strategy;
+    private AtomicInteger answered;
+    private CountDownLatch latch;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        destination = new HoldingProcessor();
+        strategy = new RecordingStrategy();
+        answered = new AtomicInteger();
+        latch = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testTimeoutReportsTheIndexesStillOutstanding() throws Exception {
+        final MulticastProcessor multicast = new MulticastProcessor(processors(5), strategy, true, false, false, 200, null, false);
+        multicast.process(new DefaultExchange(context), answerHandler());
+        assertEquals(5, destination.held());
+
+        // answer out of order so the oldest outstanding part is not the first one sent
+        destination.release(1);
+        destination.release(0);
+        destination.release(1);
+
+        assertTrue("The multicast did not time out", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(list(0, 1, 3), strategy.aggregatedIndexes());
+        assertEquals(list(2, 4), strategy.timedOut);
+        assertEquals(1, answered.get());
+    }
+
+    @Test
+    public void testTimeoutReportsTheIndexesNeverSent() throws Exception {
+        final MulticastProcessor multicast = new MulticastProcessor(processors(5), strategy, true, false, false, 200, 2, null, false);
+        multicast.process(new DefaultExchange(context), answerHandler());
+        assertEquals(2, destination.held());
+
+        destination.release();
+        assertEquals(2, destination.held());
+
+        assertTrue("The multicast did not time out", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(list(1, 2, 3, 4), strategy.timedOut);
+        assertEquals(1, answered.get());
+    }
+
+    @Test
+    public void testRepliesAfterTheTimeoutAreDropped() throws Exception {
+        final MulticastProcessor multicast = new MulticastProcessor(processors(2), strategy, true, false, false, 100, null, false);
+        multicast.process(new DefaultExchange(context), answerHandler());
+
+        assertTrue("The multicast did not time out", latch.await(5, TimeUnit.SECONDS));
+        destination.release();
+        destination.release();
+
+        assertEquals(list(0, 1), strategy.timedOut);
+        assertEquals(0, strategy.aggregatedIndexes().size());
+        assertEquals(1, answered.get());
+    }
+
+    @Test
+    public void testCompletesBeforeTheTimeout() throws Exception {
+        final MulticastProcessor multicast = new MulticastProcessor(processors(3), strategy, true, false, false, 100, null, false);
+        multicast.process(new DefaultExchange(context), answerHandler());
+
+        while (destination.held() > 0) {
+            destination.release();
+        }
+        assertEquals(1, answered.get());
+
+        Thread.sleep(300);
+        assertEquals(0, strategy.timedOut.size());
+        assertEquals(1, answered.get());
+    }
+
+    private List<Processor> processors(int count) {
+        final List<Processor> answer = new ArrayList<Processor>();
+        for (int i = 0; i < count; i++) {
+            answer.add(destination);
+        }
+        return answer;
+    }
+
+    private static List<Integer> list(Integer... values) {
+        final List<Integer> answer = new ArrayList<Integer>();
+        Collections.addAll(answer, values);
+        return answer;
+    }
+
+    private OptionalAsyncResultHandler answerHandler() {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answered.incrementAndGet();
+                latch.countDown();
+            }
+        };
+    }
+
+    /**
+     * Records the indexes aggregated and timed out, keeping the first exchange as the result.
+     */
+    private static class RecordingStrategy implements TimeoutAwareAggregationStrategy {
+        private final List<Integer> indexes = Collections.synchronizedList(new ArrayList<Integer>());
+        private final List<Integer> timedOut = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Override
+        public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
+            indexes.add(newExchange.getProperty(Exchange.MULTICAST_INDEX, Integer.class));
+            return oldExchange == null ? newExchange : oldExchange;
+        }
+
+        @Override
+        public void timeout(Exchange oldExchange, int index, int total, long timeout) {
+            timedOut.add(index);
+        }
+
+        List<Integer> aggregatedIndexes() {
+            final List<Integer> answer = new ArrayList<Integer>(indexes);
+            Collections.sort(answer);
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.impl.DefaultBlockingTaskExecutor;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.Context;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link OffloadProcessor} runs its step off the event loop and carries on routing on it
+ */
+public class OffloadProcessorTest {
+    private DefaultVramelContext context;
+    private DefaultBlockingTaskExecutor executor;
+    private final List<Exchange> answers = new CopyOnWriteArrayList<Exchange>();
+    private final List<Thread> answerThreads = new CopyOnWriteArrayList<Thread>();
+    private final AtomicReference<Thread> callerThread = new AtomicReference<Thread>();
+    private final AtomicReference<Thread> stepThread = new AtomicReference<Thread>();
+    private Context callerContext;
+
+    @Before
+    public void setUp() throws Exception {
+        final DefaultVertx vertx = new DefaultVertx();
+        context = new DefaultVramelContext(vertx);
+        executor = new DefaultBlockingTaskExecutor(context);
+        executor.start();
+        context.setBlockingTaskExecutor(executor);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        callerContext = vertx.startOnEventLoop(new Runnable() {
+            @Override
+            public void run() {
+                callerThread.set(Thread.currentThread());
+                started.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    @Test
+    public void testStepRunsOffTheEventLoop() throws Exception {
+        final OffloadProcessor offload = offload(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                stepThread.set(Thread.currentThread());
+                exchange.getIn().setBody("<order>" + exchange.getIn().getBody() + "</order>");
+            }
+        });
+        process(offload, "42");
+
+        assertEquals("<order>42</order>", answers.get(0).getIn().getBody());
+        assertNotSame(callerThread.get(), stepThread.get());
+        assertSame(callerThread.get(), answerThreads.get(0));
+    }
+
+    @Test
+    public void testExceptionOfTheStepIsSetOnTheExchange() throws Exception {
+        final OffloadProcessor offload = offload(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new IllegalArgumentException("Not a number");
+            }
+        });
+        process(offload, "forty two");
+
+        assertTrue(answers.get(0).getException() instanceof IllegalArgumentException);
+        assertSame(callerThread.get(), answerThreads.get(0));
+        assertEquals(1, executor.getFailedTasks());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsynchronousStepCannotBeOffloaded() throws Exception {
+        new OffloadProcessor(context, new HoldingProcessor());
+    }
+
+    private OffloadProcessor offload(Processor processor) throws Exception {
+        final OffloadProcessor offload = new OffloadProcessor(context, processor);
+        offload.start();
+        return offload;
+    }
+
+    private void process(final OffloadProcessor offload, Object body) throws Exception {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        callerContext.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    offload.process(exchange, new OptionalAsyncResultHandler() {
+                        @Override
+                        public void handle(AsyncExchangeResult result) {
+                            answerThreads.add(Thread.currentThread());
+                            answers.add(result.result.get());
+                        }
+                    });
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (answers.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, answers.size());
+    }
+}
@@ -0,0 +1,237 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Expression;
+import com.nxttxn.vramel.builder.ExpressionBuilder;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.impl.StreamBody;
+import com.nxttxn.vramel.processor.aggregate.UseLatestAggregationStrategy;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.support.ExpressionAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.streams.ReadStream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the streaming mode of the {@link Splitter}, over iterators and stream bodies
+ */
+public class SplitterTest {
+    private DefaultVramelContext context;
+    private HoldingProcessor destination;
+    private List<Exchange> answers;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        destination = new HoldingProcessor();
+        answers = new ArrayList<Exchange>();
+    }
+
+    @Test
+    public void testStreamingMarksOnlyTheLastPartComplete() throws Exception {
+        final Splitter splitter = new Splitter(listOf(5), destination, new UseLatestAggregationStrategy(), false, true, false, 0, null, false);
+        splitter.process(new DefaultExchange(context), answerHandler());
+
+        for (int i = 0; i < 5; i++) {
+            final Exchange part = destination.release();
+            assertEquals(i, part.getProperty(Exchange.SPLIT_INDEX));
+            assertEquals(i == 4, part.getProperty(Exchange.SPLIT_COMPLETE));
+            assertEquals(i == 4 ? Integer.valueOf(5) : null, part.getProperty(Exchange.SPLIT_SIZE));
+        }
+        assertEquals(1, answers.size());
+        assertNull(answers.get(0).getException());
+    }
+
+    @Test
+    public void testStreamingPullsPartsOnlyAsTheyAreNeeded() throws Exception {
+        final AtomicInteger pulled = new AtomicInteger();
+        final Splitter splitter = new Splitter(countingIterator(10, pulled), destination, new UseLatestAggregationStrategy(), true, true, false, 0, 3, null, false);
+        splitter.process(new DefaultExchange(context), answerHandler());
+
+        assertEquals("Pulled beyond the window", 3, pulled.get());
+        assertEquals(3, destination.held());
+
+        destination.release();
+        assertEquals(4, pulled.get());
+        assertEquals(3, destination.held());
+
+        while (destination.held() > 0) {
+            destination.release();
+            assertTrue("More parts in flight than the max concurrency", destination.held() <= 3);
+        }
+        assertEquals(10, pulled.get());
+        assertEquals(1, answers.size());
+    }
+
+    @Test
+    public void testStreamingOfNothingAnswersStraightAway() throws Exception {
+        final Splitter splitter = new Splitter(listOf(0), destination, new UseLatestAggregationStrategy(), false, true, false, 0, null, false);
+        splitter.process(new DefaultExchange(context), answerHandler());
+
+        assertEquals(0, destination.held());
+        assertEquals(1, answers.size());
+    }
+
+    @Test
+    public void testStreamingStopsOnAFailedPart() throws Exception {
+        final Splitter splitter = new Splitter(listOf(5), destination, new UseLatestAggregationStrategy(), false, true, false, 0, null, false);
+        final Exchange original = new DefaultExchange(context);
+        splitter.process(original, answerHandler());
+
+        destination.release();
+        destination.fail(new IllegalStateException("boom"));
+
+        assertEquals(1, answers.size());
+        assertFalse(destination.held() > 0);
+        assertTrue(answers.get(0).getException() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testStreamBodyHoldsTheLastChunkBackUntilTheEnd() throws Exception {
+        final PushedStream stream = new PushedStream();
+        final Splitter splitter = new Splitter(ExpressionBuilder.bodyExpression(), destination, new UseLatestAggregationStrategy(), false, true, false, 0, null, false);
+        final Exchange original = new DefaultExchange(context);
+        original.getIn().setBody(new StreamBody(stream));
+        splitter.process(original, answerHandler());
+
+        stream.push("a");
+        assertEquals("The only chunk may be the last one", 0, destination.held());
+        stream.push("b");
+        stream.push("c");
+        assertEquals(1, destination.held());
+
+        Exchange part = destination.release();
+        assertEquals("a", new String(part.getIn().getBody(byte[].class)));
+        assertEquals(false, part.getProperty(Exchange.SPLIT_COMPLETE));
+        assertEquals(1, destination.held());
+        part = destination.release();
+        assertEquals("b", new String(part.getIn().getBody(byte[].class)));
+        assertEquals(0, destination.held());
+
+        stream.end();
+        assertEquals(1, destination.held());
+        part = destination.release();
+        assertEquals("c", new String(part.getIn().getBody(byte[].class)));
+        assertEquals(2, part.getProperty(Exchange.SPLIT_INDEX));
+        assertEquals(true, part.getProperty(Exchange.SPLIT_COMPLETE));
+        assertEquals(3, part.getProperty(Exchange.SPLIT_SIZE));
+        assertEquals(1, answers.size());
+    }
+
+    @Test
+    public void testStreamBodyFailsOnAStreamError() throws Exception {
+        final PushedStream stream = new PushedStream();
+        final Splitter splitter = new Splitter(ExpressionBuilder.bodyExpression(), destination, new UseLatestAggregationStrategy(), false, true, false, 0, null, false);
+        final Exchange original = new DefaultExchange(context);
+        original.getIn().setBody(new StreamBody(stream));
+        splitter.process(original, answerHandler());
+
+        stream.push("a");
+        stream.fail(new IllegalStateException("connection reset"));
+
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).getException().getCause() instanceof IllegalStateException);
+    }
+
+    private OptionalAsyncResultHandler answerHandler() {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        };
+    }
+
+    private static Expression listOf(final int size) {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                final List<Integer> answer = new ArrayList<Integer>();
+                for (int i = 0; i < size; i++) {
+                    answer.add(i);
+                }
+                return answer;
+            }
+        };
+    }
+
+    private static Expression countingIterator(final int size, final AtomicInteger pulled) {
+        return new ExpressionAdapter() {
+            @Override
+            public Object evaluate(Exchange exchange) {
+                return new Iterator<Integer>() {
+                    public boolean hasNext() {
+                        return pulled.get() < size;
+                    }
+
+                    public Integer next() {
+                        return pulled.getAndIncrement();
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A stream whose chunks are pushed by the test on its own thread.
+     */
+    private static class PushedStream implements ReadStream {
+        private Handler<Buffer> dataHandler;
+        private Handler<Void> endHandler;
+        private Handler<Exception> exceptionHandler;
+
+        void push(String chunk) {
+            dataHandler.handle(new Buffer(chunk));
+        }
+
+        void end() {
+            endHandler.handle(null);
+        }
+
+        void fail(Exception e) {
+            exceptionHandler.handle(e);
+        }
+
+        @Override
+        public void dataHandler(Handler<Buffer> handler) {
+            dataHandler = handler;
+        }
+
+        @Override
+        public void pause() {
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void exceptionHandler(Handler<Exception> handler) {
+            exceptionHandler = handler;
+        }
+
+        @Override
+        public void endHandler(Handler<Void> handler) {
+            endHandler = handler;
+        }
+    }
+}
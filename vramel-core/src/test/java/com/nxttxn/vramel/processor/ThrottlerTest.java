@@ -0,0 +1,173 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.ThreadPoolRejectedPolicy;
+import com.nxttxn.vramel.builder.ExpressionBuilder;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the token buckets and the rejected policies of the {@link Throttler}
+ */
+public class ThrottlerTest {
+    private DefaultVramelContext context;
+    private HoldingProcessor destination;
+    private List<Exchange> answers;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        destination = new HoldingProcessor();
+        answers = new CopyOnWriteArrayList<Exchange>();
+    }
+
+    @Test
+    public void testBurstGoesThroughThenTheRestWaitsForTokens() throws Exception {
+        final Throttler throttler = new Throttler(context, destination, 2, 200, null);
+        for (int i = 0; i < 4; i++) {
+            throttler.process(exchange(i), answerHandler());
+        }
+        assertEquals("The burst did not go straight through", 2, destination.held());
+
+        waitForHeld(4, 1000);
+        assertEquals(4, destination.held());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Integer.valueOf(i), destination.release().getIn().getBody(Integer.class));
+        }
+        assertEquals(4, answers.size());
+    }
+
+    @Test
+    public void testAbortFailsTheNewExchange() throws Exception {
+        final Throttler throttler = throttler(ThreadPoolRejectedPolicy.Abort);
+        for (int i = 0; i < 4; i++) {
+            throttler.process(exchange(i), answerHandler());
+        }
+
+        assertEquals(1, destination.held());
+        assertEquals(1, answers.size());
+        assertEquals(Integer.valueOf(3), answers.get(0).getIn().getBody(Integer.class));
+        assertTrue(answers.get(0).getException() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testDiscardOldestFailsTheExchangeWhichWaitedLongest() throws Exception {
+        final Throttler throttler = throttler(ThreadPoolRejectedPolicy.DiscardOldest);
+        for (int i = 0; i < 4; i++) {
+            throttler.process(exchange(i), answerHandler());
+        }
+
+        assertEquals(1, destination.held());
+        assertEquals(1, answers.size());
+        assertEquals(Integer.valueOf(1), answers.get(0).getIn().getBody(Integer.class));
+        assertTrue(answers.get(0).getException() instanceof RejectedExecutionException);
+
+        // the new exchange took its place in the queue
+        throttler.stop();
+        assertEquals(3, answers.size());
+        assertEquals(Integer.valueOf(2), answers.get(1).getIn().getBody(Integer.class));
+        assertEquals(Integer.valueOf(3), answers.get(2).getIn().getBody(Integer.class));
+    }
+
+    @Test
+    public void testDiscardDropsTheNewExchangeWithoutFailingIt() throws Exception {
+        final Throttler throttler = throttler(ThreadPoolRejectedPolicy.Discard);
+        for (int i = 0; i < 4; i++) {
+            throttler.process(exchange(i), answerHandler());
+        }
+
+        assertEquals(1, destination.held());
+        assertEquals(1, answers.size());
+        assertEquals(Integer.valueOf(3), answers.get(0).getIn().getBody(Integer.class));
+        assertNull(answers.get(0).getException());
+    }
+
+    @Test
+    public void testStopFailsTheWaitingExchanges() throws Exception {
+        final Throttler throttler = throttler(ThreadPoolRejectedPolicy.Abort);
+        for (int i = 0; i < 3; i++) {
+            throttler.process(exchange(i), answerHandler());
+        }
+        throttler.stop();
+
+        assertEquals(2, answers.size());
+        for (Exchange answer : answers) {
+            assertTrue(answer.getException() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testEachCorrelationKeyHasABucketOfItsOwn() throws Exception {
+        final Throttler throttler = new Throttler(context, destination, 1, 10000, ExpressionBuilder.headerExpression("partner"));
+        for (int i = 0; i < 4; i++) {
+            final Exchange exchange = exchange(i);
+            exchange.getIn().setHeader("partner", i % 2 == 0 ? "a" : "b");
+            throttler.process(exchange, answerHandler());
+        }
+        assertEquals(2, destination.held());
+
+        // an exchange without a key fails
+        throttler.process(exchange(4), answerHandler());
+        assertEquals(1, answers.size());
+        assertEquals(Integer.valueOf(4), answers.get(0).getIn().getBody(Integer.class));
+        assertTrue(answers.get(0).getException() != null);
+        throttler.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxQueueSizeMustBePositive() throws Exception {
+        new Throttler(context, destination, 1, 1000, null).setMaxQueueSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCallerRunsIsNotSupported() throws Exception {
+        new Throttler(context, destination, 1, 1000, null).setRejectedPolicy(ThreadPoolRejectedPolicy.CallerRuns);
+    }
+
+    /**
+     * A throttler which lets one exchange through and queues two, no token comes back while the test runs
+     */
+    private Throttler throttler(ThreadPoolRejectedPolicy policy) throws Exception {
+        final Throttler throttler = new Throttler(context, destination, 1, 10000, null);
+        throttler.setMaxQueueSize(2);
+        throttler.setRejectedPolicy(policy);
+        throttler.start();
+        return throttler;
+    }
+
+    private void waitForHeld(int held, long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (destination.held() < held && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private Exchange exchange(int body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private OptionalAsyncResultHandler answerHandler() {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package com.nxttxn.vramel.processor;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Ordered;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.converter.stream.CachedOutputStream;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import com.nxttxn.vramel.support.SynchronizationAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the {@link UnitOfWorkProcessor} runs the synchronizations of the exchange once it is done, and so the
+ * onCompletion flows and the clean up of cached streams
+ */
+public class UnitOfWorkProcessorTest {
+    private DefaultVramelContext context;
+    private final List<String> events = new CopyOnWriteArrayList<String>();
+    private File tempDir;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        tempDir = File.createTempFile("uow", "");
+        tempDir.delete();
+        tempDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        final File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testSynchronizationsRunAfterTheAnswer() throws Exception {
+        final Exchange exchange = process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.addOnCompletion(new Recorder("last", Ordered.LOWEST));
+                exchange.addOnCompletion(new Recorder("first", 0));
+            }
+        });
+
+        assertEquals("[answer, complete first, complete last]", events.toString());
+        assertNull(exchange.getUnitOfWork());
+    }
+
+    @Test
+    public void testFailedExchangeRunsOnFailure() throws Exception {
+        process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.addOnCompletion(new Recorder("sync", 0));
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        assertEquals("[answer, failure sync]", events.toString());
+    }
+
+    @Test
+    public void testFailingSynchronizationDoesNotStopTheOthers() throws Exception {
+        process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.addOnCompletion(new SynchronizationAdapter() {
+                    @Override
+                    public void onComplete(Exchange exchange) {
+                        throw new IllegalStateException("boom");
+                    }
+                });
+                exchange.addOnCompletion(new Recorder("other", 0));
+            }
+        });
+
+        assertEquals("[answer, complete other]", events.toString());
+    }
+
+    @Test
+    public void testOnCompletionFlowIsRouted() throws Exception {
+        final List<Exchange> completions = new CopyOnWriteArrayList<Exchange>();
+        final OnCompletionProcessor onCompletion = new OnCompletionProcessor(context, new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                completions.add(exchange);
+            }
+        }, true, false, null, false);
+        onCompletion.start();
+
+        process(onCompletion);
+        waitFor(completions, 1);
+        assertEquals(Boolean.TRUE, completions.get(0).getProperty(Exchange.ON_COMPLETION));
+        assertEquals("hello", completions.get(0).getIn().getBody());
+
+        // only on complete
+        process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                onCompletion.process(exchange);
+                throw new IllegalStateException("boom");
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(1, completions.size());
+    }
+
+    @Test
+    public void testOnFailureOnlyFlowIsRoutedWithoutTheException() throws Exception {
+        final List<Exchange> failures = new CopyOnWriteArrayList<Exchange>();
+        final OnCompletionProcessor onFailure = new OnCompletionProcessor(context, new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                failures.add(exchange);
+            }
+        }, false, true, null, false);
+        onFailure.start();
+
+        process(onFailure);
+        process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                onFailure.process(exchange);
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        waitFor(failures, 1);
+        Thread.sleep(100);
+        assertEquals(1, failures.size());
+        assertNull(failures.get(0).getException());
+    }
+
+    @Test
+    public void testCachedStreamFileIsDeletedOnceTheExchangeIsDone() throws Exception {
+        context.getProperties().put(CachedOutputStream.THRESHOLD, "16");
+        context.getProperties().put(CachedOutputStream.TEMP_DIR, tempDir.getPath());
+        final List<InputStream> cached = new CopyOnWriteArrayList<InputStream>();
+
+        process(new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                final CachedOutputStream out = new CachedOutputStream(exchange);
+                out.write("a body larger than the threshold".getBytes("UTF-8"));
+                cached.add(out.getInputStream());
+                assertEquals("Not spooled to a file", 1, tempDir.listFiles().length);
+            }
+        });
+
+        assertEquals(0, tempDir.listFiles().length);
+    }
+
+    private Exchange process(Processor processor) throws Exception {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody("hello");
+        new UnitOfWorkProcessor(processor).process(exchange, new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                events.add("answer");
+            }
+        });
+        return exchange;
+    }
+
+    private static void waitFor(List<Exchange> exchanges, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (exchanges.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, exchanges.size());
+    }
+
+    private class Recorder extends SynchronizationAdapter implements Ordered {
+        private final String name;
+        private final int order;
+
+        Recorder(String name, int order) {
+            this.name = name;
+            this.order = order;
+        }
+
+        @Override
+        public void onComplete(Exchange exchange) {
+            events.add("complete " + name);
+        }
+
+        @Override
+        public void onFailure(Exchange exchange) {
+            events.add("failure " + name);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.Predicate;
+import com.nxttxn.vramel.Processor;
+import com.nxttxn.vramel.builder.ExpressionBuilder;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultUnitOfWork;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import com.nxttxn.vramel.processor.async.AsyncExchangeResult;
+import com.nxttxn.vramel.processor.async.OptionalAsyncResultHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the completions of the {@link AggregateProcessor}
+ */
+public class AggregateProcessorTest {
+    private DefaultVramelContext context;
+    private final List<Exchange> aggregated = new CopyOnWriteArrayList<Exchange>();
+    private final List<Exchange> answers = new CopyOnWriteArrayList<Exchange>();
+    private AggregateProcessor aggregator;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        aggregator = new AggregateProcessor(context, new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                aggregated.add(exchange);
+            }
+        }, ExpressionBuilder.headerExpression("group"), new AggregationStrategy() {
+            @Override
+            public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
+                if (oldExchange == null) {
+                    return newExchange;
+                }
+                oldExchange.getIn().setBody(oldExchange.getIn().getBody(String.class) + "+" + newExchange.getIn().getBody(String.class));
+                return oldExchange;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        aggregator.stop();
+    }
+
+    @Test
+    public void testCompletionSize() throws Exception {
+        aggregator.setCompletionSize(3);
+        aggregator.start();
+        send("a", "1");
+        send("b", "x");
+        send("a", "2");
+        assertEquals(0, aggregated.size());
+        send("a", "3");
+
+        assertEquals(1, aggregated.size());
+        assertEquals("1+2+3", aggregated.get(0).getIn().getBody());
+        assertEquals(AggregateProcessor.COMPLETED_BY_SIZE, aggregated.get(0).getProperty(Exchange.AGGREGATED_COMPLETED_BY));
+        assertEquals("a", aggregated.get(0).getProperty(Exchange.AGGREGATED_CORRELATION_KEY));
+        assertEquals(Integer.valueOf(3), aggregated.get(0).getProperty(Exchange.AGGREGATED_SIZE, Integer.class));
+        assertEquals(4, answers.size());
+    }
+
+    @Test
+    public void testAggregatedExchangeDoesNotShareTheUnitOfWork() throws Exception {
+        aggregator.setCompletionSize(1);
+        aggregator.start();
+        final Exchange exchange = exchange("a", "1");
+        exchange.setUnitOfWork(new DefaultUnitOfWork(exchange));
+        aggregator.process(exchange, answerHandler());
+
+        assertEquals(1, aggregated.size());
+        assertNotSame(exchange, aggregated.get(0));
+        assertNull(aggregated.get(0).getUnitOfWork());
+        assertEquals(exchange.getExchangeId(), aggregated.get(0).getProperty(Exchange.CORRELATION_ID));
+    }
+
+    @Test
+    public void testCompletionPredicate() throws Exception {
+        aggregator.setCompletionPredicate(new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                return exchange.getIn().getBody(String.class).endsWith("end");
+            }
+        });
+        aggregator.start();
+        send("a", "1");
+        send("a", "2");
+        send("a", "end");
+
+        assertEquals(1, aggregated.size());
+        assertEquals("1+2+end", aggregated.get(0).getIn().getBody());
+        assertEquals(AggregateProcessor.COMPLETED_BY_PREDICATE, aggregated.get(0).getProperty(Exchange.AGGREGATED_COMPLETED_BY));
+    }
+
+    @Test
+    public void testCompletionTimeout() throws Exception {
+        aggregator.setCompletionTimeout(100);
+        aggregator.start();
+        send("a", "1");
+        send("a", "2");
+        Thread.sleep(50);
+        // restarts the timeout of the group
+        send("a", "3");
+        Thread.sleep(70);
+        assertEquals(0, aggregated.size());
+
+        waitForAggregated(1);
+        assertEquals("1+2+3", aggregated.get(0).getIn().getBody());
+        assertEquals(AggregateProcessor.COMPLETED_BY_TIMEOUT, aggregated.get(0).getProperty(Exchange.AGGREGATED_COMPLETED_BY));
+    }
+
+    @Test
+    public void testCompletionInterval() throws Exception {
+        aggregator.setCompletionInterval(100);
+        aggregator.start();
+        send("a", "1");
+        send("b", "2");
+        send("a", "3");
+
+        waitForAggregated(2);
+        assertEquals("1+3", aggregated.get(0).getIn().getBody());
+        assertEquals("2", aggregated.get(1).getIn().getBody());
+        for (Exchange exchange : aggregated) {
+            assertEquals(AggregateProcessor.COMPLETED_BY_INTERVAL, exchange.getProperty(Exchange.AGGREGATED_COMPLETED_BY));
+        }
+    }
+
+    @Test
+    public void testForceCompletionOnStop() throws Exception {
+        aggregator.setCompletionSize(10);
+        aggregator.setForceCompletionOnStop(true);
+        aggregator.start();
+        send("a", "1");
+        send("a", "2");
+        aggregator.stop();
+
+        assertEquals(1, aggregated.size());
+        assertEquals("1+2", aggregated.get(0).getIn().getBody());
+        assertEquals(AggregateProcessor.COMPLETED_BY_STOP, aggregated.get(0).getProperty(Exchange.AGGREGATED_COMPLETED_BY));
+    }
+
+    @Test
+    public void testGroupsAreDroppedOnStopWithoutForceCompletion() throws Exception {
+        aggregator.setCompletionSize(10);
+        aggregator.start();
+        send("a", "1");
+        aggregator.stop();
+        assertEquals(0, aggregated.size());
+    }
+
+    @Test
+    public void testMissingCorrelationKeyFails() throws Exception {
+        aggregator.setCompletionSize(2);
+        aggregator.start();
+        send(null, "1");
+
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).getException() != null);
+        assertEquals(0, aggregated.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCompletionMustBeSet() throws Exception {
+        aggregator.start();
+    }
+
+    private void send(String group, String body) throws Exception {
+        aggregator.process(exchange(group, body), answerHandler());
+    }
+
+    private Exchange exchange(String group, String body) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setHeader("group", group);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private OptionalAsyncResultHandler answerHandler() {
+        return new OptionalAsyncResultHandler() {
+            @Override
+            public void handle(AsyncExchangeResult result) {
+                answers.add(result.result.get());
+            }
+        };
+    }
+
+    private void waitForAggregated(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (aggregated.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, aggregated.size());
+    }
+}
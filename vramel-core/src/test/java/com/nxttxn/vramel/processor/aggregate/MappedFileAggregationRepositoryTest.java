@@ -0,0 +1,216 @@
+package com.nxttxn.vramel.processor.aggregate;
+
+import com.nxttxn.vramel.Exchange;
+import com.nxttxn.vramel.RuntimeVramelException;
+import com.nxttxn.vramel.impl.DefaultExchange;
+import com.nxttxn.vramel.impl.DefaultVramelContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.impl.DefaultVertx;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the {@link MappedFileAggregationRepository} keeps its groups across a restart
+ */
+public class MappedFileAggregationRepositoryTest {
+    // the magic and version at the start of the file
+    private static final int HEADER_SIZE = 8;
+
+    private DefaultVramelContext context;
+    private File file;
+    private MappedFileAggregationRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new DefaultVramelContext(new DefaultVertx());
+        file = File.createTempFile("aggregation", ".dat");
+        file.delete();
+        repository = createRepository();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.stop();
+        file.delete();
+    }
+
+    @Test
+    public void testGroupsAreRecoveredOnRestart() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            repository.add(context, "key" + (i % 5), exchange("body " + i, i));
+        }
+        repository.remove(context, "key3", repository.get(context, "key3"));
+
+        restart();
+
+        assertEquals("[key0, key1, key2, key4]", repository.getKeys().toString());
+        assertEquals("body 99", repository.get(context, "key4").getIn().getBody(String.class));
+        assertEquals(Integer.valueOf(99), repository.get(context, "key4").getIn().getHeader("index", Integer.class));
+        assertEquals("body 95", repository.get(context, "key0").getIn().getBody(String.class));
+        assertNull(repository.get(context, "key3"));
+    }
+
+    @Test
+    public void testGroupedExchangesAreAppendedOneByOne() throws Exception {
+        final GroupedExchangeAggregationStrategy strategy = new GroupedExchangeAggregationStrategy();
+        Exchange group = null;
+        long liveBytes = 0;
+        for (int i = 0; i < 50; i++) {
+            group = strategy.aggregate(group, exchange("body " + i, i));
+            repository.add(context, "group", group);
+            final long added = repository.getLiveBytes() - liveBytes;
+            liveBytes = repository.getLiveBytes();
+            if (i > 1) {
+                // only the new exchange is written, not the whole group again
+                assertTrue("Added " + added + " bytes for exchange " + i, added < 300);
+            }
+        }
+
+        restart();
+
+        final List<?> grouped = repository.get(context, "group").getProperty(Exchange.GROUPED_EXCHANGE, List.class);
+        assertEquals(50, grouped.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("body " + i, ((Exchange) grouped.get(i)).getIn().getBody(String.class));
+        }
+
+        // carries on appending to the recovered list
+        group = strategy.aggregate(repository.get(context, "group"), exchange("body 50", 50));
+        repository.add(context, "group", group);
+        restart();
+        assertEquals(51, repository.get(context, "group").getProperty(Exchange.GROUPED_EXCHANGE, List.class).size());
+    }
+
+    @Test
+    public void testGroupedBodiesAreRecovered() throws Exception {
+        final AbstractListAggregationStrategy<String> strategy = new AbstractListAggregationStrategy<String>() {
+            @Override
+            public String getValue(Exchange exchange) {
+                return exchange.getIn().getBody(String.class);
+            }
+        };
+        Exchange group = null;
+        for (int i = 0; i < 3; i++) {
+            group = strategy.aggregate(group, exchange("body " + i, i));
+            repository.add(context, "group", group);
+        }
+
+        restart();
+
+        assertEquals("[body 0, body 1, body 2]", repository.get(context, "group").getProperty(Exchange.GROUPED_EXCHANGE).toString());
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws Exception {
+        repository.add(context, "key", exchange("first", 1));
+        repository.add(context, "other", exchange("second", 2));
+        final long end = HEADER_SIZE + repository.getLiveBytes();
+        repository.stop();
+
+        // the length of a record written partly before a crash
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(end);
+            raf.writeInt((int) raf.length());
+        }
+        repository.start();
+
+        assertEquals("[key, other]", repository.getKeys().toString());
+        assertEquals("second", repository.get(context, "other").getIn().getBody(String.class));
+        repository.add(context, "third", exchange("third", 3));
+        restart();
+        assertEquals("[key, other, third]", repository.getKeys().toString());
+    }
+
+    @Test
+    public void testLogIsCompactedWhileAddingCarriesOn() throws Exception {
+        final StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            padding.append('x');
+        }
+        for (int i = 0; i < 2000; i++) {
+            repository.add(context, "key" + (i % 10), exchange(padding + " " + i, i));
+            if (i % 100 == 99) {
+                repository.remove(context, "key" + (i % 10), repository.get(context, "key" + (i % 10)));
+            }
+        }
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (repository.getCompactions() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("The log was not compacted", repository.getCompactions() > 0);
+        for (int i = 1990; i < 1999; i++) {
+            repository.add(context, "key" + (i % 10), exchange(padding + " again " + i, i));
+        }
+
+        restart();
+
+        // stopping waited for any compaction still running
+        assertFalse(new File(file.getPath() + ".compact").exists());
+        assertEquals(9, repository.getKeys().size());
+        for (int i = 1990; i < 1999; i++) {
+            assertEquals(padding + " again " + i, repository.get(context, "key" + (i % 10)).getIn().getBody(String.class));
+        }
+        assertNull(repository.get(context, "key9"));
+        assertTrue("Grew to " + file.length() + " bytes", file.length() < 64 * 1024);
+    }
+
+    @Test
+    public void testExchangeWhichCannotBeStoredFails() throws Exception {
+        repository.add(context, "key", exchange("first", 1));
+        final Exchange exchange = exchange("second", 2);
+        exchange.setProperty("notSerializable", new Object());
+        try {
+            repository.add(context, "key", exchange);
+            fail("Stored a property which cannot be encoded");
+        } catch (RuntimeVramelException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        restart();
+        assertEquals("first", repository.get(context, "key").getIn().getBody(String.class));
+    }
+
+    @Test
+    public void testSyncForcesOnTheWorker() throws Exception {
+        repository.stop();
+        repository = createRepository();
+        repository.setSync(true);
+        repository.start();
+        for (int i = 0; i < 100; i++) {
+            repository.add(context, "key" + (i % 3), exchange("body " + i, i));
+        }
+
+        restart();
+        assertEquals("body 99", repository.get(context, "key0").getIn().getBody(String.class));
+    }
+
+    private MappedFileAggregationRepository createRepository() throws Exception {
+        final MappedFileAggregationRepository answer = new MappedFileAggregationRepository(file);
+        answer.setVramelContext(context);
+        answer.setInitialSize(4096);
+        answer.start();
+        return answer;
+    }
+
+    private void restart() throws Exception {
+        repository.stop();
+        repository = createRepository();
+    }
+
+    private Exchange exchange(String body, int index) {
+        final Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        exchange.getIn().setHeader("index", index);
+        return exchange;
+    }
+}